@@ -71,4 +71,16 @@ public class BeaconController {
       @PathVariable("beaconId") final String beaconId, @RequestBody BeaconAlleleRequest request) {
     return beaconQueryService.query(beaconId, request);
   }
+
+  @ResponseBody
+  @PostMapping(value = "/{beaconId}/query/batch", produces = APPLICATION_JSON_VALUE)
+  @ApiOperation(
+      value = "Query a beacon for multiple alleles via a POST request",
+      response = BeaconAlleleResponse.class,
+      responseContainer = "List")
+  public List<BeaconAlleleResponse> queryBatch(
+      @PathVariable("beaconId") final String beaconId,
+      @RequestBody List<BeaconAlleleRequest> requests) {
+    return beaconQueryService.query(beaconId, requests);
+  }
 }
@@ -1,5 +1,6 @@
 package org.molgenis.beacon.service;
 
+import java.util.List;
 import org.molgenis.beacon.controller.model.BeaconAlleleRequest;
 import org.molgenis.beacon.controller.model.BeaconAlleleResponse;
 import org.molgenis.data.meta.model.EntityType;
@@ -25,4 +26,12 @@ public interface BeaconQueryService {
       String referenceBases,
       String alternateBases,
       String beaconId);
+
+  /**
+   * Query a beacon with multiple {@link BeaconAlleleRequest}s at once. Each dataset is queried for
+   * all requests that were not found in a preceding dataset.
+   *
+   * @return A {@link BeaconAlleleResponse} for each request in the order of the requests
+   */
+  List<BeaconAlleleResponse> query(String beaconId, List<BeaconAlleleRequest> requests);
 }
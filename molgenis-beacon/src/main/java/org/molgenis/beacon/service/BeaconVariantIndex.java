@@ -0,0 +1,16 @@
+package org.molgenis.beacon.service;
+
+import org.molgenis.beacon.config.BeaconDataset;
+import org.molgenis.beacon.controller.model.BeaconAlleleRequest;
+
+/**
+ * Index of the variants of {@link BeaconDataset}s by chromosome and position that is used to rule
+ * out allele requests without querying the dataset.
+ */
+public interface BeaconVariantIndex {
+  /**
+   * Returns whether the dataset might contain the requested allele. Returns true if the dataset is
+   * not indexed (yet), so a dataset query is only skipped if the allele definitely does not exist.
+   */
+  boolean mightContain(BeaconDataset beaconDataset, BeaconAlleleRequest request);
+}
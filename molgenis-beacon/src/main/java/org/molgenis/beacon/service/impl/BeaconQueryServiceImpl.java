@@ -1,7 +1,13 @@
 package org.molgenis.beacon.service.impl;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
+import com.google.common.collect.Lists;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import org.molgenis.beacon.config.Beacon;
 import org.molgenis.beacon.config.BeaconDataset;
 import org.molgenis.beacon.config.BeaconMetadata;
@@ -10,8 +16,13 @@ import org.molgenis.beacon.controller.model.BeaconAlleleResponse;
 import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
 import org.molgenis.beacon.controller.model.exceptions.UnknownBeaconException;
 import org.molgenis.beacon.service.BeaconQueryService;
+import org.molgenis.beacon.service.BeaconVariantIndex;
 import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.genomebrowser.meta.GenomeBrowserAttributes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -19,10 +30,14 @@ import org.springframework.stereotype.Component;
 @Component
 public class BeaconQueryServiceImpl implements BeaconQueryService {
   private static final Logger LOG = LoggerFactory.getLogger(BeaconQueryServiceImpl.class);
+  private static final int MAX_REQUESTS_PER_QUERY = 100;
+
   private final DataService dataService;
+  private final BeaconVariantIndex beaconVariantIndex;
 
-  public BeaconQueryServiceImpl(DataService dataService) {
+  public BeaconQueryServiceImpl(DataService dataService, BeaconVariantIndex beaconVariantIndex) {
     this.dataService = requireNonNull(dataService);
+    this.beaconVariantIndex = requireNonNull(beaconVariantIndex);
   }
 
   @Override
@@ -64,56 +79,164 @@ public class BeaconQueryServiceImpl implements BeaconQueryService {
     }
   }
 
+  @Override
+  public List<BeaconAlleleResponse> query(String beaconId, List<BeaconAlleleRequest> requests) {
+    if (requests.isEmpty()) {
+      return Lists.newArrayList();
+    }
+
+    try {
+      Set<BeaconAlleleRequest> existingRequests = searchBeaconForRequests(beaconId, requests);
+      return requests.stream()
+          .map(
+              request ->
+                  BeaconAlleleResponse.create(
+                      beaconId, existingRequests.contains(request), null, request))
+          .collect(toList());
+    } catch (UnknownBeaconException e) {
+      throw e;
+    } catch (Exception e) {
+      LOG.error("An exception occurred while querying for beacon", e);
+      throw new NestedBeaconException(beaconId, requests.get(0));
+    }
+  }
+
   private boolean searchBeaconForQueryString(
       String referenceName,
       Long start,
       String referenceBases,
       String alternateBases,
       String beaconId) {
-    boolean exists = false;
+    BeaconAlleleRequest request =
+        BeaconAlleleRequest.create(referenceName, start, referenceBases, alternateBases);
     Beacon beacon = dataService.findOneById(BeaconMetadata.BEACON, beaconId, Beacon.class);
-    if (beacon != null) {
-      for (BeaconDataset beaconDataset : beacon.getDataSets()) {
-        exists =
-            queryBeaconDataset(beaconDataset, referenceName, start, referenceBases, alternateBases);
+    if (beacon == null) {
+      throw new UnknownBeaconException(beaconId, request);
+    }
+    for (BeaconDataset beaconDataset : beacon.getDataSets()) {
+      if (beaconVariantIndex.mightContain(beaconDataset, request)
+          && queryBeaconDataset(beaconDataset, request)) {
+        return true;
       }
-    } else {
-      throw new UnknownBeaconException(
-          beaconId,
-          BeaconAlleleRequest.create(referenceName, start, referenceBases, alternateBases));
     }
-    return exists;
+    return false;
   }
 
-  private boolean queryBeaconDataset(
-      BeaconDataset beaconDataset,
-      String referenceName,
-      Long start,
-      String referenceBases,
-      String alternateBases) {
-    /* Use a count query to determine if a variation exists */
-
-    String alt = beaconDataset.getGenomeBrowserAttributes().getAlt();
-    String ref = beaconDataset.getGenomeBrowserAttributes().getRef();
-
-    if (alt == null || alt.isEmpty()) {
-      alt = "ALT";
+  /**
+   * Searches the datasets of the beacon for the requested alleles. Requests that were found in a
+   * dataset are not searched for in the remaining datasets.
+   *
+   * @return requests of alleles that exist
+   */
+  private Set<BeaconAlleleRequest> searchBeaconForRequests(
+      String beaconId, List<BeaconAlleleRequest> requests) {
+    Beacon beacon = dataService.findOneById(BeaconMetadata.BEACON, beaconId, Beacon.class);
+    if (beacon == null) {
+      throw new UnknownBeaconException(beaconId, requests.get(0));
     }
 
-    if (ref == null || ref.isEmpty()) {
-      ref = "REF";
+    Set<BeaconAlleleRequest> unresolvedRequests = new LinkedHashSet<>(requests);
+    Set<BeaconAlleleRequest> existingRequests = new LinkedHashSet<>();
+    for (BeaconDataset beaconDataset : beacon.getDataSets()) {
+      List<BeaconAlleleRequest> datasetRequests =
+          unresolvedRequests.stream()
+              .filter(request -> beaconVariantIndex.mightContain(beaconDataset, request))
+              .collect(toList());
+      for (List<BeaconAlleleRequest> batch :
+          Lists.partition(datasetRequests, MAX_REQUESTS_PER_QUERY)) {
+        Set<BeaconAlleleRequest> batchExistingRequests = queryBeaconDataset(beaconDataset, batch);
+        existingRequests.addAll(batchExistingRequests);
+        unresolvedRequests.removeAll(batchExistingRequests);
+      }
+      if (unresolvedRequests.isEmpty()) {
+        break;
+      }
     }
+    return existingRequests;
+  }
 
+  private boolean queryBeaconDataset(BeaconDataset beaconDataset, BeaconAlleleRequest request) {
+    /* Use a count query to determine if a variation exists */
     return dataService.count(
             beaconDataset.getDatasetEntityType().getId(),
-            new QueryImpl<>()
-                .eq(beaconDataset.getGenomeBrowserAttributes().getChrom(), referenceName)
-                .and()
-                .eq(beaconDataset.getGenomeBrowserAttributes().getPos(), start)
-                .and()
-                .eq(ref, referenceBases)
-                .and()
-                .eq(alt, alternateBases))
+            createRequestQuery(beaconDataset, request))
         > 0;
   }
+
+  /**
+   * Queries a dataset for multiple alleles at once.
+   *
+   * @return requests of alleles that exist in the dataset
+   */
+  private Set<BeaconAlleleRequest> queryBeaconDataset(
+      BeaconDataset beaconDataset, List<BeaconAlleleRequest> requests) {
+    Query<Entity> query = new QueryImpl<>();
+    for (BeaconAlleleRequest request : requests) {
+      if (!query.getRules().isEmpty()) {
+        query.or();
+      }
+      query.nest();
+      createRequestQuery(beaconDataset, request, query);
+      query.unnest();
+    }
+
+    GenomeBrowserAttributes attributes = beaconDataset.getGenomeBrowserAttributes();
+    String refAttributeName = getRefAttributeName(beaconDataset);
+    String altAttributeName = getAltAttributeName(beaconDataset);
+    query.fetch(
+        new Fetch()
+            .field(attributes.getChrom())
+            .field(attributes.getPos())
+            .field(refAttributeName)
+            .field(altAttributeName));
+
+    Set<BeaconAlleleRequest> requestSet = new LinkedHashSet<>(requests);
+    Set<BeaconAlleleRequest> existingRequests = new LinkedHashSet<>();
+    dataService
+        .findAll(beaconDataset.getDatasetEntityType().getId(), query)
+        .forEach(
+            entity -> {
+              Object chrom = entity.get(attributes.getChrom());
+              Object pos = entity.get(attributes.getPos());
+              BeaconAlleleRequest request =
+                  BeaconAlleleRequest.create(
+                      chrom != null ? chrom.toString() : null,
+                      pos instanceof Number ? ((Number) pos).longValue() : null,
+                      Objects.toString(entity.get(refAttributeName), null),
+                      Objects.toString(entity.get(altAttributeName), null));
+              if (requestSet.contains(request)) {
+                existingRequests.add(request);
+              }
+            });
+    return existingRequests;
+  }
+
+  private static Query<Entity> createRequestQuery(
+      BeaconDataset beaconDataset, BeaconAlleleRequest request) {
+    Query<Entity> query = new QueryImpl<>();
+    createRequestQuery(beaconDataset, request, query);
+    return query;
+  }
+
+  private static void createRequestQuery(
+      BeaconDataset beaconDataset, BeaconAlleleRequest request, Query<Entity> query) {
+    query
+        .eq(beaconDataset.getGenomeBrowserAttributes().getChrom(), request.getReferenceName())
+        .and()
+        .eq(beaconDataset.getGenomeBrowserAttributes().getPos(), request.getStart())
+        .and()
+        .eq(getRefAttributeName(beaconDataset), request.getReferenceBases())
+        .and()
+        .eq(getAltAttributeName(beaconDataset), request.getAlternateBases());
+  }
+
+  static String getRefAttributeName(BeaconDataset beaconDataset) {
+    String ref = beaconDataset.getGenomeBrowserAttributes().getRef();
+    return ref == null || ref.isEmpty() ? "REF" : ref;
+  }
+
+  static String getAltAttributeName(BeaconDataset beaconDataset) {
+    String alt = beaconDataset.getGenomeBrowserAttributes().getAlt();
+    return alt == null || alt.isEmpty() ? "ALT" : alt;
+  }
 }
@@ -0,0 +1,259 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.beacon.config.BeaconDatasetMetadata.BEACON_DATASET;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
+import static org.molgenis.genomebrowser.meta.GenomeBrowserAttributesMetadata.GENOMEBROWSERATTRIBUTES;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.molgenis.beacon.config.BeaconDataset;
+import org.molgenis.beacon.controller.model.BeaconAlleleRequest;
+import org.molgenis.beacon.service.BeaconVariantIndex;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.genomebrowser.meta.GenomeBrowserAttributes;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link BeaconVariantIndex} that keeps a {@link GenomicPositionIndex} per dataset in memory.
+ *
+ * <p>Indices are built in the background on first use and dropped when the data of the dataset, a
+ * beacon dataset or a genome browser attribute mapping changes on this or another application
+ * node. Until an index is (re)built all requests are answered by querying the dataset.
+ */
+@Component
+public class BeaconVariantIndexImpl implements BeaconVariantIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(BeaconVariantIndexImpl.class);
+  private static final int BATCH_SIZE = 1000;
+
+  private final DataService dataService;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final long maxVariants;
+  private final ExecutorService executorService;
+
+  /** maps beacon dataset id to the index of the dataset */
+  private final ConcurrentMap<String, DatasetIndex> datasetIndices = new ConcurrentHashMap<>();
+  /** maps beacon dataset id to the entity type id of datasets that could not be indexed */
+  private final ConcurrentMap<String, String> unindexableDatasets = new ConcurrentHashMap<>();
+
+  /** maps beacon dataset id to the entity type id of datasets that are being indexed */
+  private final ConcurrentMap<String, String> indexingDatasets = new ConcurrentHashMap<>();
+  private final AtomicLong revision = new AtomicLong();
+
+  public BeaconVariantIndexImpl(
+      DataService dataService,
+      UserPermissionEvaluator userPermissionEvaluator,
+      CacheInvalidationBus cacheInvalidationBus,
+      @Value("${beacon_index_max_variants:10000000}") long maxVariants) {
+    this.dataService = requireNonNull(dataService);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    if (maxVariants <= 0) {
+      throw new IllegalArgumentException("beacon_index_max_variants must be greater than 0");
+    }
+    this.maxVariants = maxVariants;
+    this.executorService =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-beacon-index-%d")
+                .setDaemon(true)
+                .build());
+    requireNonNull(cacheInvalidationBus).addListener(this::evict);
+  }
+
+  @Override
+  public boolean mightContain(BeaconDataset beaconDataset, BeaconAlleleRequest request) {
+    String entityTypeId = beaconDataset.getDatasetEntityType().getId();
+    if (!userPermissionEvaluator.hasPermission(new EntityTypeIdentity(entityTypeId), READ_DATA)) {
+      // let the dataset query report the missing permission
+      return true;
+    }
+
+    DatasetIndex datasetIndex = datasetIndices.get(beaconDataset.getId());
+    if (datasetIndex == null) {
+      scheduleIndexing(beaconDataset);
+      return true;
+    }
+    return datasetIndex
+        .getIndex()
+        .mightContain(
+            request.getReferenceName(),
+            request.getStart(),
+            request.getReferenceBases(),
+            request.getAlternateBases());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  /** Drops the indices of datasets changed on this or another application node. */
+  private void evict(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()
+        || isDirty(cacheInvalidation, BEACON_DATASET)
+        || isDirty(cacheInvalidation, GENOMEBROWSERATTRIBUTES)) {
+      revision.incrementAndGet();
+      datasetIndices.clear();
+      unindexableDatasets.clear();
+    } else {
+      if (indexingDatasets.values().stream()
+          .anyMatch(entityTypeId -> isDirty(cacheInvalidation, entityTypeId))) {
+        revision.incrementAndGet();
+      }
+      datasetIndices
+          .values()
+          .removeIf(datasetIndex -> isDirty(cacheInvalidation, datasetIndex.getEntityTypeId()));
+      unindexableDatasets
+          .values()
+          .removeIf(entityTypeId -> isDirty(cacheInvalidation, entityTypeId));
+    }
+  }
+
+  private static boolean isDirty(CacheInvalidation cacheInvalidation, String entityTypeId) {
+    return cacheInvalidation.getEntityTypeIds().contains(entityTypeId)
+        || cacheInvalidation.getEntityKeys().stream()
+            .anyMatch(entityKey -> entityKey.getEntityTypeId().equals(entityTypeId));
+  }
+
+  private void scheduleIndexing(BeaconDataset beaconDataset) {
+    String datasetId = beaconDataset.getId();
+    String entityTypeId = beaconDataset.getDatasetEntityType().getId();
+    if (unindexableDatasets.containsKey(datasetId)
+        || indexingDatasets.putIfAbsent(datasetId, entityTypeId) != null) {
+      return;
+    }
+
+    long indexRevision = revision.get();
+    GenomeBrowserAttributes attributes = beaconDataset.getGenomeBrowserAttributes();
+    String chromAttributeName = attributes.getChrom();
+    String posAttributeName = attributes.getPos();
+    String refAttributeName = BeaconQueryServiceImpl.getRefAttributeName(beaconDataset);
+    String altAttributeName = BeaconQueryServiceImpl.getAltAttributeName(beaconDataset);
+    try {
+      executorService.execute(
+          () -> {
+            try {
+              GenomicPositionIndex index =
+                  runAsSystem(
+                      () ->
+                          createIndex(
+                              entityTypeId,
+                              chromAttributeName,
+                              posAttributeName,
+                              refAttributeName,
+                              altAttributeName));
+              if (index != null) {
+                DatasetIndex datasetIndex = new DatasetIndex(entityTypeId, index);
+                datasetIndices.put(datasetId, datasetIndex);
+                // discard the index if the data changed while it was being created
+                if (revision.get() != indexRevision) {
+                  datasetIndices.remove(datasetId, datasetIndex);
+                }
+              } else {
+                unindexableDatasets.put(datasetId, entityTypeId);
+              }
+            } catch (RuntimeException e) {
+              LOG.warn("Error indexing variants of beacon dataset '{}'", datasetId, e);
+              unindexableDatasets.put(datasetId, entityTypeId);
+            } finally {
+              indexingDatasets.remove(datasetId);
+            }
+          });
+    } catch (RuntimeException e) {
+      indexingDatasets.remove(datasetId);
+      throw e;
+    }
+  }
+
+  /** Returns the index of the dataset or null if the dataset contains too many variants. */
+  private GenomicPositionIndex createIndex(
+      String entityTypeId,
+      String chromAttributeName,
+      String posAttributeName,
+      String refAttributeName,
+      String altAttributeName) {
+    long count = dataService.count(entityTypeId);
+    if (count > maxVariants) {
+      LOG.info(
+          "Not indexing '{}': {} variants exceed the maximum of {}",
+          entityTypeId,
+          count,
+          maxVariants);
+      return null;
+    }
+
+    LOG.debug("Indexing {} variants of '{}' ...", count, entityTypeId);
+    Fetch fetch =
+        new Fetch()
+            .field(chromAttributeName)
+            .field(posAttributeName)
+            .field(refAttributeName)
+            .field(altAttributeName);
+    GenomicPositionIndex.Builder builder = GenomicPositionIndex.builder();
+    dataService
+        .getRepository(entityTypeId)
+        .forEachBatched(
+            fetch,
+            entities -> {
+              for (Entity entity : entities) {
+                Object chrom = entity.get(chromAttributeName);
+                Object pos = entity.get(posAttributeName);
+                // variants without a chromosome or position never match a request
+                if (chrom != null && pos != null) {
+                  builder.add(
+                      chrom.toString(),
+                      toPosition(pos),
+                      toBases(entity.get(refAttributeName)),
+                      toBases(entity.get(altAttributeName)));
+                }
+              }
+            },
+            BATCH_SIZE);
+    LOG.debug("Indexed {} variants of '{}'", builder.size(), entityTypeId);
+    return builder.build();
+  }
+
+  private static long toPosition(Object pos) {
+    if (!(pos instanceof Number)) {
+      throw new IllegalArgumentException("Position '" + pos + "' is not a number");
+    }
+    return ((Number) pos).longValue();
+  }
+
+  private static String toBases(Object bases) {
+    return bases != null ? bases.toString() : null;
+  }
+
+  private static class DatasetIndex {
+    private final String entityTypeId;
+    private final GenomicPositionIndex index;
+
+    DatasetIndex(String entityTypeId, GenomicPositionIndex index) {
+      this.entityTypeId = requireNonNull(entityTypeId);
+      this.index = requireNonNull(index);
+    }
+
+    String getEntityTypeId() {
+      return entityTypeId;
+    }
+
+    GenomicPositionIndex getIndex() {
+      return index;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable in-memory index of the variants of a dataset, partitioned by chromosome.
+ *
+ * <p>Per chromosome the variants are stored as a sorted array of keys that combine the position
+ * with a hash of the reference and alternate bases, eight bytes per variant. Lookups can return
+ * false positives on hash collisions but never false negatives.
+ */
+class GenomicPositionIndex {
+  private static final long MAX_POSITION = Integer.MAX_VALUE;
+
+  private final Map<String, long[]> chromosomeKeys;
+  private final long size;
+
+  private GenomicPositionIndex(Map<String, long[]> chromosomeKeys, long size) {
+    this.chromosomeKeys = requireNonNull(chromosomeKeys);
+    this.size = size;
+  }
+
+  /** Returns whether the index might contain the variant, false if it definitely does not. */
+  boolean mightContain(String chrom, Long pos, String ref, String alt) {
+    if (pos == null || !isIndexable(pos)) {
+      return true;
+    }
+    long[] keys = chromosomeKeys.get(chrom);
+    return keys != null && Arrays.binarySearch(keys, toKey(pos, ref, alt)) >= 0;
+  }
+
+  long size() {
+    return size;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  private static boolean isIndexable(long pos) {
+    return pos >= 0 && pos <= MAX_POSITION;
+  }
+
+  private static long toKey(long pos, String ref, String alt) {
+    int alleleHash = 31 * Objects.hashCode(ref) + Objects.hashCode(alt);
+    return pos << 32 | (alleleHash & 0xFFFFFFFFL);
+  }
+
+  static class Builder {
+    private final Map<String, KeyBuffer> chromosomeKeyBuffers = new HashMap<>();
+    private long size;
+
+    private Builder() {}
+
+    /** Adds a variant, variants with a position outside the indexable range are skipped. */
+    Builder add(String chrom, long pos, String ref, String alt) {
+      if (isIndexable(pos)) {
+        chromosomeKeyBuffers
+            .computeIfAbsent(chrom, key -> new KeyBuffer())
+            .add(toKey(pos, ref, alt));
+        size++;
+      }
+      return this;
+    }
+
+    long size() {
+      return size;
+    }
+
+    GenomicPositionIndex build() {
+      Map<String, long[]> chromosomeKeys = new HashMap<>();
+      chromosomeKeyBuffers.forEach(
+          (chrom, keyBuffer) -> chromosomeKeys.put(chrom, keyBuffer.toSortedArray()));
+      return new GenomicPositionIndex(chromosomeKeys, size);
+    }
+  }
+
+  private static class KeyBuffer {
+    private long[] keys = new long[16];
+    private int size;
+
+    void add(long key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size++] = key;
+    }
+
+    long[] toSortedArray() {
+      long[] sortedKeys = Arrays.copyOf(keys, size);
+      Arrays.sort(sortedKeys);
+      return sortedKeys;
+    }
+  }
+}
@@ -131,6 +131,26 @@ public class BeaconControllerTest extends AbstractTestNGSpringContextTests {
     verify(beaconQueryService, times(1)).query("beaconA", request);
   }
 
+  @Test
+  public void testPostQueryBatch() throws Exception {
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+    BeaconAlleleResponse response = BeaconAlleleResponse.create("beaconA", true, null, request);
+
+    when(beaconQueryService.query("beaconA", newArrayList(request)))
+        .thenReturn(newArrayList(response));
+
+    mockMvc
+        .perform(
+            post("/beacon/{beaconId}/query/batch", "beaconA")
+                .content("[" + getBeaconAlleleRequestJson() + "]")
+                .contentType(APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON_UTF8))
+        .andExpect(content().string("[" + getBeaconAlleleResponseAsJson() + "]"));
+
+    verify(beaconQueryService, times(1)).query("beaconA", newArrayList(request));
+  }
+
   private String getBeaconResponseListAsJson() {
     return "[" + getBeaconResponseAsJson() + "]";
   }
@@ -1,13 +1,21 @@
 package org.molgenis.beacon.service;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.stream.Stream;
 import org.mockito.Mock;
 import org.molgenis.beacon.config.Beacon;
 import org.molgenis.beacon.config.BeaconDataset;
@@ -16,6 +24,7 @@ import org.molgenis.beacon.controller.model.BeaconAlleleRequest;
 import org.molgenis.beacon.controller.model.BeaconAlleleResponse;
 import org.molgenis.beacon.controller.model.exceptions.BeaconException;
 import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
+import org.molgenis.beacon.controller.model.exceptions.UnknownBeaconException;
 import org.molgenis.beacon.service.impl.BeaconQueryServiceImpl;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -29,6 +38,7 @@ public class BeaconQueryServiceTest {
   private BeaconQueryService beaconQueryService;
 
   @Mock private DataService dataService;
+  @Mock private BeaconVariantIndex beaconVariantIndex;
 
   private Query<Entity> query1;
   private Query<Entity> query2;
@@ -78,7 +88,10 @@ public class BeaconQueryServiceTest {
             .and()
             .eq(dataset2.getGenomeBrowserAttributes().getAlt(), "T");
 
-    beaconQueryService = new BeaconQueryServiceImpl(dataService);
+    when(beaconVariantIndex.mightContain(any(BeaconDataset.class), any(BeaconAlleleRequest.class)))
+        .thenReturn(true);
+
+    beaconQueryService = new BeaconQueryServiceImpl(dataService, beaconVariantIndex);
   }
 
   @Test
@@ -156,4 +169,129 @@ public class BeaconQueryServiceTest {
       assertEquals(e.getMessage(), beaconException.getMessage());
     }
   }
+
+  @Test
+  public void queryExistsInFirstDatasetTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1, dataset2));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+
+    doReturn(1L).when(dataService).count("dataset1", query1);
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    assertEquals(actualResponse, BeaconAlleleResponse.create(BEACON_ID, true, null, request));
+    verify(dataService, never()).count(eq("dataset2"), any(Query.class));
+  }
+
+  @Test
+  public void queryNotInIndexTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1, dataset2));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+    when(beaconVariantIndex.mightContain(dataset1, request)).thenReturn(false);
+    doReturn(1L).when(dataService).count("dataset2", query2);
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    assertEquals(actualResponse, BeaconAlleleResponse.create(BEACON_ID, true, null, request));
+    verify(dataService, never()).count(eq("dataset1"), any(Query.class));
+  }
+
+  @Test
+  public void queryBatchTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1, dataset2));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+
+    BeaconAlleleRequest request1 = BeaconAlleleRequest.create("1", 100L, "A", "T");
+    BeaconAlleleRequest request2 = BeaconAlleleRequest.create("1", 200L, "C", "G");
+    BeaconAlleleRequest request3 = BeaconAlleleRequest.create("2", 300L, "G", "A");
+    when(beaconVariantIndex.mightContain(dataset2, request3)).thenReturn(false);
+
+    Query<Entity> dataset1Query =
+        new QueryImpl<>()
+            .nest()
+            .eq("#CHROM", "1")
+            .and()
+            .eq("POS", 100L)
+            .and()
+            .eq("REF", "A")
+            .and()
+            .eq("ALT", "T")
+            .unnest()
+            .or()
+            .nest()
+            .eq("#CHROM", "1")
+            .and()
+            .eq("POS", 200L)
+            .and()
+            .eq("REF", "C")
+            .and()
+            .eq("ALT", "G")
+            .unnest()
+            .or()
+            .nest()
+            .eq("#CHROM", "2")
+            .and()
+            .eq("POS", 300L)
+            .and()
+            .eq("REF", "G")
+            .and()
+            .eq("ALT", "A")
+            .unnest();
+    Entity variant1 = createVariant("1", 100, "A", "T");
+    when(dataService.findAll("dataset1", dataset1Query)).thenReturn(Stream.of(variant1));
+
+    Query<Entity> dataset2Query =
+        new QueryImpl<>()
+            .nest()
+            .eq("#CHROM", "1")
+            .and()
+            .eq("POS", 200L)
+            .and()
+            .eq("REF", "C")
+            .and()
+            .eq("ALT", "G")
+            .unnest();
+    Entity variant2 = createVariant("1", 200, "C", "G");
+    when(dataService.findAll("dataset2", dataset2Query)).thenReturn(Stream.of(variant2));
+
+    List<BeaconAlleleResponse> actualResponses =
+        beaconQueryService.query(BEACON_ID, asList(request1, request2, request3));
+    List<BeaconAlleleResponse> expectedResponses =
+        asList(
+            BeaconAlleleResponse.create(BEACON_ID, true, null, request1),
+            BeaconAlleleResponse.create(BEACON_ID, true, null, request2),
+            BeaconAlleleResponse.create(BEACON_ID, false, null, request3));
+    assertEquals(actualResponses, expectedResponses);
+  }
+
+  @Test
+  public void queryBatchEmptyTest() {
+    assertEquals(beaconQueryService.query(BEACON_ID, emptyList()), emptyList());
+  }
+
+  @Test(expectedExceptions = UnknownBeaconException.class)
+  public void queryBatchUnknownBeaconTest() {
+    beaconQueryService.query(
+        "unknownBeacon", Lists.newArrayList(BeaconAlleleRequest.create("1", 100L, "A", "T")));
+  }
+
+  private static Entity createVariant(String chrom, int pos, String ref, String alt) {
+    Entity variant = mock(Entity.class);
+    when(variant.get("#CHROM")).thenReturn(chrom);
+    when(variant.get("POS")).thenReturn(pos);
+    when(variant.get("REF")).thenReturn(ref);
+    when(variant.get("ALT")).thenReturn(alt);
+    return variant;
+  }
 }
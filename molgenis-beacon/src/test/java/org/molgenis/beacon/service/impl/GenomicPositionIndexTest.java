@@ -0,0 +1,50 @@
+package org.molgenis.beacon.service.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class GenomicPositionIndexTest {
+  private GenomicPositionIndex genomicPositionIndex;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    genomicPositionIndex =
+        GenomicPositionIndex.builder()
+            .add("1", 300L, "G", "A")
+            .add("1", 100L, "A", "T")
+            .add("2", 100L, "C", null)
+            .add("1", -1L, "A", "T")
+            .build();
+  }
+
+  @Test
+  public void testMightContain() {
+    assertTrue(genomicPositionIndex.mightContain("1", 100L, "A", "T"));
+    assertTrue(genomicPositionIndex.mightContain("1", 300L, "G", "A"));
+    assertTrue(genomicPositionIndex.mightContain("2", 100L, "C", null));
+  }
+
+  @Test
+  public void testMightContainUnknownVariant() {
+    assertFalse(genomicPositionIndex.mightContain("1", 200L, "A", "T"));
+    assertFalse(genomicPositionIndex.mightContain("1", 100L, "A", "C"));
+    assertFalse(genomicPositionIndex.mightContain("2", 300L, "G", "A"));
+    assertFalse(genomicPositionIndex.mightContain("X", 100L, "A", "T"));
+  }
+
+  @Test
+  public void testMightContainPositionOutOfRange() {
+    assertTrue(genomicPositionIndex.mightContain("1", -1L, "A", "T"));
+    assertTrue(genomicPositionIndex.mightContain("1", 1L << 40, "A", "T"));
+    assertTrue(genomicPositionIndex.mightContain("1", null, "A", "T"));
+  }
+
+  @Test
+  public void testSize() {
+    assertEquals(genomicPositionIndex.size(), 3L);
+  }
+}
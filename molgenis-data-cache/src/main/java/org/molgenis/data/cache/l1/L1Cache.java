@@ -6,13 +6,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
 import com.google.common.cache.Cache;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.cache.utils.CacheHit;
 import org.molgenis.data.cache.utils.CombinedEntityCache;
+import org.molgenis.data.cache.utils.DehydratedEntity;
 import org.molgenis.data.cache.utils.EntityHydration;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.transaction.TransactionListener;
@@ -44,7 +44,7 @@ public class L1Cache implements TransactionListener {
   }
 
   private CombinedEntityCache createCache() {
-    Cache<EntityKey, CacheHit<Map<String, Object>>> cache =
+    Cache<EntityKey, CacheHit<DehydratedEntity>> cache =
         CaffeinatedGuava.build(Caffeine.newBuilder().maximumSize(MAX_CACHE_SIZE).recordStats());
     return new CombinedEntityCache(entityHydration, cache);
   }
@@ -0,0 +1,65 @@
+package org.molgenis.data.cache.l2;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.molgenis.data.cache.utils.DehydratedEntity;
+
+/**
+ * Estimates the number of heap bytes retained by a dehydrated entity. The estimate is based on the
+ * typical object layout of a 64-bit JVM with compressed references and is only intended to weigh
+ * cache entries against each other. The shared schema of a dehydrated entity is not weighed.
+ */
+class DehydratedEntityWeigher implements Weigher<Object, Optional<DehydratedEntity>> {
+  private static final int OBJECT_HEADER_BYTES = 16;
+  private static final int REFERENCE_BYTES = 4;
+  private static final int STRING_BYTES = 24 + OBJECT_HEADER_BYTES;
+  private static final int BOXED_BYTES = OBJECT_HEADER_BYTES + 8;
+  private static final int CACHE_ENTRY_BYTES = 64;
+
+  @Override
+  public int weigh(Object id, Optional<DehydratedEntity> dehydratedEntity) {
+    long weight = CACHE_ENTRY_BYTES + estimateValueSize(id);
+    if (dehydratedEntity.isPresent()) {
+      weight += estimateEntitySize(dehydratedEntity.get());
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private static long estimateEntitySize(DehydratedEntity dehydratedEntity) {
+    int nrValues = dehydratedEntity.getNrValues();
+    long size = OBJECT_HEADER_BYTES + estimateArraySize(nrValues);
+    for (int i = 0; i < nrValues; i++) {
+      size += estimateValueSize(dehydratedEntity.getValue(i));
+    }
+    return size;
+  }
+
+  private static long estimateValueSize(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof String) {
+      return STRING_BYTES + ((String) value).length();
+    } else if (value instanceof Number || value instanceof Boolean) {
+      return BOXED_BYTES;
+    } else if (value instanceof LocalDate) {
+      return OBJECT_HEADER_BYTES + 8;
+    } else if (value instanceof Instant) {
+      return OBJECT_HEADER_BYTES + 16;
+    } else if (value instanceof Object[]) {
+      Object[] values = (Object[]) value;
+      long size = estimateArraySize(values.length);
+      for (Object element : values) {
+        size += estimateValueSize(element);
+      }
+      return size;
+    } else {
+      return OBJECT_HEADER_BYTES * 2L;
+    }
+  }
+
+  private static long estimateArraySize(int length) {
+    return OBJECT_HEADER_BYTES + length * (long) REFERENCE_BYTES;
+  }
+}
@@ -8,11 +8,13 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toMap;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,53 +27,88 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.cache.utils.DehydratedEntity;
 import org.molgenis.data.cache.utils.EntityHydration;
-import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** In-memory cache of entities read from cacheable repositories. */
+/**
+ * In-memory cache of entities read from cacheable repositories.
+ *
+ * <p>The cache is bounded by a global memory budget in bytes. Each entity type gets a quota of this
+ * budget: part of the budget is divided evenly over the entity types, the remainder is divided
+ * proportionally to the number of cache hits per entity type since the previous rebalance.
+ *
+ * <p>Evictions are published on the {@link CacheInvalidationBus} so that other application nodes
+ * sharing the same database evict the same entities.
+ */
 @Service
 public class L2Cache implements TransactionListener {
   private static final Logger LOG = LoggerFactory.getLogger(L2Cache.class);
-  private static final int MAX_CACHE_SIZE_PER_ENTITY = 1000;
-  /** maps entity id to the loading cache with Object key and Optional dehydrated entity value */
-  private final ConcurrentMap<String, LoadingCache<Object, Optional<Map<String, Object>>>> caches;
+  /** Fraction of the memory budget that is divided evenly over the entity types */
+  private static final double MIN_QUOTA_FRACTION = 0.25;
+  /** maps entity id to the entity cache with Object key and Optional dehydrated entity value */
+  private final ConcurrentMap<String, EntityCache> caches;
 
   private final EntityHydration entityHydration;
   private final TransactionInformation transactionInformation;
   private final MeterRegistry meterRegistry;
+  private final CacheInvalidationBus cacheInvalidationBus;
+  private final long maxCacheBytes;
+  private final DehydratedEntityWeigher weigher;
 
   public L2Cache(
       TransactionManager transactionManager,
       EntityHydration entityHydration,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      CacheInvalidationBus cacheInvalidationBus,
+      @Value("${cache_l2_max_bytes:134217728}") long maxCacheBytes) {
     this.entityHydration = requireNonNull(entityHydration);
     this.transactionInformation = requireNonNull(transactionInformation);
     this.meterRegistry = requireNonNull(meterRegistry);
+    this.cacheInvalidationBus = requireNonNull(cacheInvalidationBus);
+    if (maxCacheBytes <= 0) {
+      throw new IllegalArgumentException("cache_l2_max_bytes must be greater than 0");
+    }
+    this.maxCacheBytes = maxCacheBytes;
+    this.weigher = new DehydratedEntityWeigher();
     caches = newConcurrentMap();
     requireNonNull(transactionManager).addTransactionListener(this);
+    cacheInvalidationBus.addListener(this::evict);
   }
 
   @Override
   public void afterCommitTransaction(String transactionId) {
-    // TODO: trace logging
-    transactionInformation.getEntirelyDirtyRepositories().forEach(caches::remove);
-    transactionInformation.getDirtyEntities().forEach(this::evict);
+    LOG.trace("Publishing L2 cache invalidation for transaction {}", transactionId);
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(
+            transactionInformation.getEntirelyDirtyRepositories(),
+            transactionInformation.getDirtyEntities()));
+  }
+
+  private void evict(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()) {
+      caches.clear();
+    } else {
+      cacheInvalidation.getEntityTypeIds().forEach(caches::remove);
+      cacheInvalidation.getEntityKeys().forEach(this::evict);
+    }
   }
 
   private void evict(EntityKey entityKey) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        caches.get(entityKey.getEntityTypeId());
-    if (cache != null) {
-      cache.invalidate(entityKey.getId());
+    EntityCache entityCache = caches.get(entityKey.getEntityTypeId());
+    if (entityCache != null) {
+      entityCache.getCache().invalidate(entityKey.getId());
     }
   }
 
@@ -85,7 +122,7 @@ public class L2Cache implements TransactionListener {
    *     an error when loading the entity
    */
   public Entity get(Repository<Entity> repository, Object id) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache = getEntityCache(repository);
+    LoadingCache<Object, Optional<DehydratedEntity>> cache = getEntityCache(repository);
     EntityType entityType = repository.getEntityType();
     return cache.getUnchecked(id).map(e -> entityHydration.hydrate(e, entityType)).orElse(null);
   }
@@ -122,10 +159,50 @@ public class L2Cache implements TransactionListener {
     // TODO: do we want to log diff with last log instead?
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache stats:");
-      for (Map.Entry<String, LoadingCache<Object, Optional<Map<String, Object>>>> cacheEntry :
-          caches.entrySet()) {
-        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().stats());
+      for (Map.Entry<String, EntityCache> cacheEntry : caches.entrySet()) {
+        EntityCache entityCache = cacheEntry.getValue();
+        LOG.debug(
+            "{}:{} weight={} quota={}",
+            cacheEntry.getKey(),
+            entityCache.getCache().stats(),
+            entityCache.getWeight(),
+            entityCache.getQuota());
+      }
+    }
+  }
+
+  /**
+   * Divides the memory budget over the entity caches. A quarter of the budget is divided evenly,
+   * the remainder is divided based on the number of cache hits since the previous rebalance.
+   */
+  @Scheduled(fixedRate = 10000)
+  public void rebalanceQuotas() {
+    Map<String, EntityCache> entityCaches = new HashMap<>(caches);
+    if (entityCaches.isEmpty()) {
+      return;
+    }
+
+    int nrEntityCaches = entityCaches.size();
+    long minQuota = (long) (maxCacheBytes * MIN_QUOTA_FRACTION / nrEntityCaches);
+    long distributableBytes = maxCacheBytes - minQuota * nrEntityCaches;
+
+    Map<String, Long> hitCounts = new HashMap<>();
+    long totalHitCount = 0;
+    for (Map.Entry<String, EntityCache> entry : entityCaches.entrySet()) {
+      long hitCount = entry.getValue().pollHitCount();
+      hitCounts.put(entry.getKey(), hitCount);
+      totalHitCount += hitCount;
+    }
+
+    for (Map.Entry<String, EntityCache> entry : entityCaches.entrySet()) {
+      long quota;
+      if (totalHitCount == 0) {
+        quota = minQuota + distributableBytes / nrEntityCaches;
+      } else {
+        double hitFraction = hitCounts.get(entry.getKey()) / (double) totalHitCount;
+        quota = minQuota + (long) (distributableBytes * hitFraction);
       }
+      entry.getValue().setQuota(quota);
     }
   }
 
@@ -137,33 +214,33 @@ public class L2Cache implements TransactionListener {
    *     id of the repository is used to look up the existing cache
    * @return the LoadingCache for the repository
    */
-  @SuppressWarnings("squid:S2201") // ignore return values
-  private LoadingCache<Object, Optional<Map<String, Object>>> getEntityCache(
+  private LoadingCache<Object, Optional<DehydratedEntity>> getEntityCache(
       Repository<Entity> repository) {
     String id = repository.getEntityType().getId();
-    if (!caches.containsKey(id)) {
-      caches.putIfAbsent(id, createEntityCache(repository));
-    }
-    return caches.get(id);
+    return caches.computeIfAbsent(id, key -> createEntityCache(repository)).getCache();
   }
 
   /**
-   * Creates a new Entity cache
+   * Creates a new Entity cache. Its initial quota is the minimum quota, the quota is adjusted on
+   * the next rebalance.
    *
    * @param repository the {@link Repository} to load the entities from
-   * @return newly created LoadingCache
+   * @return newly created EntityCache
    */
-  private LoadingCache<Object, Optional<Map<String, Object>>> createEntityCache(
-      Repository<Entity> repository) {
-    Caffeine<Object, Object> cacheBuilder =
-        Caffeine.newBuilder().recordStats().expireAfterAccess(10, MINUTES);
-    if (!MetaDataService.isMetaEntityType(repository.getEntityType())) {
-      cacheBuilder.maximumSize(MAX_CACHE_SIZE_PER_ENTITY);
-    }
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        CaffeinatedGuava.build(cacheBuilder, createCacheLoader(repository));
+  private EntityCache createEntityCache(Repository<Entity> repository) {
+    long initialQuota = (long) (maxCacheBytes * MIN_QUOTA_FRACTION / (caches.size() + 1));
+    com.github.benmanes.caffeine.cache.LoadingCache<Object, Optional<DehydratedEntity>>
+        caffeineCache =
+            Caffeine.newBuilder()
+                .recordStats()
+                .expireAfterAccess(10, MINUTES)
+                .maximumWeight(initialQuota)
+                .weigher(weigher)
+                .build(CaffeinatedGuava.caffeinate(createCacheLoader(repository)));
+    LoadingCache<Object, Optional<DehydratedEntity>> cache =
+        CaffeinatedGuava.guava(caffeineCache);
     GuavaCacheMetrics.monitor(meterRegistry, cache, "l2." + repository.getEntityType().getId());
-    return cache;
+    return new EntityCache(caffeineCache, cache);
   }
 
   /**
@@ -172,9 +249,9 @@ public class L2Cache implements TransactionListener {
    * @param repository the Repository to load the entities from
    * @return the {@link CacheLoader}
    */
-  private CacheLoader<Object, Optional<Map<String, Object>>> createCacheLoader(
+  private CacheLoader<Object, Optional<DehydratedEntity>> createCacheLoader(
       final Repository<Entity> repository) {
-    return new CacheLoader<Object, Optional<Map<String, Object>>>() {
+    return new CacheLoader<Object, Optional<DehydratedEntity>>() {
       /**
        * Loads a single entity from the repository.
        *
@@ -182,7 +259,7 @@ public class L2Cache implements TransactionListener {
        * @return dehydrated entity or empty if the entity was not present in the repository
        */
       @Override
-      public Optional<Map<String, Object>> load(@Nonnull Object id) {
+      public Optional<DehydratedEntity> load(@Nonnull Object id) {
         return Optional.ofNullable(repository.findOneById(id)).map(entityHydration::dehydrate);
       }
 
@@ -194,9 +271,9 @@ public class L2Cache implements TransactionListener {
        *     in the repository
        */
       @Override
-      public Map<Object, Optional<Map<String, Object>>> loadAll(Iterable<?> ids) {
+      public Map<Object, Optional<DehydratedEntity>> loadAll(Iterable<?> ids) {
         Stream<Object> typedIds = stream(ids).map(id -> id);
-        Map<Object, Optional<Map<String, Object>>> result =
+        Map<Object, Optional<DehydratedEntity>> result =
             repository.findAll(typedIds).collect(toMap(Entity::getIdValue, this::dehydrateEntity));
         for (Object key : ids) {
           // cache the absence of these entities in the backend as empty values
@@ -205,9 +282,53 @@ public class L2Cache implements TransactionListener {
         return result;
       }
 
-      private Optional<Map<String, Object>> dehydrateEntity(Entity entity) {
+      private Optional<DehydratedEntity> dehydrateEntity(Entity entity) {
         return Optional.of(entityHydration.dehydrate(entity));
       }
     };
   }
+
+  /** Cache of dehydrated entities of one entity type with an adjustable weight quota. */
+  private static class EntityCache {
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Optional<DehydratedEntity>>
+        caffeineCache;
+    private final LoadingCache<Object, Optional<DehydratedEntity>> cache;
+    private long lastHitCount;
+
+    EntityCache(
+        com.github.benmanes.caffeine.cache.Cache<Object, Optional<DehydratedEntity>>
+            caffeineCache,
+        LoadingCache<Object, Optional<DehydratedEntity>> cache) {
+      this.caffeineCache = requireNonNull(caffeineCache);
+      this.cache = requireNonNull(cache);
+    }
+
+    LoadingCache<Object, Optional<DehydratedEntity>> getCache() {
+      return cache;
+    }
+
+    /** @return number of cache hits since the previous poll */
+    synchronized long pollHitCount() {
+      long hitCount = caffeineCache.stats().hitCount();
+      long hitCountSincePoll = hitCount - lastHitCount;
+      lastHitCount = hitCount;
+      return hitCountSincePoll;
+    }
+
+    long getQuota() {
+      return caffeineCache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(-1L);
+    }
+
+    void setQuota(long quota) {
+      caffeineCache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(quota));
+    }
+
+    long getWeight() {
+      return caffeineCache
+          .policy()
+          .eviction()
+          .map(eviction -> eviction.weightedSize().orElse(-1L))
+          .orElse(-1L);
+    }
+  }
 }
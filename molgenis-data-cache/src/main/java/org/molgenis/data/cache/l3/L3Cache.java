@@ -20,6 +20,8 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionListener;
@@ -45,10 +47,12 @@ public class L3Cache implements TransactionListener {
   public L3Cache(
       TransactionManager transactionManager,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      CacheInvalidationBus cacheInvalidationBus) {
     this.transactionInformation = requireNonNull(transactionInformation);
     this.meterRegistry = requireNonNull(meterRegistry);
     requireNonNull(transactionManager).addTransactionListener(this);
+    requireNonNull(cacheInvalidationBus).addListener(this::evict);
   }
 
   @Override
@@ -56,6 +60,18 @@ public class L3Cache implements TransactionListener {
     transactionInformation.getDirtyRepositories().forEach(caches::remove);
   }
 
+  /** Evicts the queries of entity types changed on this or another application node. */
+  private void evict(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()) {
+      caches.clear();
+    } else {
+      cacheInvalidation.getEntityTypeIds().forEach(caches::remove);
+      cacheInvalidation
+          .getEntityKeys()
+          .forEach(entityKey -> caches.remove(entityKey.getEntityTypeId()));
+    }
+  }
+
   public List<Object> get(Repository<Entity> repository, Query<Entity> query) {
     // Set fetch to null because we are only caching identifiers
     LoadingCache<Query<Entity>, List<Object>> cache = getQueryCache(repository);
@@ -3,7 +3,6 @@ package org.molgenis.data.cache.utils;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.cache.Cache;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.molgenis.data.Entity;
@@ -16,7 +15,7 @@ import org.molgenis.data.meta.model.EntityType;
  */
 public class CombinedEntityCache {
   private final EntityHydration entityHydration;
-  private final Cache<EntityKey, CacheHit<Map<String, Object>>> cache;
+  private final Cache<EntityKey, CacheHit<DehydratedEntity>> cache;
 
   /**
    * Creates a new {@link CombinedEntityCache}
@@ -26,7 +25,7 @@ public class CombinedEntityCache {
    * @param cache the {@link Cache} to store the {@link CacheHit}s in
    */
   public CombinedEntityCache(
-      EntityHydration entityHydration, Cache<EntityKey, CacheHit<Map<String, Object>>> cache) {
+      EntityHydration entityHydration, Cache<EntityKey, CacheHit<DehydratedEntity>> cache) {
     this.entityHydration = requireNonNull(entityHydration);
     this.cache = requireNonNull(cache);
   }
@@ -82,11 +81,11 @@ public class CombinedEntityCache {
   }
 
   private CacheHit<Entity> hydrate(
-      CacheHit<Map<String, Object>> cacheHitAsMap, EntityType entityType) {
-    if (cacheHitAsMap.isEmpty()) {
+      CacheHit<DehydratedEntity> dehydratedCacheHit, EntityType entityType) {
+    if (dehydratedCacheHit.isEmpty()) {
       return CacheHit.empty();
     } else {
-      return CacheHit.of(entityHydration.hydrate(cacheHitAsMap.getValue(), entityType));
+      return CacheHit.of(entityHydration.hydrate(dehydratedCacheHit.getValue(), entityType));
     }
   }
 }
@@ -0,0 +1,72 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Values required to rebuild an entity, stored in an array in the order defined by its {@link
+ * DehydratedEntitySchema}. References to other entities are stored as id values, multiple
+ * references as an array of id values.
+ */
+public class DehydratedEntity {
+  private final DehydratedEntitySchema schema;
+  private final Object[] values;
+
+  DehydratedEntity(DehydratedEntitySchema schema, Object[] values) {
+    this.schema = requireNonNull(schema);
+    this.values = requireNonNull(values);
+    if (values.length != schema.getNrAttributes()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Number of values [%d] does not match number of schema attributes [%d]",
+              values.length, schema.getNrAttributes()));
+    }
+  }
+
+  public DehydratedEntitySchema getSchema() {
+    return schema;
+  }
+
+  public int getNrValues() {
+    return values.length;
+  }
+
+  @Nullable
+  @CheckForNull
+  public Object getValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns the dehydrated value of an attribute, multiple references are returned as an array of
+   * id values.
+   *
+   * @param attributeName attribute name
+   * @return dehydrated value or <code>null</code> if the attribute has no value or is not stored
+   */
+  @Nullable
+  @CheckForNull
+  public Object get(String attributeName) {
+    int index = schema.getIndex(attributeName);
+    return index != -1 ? values[index] : null;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("DehydratedEntity{");
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      Object value = values[i];
+      builder
+          .append(schema.getAttributeName(i))
+          .append('=')
+          .append(value instanceof Object[] ? Arrays.toString((Object[]) value) : value);
+    }
+    return builder.append('}').toString();
+  }
+}
@@ -0,0 +1,105 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Positions of the stored attributes of an entity type in a {@link DehydratedEntity}. Only atomic
+ * attributes without an expression are stored. A schema is shared by all dehydrated entities of
+ * the same entity type.
+ */
+public class DehydratedEntitySchema {
+  private final String entityTypeId;
+  private final String[] attributeNames;
+  private final AttributeType[] attributeTypes;
+  private final Map<String, Integer> attributeIndices;
+
+  private DehydratedEntitySchema(
+      String entityTypeId, String[] attributeNames, AttributeType[] attributeTypes) {
+    this.entityTypeId = requireNonNull(entityTypeId);
+    this.attributeNames = requireNonNull(attributeNames);
+    this.attributeTypes = requireNonNull(attributeTypes);
+    this.attributeIndices = new HashMap<>(attributeNames.length * 4 / 3 + 1);
+    for (int i = 0; i < attributeNames.length; i++) {
+      attributeIndices.put(attributeNames[i], i);
+    }
+  }
+
+  public static DehydratedEntitySchema create(EntityType entityType) {
+    List<String> attributeNames = new ArrayList<>();
+    List<AttributeType> attributeTypes = new ArrayList<>();
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      if (!attribute.hasExpression()) {
+        attributeNames.add(attribute.getName());
+        attributeTypes.add(attribute.getDataType());
+      }
+    }
+    return new DehydratedEntitySchema(
+        entityType.getId(),
+        attributeNames.toArray(new String[0]),
+        attributeTypes.toArray(new AttributeType[0]));
+  }
+
+  public String getEntityTypeId() {
+    return entityTypeId;
+  }
+
+  public int getNrAttributes() {
+    return attributeNames.length;
+  }
+
+  public String getAttributeName(int index) {
+    return attributeNames[index];
+  }
+
+  public AttributeType getAttributeType(int index) {
+    return attributeTypes[index];
+  }
+
+  /** @return index of the attribute or -1 if this schema doesn't contain the attribute */
+  public int getIndex(String attributeName) {
+    Integer index = attributeIndices.get(attributeName);
+    return index != null ? index : -1;
+  }
+
+  /**
+   * @return whether this schema describes the stored attributes of the given entity type in the
+   *     same order
+   */
+  boolean isSchemaOf(EntityType entityType) {
+    if (!entityTypeId.equals(entityType.getId())) {
+      return false;
+    }
+    int index = 0;
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      if (!attribute.hasExpression()) {
+        if (index >= attributeNames.length
+            || !attributeNames[index].equals(attribute.getName())
+            || attributeTypes[index] != attribute.getDataType()) {
+          return false;
+        }
+        index++;
+      }
+    }
+    return index == attributeNames.length;
+  }
+
+  @Override
+  public String toString() {
+    return "DehydratedEntitySchema{"
+        + "entityTypeId='"
+        + entityTypeId
+        + '\''
+        + ", attributeNames="
+        + Arrays.toString(attributeNames)
+        + '}';
+  }
+}
@@ -1,14 +1,15 @@
 package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.AttributeType;
@@ -21,41 +22,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-/** Hydrates and dehydrates entities. */
+/**
+ * Hydrates and dehydrates entities. Dehydrated entities store their values in an array ordered by a
+ * {@link DehydratedEntitySchema} that is shared between all dehydrated entities of an entity type.
+ */
 @Component
 public class EntityHydration {
   private static final Logger LOG = LoggerFactory.getLogger(EntityHydration.class);
+  private static final Object[] NO_IDS = new Object[0];
+
   private final EntityManager entityManager;
+  /** maps entity type id to the schema of the most recently dehydrated entity type version */
+  private final ConcurrentMap<String, DehydratedEntitySchema> schemas;
 
   public EntityHydration(EntityManager entityManager) {
     this.entityManager = requireNonNull(entityManager);
+    this.schemas = new ConcurrentHashMap<>();
   }
 
   /**
    * Rehydrate an entity. Entity can be an {@link EntityWithComputedAttributes} if there are
-   * attributes present with an expression
+   * attributes present with an expression. References are hydrated as lazy references that are
+   * only loaded when accessed.
    *
    * @param entityType metadata of the entity to rehydrate
-   * @param dehydratedEntity map with key value pairs representing this entity
+   * @param dehydratedEntity values representing this entity
    * @return hydrated entity
    */
-  @SuppressWarnings("unchecked")
-  public Entity hydrate(Map<String, Object> dehydratedEntity, EntityType entityType) {
+  public Entity hydrate(DehydratedEntity dehydratedEntity, EntityType entityType) {
     LOG.trace("Hydrating entity: {} for entity {}", dehydratedEntity, entityType.getId());
 
     Entity hydratedEntity = entityManager.create(entityType, NO_POPULATE);
+    DehydratedEntitySchema schema = dehydratedEntity.getSchema();
 
+    int nextIndex = 0;
     for (Attribute attribute : entityType.getAtomicAttributes()) {
       // Only hydrate the attribute if it is NOT computed.
       // Computed attributes will be calculated based on the metadata
       if (attribute.getExpression() == null) {
         String name = attribute.getName();
-        Object value = dehydratedEntity.get(name);
+        int index = getIndex(schema, name, nextIndex);
+        Object value = null;
+        if (index != -1) {
+          value = dehydratedEntity.getValue(index);
+          nextIndex = index + 1;
+        }
         if (value != null) {
           if (isMultipleReferenceType(attribute)) {
             // We can do this cast because during dehydration, mrefs and categorical mrefs are
-            // stored as a List of Object
-            value = entityManager.getReferences(attribute.getRefEntity(), (List<Object>) value);
+            // stored as an array of Object
+            value = entityManager.getReferences(attribute.getRefEntity(), asList((Object[]) value));
           } else if (isSingleReferenceType(attribute)) {
             value = entityManager.getReference(attribute.getRefEntity(), value);
           }
@@ -68,31 +84,44 @@ public class EntityHydration {
   }
 
   /**
-   * Creates a Map containing the values required to rebuild this entity. For references to other
-   * entities only stores the ids.
+   * Attributes are usually hydrated in the order in which they were dehydrated, only look up the
+   * index by name if the attribute at the expected index has a different name.
+   */
+  private static int getIndex(DehydratedEntitySchema schema, String name, int expectedIndex) {
+    if (expectedIndex < schema.getNrAttributes()
+        && schema.getAttributeName(expectedIndex).equals(name)) {
+      return expectedIndex;
+    }
+    return schema.getIndex(name);
+  }
+
+  /**
+   * Creates a {@link DehydratedEntity} containing the values required to rebuild this entity. For
+   * references to other entities only stores the ids.
    *
    * @param entity the {@link Entity} to dehydrate
-   * @return Map representation of the entity
+   * @return dehydrated representation of the entity
    */
-  public Map<String, Object> dehydrate(Entity entity) {
+  public DehydratedEntity dehydrate(Entity entity) {
     LOG.trace("Dehydrating entity {}", entity);
-    Map<String, Object> dehydratedEntity = newHashMap();
-    EntityType entityType = entity.getEntityType();
-
-    entityType
-        .getAtomicAttributes()
-        .forEach(
-            attribute -> {
-              // Only dehydrate if the attribute is NOT computed
-              if (!attribute.hasExpression()) {
-                String name = attribute.getName();
-                AttributeType type = attribute.getDataType();
+    DehydratedEntitySchema schema = getSchema(entity.getEntityType());
 
-                dehydratedEntity.put(name, getValueBasedOnType(entity, name, type));
-              }
-            });
+    Object[] values = new Object[schema.getNrAttributes()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] =
+          getValueBasedOnType(entity, schema.getAttributeName(i), schema.getAttributeType(i));
+    }
+    return new DehydratedEntity(schema, values);
+  }
 
-    return dehydratedEntity;
+  private DehydratedEntitySchema getSchema(EntityType entityType) {
+    String entityTypeId = entityType.getId();
+    DehydratedEntitySchema schema = schemas.get(entityTypeId);
+    if (schema == null || !schema.isSchemaOf(entityType)) {
+      schema = DehydratedEntitySchema.create(entityType);
+      schemas.put(entityTypeId, schema);
+    }
+    return schema;
   }
 
   private static Object getValueBasedOnType(Entity entity, String name, AttributeType type) {
@@ -114,7 +143,7 @@ public class EntityHydration {
                 mrefEntity -> {
                   if (mrefEntity != null) mrefIdentifiers.add(mrefEntity.getIdValue());
                 });
-        value = mrefIdentifiers;
+        value = mrefIdentifiers.isEmpty() ? NO_IDS : mrefIdentifiers.toArray();
         break;
       case DATE:
         value = entity.getLocalDate(name);
@@ -0,0 +1,41 @@
+package org.molgenis.data.cache.l2;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import org.molgenis.data.cache.utils.DehydratedEntity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DehydratedEntityWeigherTest {
+  private DehydratedEntityWeigher dehydratedEntityWeigher;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    dehydratedEntityWeigher = new DehydratedEntityWeigher();
+  }
+
+  @Test
+  public void testWeighAbsentEntity() {
+    assertTrue(dehydratedEntityWeigher.weigh("id", Optional.empty()) > 0);
+  }
+
+  @Test
+  public void testWeighGrowsWithValues() {
+    DehydratedEntity smallEntity = mock(DehydratedEntity.class);
+    when(smallEntity.getNrValues()).thenReturn(1);
+    when(smallEntity.getValue(0)).thenReturn("value");
+    int smallWeight = dehydratedEntityWeigher.weigh("id", Optional.of(smallEntity));
+
+    DehydratedEntity largeEntity = mock(DehydratedEntity.class);
+    when(largeEntity.getNrValues()).thenReturn(3);
+    when(largeEntity.getValue(0)).thenReturn("value");
+    when(largeEntity.getValue(1)).thenReturn(new Object[] {"id0", "id1", "id2"});
+    when(largeEntity.getValue(2)).thenReturn(1);
+    int largeWeight = dehydratedEntityWeigher.weigh("id", Optional.of(largeEntity));
+
+    assertTrue(largeWeight > smallWeight);
+  }
+}
@@ -34,6 +34,8 @@ import org.molgenis.data.EntityTestHarness;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.TestHarnessConfig;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
 import org.molgenis.data.cache.utils.EntityHydration;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
@@ -66,6 +68,7 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
 
   private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private LocalCacheInvalidationBus cacheInvalidationBus;
   private List<Entity> testEntities;
   private EntityType emd;
 
@@ -95,8 +98,15 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     when(repository.getEntityType()).thenReturn(emd);
     when(repository.getName()).thenReturn(emd.getId());
 
+    cacheInvalidationBus = new LocalCacheInvalidationBus();
     l2Cache =
-        new L2Cache(transactionManager, entityHydration, transactionInformation, meterRegistry);
+        new L2Cache(
+            transactionManager,
+            entityHydration,
+            transactionInformation,
+            meterRegistry,
+            cacheInvalidationBus,
+            1024 * 1024);
   }
 
   @Test
@@ -168,6 +178,55 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     verify(repository, times(2)).findOneById("3");
   }
 
+  @Test
+  public void testCacheInvalidationFromOtherNodeRemovesEntity() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(emptySet(), singleton(EntityKey.create(entity2))));
+
+    l2Cache.get(repository, "2");
+    verify(repository, times(2)).findOneById("2");
+  }
+
+  @Test
+  public void testCompleteCacheInvalidationRemovesAllCaches() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+
+    cacheInvalidationBus.publish(CacheInvalidation.complete());
+
+    l2Cache.get(repository, "2");
+    verify(repository, times(2)).findOneById("2");
+  }
+
+  @Test
+  public void testRebalanceQuotasKeepsCachedData() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+    l2Cache.get(repository, "2");
+
+    l2Cache.rebalanceQuotas();
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    verify(repository, times(1)).findOneById("2");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testL2CacheInvalidMaxBytes() {
+    new L2Cache(
+        transactionManager,
+        entityHydration,
+        transactionInformation,
+        meterRegistry,
+        cacheInvalidationBus,
+        0);
+  }
+
   @Test
   public void testGetStringIdCachesLoadedData() {
     Entity entity2 = testEntities.get(2);
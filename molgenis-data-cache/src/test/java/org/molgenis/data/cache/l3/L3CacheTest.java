@@ -28,6 +28,7 @@ import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
@@ -97,7 +98,12 @@ public class L3CacheTest extends AbstractMolgenisSpringTest {
     when(decoratedRepository.getName()).thenReturn(repositoryName);
     when(decoratedRepository.getEntityType()).thenReturn(entityType);
 
-    l3Cache = new L3Cache(transactionManager, transactionInformation, meterRegistry);
+    l3Cache =
+        new L3Cache(
+            transactionManager,
+            transactionInformation,
+            meterRegistry,
+            new LocalCacheInvalidationBus());
   }
 
   @Test
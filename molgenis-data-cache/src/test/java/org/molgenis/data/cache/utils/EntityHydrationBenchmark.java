@@ -0,0 +1,213 @@
+package org.molgenis.data.cache.utils;
+
+import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
+import static org.molgenis.data.meta.AttributeType.BOOL;
+import static org.molgenis.data.meta.AttributeType.DATE;
+import static org.molgenis.data.meta.AttributeType.DECIMAL;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.MREF;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
+import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
+import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
+import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.data.BenchmarkHarness;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityManager;
+import org.molgenis.data.EntityManagerImpl;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.data.support.DynamicEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares throughput and allocation of the array based {@link DehydratedEntity} format with the
+ * previous map based format for entity types of different widths. Run {@link #main(String[])} from
+ * the test classpath, the GC profiler reports the number of bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityHydrationBenchmark {
+  private static final AttributeType[] ATTRIBUTE_TYPES = {
+    STRING, INT, DECIMAL, BOOL, DATE, XREF, MREF
+  };
+
+  @Param({"20", "200"})
+  private int nrAttributes;
+
+  private BenchmarkHarness benchmarkHarness;
+  private EntityHydration entityHydration;
+  private MapEntityHydration mapEntityHydration;
+  private EntityType entityType;
+  private Entity entity;
+  private DehydratedEntity dehydratedEntity;
+  private Map<String, Object> dehydratedEntityMap;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    benchmarkHarness = new BenchmarkHarness(EntityManagerImpl.class, EntityHydration.class);
+    EntityTypeFactory entityTypeFactory = benchmarkHarness.getBean(EntityTypeFactory.class);
+    AttributeFactory attributeFactory = benchmarkHarness.getBean(AttributeFactory.class);
+
+    EntityType refEntityType = benchmarkHarness.createEntityType("BenchmarkRef");
+    Entity refEntity = new DynamicEntity(refEntityType);
+    refEntity.set("id", "ref0");
+
+    entityType = entityTypeFactory.create("Benchmark");
+    entityType.addAttribute(attributeFactory.create().setName("id").setDataType(STRING), ROLE_ID);
+    for (int i = 0; i < nrAttributes; i++) {
+      AttributeType type = ATTRIBUTE_TYPES[i % ATTRIBUTE_TYPES.length];
+      Attribute attribute = attributeFactory.create().setName("attr" + i).setDataType(type);
+      if (type == XREF || type == MREF) {
+        attribute.setRefEntity(refEntityType);
+      }
+      entityType.addAttribute(attribute);
+    }
+
+    entity = new DynamicEntity(entityType);
+    entity.set("id", "id0");
+    for (int i = 0; i < nrAttributes; i++) {
+      entity.set("attr" + i, createValue(ATTRIBUTE_TYPES[i % ATTRIBUTE_TYPES.length], refEntity));
+    }
+
+    entityHydration = benchmarkHarness.getBean(EntityHydration.class);
+    mapEntityHydration = new MapEntityHydration(benchmarkHarness.getBean(EntityManager.class));
+    dehydratedEntity = entityHydration.dehydrate(entity);
+    dehydratedEntityMap = mapEntityHydration.dehydrate(entity);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    benchmarkHarness.close();
+  }
+
+  @Benchmark
+  public DehydratedEntity dehydrate() {
+    return entityHydration.dehydrate(entity);
+  }
+
+  @Benchmark
+  public Map<String, Object> dehydrateMap() {
+    return mapEntityHydration.dehydrate(entity);
+  }
+
+  @Benchmark
+  public Entity hydrate() {
+    return entityHydration.hydrate(dehydratedEntity, entityType);
+  }
+
+  @Benchmark
+  public Entity hydrateMap() {
+    return mapEntityHydration.hydrate(dehydratedEntityMap, entityType);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(EntityHydrationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+
+  private static Object createValue(AttributeType type, Entity refEntity) {
+    switch (type) {
+      case STRING:
+        return "a string value of typical length";
+      case INT:
+        return 123;
+      case DECIMAL:
+        return 1.23;
+      case BOOL:
+        return true;
+      case DATE:
+        return LocalDate.of(2019, 1, 1);
+      case XREF:
+        return refEntity;
+      case MREF:
+        return newArrayList(refEntity, refEntity, refEntity);
+      default:
+        throw new IllegalArgumentException(type.toString());
+    }
+  }
+
+  /** Map based (de)hydration as it was before the introduction of {@link DehydratedEntity}. */
+  private static class MapEntityHydration {
+    private final EntityManager entityManager;
+
+    MapEntityHydration(EntityManager entityManager) {
+      this.entityManager = entityManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    Entity hydrate(Map<String, Object> dehydratedEntity, EntityType entityType) {
+      Entity hydratedEntity = entityManager.create(entityType, NO_POPULATE);
+      for (Attribute attribute : entityType.getAtomicAttributes()) {
+        if (attribute.getExpression() == null) {
+          String name = attribute.getName();
+          Object value = dehydratedEntity.get(name);
+          if (value != null) {
+            if (isMultipleReferenceType(attribute)) {
+              value = entityManager.getReferences(attribute.getRefEntity(), (List<Object>) value);
+            } else if (isSingleReferenceType(attribute)) {
+              value = entityManager.getReference(attribute.getRefEntity(), value);
+            }
+          }
+          hydratedEntity.set(name, value);
+        }
+      }
+      return hydratedEntity;
+    }
+
+    Map<String, Object> dehydrate(Entity entity) {
+      Map<String, Object> dehydratedEntity = new HashMap<>();
+      for (Attribute attribute : entity.getEntityType().getAtomicAttributes()) {
+        if (!attribute.hasExpression()) {
+          String name = attribute.getName();
+          Object value;
+          if (isMultipleReferenceType(attribute)) {
+            List<Object> ids = newArrayList();
+            entity.getEntities(name).forEach(refEntity -> ids.add(refEntity.getIdValue()));
+            value = ids;
+          } else if (isSingleReferenceType(attribute)) {
+            Entity refEntity = entity.getEntity(name);
+            value = refEntity != null ? refEntity.getIdValue() : null;
+          } else {
+            value = entity.get(name);
+          }
+          dehydratedEntity.put(name, value);
+        }
+      }
+      return dehydratedEntity;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
@@ -30,6 +31,7 @@ import static org.molgenis.data.EntityTestHarness.ATTR_XREF;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.text.ParseException;
@@ -125,7 +127,14 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void hydrateTest() {
-    Entity actualHydratedEntity = entityHydration.hydrate(dehydratedEntity, entityType);
+    DehydratedEntitySchema schema = DehydratedEntitySchema.create(entityType);
+    Object[] values = new Object[schema.getNrAttributes()];
+    for (int i = 0; i < values.length; i++) {
+      Object value = dehydratedEntity.get(schema.getAttributeName(i));
+      values[i] = value instanceof List ? ((List<?>) value).toArray() : value;
+    }
+    Entity actualHydratedEntity =
+        entityHydration.hydrate(new DehydratedEntity(schema, values), entityType);
     assertTrue(EntityUtils.equals(actualHydratedEntity, hydratedEntity));
     // check that it has retrieved references of type TypeTestRef
     assertTrue(
@@ -135,8 +144,15 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void dehydrateTest() {
-    Map<String, Object> actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity);
-    assertEquals(actualDehydratedEntity, dehydratedEntity);
+    DehydratedEntity actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity);
+    assertEquals(toMap(actualDehydratedEntity), dehydratedEntity);
+  }
+
+  @Test
+  public void dehydrateSharesSchema() {
+    DehydratedEntity dehydratedEntity0 = entityHydration.dehydrate(hydratedEntity);
+    DehydratedEntity dehydratedEntity1 = entityHydration.dehydrate(hydratedEntity);
+    assertSame(dehydratedEntity0.getSchema(), dehydratedEntity1.getSchema());
   }
 
   @Test
@@ -154,10 +170,11 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     Attribute oneToManyAttr = mock(Attribute.class);
     when(oneToManyAttr.getName()).thenReturn(attrName);
     when(oneToManyAttr.getDataType()).thenReturn(ONE_TO_MANY);
+    when(entityType.getId()).thenReturn("entityType");
     when(entityType.getAtomicAttributes()).thenReturn(singleton(oneToManyAttr));
     when(entity.getEntityType()).thenReturn(entityType);
     assertEquals(
-        entityHydration.dehydrate(entity),
+        toMap(entityHydration.dehydrate(entity)),
         singletonMap(attrName, newArrayList(oneToManyEntity0IdValue, oneToManyEntity1IdValue)));
   }
 
@@ -173,8 +190,21 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     Attribute xrefAttr = mock(Attribute.class);
     when(xrefAttr.getName()).thenReturn(attrName);
     when(xrefAttr.getDataType()).thenReturn(XREF);
+    when(entityType.getId()).thenReturn("entityType");
     when(entityType.getAtomicAttributes()).thenReturn(singleton(xrefAttr));
     when(entity.getEntityType()).thenReturn(entityType);
-    assertEquals(entityHydration.dehydrate(entity), singletonMap(attrName, manyToOneEntityIdValue));
+    assertEquals(
+        toMap(entityHydration.dehydrate(entity)), singletonMap(attrName, manyToOneEntityIdValue));
+  }
+
+  private static Map<String, Object> toMap(DehydratedEntity dehydratedEntity) {
+    Map<String, Object> map = newHashMap();
+    for (int i = 0; i < dehydratedEntity.getNrValues(); i++) {
+      Object value = dehydratedEntity.getValue(i);
+      map.put(
+          dehydratedEntity.getSchema().getAttributeName(i),
+          value instanceof Object[] ? asList((Object[]) value) : value);
+    }
+    return map;
   }
 }
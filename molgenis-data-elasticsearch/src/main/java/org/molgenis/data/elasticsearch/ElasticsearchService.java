@@ -1,10 +1,10 @@
 package org.molgenis.data.elasticsearch;
 
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
 
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Streams;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
@@ -20,7 +20,6 @@ import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
-import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
@@ -42,6 +41,7 @@ import org.springframework.stereotype.Component;
 public class ElasticsearchService implements SearchService, IndexService {
   private static final int BATCH_SIZE = 1000;
   public static final int MAX_BATCH_SIZE = 10000;
+  private static final char SHADOW_INDEX_SEPARATOR = '-';
 
   private final ClientFacade clientFacade;
   private final ContentGenerators contentGenerators;
@@ -57,6 +57,10 @@ public class ElasticsearchService implements SearchService, IndexService {
   @Override
   public void createIndex(EntityType entityType) {
     Index index = contentGenerators.createIndex(entityType);
+    createIndex(entityType, index);
+  }
+
+  private void createIndex(EntityType entityType, Index index) {
     IndexSettings indexSettings = IndexSettings.create();
     Mapping mapping = contentGenerators.createMapping(entityType);
     clientFacade.createIndex(index, indexSettings, Stream.of(mapping));
@@ -71,22 +75,44 @@ public class ElasticsearchService implements SearchService, IndexService {
   @Override
   public void deleteIndex(EntityType entityType) {
     Index index = contentGenerators.createIndex(entityType);
-    clientFacade.deleteIndex(index);
+    List<Index> aliasedIndexes = clientFacade.getAliasedIndexes(index);
+    if (aliasedIndexes.isEmpty()) {
+      clientFacade.deleteIndex(index);
+    } else {
+      clientFacade.deleteIndexes(aliasedIndexes);
+    }
   }
 
+  /**
+   * Rebuilds the index in a new shadow index and replaces the existing index by pointing an alias
+   * with the index name to the shadow index. The existing index remains searchable until the
+   * shadow index is complete.
+   */
   @Override
   public void rebuildIndex(Repository<? extends Entity> repository) {
     EntityType entityType = repository.getEntityType();
-
-    if (hasIndex(entityType)) {
-      deleteIndex(entityType);
+    Index index = contentGenerators.createIndex(entityType);
+    Index shadowIndex =
+        Index.create(
+            index.getName() + SHADOW_INDEX_SEPARATOR + System.currentTimeMillis(),
+            index.getType());
+
+    createIndex(entityType, shadowIndex);
+    try {
+      repository.forEachBatched(
+          createFetchForReindexing(entityType),
+          entities -> index(shadowIndex, entities.stream()),
+          BATCH_SIZE);
+    } catch (RuntimeException e) {
+      clientFacade.deleteIndex(shadowIndex);
+      throw e;
     }
 
-    createIndex(entityType);
-    repository.forEachBatched(
-        createFetchForReindexing(entityType),
-        entities -> index(entityType, entities.stream()),
-        BATCH_SIZE);
+    List<Index> replacedIndexes = clientFacade.getAliasedIndexes(index);
+    if (replacedIndexes.isEmpty() && clientFacade.indexesExist(index)) {
+      replacedIndexes = singletonList(index);
+    }
+    clientFacade.replaceIndexes(index, shadowIndex, replacedIndexes);
   }
 
   @Override
@@ -118,25 +144,11 @@ public class ElasticsearchService implements SearchService, IndexService {
     QueryBuilder query = contentGenerators.createQuery(q, entityType);
     Sort sort = q.getSort() != null ? contentGenerators.createSorts(q.getSort(), entityType) : null;
     Index index = contentGenerators.createIndex(entityType);
-    Stream<SearchHit> searchHits = Stream.empty();
-
-    boolean done = false;
-    int currentOffset;
-    int i = 0;
-    while (!done) {
-      int batchSize = pageSize < MAX_BATCH_SIZE && pageSize != 0 ? pageSize : MAX_BATCH_SIZE;
-      currentOffset = offset + (i * MAX_BATCH_SIZE);
-
-      SearchHits currentSearchHits =
-          clientFacade.search(query, currentOffset, batchSize, sort, index);
-      searchHits = Streams.concat(searchHits, currentSearchHits.getHits().stream());
-
-      if (currentSearchHits.getHits().size() < MAX_BATCH_SIZE) {
-        done = true;
-      }
-
-      if (pageSize != 0) pageSize -= MAX_BATCH_SIZE;
-      i++;
+    Stream<SearchHit> searchHits;
+    if (pageSize != 0 && pageSize <= MAX_BATCH_SIZE) {
+      searchHits = clientFacade.search(query, offset, pageSize, sort, index).getHits().stream();
+    } else {
+      searchHits = clientFacade.searchAfter(query, offset, pageSize, sort, index);
     }
 
     return toEntityIds(entityType, searchHits.map(SearchHit::getId));
@@ -205,6 +217,10 @@ public class ElasticsearchService implements SearchService, IndexService {
   @Override
   public long index(EntityType entityType, Stream<? extends Entity> entities) {
     Index index = contentGenerators.createIndex(entityType);
+    return index(index, entities);
+  }
+
+  private long index(Index index, Stream<? extends Entity> entities) {
     Stream<DocumentAction> documentActionStream =
         entities.map(entity -> this.toDocumentAction(index, entity));
 
@@ -237,7 +253,14 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   @Override
   public void deleteAll(EntityType entityType, Stream<Object> entityIds) {
-    entityIds.forEach(entityId -> deleteById(entityType, entityId));
+    Index index = contentGenerators.createIndex(entityType);
+    clientFacade.processDocumentActions(
+        entityIds.map(
+            entityId ->
+                DocumentAction.create(
+                    index,
+                    contentGenerators.createDocument(entityId),
+                    DocumentAction.Operation.DELETE)));
   }
 
   @Override
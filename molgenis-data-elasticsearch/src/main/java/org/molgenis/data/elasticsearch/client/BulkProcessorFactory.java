@@ -1,39 +1,80 @@
 package org.molgenis.data.elasticsearch.client;
 
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 
-/** Creates Elasticsearch bulk processors that log bulk updates. */
+/**
+ * Creates Elasticsearch bulk processors that log bulk updates and record bulk metrics.
+ *
+ * <p>Adding a request to a bulk processor blocks while the maximum number of concurrent bulk
+ * requests is in flight. This applies backpressure to the producer of the requests and bounds the
+ * memory in use to roughly (concurrent requests + 1) * bulk size.
+ */
 class BulkProcessorFactory {
-  private static final Logger LOG = LoggerFactory.getLogger(BulkProcessorFactory.class);
+  private final int bulkActions;
+  private final long bulkSizeBytes;
+  private final int concurrentRequests;
+  private final long backoffDelayMillis;
+  private final int backoffRetries;
+  private final MeterRegistry meterRegistry;
+  private final AtomicInteger activeBulkRequests;
 
-  BulkProcessor create(Client client) {
-    return BulkProcessor.builder(
-            client,
-            new BulkProcessor.Listener() {
-              @Override
-              public void beforeBulk(long executionId, BulkRequest request) {
-                LOG.trace(
-                    "Going to execute new bulk composed of {} actions", request.numberOfActions());
-              }
+  /**
+   * @param bulkActions maximum number of actions per bulk request
+   * @param bulkSizeBytes maximum size in bytes per bulk request
+   * @param concurrentRequests maximum number of bulk requests in flight, 0 to execute bulk requests
+   *     synchronously
+   * @param backoffDelayMillis initial delay before retrying a bulk request rejected by a full
+   *     Elasticsearch bulk queue, doubled on every retry
+   * @param backoffRetries maximum number of retries of a rejected bulk request
+   */
+  BulkProcessorFactory(
+      int bulkActions,
+      long bulkSizeBytes,
+      int concurrentRequests,
+      long backoffDelayMillis,
+      int backoffRetries,
+      MeterRegistry meterRegistry) {
+    if (bulkActions < 1) {
+      throw new IllegalArgumentException("bulkActions must be greater than 0");
+    }
+    if (bulkSizeBytes < 1) {
+      throw new IllegalArgumentException("bulkSizeBytes must be greater than 0");
+    }
+    if (concurrentRequests < 0) {
+      throw new IllegalArgumentException("concurrentRequests must be greater than or equal to 0");
+    }
+    this.bulkActions = bulkActions;
+    this.bulkSizeBytes = bulkSizeBytes;
+    this.concurrentRequests = concurrentRequests;
+    this.backoffDelayMillis = backoffDelayMillis;
+    this.backoffRetries = backoffRetries;
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.activeBulkRequests = new AtomicInteger();
 
-              @Override
-              public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-                if (response.hasFailures()) {
-                  LOG.error("Error executing bulk: {}", response.buildFailureMessage());
-                }
-                LOG.trace("Executed bulk composed of {} actions", request.numberOfActions());
-              }
+    Gauge.builder("elasticsearch.bulk.active", activeBulkRequests, AtomicInteger::get)
+        .description("Number of Elasticsearch bulk requests in flight")
+        .register(meterRegistry);
+  }
 
-              @Override
-              public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-                LOG.warn("Error executing bulk", failure);
-              }
-            })
+  BulkProcessor create(Client client) {
+    return BulkProcessor.builder(
+            client, new BulkProcessorListener(meterRegistry, activeBulkRequests))
+        .setBulkActions(bulkActions)
+        .setBulkSize(new ByteSizeValue(bulkSizeBytes, ByteSizeUnit.BYTES))
+        .setConcurrentRequests(concurrentRequests)
+        .setBackoffPolicy(
+            BackoffPolicy.exponentialBackoff(
+                TimeValue.timeValueMillis(backoffDelayMillis), backoffRetries))
         .build();
   }
 }
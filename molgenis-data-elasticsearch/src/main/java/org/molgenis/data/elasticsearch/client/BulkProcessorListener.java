@@ -0,0 +1,105 @@
+package org.molgenis.data.elasticsearch.client;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Bulk processor listener that logs bulk requests and records bulk metrics. */
+class BulkProcessorListener implements BulkProcessor.Listener {
+  private static final Logger LOG = LoggerFactory.getLogger(BulkProcessorListener.class);
+
+  private final AtomicInteger activeBulkRequests;
+  private final Timer bulkTimer;
+  private final Counter documentCounter;
+  private final Counter failedDocumentCounter;
+  private final Counter rejectedDocumentCounter;
+  private final Map<Long, Long> startTimes = new ConcurrentHashMap<>();
+
+  /**
+   * @param meterRegistry registry to record the bulk metrics in
+   * @param activeBulkRequests number of bulk requests in flight, shared by all bulk processors
+   */
+  BulkProcessorListener(MeterRegistry meterRegistry, AtomicInteger activeBulkRequests) {
+    this.activeBulkRequests = requireNonNull(activeBulkRequests);
+    this.bulkTimer =
+        Timer.builder("elasticsearch.bulk")
+            .description("Latency of Elasticsearch bulk requests")
+            .register(meterRegistry);
+    this.documentCounter =
+        Counter.builder("elasticsearch.bulk.documents")
+            .description("Number of documents successfully processed by bulk requests")
+            .register(meterRegistry);
+    this.failedDocumentCounter =
+        Counter.builder("elasticsearch.bulk.documents.failed")
+            .description("Number of documents that failed in bulk requests")
+            .register(meterRegistry);
+    this.rejectedDocumentCounter =
+        Counter.builder("elasticsearch.bulk.documents.rejected")
+            .description("Number of documents rejected by a full Elasticsearch bulk queue")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public void beforeBulk(long executionId, BulkRequest request) {
+    LOG.trace("Going to execute new bulk composed of {} actions", request.numberOfActions());
+    startTimes.put(executionId, System.nanoTime());
+    activeBulkRequests.incrementAndGet();
+  }
+
+  @Override
+  public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+    recordLatency(executionId);
+
+    int failedDocuments = 0;
+    int rejectedDocuments = 0;
+    if (response.hasFailures()) {
+      LOG.error("Error executing bulk: {}", response.buildFailureMessage());
+      for (BulkItemResponse item : response.getItems()) {
+        if (item.isFailed()) {
+          failedDocuments++;
+          if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+            rejectedDocuments++;
+          }
+        }
+      }
+    }
+    documentCounter.increment((double) request.numberOfActions() - failedDocuments);
+    failedDocumentCounter.increment(failedDocuments);
+    rejectedDocumentCounter.increment(rejectedDocuments);
+    LOG.trace("Executed bulk composed of {} actions", request.numberOfActions());
+  }
+
+  @Override
+  public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+    recordLatency(executionId);
+
+    LOG.warn("Error executing bulk", failure);
+    failedDocumentCounter.increment(request.numberOfActions());
+    if (ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException) {
+      rejectedDocumentCounter.increment(request.numberOfActions());
+    }
+  }
+
+  private void recordLatency(long executionId) {
+    activeBulkRequests.decrementAndGet();
+    Long startTime = startTimes.remove(executionId);
+    if (startTime != null) {
+      bulkTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+    }
+  }
+}
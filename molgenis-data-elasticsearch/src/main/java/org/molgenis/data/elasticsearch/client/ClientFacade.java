@@ -10,19 +10,28 @@ import static org.elasticsearch.action.DocWriteRequest.OpType.INDEX;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
 import static org.molgenis.util.stream.MapCollectors.toLinkedMap;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.lucene.search.Explanation;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -44,11 +53,14 @@ import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
@@ -74,18 +86,21 @@ import org.slf4j.LoggerFactory;
 public class ClientFacade implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(ClientFacade.class);
 
+  /** Unique per document field used to break ties between hits with equal sort values */
+  private static final String TIEBREAKER_FIELD = "_uid";
+
   private final Client client;
   private final SettingsContentBuilder settingsBuilder;
   private final MappingContentBuilder mappingSourceBuilder;
   private final SortContentBuilder sortContentBuilder;
   private final BulkProcessorFactory bulkProcessorFactory;
 
-  public ClientFacade(Client client) {
+  ClientFacade(Client client, BulkProcessorFactory bulkProcessorFactory) {
     this.client = requireNonNull(client);
     this.settingsBuilder = new SettingsContentBuilder();
     this.mappingSourceBuilder = new MappingContentBuilder();
     this.sortContentBuilder = new SortContentBuilder();
-    this.bulkProcessorFactory = new BulkProcessorFactory();
+    this.bulkProcessorFactory = requireNonNull(bulkProcessorFactory);
   }
 
   public void createIndex(Index index, IndexSettings indexSettings, Stream<Mapping> mappingStream) {
@@ -169,7 +184,7 @@ public class ClientFacade implements Closeable {
     deleteIndexes(singletonList(index));
   }
 
-  private void deleteIndexes(List<Index> indexes) {
+  public void deleteIndexes(List<Index> indexes) {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Deleting index(es) '{}' ...", toString(indexes));
     }
@@ -197,6 +212,91 @@ public class ClientFacade implements Closeable {
     }
   }
 
+  /**
+   * Returns the indexes that the given alias points to.
+   *
+   * @return aliased indexes or an empty list if no alias with the given name exists
+   */
+  public List<Index> getAliasedIndexes(Index alias) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Retrieving indexes for alias '{}' ...", alias.getName());
+    }
+
+    GetAliasesRequestBuilder getAliasesRequest =
+        client.admin().indices().prepareGetAliases(alias.getName());
+
+    GetAliasesResponse getAliasesResponse;
+    try {
+      getAliasesResponse = getAliasesRequest.get();
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(
+          format("Error retrieving indexes for alias '%s'.", alias.getName()));
+    }
+
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = getAliasesResponse.getAliases();
+    List<Index> indexes = new ArrayList<>();
+    aliases
+        .keysIt()
+        .forEachRemaining(
+            indexName -> {
+              if (!aliases.get(indexName).isEmpty()) {
+                indexes.add(Index.create(indexName, alias.getType()));
+              }
+            });
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Retrieved indexes '{}' for alias '{}'.", toString(indexes), alias.getName());
+    }
+    return indexes;
+  }
+
+  /**
+   * Atomically points an alias to an index and deletes the indexes it replaces. The replaced
+   * indexes can include an index with the same name as the alias.
+   */
+  public void replaceIndexes(Index alias, Index index, List<Index> replacedIndexes) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Replacing index(es) '{}' with index '{}' for alias '{}' ...",
+          toString(replacedIndexes),
+          index.getName(),
+          alias.getName());
+    }
+
+    IndicesAliasesRequestBuilder indicesAliasesRequest = client.admin().indices().prepareAliases();
+    replacedIndexes.forEach(
+        replacedIndex ->
+            indicesAliasesRequest.addAliasAction(
+                AliasActions.removeIndex().index(replacedIndex.getName())));
+    indicesAliasesRequest.addAlias(index.getName(), alias.getName());
+
+    IndicesAliasesResponse indicesAliasesResponse;
+    try {
+      indicesAliasesResponse = indicesAliasesRequest.get();
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(
+          format(
+              "Error replacing index(es) '%s' with index '%s' for alias '%s'.",
+              toString(replacedIndexes), index.getName(), alias.getName()));
+    }
+
+    if (!indicesAliasesResponse.isAcknowledged()) {
+      throw new IndexException(
+          format(
+              "Error replacing index(es) '%s' with index '%s' for alias '%s'.",
+              toString(replacedIndexes), index.getName(), alias.getName()));
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Replaced index(es) '{}' with index '{}' for alias '{}'.",
+          toString(replacedIndexes),
+          index.getName(),
+          alias.getName());
+    }
+  }
+
   public void refreshIndexes() {
     refreshIndexes(singletonList(Index.create("_all")));
   }
@@ -341,7 +441,117 @@ public class ClientFacade implements Closeable {
 
     SearchRequestBuilder searchRequest =
         createSearchRequest(query, from, size, sort, null, indexes);
+    SearchResponse searchResponse = executeSearch(searchRequest, query, indexes);
+
+    if (LOG.isDebugEnabled()) {
+      if (sort != null) {
+        LOG.debug(
+            "Searched {} docs in index(es) '{}' with query '{}' sorted by '{}' in {}ms.",
+            searchResponse.getHits().getTotalHits(),
+            toString(indexes),
+            query,
+            sort,
+            searchResponse.getTookInMillis());
+      } else {
+        LOG.debug(
+            "Searched {} docs in index(es) '{}' with query '{}' in {}ms.",
+            searchResponse.getHits().getTotalHits(),
+            toString(indexes),
+            query,
+            searchResponse.getTookInMillis());
+      }
+    }
+    return createSearchResponse(searchResponse);
+  }
+
+  /**
+   * Lazily streams the search hits for a query using <code>search_after</code> instead of
+   * from/size paging, so that deep result sets do not run into the max result window of the
+   * index. Each page request uses the sort values of the last hit of the previous page, with the
+   * document uid as tiebreaker.
+   *
+   * @param from offset of the first hit, only applied to the first page
+   * @param size maximum number of hits or 0 to stream all hits
+   */
+  public Stream<SearchHit> searchAfter(
+      QueryBuilder query, int from, int size, @Nullable Sort sort, Index index) {
+    SearchAfterIterator searchAfterIterator =
+        new SearchAfterIterator(query, from, size, sort, singletonList(index));
+    return Streams.stream(searchAfterIterator)
+        .flatMap(Arrays::stream)
+        .map(hit -> SearchHit.create(hit.getId(), hit.getIndex()));
+  }
 
+  /** Iterates over the pages of a search_after search. */
+  private class SearchAfterIterator
+      extends AbstractIterator<org.elasticsearch.search.SearchHit[]> {
+    private final QueryBuilder query;
+    private final int from;
+    private final Sort sort;
+    private final List<Index> indexes;
+    private int remaining;
+    private Object[] searchAfter;
+    private boolean done;
+
+    SearchAfterIterator(
+        QueryBuilder query, int from, int size, @Nullable Sort sort, List<Index> indexes) {
+      this.query = query;
+      this.from = from;
+      this.sort = sort;
+      this.indexes = requireNonNull(indexes);
+      this.remaining = size != 0 ? size : Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected org.elasticsearch.search.SearchHit[] computeNext() {
+      if (done) {
+        return endOfData();
+      }
+
+      int pageSize = remaining < MAX_BATCH_SIZE ? remaining : MAX_BATCH_SIZE;
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(
+            "Searching page of {} docs in index(es) '{}' with query '{}' after '{}' ...",
+            pageSize,
+            ClientFacade.this.toString(indexes),
+            query,
+            searchAfter != null ? Arrays.toString(searchAfter) : from);
+      }
+
+      Integer pageFrom = searchAfter == null ? from : null;
+      SearchRequestBuilder searchRequest =
+          createSearchRequest(query, pageFrom, pageSize, sort, null, indexes);
+      if (sort == null) {
+        searchRequest.addSort(SortBuilders.scoreSort());
+      }
+      searchRequest.addSort(SortBuilders.fieldSort(TIEBREAKER_FIELD));
+      if (searchAfter != null) {
+        searchRequest.searchAfter(searchAfter);
+      }
+      SearchResponse searchResponse = executeSearch(searchRequest, query, indexes);
+
+      org.elasticsearch.search.SearchHit[] hits = searchResponse.getHits().getHits();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(
+            "Searched page of {} docs in index(es) '{}' with query '{}' in {}ms.",
+            hits.length,
+            ClientFacade.this.toString(indexes),
+            query,
+            searchResponse.getTookInMillis());
+      }
+
+      remaining -= hits.length;
+      if (hits.length < pageSize || remaining == 0) {
+        done = true;
+      } else {
+        searchAfter = hits[hits.length - 1].getSortValues();
+      }
+      return hits.length > 0 ? hits : endOfData();
+    }
+  }
+
+  private SearchResponse executeSearch(
+      SearchRequestBuilder searchRequest, QueryBuilder query, List<Index> indexes) {
     SearchResponse searchResponse;
     try {
       searchResponse = searchRequest.get();
@@ -371,26 +581,7 @@ public class ClientFacade implements Closeable {
               "Timeout searching counting docs in index(es) '%s'  with query '%s'.",
               toString(indexes), query));
     }
-
-    if (LOG.isDebugEnabled()) {
-      if (sort != null) {
-        LOG.debug(
-            "Searched {} docs in index(es) '{}' with query '{}' sorted by '{}' in {}ms.",
-            searchResponse.getHits().getTotalHits(),
-            toString(indexes),
-            query,
-            sort,
-            searchResponse.getTookInMillis());
-      } else {
-        LOG.debug(
-            "Searched {} docs in index(es) '{}' with query '{}' in {}ms.",
-            searchResponse.getHits().getTotalHits(),
-            toString(indexes),
-            query,
-            searchResponse.getTookInMillis());
-      }
-    }
-    return createSearchResponse(searchResponse);
+    return searchResponse;
   }
 
   private SearchRequestBuilder createSearchRequest(
@@ -545,7 +736,7 @@ public class ClientFacade implements Closeable {
         client
             .prepareIndex()
             .setIndex(indexName)
-            .setType(indexName)
+            .setType(index.getType())
             .setId(documentId)
             .setSource(source);
 
@@ -588,7 +779,7 @@ public class ClientFacade implements Closeable {
     String indexName = index.getName();
     String documentId = document.getId();
     DeleteRequestBuilder deleteRequest =
-        client.prepareDelete().setIndex(indexName).setType(indexName).setId(documentId);
+        client.prepareDelete().setIndex(indexName).setType(index.getType()).setId(documentId);
 
     DeleteResponse deleteResponse;
     try {
@@ -630,6 +821,7 @@ public class ClientFacade implements Closeable {
 
   private DocWriteRequest toDocWriteRequest(DocumentAction documentAction) {
     String indexName = documentAction.getIndex().getName();
+    String typeName = documentAction.getIndex().getType();
     String documentId = documentAction.getDocument().getId();
 
     DocWriteRequest docWriteRequest;
@@ -642,13 +834,13 @@ public class ClientFacade implements Closeable {
         }
         docWriteRequest =
             Requests.indexRequest(indexName)
-                .type(indexName)
+                .type(typeName)
                 .id(documentId)
                 .source(source)
                 .opType(INDEX);
         break;
       case DELETE:
-        docWriteRequest = Requests.deleteRequest(indexName).type(indexName).id(documentId);
+        docWriteRequest = Requests.deleteRequest(indexName).type(typeName).id(documentId);
         break;
       default:
         throw new UnexpectedEnumException(documentAction.getOperation());
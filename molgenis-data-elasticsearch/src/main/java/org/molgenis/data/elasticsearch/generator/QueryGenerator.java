@@ -151,6 +151,10 @@ public class QueryGenerator {
         return createQueryClauseSearch(queryRule, entityType);
       case SHOULD:
         return createQueryClauseShould(queryRule, entityType);
+      case PERMITTED:
+        // the index does not contain access control lists
+        throw new MolgenisQueryException(
+            format("Query operator [%s] not supported by index", queryOperator.toString()));
       case AND:
       case OR:
       case NOT:
@@ -580,6 +584,7 @@ public class QueryGenerator {
       case NESTED:
       case NOT:
       case OR:
+      case PERMITTED:
       case RANGE:
       case SEARCH:
       case SHOULD:
@@ -8,7 +8,14 @@ import com.google.auto.value.AutoValue;
 public abstract class Index {
   public abstract String getName();
 
+  /** Document type name of the documents in this index */
+  public abstract String getType();
+
   public static Index create(String name) {
-    return new AutoValue_Index(name);
+    return new AutoValue_Index(name, name);
+  }
+
+  public static Index create(String name, String type) {
+    return new AutoValue_Index(name, type);
   }
 }
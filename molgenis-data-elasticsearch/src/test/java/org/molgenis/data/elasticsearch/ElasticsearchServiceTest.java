@@ -1,24 +1,44 @@
 package org.molgenis.data.elasticsearch;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
-
+import static org.molgenis.data.elasticsearch.generator.model.DocumentAction.Operation.DELETE;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Repository;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.Document;
+import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.test.AbstractMockitoTest;
@@ -36,6 +56,8 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Mock private EntityType entityType;
 
+  @Mock private Attribute idAttribute;
+
   public ElasticsearchServiceTest() {
     super(Strictness.WARN);
   }
@@ -47,27 +69,20 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Test
   @SuppressWarnings("unchecked")
-  public void testBatchingSearchPageSizeZero() {
+  public void testSearchAfterPageSizeZero() {
     QueryImpl<Entity> query = mock(QueryImpl.class);
     when(query.getPageSize()).thenReturn(0);
     when(query.getOffset()).thenReturn(0);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
-
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[5000]));
-
-    when(clientFacade.search(any(), eq(0), eq(10000), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(10000), anyInt(), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(20000), anyInt(), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    when(clientFacade.searchAfter(any(), eq(0), eq(0), any(), any()))
+        .thenReturn(Stream.of(SearchHit.create("id0", "index"), SearchHit.create("id1", "index")));
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(idAttribute.getDataType()).thenReturn(STRING);
 
-    elasticsearchService.search(entityType, query);
+    assertEquals(
+        elasticsearchService.search(entityType, query).collect(toList()), asList("id0", "id1"));
 
-    verify(clientFacade, times(1)).search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(10000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(20000), eq(MAX_BATCH_SIZE), any(), any());
+    verify(clientFacade, times(1)).searchAfter(any(), eq(0), eq(0), any(), any());
     verifyNoMoreInteractions(clientFacade);
   }
 
@@ -91,26 +106,123 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Test
   @SuppressWarnings("unchecked")
-  public void testBatchingSearchPageSizeLargerThanMax() {
+  public void testSearchAfterPageSizeLargerThanMax() {
     QueryImpl<Entity> query = mock(QueryImpl.class);
-    when(query.getPageSize()).thenReturn(10001);
+    when(query.getPageSize()).thenReturn(MAX_BATCH_SIZE + 1);
     when(query.getOffset()).thenReturn(5000);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
-
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[1]));
-
-    when(clientFacade.search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any()))
-        .thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(15000), eq(1), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    when(clientFacade.searchAfter(any(), eq(5000), eq(MAX_BATCH_SIZE + 1), any(), any()))
+        .thenReturn(Stream.empty());
 
     elasticsearchService.search(entityType, query);
 
-    verify(clientFacade, times(1)).search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(15000), eq(1), any(), any());
+    verify(clientFacade, times(1))
+        .searchAfter(any(), eq(5000), eq(MAX_BATCH_SIZE + 1), any(), any());
     verifyNoMoreInteractions(clientFacade);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildIndex() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    when(clientFacade.getAliasedIndexes(index)).thenReturn(emptyList());
+    when(clientFacade.indexesExist(index)).thenReturn(true);
+
+    elasticsearchService.rebuildIndex(repository);
+
+    ArgumentCaptor<Index> shadowIndexCaptor = ArgumentCaptor.forClass(Index.class);
+    verify(clientFacade).createIndex(shadowIndexCaptor.capture(), any(), any());
+    Index shadowIndex = shadowIndexCaptor.getValue();
+    assertTrue(shadowIndex.getName().startsWith("index-"));
+    assertEquals(shadowIndex.getType(), "index");
+    verify(repository).forEachBatched(any(), any(), eq(1000));
+    verify(clientFacade).replaceIndexes(index, shadowIndex, singletonList(index));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildIndexAliased() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    Index aliasedIndex = Index.create("index-0", "index");
+    when(clientFacade.getAliasedIndexes(index)).thenReturn(singletonList(aliasedIndex));
+
+    elasticsearchService.rebuildIndex(repository);
+
+    verify(clientFacade).replaceIndexes(eq(index), any(), eq(singletonList(aliasedIndex)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildIndexFailureDeletesShadowIndex() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    MolgenisDataException exception = new MolgenisDataException();
+    doThrow(exception).when(repository).forEachBatched(any(), any(), anyInt());
+
+    try {
+      elasticsearchService.rebuildIndex(repository);
+      fail("expected exception");
+    } catch (MolgenisDataException e) {
+      assertSame(e, exception);
+    }
+
+    ArgumentCaptor<Index> shadowIndexCaptor = ArgumentCaptor.forClass(Index.class);
+    verify(clientFacade).createIndex(shadowIndexCaptor.capture(), any(), any());
+    verify(clientFacade).deleteIndex(shadowIndexCaptor.getValue());
+    verify(clientFacade, never()).replaceIndexes(any(), any(), any());
+  }
+
+  @Test
+  public void testDeleteIndexAliased() {
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    List<Index> aliasedIndexes = singletonList(Index.create("index-0", "index"));
+    when(clientFacade.getAliasedIndexes(index)).thenReturn(aliasedIndexes);
+
+    elasticsearchService.deleteIndex(entityType);
+
+    verify(clientFacade).deleteIndexes(aliasedIndexes);
+    verify(clientFacade, never()).deleteIndex(any());
+  }
+
+  @Test
+  public void testDeleteIndex() {
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    when(clientFacade.getAliasedIndexes(index)).thenReturn(emptyList());
+
+    elasticsearchService.deleteIndex(entityType);
+
+    verify(clientFacade).deleteIndex(index);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDeleteAll() {
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    Document document0 = Document.create("id0", null);
+    Document document1 = Document.create("id1", null);
+    when(contentGenerators.createDocument("id0")).thenReturn(document0);
+    when(contentGenerators.createDocument("id1")).thenReturn(document1);
+
+    elasticsearchService.deleteAll(entityType, Stream.of("id0", "id1"));
+
+    ArgumentCaptor<Stream<DocumentAction>> documentActionsCaptor =
+        ArgumentCaptor.forClass(Stream.class);
+    verify(clientFacade).processDocumentActions(documentActionsCaptor.capture());
+    assertEquals(
+        documentActionsCaptor.getValue().collect(toList()),
+        asList(
+            DocumentAction.create(index, document0, DELETE),
+            DocumentAction.create(index, document1, DELETE)));
+  }
 }
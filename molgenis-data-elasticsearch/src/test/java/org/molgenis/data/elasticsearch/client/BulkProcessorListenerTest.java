@@ -0,0 +1,97 @@
+package org.molgenis.data.elasticsearch.client;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.mockito.Mock;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BulkProcessorListenerTest extends AbstractMockitoTest {
+  @Mock private BulkRequest bulkRequest;
+  @Mock private BulkResponse bulkResponse;
+  private MeterRegistry meterRegistry;
+  private AtomicInteger activeBulkRequests;
+  private BulkProcessorListener bulkProcessorListener;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    activeBulkRequests = new AtomicInteger();
+    bulkProcessorListener = new BulkProcessorListener(meterRegistry, activeBulkRequests);
+  }
+
+  @Test
+  public void testBeforeBulk() {
+    bulkProcessorListener.beforeBulk(1L, bulkRequest);
+    assertEquals(activeBulkRequests.get(), 1);
+  }
+
+  @Test
+  public void testAfterBulk() {
+    when(bulkRequest.numberOfActions()).thenReturn(3);
+
+    bulkProcessorListener.beforeBulk(1L, bulkRequest);
+    bulkProcessorListener.afterBulk(1L, bulkRequest, bulkResponse);
+
+    assertEquals(activeBulkRequests.get(), 0);
+    assertEquals(meterRegistry.get("elasticsearch.bulk").timer().count(), 1L);
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents").counter().count(), 3.0);
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents.failed").counter().count(), 0.0);
+  }
+
+  @Test
+  public void testAfterBulkFailures() {
+    when(bulkRequest.numberOfActions()).thenReturn(3);
+    when(bulkResponse.hasFailures()).thenReturn(true);
+    BulkItemResponse succeededItem = mock(BulkItemResponse.class);
+    BulkItemResponse failedItem = createFailedItem(RestStatus.BAD_REQUEST);
+    BulkItemResponse rejectedItem = createFailedItem(RestStatus.TOO_MANY_REQUESTS);
+    when(bulkResponse.getItems())
+        .thenReturn(new BulkItemResponse[] {succeededItem, failedItem, rejectedItem});
+
+    bulkProcessorListener.beforeBulk(1L, bulkRequest);
+    bulkProcessorListener.afterBulk(1L, bulkRequest, bulkResponse);
+
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents").counter().count(), 1.0);
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents.failed").counter().count(), 2.0);
+    assertEquals(
+        meterRegistry.get("elasticsearch.bulk.documents.rejected").counter().count(), 1.0);
+  }
+
+  @Test
+  public void testAfterBulkRejected() {
+    when(bulkRequest.numberOfActions()).thenReturn(3);
+
+    bulkProcessorListener.beforeBulk(1L, bulkRequest);
+    bulkProcessorListener.afterBulk(
+        1L, bulkRequest, new EsRejectedExecutionException("bulk queue full"));
+
+    assertEquals(activeBulkRequests.get(), 0);
+    assertEquals(meterRegistry.get("elasticsearch.bulk").timer().count(), 1L);
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents").counter().count(), 0.0);
+    assertEquals(meterRegistry.get("elasticsearch.bulk.documents.failed").counter().count(), 3.0);
+    assertEquals(
+        meterRegistry.get("elasticsearch.bulk.documents.rejected").counter().count(), 3.0);
+  }
+
+  private static BulkItemResponse createFailedItem(RestStatus status) {
+    Failure failure = mock(Failure.class);
+    when(failure.getStatus()).thenReturn(status);
+    BulkItemResponse item = mock(BulkItemResponse.class);
+    when(item.isFailed()).thenReturn(true);
+    when(item.getFailure()).thenReturn(failure);
+    return item;
+  }
+}
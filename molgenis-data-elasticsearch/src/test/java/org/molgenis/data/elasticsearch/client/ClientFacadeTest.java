@@ -4,24 +4,37 @@ import static ch.qos.logback.classic.Level.DEBUG;
 import static ch.qos.logback.classic.Level.ERROR;
 import static ch.qos.logback.classic.Level.TRACE;
 import static ch.qos.logback.classic.Level.WARN;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
+import static org.testng.Assert.assertEquals;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Stream;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -43,6 +56,8 @@ import org.elasticsearch.action.support.replication.ReplicationResponse.ShardInf
 import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -75,6 +90,8 @@ import org.testng.annotations.Test;
 public class ClientFacadeTest {
   @Mock private Client client;
 
+  @Mock private BulkProcessorFactory bulkProcessorFactory;
+
   @Mock private AdminClient adminClient;
 
   @Mock private IndicesAdminClient indicesAdminClient;
@@ -165,6 +182,7 @@ public class ClientFacadeTest {
   public void setUp() throws Exception {
     reset(
         client,
+        bulkProcessorFactory,
         adminClient,
         indicesAdminClient,
         createIndexRequestBuilder,
@@ -189,7 +207,7 @@ public class ClientFacadeTest {
         xContentBuilder,
         shardInfo,
         mockAppender);
-    clientFacade = new ClientFacade(client);
+    clientFacade = new ClientFacade(client, bulkProcessorFactory);
     when(client.admin()).thenReturn(adminClient);
     when(adminClient.indices()).thenReturn(indicesAdminClient);
   }
@@ -338,6 +356,53 @@ public class ClientFacadeTest {
     clientFacade.refreshIndexes();
   }
 
+  @Test
+  public void testGetAliasedIndexes() {
+    Index alias = Index.create("index");
+
+    GetAliasesRequestBuilder getAliasesRequestBuilder = mock(GetAliasesRequestBuilder.class);
+    when(indicesAdminClient.prepareGetAliases("index")).thenReturn(getAliasesRequestBuilder);
+    GetAliasesResponse getAliasesResponse = mock(GetAliasesResponse.class);
+    when(getAliasesRequestBuilder.get()).thenReturn(getAliasesResponse);
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases =
+        ImmutableOpenMap.<String, List<AliasMetaData>>builder()
+            .fPut("index-0", singletonList(mock(AliasMetaData.class)))
+            .fPut("otherindex", emptyList())
+            .build();
+    when(getAliasesResponse.getAliases()).thenReturn(aliases);
+
+    assertEquals(
+        clientFacade.getAliasedIndexes(alias), singletonList(Index.create("index-0", "index")));
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp = "Error retrieving indexes for alias 'index'\\.")
+  public void testGetAliasedIndexesThrowsException() {
+    GetAliasesRequestBuilder getAliasesRequestBuilder = mock(GetAliasesRequestBuilder.class);
+    when(indicesAdminClient.prepareGetAliases("index")).thenReturn(getAliasesRequestBuilder);
+    when(getAliasesRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    clientFacade.getAliasedIndexes(Index.create("index"));
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp =
+          "Error replacing index\\(es\\) 'index' with index 'index-0' for alias 'index'\\.")
+  public void testReplaceIndexesNotAcknowledged() {
+    Index alias = Index.create("index");
+
+    IndicesAliasesRequestBuilder indicesAliasesRequestBuilder =
+        mock(IndicesAliasesRequestBuilder.class);
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    IndicesAliasesResponse indicesAliasesResponse = mock(IndicesAliasesResponse.class);
+    when(indicesAliasesRequestBuilder.get()).thenReturn(indicesAliasesResponse);
+    when(indicesAliasesResponse.isAcknowledged()).thenReturn(false);
+
+    clientFacade.replaceIndexes(alias, Index.create("index-0", "index"), singletonList(alias));
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp = "Error counting docs in index\\(es\\) 'index'\\.")
@@ -449,6 +514,75 @@ public class ClientFacadeTest {
     clientFacade.search(queryBuilder, 0, 100, ImmutableList.of(index));
   }
 
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp =
+          "Error searching docs in index\\(es\\) 'index' with query 'a == b'\\.")
+  public void testSearchAfterThrowsException() {
+    Index index = Index.create("index");
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenThrow(new ElasticsearchException("Exception"));
+    when(queryBuilder.toString()).thenReturn("a == b");
+
+    clientFacade.searchAfter(queryBuilder, 0, 0, null, index).forEach(searchHit -> {});
+  }
+
+  @Test
+  public void testSearchAfter() {
+    Index index = Index.create("index");
+
+    org.elasticsearch.search.SearchHit hit = mock(org.elasticsearch.search.SearchHit.class);
+    when(hit.getId()).thenReturn("id");
+    when(hit.getIndex()).thenReturn("index");
+    Object[] sortValues = {"index#id"};
+    when(hit.getSortValues()).thenReturn(sortValues);
+    org.elasticsearch.search.SearchHit[] fullPage =
+        new org.elasticsearch.search.SearchHit[MAX_BATCH_SIZE];
+    Arrays.fill(fullPage, hit);
+    org.elasticsearch.search.SearchHits fullPageHits =
+        mock(org.elasticsearch.search.SearchHits.class);
+    when(fullPageHits.getHits()).thenReturn(fullPage);
+    org.elasticsearch.search.SearchHits lastPageHits =
+        mock(org.elasticsearch.search.SearchHits.class);
+    when(lastPageHits.getHits()).thenReturn(new org.elasticsearch.search.SearchHit[] {hit});
+    SearchResponse lastPageResponse = mock(SearchResponse.class);
+    when(lastPageResponse.getHits()).thenReturn(lastPageHits);
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse, lastPageResponse);
+    when(searchResponse.getHits()).thenReturn(fullPageHits);
+
+    Stream<SearchHit> searchHits = clientFacade.searchAfter(queryBuilder, 0, 0, null, index);
+    verify(searchRequestBuilder, never()).get();
+
+    assertEquals(searchHits.count(), MAX_BATCH_SIZE + 1L);
+    verify(searchRequestBuilder).setFrom(0);
+    verify(searchRequestBuilder).searchAfter(sortValues);
+  }
+
+  @Test
+  public void testSearchAfterLimit() {
+    Index index = Index.create("index");
+
+    org.elasticsearch.search.SearchHit hit = mock(org.elasticsearch.search.SearchHit.class);
+    when(hit.getId()).thenReturn("id");
+    when(hit.getIndex()).thenReturn("index");
+    org.elasticsearch.search.SearchHits hits = mock(org.elasticsearch.search.SearchHits.class);
+    when(hits.getHits()).thenReturn(new org.elasticsearch.search.SearchHit[] {hit, hit});
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse);
+    when(searchResponse.getHits()).thenReturn(hits);
+
+    assertEquals(
+        clientFacade.searchAfter(queryBuilder, 10, 2, null, index).collect(toList()),
+        asList(SearchHit.create("id", "index"), SearchHit.create("id", "index")));
+    verify(searchRequestBuilder).setFrom(10);
+    verify(searchRequestBuilder).setSize(2);
+    verify(searchRequestBuilder, never()).searchAfter(any());
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp = "Error aggregating docs in index\\(es\\) 'index'\\.")
@@ -6,9 +6,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
@@ -29,13 +31,16 @@ import org.springframework.beans.factory.annotation.Autowired;
  * Read an excel file and iterate through the sheets.
  *
  * <p>A sheet is exposed as a {@link org.molgenis.data.Repository} with the sheetname as the
- * Repository name
+ * Repository name. Sheets of an Office Open XML (.xlsx) file are streamed by a {@link
+ * XlsxRepository}, other files are loaded in memory and read by an {@link ExcelRepository}.
  */
 public class ExcelRepositoryCollection extends FileRepositoryCollection {
   private static final String REPOSITORY_COLLECTION_NAME = "EXCEL";
 
   private final String fileName;
-  private final Workbook workbook;
+  private final File file;
+  private final XlsxWorkbook xlsxWorkbook;
+  private Workbook workbook;
 
   private EntityTypeFactory entityTypeFactory;
   private AttributeFactory attributeFactory;
@@ -46,13 +51,23 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   public ExcelRepositoryCollection(File file, CellProcessor... cellProcessors)
       throws IOException, MolgenisInvalidFormatException {
-    this(file.getName(), new FileInputStream(file), cellProcessors);
+    super(ExcelFileExtensions.getExcel(), cellProcessors);
+    this.fileName = file.getName();
+    this.file = file;
+    if (isOfficeOpenXml(file)) {
+      xlsxWorkbook = new XlsxWorkbook(file);
+    } else {
+      xlsxWorkbook = null;
+      workbook = createWorkbook(file);
+    }
   }
 
   public ExcelRepositoryCollection(String name, InputStream in, CellProcessor... cellProcessors)
       throws IOException {
     super(ExcelFileExtensions.getExcel(), cellProcessors);
     this.fileName = name;
+    this.file = null;
+    this.xlsxWorkbook = null;
     workbook = WorkbookFactory.create(in);
   }
 
@@ -63,6 +78,10 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   @Override
   public Iterable<String> getEntityTypeIds() {
+    if (xlsxWorkbook != null) {
+      return xlsxWorkbook.getSheetNames();
+    }
+
     int count = getNumberOfSheets();
     List<String> sheetNames = Lists.newArrayListWithCapacity(count);
 
@@ -75,6 +94,14 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   @Override
   public Repository<Entity> getRepository(String name) {
+    if (xlsxWorkbook != null) {
+      if (!xlsxWorkbook.hasSheet(name)) {
+        return null;
+      }
+      return new XlsxRepository(
+          name, xlsxWorkbook, entityTypeFactory, attributeFactory, cellProcessors);
+    }
+
     Sheet poiSheet = workbook.getSheet(name);
     if (poiSheet == null) {
       return null;
@@ -84,15 +111,21 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
   }
 
   public int getNumberOfSheets() {
+    if (xlsxWorkbook != null) {
+      return xlsxWorkbook.getSheetNames().size();
+    }
     return workbook.getNumberOfSheets();
   }
 
   public String getSheetName(int i) {
+    if (xlsxWorkbook != null) {
+      return xlsxWorkbook.getSheetNames().get(i);
+    }
     return workbook.getSheetName(i);
   }
 
   public ExcelRepository getSheet(int i) {
-    Sheet poiSheet = workbook.getSheetAt(i);
+    Sheet poiSheet = getWorkbook().getSheetAt(i);
     if (poiSheet == null) {
       return null;
     }
@@ -103,7 +136,7 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   public ExcelSheetWriter createWritable(
       String entityTypeId, List<Attribute> attributes, AttributeWriteMode attributeWriteMode) {
-    Sheet sheet = workbook.createSheet(entityTypeId);
+    Sheet sheet = getWorkbook().createSheet(entityTypeId);
     return new ExcelSheetWriter(sheet, attributes, attributeWriteMode, cellProcessors);
   }
 
@@ -119,7 +152,7 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
   }
 
   public void save(OutputStream out) throws IOException {
-    workbook.write(out);
+    getWorkbook().write(out);
   }
 
   @Override
@@ -158,6 +191,30 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
     return hasRepository(entityType.getId());
   }
 
+  /** Loads the workbook in memory on first use if the sheets are streamed. */
+  private Workbook getWorkbook() {
+    if (workbook == null) {
+      try {
+        workbook = createWorkbook(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return workbook;
+  }
+
+  private static Workbook createWorkbook(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return WorkbookFactory.create(in);
+    }
+  }
+
+  private static boolean isOfficeOpenXml(File file) throws IOException {
+    try (InputStream in = FileMagic.prepareToCheckMagic(new FileInputStream(file))) {
+      return FileMagic.valueOf(in) == FileMagic.OOXML;
+    }
+  }
+
   @Autowired
   public void setEntityTypeFactory(EntityTypeFactory entityTypeFactory) {
     this.entityTypeFactory = entityTypeFactory;
@@ -1,5 +1,7 @@
 package org.molgenis.data.excel;
 
+import static java.lang.String.format;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +20,7 @@ import org.molgenis.util.UnexpectedEnumException;
 /** Writable implementation for an excel sheet */
 public class ExcelSheetWriter extends AbstractWritable {
   private final Sheet sheet;
+  private final int maxRows;
   private int row;
 
   /** process cells before writing */
@@ -32,6 +35,7 @@ public class ExcelSheetWriter extends AbstractWritable {
       List<CellProcessor> cellProcessors) {
     if (sheet == null) throw new IllegalArgumentException("sheet is null");
     this.sheet = sheet;
+    this.maxRows = sheet.getWorkbook().getSpreadsheetVersion().getMaxRows();
     this.cellProcessors = cellProcessors;
     this.row = 0;
 
@@ -47,6 +51,12 @@ public class ExcelSheetWriter extends AbstractWritable {
     if (cachedAttributes == null)
       throw new MolgenisDataException(
           "The attribute names are not defined, call writeAttributeNames first");
+    if (row >= maxRows) {
+      throw new MolgenisDataException(
+          format(
+              "Number of rows exceeds the maximum of %d for Excel sheets, please use .csv instead",
+              maxRows));
+    }
 
     int i = 0;
     Row poiRow = sheet.createRow(row++);
@@ -54,13 +54,7 @@ public class ExcelUtils {
             LocaleUtil.resetUserTimeZone();
           }
         } else {
-          // excel stores integer values as double values
-          // read an integer if the double value equals the
-          // integer value
-          double x = cell.getNumericCellValue();
-          if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x))
-            value = String.valueOf((long) x);
-          else value = String.valueOf(x);
+          value = toNumericValue(cell.getNumericCellValue());
         }
         break;
       case BOOLEAN:
@@ -96,13 +90,7 @@ public class ExcelUtils {
                 LocaleUtil.resetUserTimeZone();
               }
             } else {
-              // excel stores integer values as double values
-              // read an integer if the double value equals the
-              // integer value
-              double x = cellValue.getNumberValue();
-              if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x))
-                value = String.valueOf((long) x);
-              else value = String.valueOf(x);
+              value = toNumericValue(cellValue.getNumberValue());
             }
             break;
           case STRING:
@@ -123,6 +111,24 @@ public class ExcelUtils {
     return AbstractCellProcessor.processCell(value, false, cellProcessors);
   }
 
+  static String toNumericValue(double x) {
+    // excel stores integer values as double values
+    // read an integer if the double value equals the
+    // integer value
+    if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x)) {
+      return String.valueOf((long) x);
+    } else {
+      return String.valueOf(x);
+    }
+  }
+
+  static String toDateValue(double x, boolean use1904windowing) {
+    // Excel dates are LocalDateTime, stored without timezone.
+    // Interpret them as UTC to prevent ambiguous DST overlaps which happen in other timezones.
+    Date javaDate = DateUtil.getJavaDate(x, use1904windowing, LocaleUtil.TIMEZONE_UTC);
+    return formatUTCDateAsLocalDateTime(javaDate);
+  }
+
   public static void renameSheet(String newSheetname, File file, int index) {
     try (FileInputStream fis = new FileInputStream(file);
         Workbook workbook = WorkbookFactory.create(fis)) {
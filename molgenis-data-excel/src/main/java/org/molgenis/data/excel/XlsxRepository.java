@@ -0,0 +1,228 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.AttributeType.STRING;
+
+import com.google.common.collect.Iterators;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.file.processor.AbstractCellProcessor;
+import org.molgenis.data.file.processor.CellProcessor;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.data.support.AbstractRepository;
+import org.molgenis.data.support.DynamicEntity;
+
+/**
+ * Streaming XLSX sheet {@link org.molgenis.data.Repository} implementation with the same header and
+ * value semantics as {@link ExcelRepository}.
+ *
+ * <p>Rows are read from the file on iteration and only the current row is kept in memory. An
+ * iterator releases the file when it is exhausted, use {@link #forEachBatched(Fetch, Consumer,
+ * int)} to read a sheet partially.
+ */
+public class XlsxRepository extends AbstractRepository {
+  private final String sheetName;
+  private final XlsxWorkbook workbook;
+  private final EntityTypeFactory entityTypeFactory;
+  private final AttributeFactory attrMetaFactory;
+
+  /** process cells after reading */
+  private List<CellProcessor> cellProcessors;
+  /** column names index */
+  private Map<String, Integer> colNamesMap;
+
+  private EntityType entityType;
+
+  XlsxRepository(
+      String sheetName,
+      XlsxWorkbook workbook,
+      EntityTypeFactory entityTypeFactory,
+      AttributeFactory attrMetaFactory,
+      List<CellProcessor> cellProcessors) {
+    this.sheetName = requireNonNull(sheetName);
+    this.workbook = requireNonNull(workbook);
+    this.entityTypeFactory = requireNonNull(entityTypeFactory);
+    this.attrMetaFactory = requireNonNull(attrMetaFactory);
+    this.cellProcessors = cellProcessors;
+  }
+
+  @Override
+  public Iterator<Entity> iterator() {
+    return new XlsxEntityIterator(workbook.openSheet(sheetName));
+  }
+
+  @Override
+  public void forEachBatched(Fetch fetch, Consumer<List<Entity>> consumer, int batchSize) {
+    try (XlsxEntityIterator it = new XlsxEntityIterator(workbook.openSheet(sheetName))) {
+      Iterators.partition(it, batchSize).forEachRemaining(consumer);
+    }
+  }
+
+  public void addCellProcessor(CellProcessor cellProcessor) {
+    if (cellProcessors == null) cellProcessors = new ArrayList<>();
+    cellProcessors.add(cellProcessor);
+  }
+
+  public EntityType getEntityType() {
+    if (entityType == null) {
+      EntityType newEntityType = entityTypeFactory.create(sheetName).setLabel(sheetName);
+
+      if (colNamesMap == null) {
+        try (XlsxSheetReader sheetReader = workbook.openSheet(sheetName)) {
+          // First row contains the headers
+          List<String> headerRow = sheetReader.readRow();
+          if (headerRow != null) {
+            colNamesMap = toColNamesMap(headerRow);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      if (colNamesMap != null) {
+        for (String colName : colNamesMap.keySet()) {
+          newEntityType.addAttribute(attrMetaFactory.create().setName(colName).setDataType(STRING));
+        }
+      }
+      this.entityType = newEntityType;
+    }
+
+    return entityType;
+  }
+
+  private Map<String, Integer> toColNamesMap(List<String> headerRow) {
+    Map<String, Integer> columnIdx = new LinkedHashMap<>();
+    for (int i = 0; i < headerRow.size(); i++) {
+      String header = AbstractCellProcessor.processCell(headerRow.get(i), true, cellProcessors);
+      if (header != null) {
+        if (columnIdx.containsKey(header)) {
+          throw new MolgenisDataException(
+              format("Duplicate column header '%s' in sheet '%s' not allowed", header, sheetName));
+        }
+        columnIdx.put(header, i);
+      }
+    }
+    return columnIdx;
+  }
+
+  /** Returns the entity for a row or null if all values of the row are empty */
+  private Entity toEntity(List<String> row) {
+    Entity entity = new DynamicEntity(getEntityType());
+    boolean empty = true;
+    for (Map.Entry<String, Integer> entry : colNamesMap.entrySet()) {
+      int col = entry.getValue();
+      String value = col < row.size() ? row.get(col) : null;
+      if (value != null) {
+        value = AbstractCellProcessor.processCell(value, false, cellProcessors);
+        entity.set(entry.getKey(), value);
+        empty = empty && StringUtils.isEmpty(value);
+      }
+    }
+    return empty ? null : entity;
+  }
+
+  @Override
+  public Set<RepositoryCapability> getCapabilities() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public long count() {
+    long count = 0;
+    for (Iterator<Entity> it = iterator(); it.hasNext(); it.next()) {
+      count++;
+    }
+    return count;
+  }
+
+  /** Iterates over the non-empty rows after the header row, skipping empty lines. */
+  private class XlsxEntityIterator implements Iterator<Entity>, Closeable {
+    private final XlsxSheetReader sheetReader;
+    private Entity next;
+    private boolean closed;
+
+    XlsxEntityIterator(XlsxSheetReader sheetReader) {
+      this.sheetReader = requireNonNull(sheetReader);
+
+      // create column header index once and reuse
+      List<String> headerRow = readRow();
+      if (headerRow != null && colNamesMap == null) {
+        try {
+          colNamesMap = toColNamesMap(headerRow);
+        } catch (RuntimeException e) {
+          close();
+          throw e;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        List<String> row = readRow();
+        if (row == null) {
+          return false;
+        }
+        next = toEntity(row);
+      }
+      return true;
+    }
+
+    @Override
+    public Entity next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entity result = next;
+      next = null;
+      return result;
+    }
+
+    private List<String> readRow() {
+      if (closed) {
+        return null;
+      }
+      List<String> row;
+      try {
+        row = sheetReader.readRow();
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+      if (row == null) {
+        close();
+      }
+      return row;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        try {
+          sheetReader.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+}
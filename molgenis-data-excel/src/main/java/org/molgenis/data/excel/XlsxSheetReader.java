@@ -0,0 +1,180 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.molgenis.data.MolgenisDataException;
+
+/**
+ * Reads the rows of an Office Open XML worksheet one at a time with a pull parser, so that only the
+ * current row is kept in memory.
+ *
+ * <p>Cell values are converted to strings like {@link ExcelUtils#toValue} does, except that the
+ * cached result of a formula is used instead of evaluating the formula.
+ */
+class XlsxSheetReader implements Closeable {
+  private static final String ROW = "row";
+  private static final String CELL = "c";
+  private static final String VALUE = "v";
+  private static final String INLINE_STRING = "is";
+  private static final String TEXT = "t";
+  private static final String PHONETIC_RUN = "rPh";
+  private static final String MERGE_CELL = "mergeCell";
+
+  private static final String TYPE_BOOLEAN = "b";
+  private static final String TYPE_DATE = "d";
+  private static final String TYPE_ERROR = "e";
+  private static final String TYPE_INLINE_STRING = "inlineStr";
+  private static final String TYPE_NUMBER = "n";
+  private static final String TYPE_SHARED_STRING = "s";
+  private static final String TYPE_FORMULA_STRING = "str";
+
+  private final String sheetName;
+  private final XlsxWorkbook workbook;
+  private final OPCPackage opcPackage;
+  private final InputStream inputStream;
+  private final XMLStreamReader reader;
+
+  XlsxSheetReader(
+      String sheetName, XlsxWorkbook workbook, OPCPackage opcPackage, InputStream inputStream)
+      throws XMLStreamException {
+    this.sheetName = requireNonNull(sheetName);
+    this.workbook = requireNonNull(workbook);
+    this.opcPackage = requireNonNull(opcPackage);
+    this.inputStream = requireNonNull(inputStream);
+    this.reader = XlsxWorkbook.createXmlStreamReader(inputStream);
+  }
+
+  /**
+   * Reads the next row.
+   *
+   * @return unprocessed cell values indexed by column or null if the sheet contains no more rows
+   */
+  List<String> readRow() {
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == START_ELEMENT) {
+          String localName = reader.getLocalName();
+          if (ROW.equals(localName)) {
+            return readCells();
+          } else if (MERGE_CELL.equals(localName)) {
+            throw new MolgenisDataException(
+                format("Sheet [%s] contains merged regions which is not supported", sheetName));
+          }
+        }
+      }
+      return null;
+    } catch (XMLStreamException e) {
+      throw new MolgenisDataException(e);
+    }
+  }
+
+  private List<String> readCells() throws XMLStreamException {
+    List<String> values = new ArrayList<>();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT && CELL.equals(reader.getLocalName())) {
+        String cellReference = reader.getAttributeValue(null, "r");
+        int column =
+            cellReference != null ? new CellReference(cellReference).getCol() : values.size();
+        String value = readCell();
+        while (values.size() <= column) {
+          values.add(null);
+        }
+        values.set(column, value);
+      } else if (event == END_ELEMENT && ROW.equals(reader.getLocalName())) {
+        break;
+      }
+    }
+    return values;
+  }
+
+  private String readCell() throws XMLStreamException {
+    String type = reader.getAttributeValue(null, "t");
+    String style = reader.getAttributeValue(null, "s");
+
+    String rawValue = null;
+    StringBuilder inlineString = null;
+    boolean phonetic = false;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        String localName = reader.getLocalName();
+        if (VALUE.equals(localName)) {
+          rawValue = reader.getElementText();
+        } else if (INLINE_STRING.equals(localName)) {
+          inlineString = new StringBuilder();
+        } else if (PHONETIC_RUN.equals(localName)) {
+          phonetic = true;
+        } else if (TEXT.equals(localName) && inlineString != null && !phonetic) {
+          inlineString.append(reader.getElementText());
+        }
+      } else if (event == END_ELEMENT) {
+        String localName = reader.getLocalName();
+        if (CELL.equals(localName)) {
+          break;
+        } else if (PHONETIC_RUN.equals(localName)) {
+          phonetic = false;
+        }
+      }
+    }
+
+    int styleIndex = style != null ? Integer.parseInt(style) : 0;
+    return toValue(type != null ? type : TYPE_NUMBER, styleIndex, rawValue, inlineString);
+  }
+
+  private String toValue(String type, int styleIndex, String rawValue, StringBuilder inlineString) {
+    switch (type) {
+      case TYPE_SHARED_STRING:
+        return rawValue != null ? workbook.getSharedString(Integer.parseInt(rawValue)) : null;
+      case TYPE_INLINE_STRING:
+        return inlineString != null ? inlineString.toString() : null;
+      case TYPE_FORMULA_STRING:
+      case TYPE_DATE:
+        return rawValue;
+      case TYPE_BOOLEAN:
+        return rawValue != null ? String.valueOf("1".equals(rawValue)) : null;
+      case TYPE_NUMBER:
+        if (rawValue == null || rawValue.isEmpty()) {
+          return null;
+        }
+        double number = Double.parseDouble(rawValue);
+        if (workbook.isDateStyle(styleIndex) && DateUtil.isValidExcelDate(number)) {
+          return ExcelUtils.toDateValue(number, workbook.isDate1904());
+        } else {
+          return ExcelUtils.toNumericValue(number);
+        }
+      case TYPE_ERROR:
+        throw new MolgenisDataException("unsupported cell type: ERROR");
+      default:
+        throw new MolgenisDataException("unsupported cell type: " + type);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      try {
+        inputStream.close();
+      } finally {
+        opcPackage.revert();
+      }
+    }
+  }
+}
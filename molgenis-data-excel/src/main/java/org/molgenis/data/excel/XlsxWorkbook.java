@@ -0,0 +1,230 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFReader.SheetIterator;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.MolgenisInvalidFormatException;
+
+/**
+ * Office Open XML workbook of which the sheets are read as a stream of rows instead of being loaded
+ * in memory.
+ *
+ * <p>Only the sheet names, the shared strings and the date cell styles are kept in memory. The file
+ * is opened on each read of a sheet and closed when the {@link XlsxSheetReader} is closed.
+ */
+class XlsxWorkbook {
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private final File file;
+  private final Map<String, PackagePartName> sheetPartNames;
+  private final List<String> sharedStrings;
+  private final BitSet dateStyles;
+  private final boolean date1904;
+
+  XlsxWorkbook(File file) throws IOException, MolgenisInvalidFormatException {
+    this.file = requireNonNull(file);
+
+    OPCPackage opcPackage = openPackage(file);
+    try {
+      XSSFReader xssfReader = new XSSFReader(opcPackage);
+      this.sheetPartNames = readSheetPartNames(xssfReader);
+      this.sharedStrings = readSharedStrings(opcPackage);
+      this.dateStyles = readDateStyles(xssfReader);
+      this.date1904 = readDate1904(xssfReader);
+    } catch (OpenXML4JException | XMLStreamException e) {
+      throw new MolgenisInvalidFormatException(
+          format("Invalid Excel file '%s': %s", file.getName(), e.getMessage()), e);
+    } finally {
+      opcPackage.revert();
+    }
+  }
+
+  List<String> getSheetNames() {
+    return new ArrayList<>(sheetPartNames.keySet());
+  }
+
+  boolean hasSheet(String sheetName) {
+    return sheetPartNames.containsKey(sheetName);
+  }
+
+  /** Opens the sheet with the given name, the caller is responsible for closing the reader. */
+  XlsxSheetReader openSheet(String sheetName) {
+    PackagePartName sheetPartName = sheetPartNames.get(sheetName);
+    if (sheetPartName == null) {
+      throw new MolgenisDataException(format("Unknown sheet '%s'", sheetName));
+    }
+
+    OPCPackage opcPackage;
+    try {
+      opcPackage = openPackage(file);
+    } catch (MolgenisInvalidFormatException e) {
+      throw new MolgenisDataException(e);
+    }
+    try {
+      PackagePart sheetPart = opcPackage.getPart(sheetPartName);
+      return new XlsxSheetReader(sheetName, this, opcPackage, sheetPart.getInputStream());
+    } catch (IOException e) {
+      opcPackage.revert();
+      throw new UncheckedIOException(e);
+    } catch (XMLStreamException e) {
+      opcPackage.revert();
+      throw new MolgenisDataException(e);
+    }
+  }
+
+  String getSharedString(int index) {
+    if (index < 0 || index >= sharedStrings.size()) {
+      throw new MolgenisDataException(format("Unknown shared string index %d", index));
+    }
+    return sharedStrings.get(index);
+  }
+
+  boolean isDateStyle(int styleIndex) {
+    return dateStyles.get(styleIndex);
+  }
+
+  boolean isDate1904() {
+    return date1904;
+  }
+
+  static XMLStreamReader createXmlStreamReader(InputStream inputStream) throws XMLStreamException {
+    return XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+  }
+
+  private static OPCPackage openPackage(File file) throws MolgenisInvalidFormatException {
+    try {
+      return OPCPackage.open(file, PackageAccess.READ);
+    } catch (OpenXML4JException | RuntimeException e) {
+      throw new MolgenisInvalidFormatException(
+          format("Invalid Excel file '%s': %s", file.getName(), e.getMessage()), e);
+    }
+  }
+
+  private static Map<String, PackagePartName> readSheetPartNames(XSSFReader xssfReader)
+      throws IOException, OpenXML4JException {
+    Map<String, PackagePartName> sheetPartNames = new LinkedHashMap<>();
+    SheetIterator sheetIterator = (SheetIterator) xssfReader.getSheetsData();
+    while (sheetIterator.hasNext()) {
+      sheetIterator.next().close();
+      sheetPartNames.put(sheetIterator.getSheetName(), sheetIterator.getSheetPart().getPartName());
+    }
+    return sheetPartNames;
+  }
+
+  /** Reads the shared string table, rich text runs are concatenated and phonetic runs ignored. */
+  private static List<String> readSharedStrings(OPCPackage opcPackage)
+      throws IOException, OpenXML4JException, XMLStreamException {
+    List<PackagePart> sharedStringsParts =
+        opcPackage.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+    if (sharedStringsParts.isEmpty()) {
+      return emptyList();
+    }
+
+    List<String> sharedStrings = new ArrayList<>();
+    try (InputStream inputStream = sharedStringsParts.get(0).getInputStream()) {
+      XMLStreamReader reader = createXmlStreamReader(inputStream);
+      try {
+        StringBuilder stringBuilder = null;
+        boolean phonetic = false;
+        while (reader.hasNext()) {
+          int event = reader.next();
+          if (event == START_ELEMENT) {
+            String localName = reader.getLocalName();
+            if ("si".equals(localName)) {
+              stringBuilder = new StringBuilder();
+            } else if ("rPh".equals(localName)) {
+              phonetic = true;
+            } else if ("t".equals(localName) && stringBuilder != null && !phonetic) {
+              stringBuilder.append(reader.getElementText());
+            }
+          } else if (event == END_ELEMENT) {
+            String localName = reader.getLocalName();
+            if ("si".equals(localName) && stringBuilder != null) {
+              sharedStrings.add(stringBuilder.toString());
+              stringBuilder = null;
+            } else if ("rPh".equals(localName)) {
+              phonetic = false;
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return sharedStrings;
+  }
+
+  private static BitSet readDateStyles(XSSFReader xssfReader)
+      throws IOException, OpenXML4JException {
+    BitSet dateStyles = new BitSet();
+    StylesTable stylesTable = xssfReader.getStylesTable();
+    if (stylesTable != null) {
+      for (int i = 0; i < stylesTable.getNumCellStyles(); i++) {
+        XSSFCellStyle cellStyle = stylesTable.getStyleAt(i);
+        if (cellStyle != null
+            && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString())) {
+          dateStyles.set(i);
+        }
+      }
+    }
+    return dateStyles;
+  }
+
+  private static boolean readDate1904(XSSFReader xssfReader)
+      throws IOException, OpenXML4JException, XMLStreamException {
+    try (InputStream inputStream = xssfReader.getWorkbookData()) {
+      XMLStreamReader reader = createXmlStreamReader(inputStream);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == START_ELEMENT) {
+            String localName = reader.getLocalName();
+            if ("workbookPr".equals(localName)) {
+              String date1904 = reader.getAttributeValue(null, "date1904");
+              return "1".equals(date1904) || "true".equals(date1904);
+            } else if ("sheets".equals(localName)) {
+              // workbook properties precede the sheets
+              return false;
+            }
+          }
+        }
+        return false;
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return xmlInputFactory;
+  }
+}
@@ -11,6 +11,8 @@ public class XlsxWriterFactory {
   private XlsxWriterFactory() {}
 
   public static XlsxWriter create(Path target, TimeZone timeZone) {
-    return new XlsxWriter(target, new SXSSFWorkbook(ROWS_IN_MEMORY), timeZone);
+    SXSSFWorkbook workbook = new SXSSFWorkbook(ROWS_IN_MEMORY);
+    workbook.setCompressTempFiles(true);
+    return new XlsxWriter(target, workbook, timeZone);
   }
 }
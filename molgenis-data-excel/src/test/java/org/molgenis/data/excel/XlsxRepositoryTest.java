@@ -0,0 +1,200 @@
+package org.molgenis.data.excel;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Streams;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.molgenis.data.AbstractMolgenisSpringTest;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.MolgenisInvalidFormatException;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class XlsxRepositoryTest extends AbstractMolgenisSpringTest {
+  @Autowired private EntityTypeFactory entityTypeFactory;
+
+  @Autowired private AttributeFactory attrMetaFactory;
+
+  private File workbookFile;
+
+  @BeforeClass
+  public void setUpBeforeClass() throws IOException {
+    workbookFile = Files.createTempFile("workbook", ".xlsx").toFile();
+    try (XSSFWorkbook workbook = new XSSFWorkbook();
+        OutputStream outputStream = Files.newOutputStream(workbookFile.toPath())) {
+      CellStyle dateStyle = workbook.createCellStyle();
+      dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+
+      Sheet sheet = workbook.createSheet("data");
+      Row headerRow = sheet.createRow(0);
+      headerRow.createCell(0).setCellValue("col1");
+      headerRow.createCell(1).setCellValue("col2");
+      headerRow.createCell(3).setCellValue("col4");
+
+      Row row1 = sheet.createRow(1);
+      row1.createCell(0).setCellValue(1d);
+      row1.createCell(1).setCellValue(1.5);
+      row1.createCell(3).setCellValue(43467.5);
+      row1.getCell(3).setCellStyle(dateStyle);
+
+      sheet.createRow(2).createCell(0).setCellValue("");
+
+      Row row3 = sheet.createRow(4);
+      row3.createCell(0).setCellFormula("A2*2");
+      row3.createCell(1).setCellValue(false);
+
+      Sheet mergedSheet = workbook.createSheet("merged");
+      mergedSheet.createRow(0).createCell(0).setCellValue("col1");
+      mergedSheet.createRow(1).createCell(0).setCellValue("val1");
+      mergedSheet.addMergedRegion(new CellRangeAddress(1, 1, 0, 1));
+
+      workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+      workbook.write(outputStream);
+    }
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() throws IOException {
+    Files.delete(workbookFile.toPath());
+  }
+
+  @Test
+  public void testGetRepository() throws IOException, MolgenisInvalidFormatException {
+    ExcelRepositoryCollection repositoryCollection = createRepositoryCollection("/test.xlsx");
+    assertEquals(repositoryCollection.getNumberOfSheets(), 1);
+    assertEquals(Lists.newArrayList(repositoryCollection.getEntityTypeIds()), asList("attributes"));
+    assertTrue(repositoryCollection.getRepository("attributes") instanceof XlsxRepository);
+    assertNull(repositoryCollection.getRepository("unknown"));
+  }
+
+  @Test
+  public void testGetEntityType() throws IOException, MolgenisInvalidFormatException {
+    Repository<Entity> repository =
+        createRepositoryCollection("/test.xlsx").getRepository("attributes");
+    assertEquals(repository.getName(), "attributes");
+    assertEquals(getAttributeNames(repository), asList("name", "entity", "idAttribute"));
+  }
+
+  @Test
+  public void testIterator() throws IOException, MolgenisInvalidFormatException {
+    Repository<Entity> repository =
+        createRepositoryCollection("/test.xlsx").getRepository("attributes");
+    Iterator<Entity> it = repository.iterator();
+    assertTrue(it.hasNext());
+
+    Entity row1 = it.next();
+    assertEquals(row1.get("name"), "id");
+    assertEquals(row1.get("entity"), "city");
+    assertEquals(row1.get("idAttribute"), "true");
+    assertTrue(it.hasNext());
+
+    Entity row2 = it.next();
+    assertEquals(row2.get("name"), "name");
+    assertEquals(row2.get("entity"), "city");
+    assertNull(row2.get("idAttribute"));
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void testIteratorCellTypes() throws IOException, MolgenisInvalidFormatException {
+    Repository<Entity> repository = createRepositoryCollection(workbookFile).getRepository("data");
+    assertEquals(getAttributeNames(repository), asList("col1", "col2", "col4"));
+
+    List<Entity> entities = Lists.newArrayList(repository);
+    assertEquals(entities.size(), 2);
+    assertEquals(entities.get(0).get("col1"), "1");
+    assertEquals(entities.get(0).get("col2"), "1.5");
+    assertEquals(entities.get(0).get("col4"), "2019-01-02T12:00");
+    assertEquals(entities.get(1).get("col1"), "2");
+    assertEquals(entities.get(1).get("col2"), "false");
+    assertNull(entities.get(1).get("col4"));
+    assertEquals(repository.count(), 2L);
+  }
+
+  @Test
+  public void testForEachBatched() throws IOException, MolgenisInvalidFormatException {
+    Repository<Entity> repository = createRepositoryCollection(workbookFile).getRepository("data");
+
+    List<Integer> batchSizes = new ArrayList<>();
+    repository.forEachBatched(null, batch -> batchSizes.add(batch.size()), 1);
+    assertEquals(batchSizes, asList(1, 1));
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Sheet \\[merged\\] contains merged regions which is not supported")
+  public void testIteratorMergedRegions() throws IOException, MolgenisInvalidFormatException {
+    createRepositoryCollection(workbookFile).getRepository("merged").forEach(entity -> {});
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Duplicate column header 'entity' in sheet 'attributes' not allowed")
+  public void testIteratorDuplicateSheetHeader()
+      throws IOException, MolgenisInvalidFormatException {
+    createRepositoryCollection("/duplicate-sheet-header.xlsx")
+        .getRepository("attributes")
+        .iterator();
+  }
+
+  @Test
+  public void testIteratorHeaderCaseSensitive() throws IOException, MolgenisInvalidFormatException {
+    Entity entity =
+        createRepositoryCollection("/case-sensitivity.xlsx")
+            .getRepository("case-sensitivity")
+            .iterator()
+            .next();
+    assertEquals(entity.get("Header"), "Value #0");
+    assertNull(entity.get("hEADER"));
+  }
+
+  private ExcelRepositoryCollection createRepositoryCollection(String resourceName)
+      throws IOException, MolgenisInvalidFormatException {
+    try {
+      return createRepositoryCollection(new File(getClass().getResource(resourceName).toURI()));
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private ExcelRepositoryCollection createRepositoryCollection(File file)
+      throws IOException, MolgenisInvalidFormatException {
+    ExcelRepositoryCollection repositoryCollection = new ExcelRepositoryCollection(file);
+    repositoryCollection.setEntityTypeFactory(entityTypeFactory);
+    repositoryCollection.setAttributeFactory(attrMetaFactory);
+    return repositoryCollection;
+  }
+
+  private static List<String> getAttributeNames(Repository<Entity> repository) {
+    return Streams.stream(repository.getEntityType().getAttributes())
+        .map(Attribute::getName)
+        .collect(toList());
+  }
+}
@@ -2,9 +2,12 @@ package org.molgenis.data.i18n;
 
 import static java.util.Objects.requireNonNull;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.Locale;
 import org.molgenis.data.DataService;
+import org.molgenis.data.cache.CacheInvalidationBus;
 import org.molgenis.data.i18n.model.L10nStringFactory;
+import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.i18n.LocalizationMessageSource;
 import org.molgenis.settings.AppSettings;
 import org.molgenis.util.i18n.MessageSourceHolder;
@@ -20,16 +23,25 @@ public class LocalizationConfig {
   private final DataService dataService;
   private final AppSettings appSettings;
   private final MessageFormatFactory messageFormatFactory;
+  private final TransactionInformation transactionInformation;
+  private final CacheInvalidationBus cacheInvalidationBus;
+  private final MeterRegistry meterRegistry;
 
   public LocalizationConfig(
       L10nStringFactory l10nStringFactory,
       DataService dataService,
       AppSettings appSettings,
-      MessageFormatFactory messageFormatFactory) {
+      MessageFormatFactory messageFormatFactory,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus,
+      MeterRegistry meterRegistry) {
     this.l10nStringFactory = requireNonNull(l10nStringFactory);
     this.dataService = requireNonNull(dataService);
     this.appSettings = requireNonNull(appSettings);
     this.messageFormatFactory = requireNonNull(messageFormatFactory);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.cacheInvalidationBus = requireNonNull(cacheInvalidationBus);
+    this.meterRegistry = requireNonNull(meterRegistry);
   }
 
   @Bean
@@ -39,7 +51,12 @@ public class LocalizationConfig {
 
   @Bean
   public LocalizationService localizationRepository() {
-    return new LocalizationService(dataService, l10nStringFactory);
+    return new LocalizationService(
+        dataService,
+        l10nStringFactory,
+        transactionInformation,
+        cacheInvalidationBus,
+        meterRegistry);
   }
 
   @Bean
@@ -1,15 +1,21 @@
 package org.molgenis.data.i18n;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static org.molgenis.data.i18n.model.L10nStringMetadata.L10N_STRING;
 import static org.molgenis.data.i18n.model.L10nStringMetadata.MSGID;
 import static org.molgenis.data.i18n.model.L10nStringMetadata.NAMESPACE;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
 import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -18,27 +24,70 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.event.BootstrappingEvent;
 import org.molgenis.data.i18n.model.L10nString;
 import org.molgenis.data.i18n.model.L10nStringFactory;
+import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.i18n.MessageResolution;
 import org.molgenis.security.core.runas.RunAsSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Reads and writes messages to and from the {@link L10nString} entity.
  *
  * <p>The values returned are exactly how they are stored in the entity columns.
+ *
+ * <p>Messages are looked up in {@link MessageBundles} that are loaded on first use. After a change
+ * to localization strings was committed on this or on another application node only the changed
+ * localization strings are read again. Transactions that changed localization strings bypass the
+ * message bundles.
  */
 public class LocalizationService implements MessageResolution {
   private static final Logger LOG = LoggerFactory.getLogger(LocalizationService.class);
   private final DataService dataService;
   private final L10nStringFactory l10nStringFactory;
+  private final TransactionInformation transactionInformation;
+  private final Counter foundCounter;
+  private final Counter missingCounter;
+  private final Timer rebuildTimer;
+
+  /** ids of localization strings changed since the message bundles were built, guarded by this */
+  private final Set<String> changedIds;
+
+  private volatile MessageBundles messageBundles;
+  private volatile boolean messageBundlesStale;
 
-  LocalizationService(DataService dataService, L10nStringFactory l10nStringFactory) {
+  LocalizationService(
+      DataService dataService,
+      L10nStringFactory l10nStringFactory,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus,
+      MeterRegistry meterRegistry) {
     this.dataService = requireNonNull(dataService);
     this.l10nStringFactory = requireNonNull(l10nStringFactory);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.foundCounter =
+        Counter.builder("i18n.lookups")
+            .description("Number of localized message lookups")
+            .tag("result", "found")
+            .register(meterRegistry);
+    this.missingCounter =
+        Counter.builder("i18n.lookups")
+            .description("Number of localized message lookups")
+            .tag("result", "missing")
+            .register(meterRegistry);
+    this.rebuildTimer =
+        Timer.builder("i18n.bundles.rebuild")
+            .description("Time spent building the localized message bundles")
+            .register(meterRegistry);
+    this.changedIds = new HashSet<>();
+    cacheInvalidationBus.addListener(this::onCacheInvalidation);
   }
 
   /**
@@ -51,10 +100,18 @@ public class LocalizationService implements MessageResolution {
   @Override
   @RunAsSystem
   public String resolveCodeWithoutArguments(String code, Locale locale) {
-    return Optional.ofNullable(
-            dataService.query(L10N_STRING, L10nString.class).eq(MSGID, code).findOne())
-        .map(l10nString -> l10nString.getString(locale))
-        .orElse(null);
+    String message;
+    if (isL10nStringDirty()) {
+      message =
+          Optional.ofNullable(
+                  dataService.query(L10N_STRING, L10nString.class).eq(MSGID, code).findOne())
+              .map(l10nString -> l10nString.getString(locale))
+              .orElse(null);
+    } else {
+      message = getMessageBundles().getMessage(locale.getLanguage(), code);
+    }
+    (message != null ? foundCounter : missingCounter).increment();
+    return message;
   }
 
   /**
@@ -68,11 +125,27 @@ public class LocalizationService implements MessageResolution {
    */
   @RunAsSystem
   public Map<String, String> getMessages(String namespace, Locale locale) {
+    if (!isL10nStringDirty()) {
+      return getMessageBundles().getMessages(namespace, locale.getLanguage());
+    }
     return getL10nStrings(namespace).stream()
         .filter(e -> e.getString(locale) != null)
         .collect(toMap(L10nString::getMessageID, e -> e.getString(locale)));
   }
 
+  /** Discards the message bundles, they are loaded again on first use. */
+  public synchronized void invalidate() {
+    messageBundles = null;
+    changedIds.clear();
+    messageBundlesStale = true;
+  }
+
+  @EventListener
+  public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    // localization strings are populated during bootstrapping
+    invalidate();
+  }
+
   public List<String> getAllMessageIds() {
     return dataService
         .findAll(L10N_STRING, L10nString.class)
@@ -132,4 +205,57 @@ public class LocalizationService implements MessageResolution {
     dataService.update(L10N_STRING, toUpdate.stream());
     dataService.add(L10N_STRING, toAdd.stream());
   }
+
+  private boolean isL10nStringDirty() {
+    return transactionInformation.getDirtyRepositories().contains(L10N_STRING);
+  }
+
+  private MessageBundles getMessageBundles() {
+    MessageBundles currentMessageBundles = messageBundles;
+    if (currentMessageBundles != null && !messageBundlesStale) {
+      return currentMessageBundles;
+    }
+    return rebuildMessageBundles();
+  }
+
+  /** Loads the message bundles or reads the changed localization strings into the bundles. */
+  private synchronized MessageBundles rebuildMessageBundles() {
+    long startTime = System.nanoTime();
+    if (messageBundles == null) {
+      messageBundles =
+          runAsSystem(
+              () -> MessageBundles.create(dataService.findAll(L10N_STRING, L10nString.class)));
+      rebuildTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+      LOG.debug("Loaded {} localization strings", messageBundles.size());
+    } else if (!changedIds.isEmpty()) {
+      MessageBundles currentMessageBundles = messageBundles;
+      Set<Object> ids = new HashSet<>(changedIds);
+      messageBundles =
+          runAsSystem(
+              () ->
+                  currentMessageBundles.update(
+                      changedIds,
+                      dataService.findAll(L10N_STRING, ids.stream(), L10nString.class)));
+      rebuildTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+      LOG.debug("Updated {} localization strings", ids.size());
+    }
+    changedIds.clear();
+    messageBundlesStale = false;
+    return messageBundles;
+  }
+
+  private synchronized void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()
+        || cacheInvalidation.getEntityTypeIds().contains(L10N_STRING)) {
+      invalidate();
+    } else {
+      cacheInvalidation.getEntityKeys().stream()
+          .filter(entityKey -> entityKey.getEntityTypeId().equals(L10N_STRING))
+          .map(EntityKey::getId)
+          .forEach(id -> changedIds.add(id.toString()));
+      if (!changedIds.isEmpty()) {
+        messageBundlesStale = true;
+      }
+    }
+  }
 }
@@ -0,0 +1,140 @@
+package org.molgenis.data.i18n;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.i18n.model.L10nString;
+import org.molgenis.util.i18n.LanguageService;
+
+/**
+ * Immutable in-memory copy of the {@link L10nString} entity with hash maps per language and per
+ * namespace and language.
+ */
+class MessageBundles {
+  private final ImmutableMap<String, Message> messagesById;
+  private final ImmutableMap<String, ImmutableMap<String, String>> messagesPerLanguage;
+  private final ImmutableMap<String, ImmutableMap<String, ImmutableMap<String, String>>>
+      messagesPerNamespace;
+
+  private MessageBundles(Map<String, Message> messagesById) {
+    this.messagesById = ImmutableMap.copyOf(messagesById);
+
+    Map<String, Map<String, String>> languageMessages = new HashMap<>();
+    Map<String, Map<String, Map<String, String>>> namespaceMessages = new HashMap<>();
+    this.messagesById
+        .values()
+        .forEach(
+            message ->
+                message
+                    .getTranslations()
+                    .forEach(
+                        (languageCode, translation) -> {
+                          languageMessages
+                              .computeIfAbsent(languageCode, key -> new HashMap<>())
+                              .putIfAbsent(message.getMessageId(), translation);
+                          namespaceMessages
+                              .computeIfAbsent(message.getNamespace(), key -> new HashMap<>())
+                              .computeIfAbsent(languageCode, key -> new HashMap<>())
+                              .put(message.getMessageId(), translation);
+                        }));
+    this.messagesPerLanguage = copyOf(languageMessages);
+    ImmutableMap.Builder<String, ImmutableMap<String, ImmutableMap<String, String>>> builder =
+        ImmutableMap.builder();
+    namespaceMessages.forEach((namespace, messages) -> builder.put(namespace, copyOf(messages)));
+    this.messagesPerNamespace = builder.build();
+  }
+
+  static MessageBundles create(Stream<L10nString> l10nStrings) {
+    Map<String, Message> messagesById = new LinkedHashMap<>();
+    l10nStrings.forEach(l10nString -> messagesById.put(l10nString.getId(), toMessage(l10nString)));
+    return new MessageBundles(messagesById);
+  }
+
+  /**
+   * Creates new message bundles in which the changed localization strings are replaced.
+   *
+   * @param changedIds ids of the changed localization strings
+   * @param l10nStrings localization strings with the changed ids that still exist
+   */
+  MessageBundles update(Collection<String> changedIds, Stream<L10nString> l10nStrings) {
+    Map<String, Message> updatedMessagesById = new LinkedHashMap<>(messagesById);
+    changedIds.forEach(updatedMessagesById::remove);
+    l10nStrings.forEach(
+        l10nString -> updatedMessagesById.put(l10nString.getId(), toMessage(l10nString)));
+    return new MessageBundles(updatedMessagesById);
+  }
+
+  /** Returns the message for a message id in any namespace or null if it is not translated. */
+  @Nullable
+  @CheckForNull
+  String getMessage(String languageCode, String messageId) {
+    ImmutableMap<String, String> messages = messagesPerLanguage.get(languageCode);
+    return messages != null ? messages.get(messageId) : null;
+  }
+
+  /** Returns the messages that are translated for a namespace and language. */
+  Map<String, String> getMessages(String namespace, String languageCode) {
+    ImmutableMap<String, ImmutableMap<String, String>> namespaceMessages =
+        messagesPerNamespace.get(namespace);
+    if (namespaceMessages == null) {
+      return ImmutableMap.of();
+    }
+    ImmutableMap<String, String> messages = namespaceMessages.get(languageCode);
+    return messages != null ? messages : ImmutableMap.of();
+  }
+
+  int size() {
+    return messagesById.size();
+  }
+
+  private static ImmutableMap<String, ImmutableMap<String, String>> copyOf(
+      Map<String, Map<String, String>> messages) {
+    ImmutableMap.Builder<String, ImmutableMap<String, String>> builder = ImmutableMap.builder();
+    messages.forEach((key, value) -> builder.put(key, ImmutableMap.copyOf(value)));
+    return builder.build();
+  }
+
+  private static Message toMessage(L10nString l10nString) {
+    ImmutableMap.Builder<String, String> translations = ImmutableMap.builder();
+    LanguageService.getLanguageCodes()
+        .forEach(
+            languageCode -> {
+              String translation = l10nString.getString(languageCode);
+              if (translation != null) {
+                translations.put(languageCode, translation);
+              }
+            });
+    return new Message(l10nString.getNamespace(), l10nString.getMessageID(), translations.build());
+  }
+
+  private static class Message {
+    private final String namespace;
+    private final String messageId;
+    private final ImmutableMap<String, String> translations;
+
+    Message(String namespace, String messageId, ImmutableMap<String, String> translations) {
+      this.namespace = requireNonNull(namespace);
+      this.messageId = requireNonNull(messageId);
+      this.translations = requireNonNull(translations);
+    }
+
+    String getNamespace() {
+      return namespace;
+    }
+
+    String getMessageId() {
+      return messageId;
+    }
+
+    ImmutableMap<String, String> getTranslations() {
+      return translations;
+    }
+  }
+}
@@ -1,8 +1,12 @@
 package org.molgenis.data.i18n;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.doReturn;
@@ -13,10 +17,13 @@ import static org.molgenis.data.i18n.model.L10nStringMetadata.L10N_STRING;
 import static org.molgenis.data.i18n.model.L10nStringMetadata.MSGID;
 import static org.molgenis.data.i18n.model.L10nStringMetadata.NAMESPACE;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.collections.Lists.newArrayList;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,9 +35,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
+import org.molgenis.data.EntityKey;
 import org.molgenis.data.Query;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
 import org.molgenis.data.i18n.model.L10nString;
 import org.molgenis.data.i18n.model.L10nStringFactory;
+import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.test.AbstractMockitoTest;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -44,6 +55,8 @@ public class LocalizationServiceTest extends AbstractMockitoTest {
 
   @Mock private L10nStringFactory l10nStringFactory;
 
+  @Mock private TransactionInformation transactionInformation;
+
   @Mock private L10nString enPlusNl;
   @Mock private L10nString nlOnly;
   @Mock private L10nString newString1;
@@ -53,13 +66,42 @@ public class LocalizationServiceTest extends AbstractMockitoTest {
   @Captor private ArgumentCaptor<Stream<L10nString>> addCaptor;
   @Captor private ArgumentCaptor<Stream<L10nString>> deleteCaptor;
 
+  private LocalCacheInvalidationBus cacheInvalidationBus;
+  private MeterRegistry meterRegistry;
+
   @BeforeMethod
   public void setUp() throws Exception {
-    localizationService = new LocalizationService(dataService, l10nStringFactory);
+    cacheInvalidationBus = new LocalCacheInvalidationBus();
+    meterRegistry = new SimpleMeterRegistry();
+    localizationService =
+        new LocalizationService(
+            dataService,
+            l10nStringFactory,
+            transactionInformation,
+            cacheInvalidationBus,
+            meterRegistry);
   }
 
   @Test
   public void testGetMessage() {
+    L10nString l10nString = createL10nString("1", "test", "EN_PLUS_NL", "string 1 - nl");
+    when(dataService.findAll(L10N_STRING, L10nString.class)).thenReturn(Stream.of(l10nString));
+
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "string 1 - nl");
+    assertNull(localizationService.resolveCodeWithoutArguments("MISSING", DUTCH));
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "string 1 - nl");
+
+    verify(dataService).findAll(L10N_STRING, L10nString.class);
+    assertEquals(meterRegistry.get("i18n.lookups").tag("result", "found").counter().count(), 2.0);
+    assertEquals(meterRegistry.get("i18n.lookups").tag("result", "missing").counter().count(), 1.0);
+    assertEquals(meterRegistry.get("i18n.bundles.rebuild").timer().count(), 1L);
+  }
+
+  @Test
+  public void testGetMessageDirtyTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(L10N_STRING));
     doReturn("string 1 - nl").when(enPlusNl).getString(DUTCH);
     @SuppressWarnings("unchecked")
     Query<L10nString> query = mock(Query.class, RETURNS_SELF);
@@ -70,8 +112,60 @@ public class LocalizationServiceTest extends AbstractMockitoTest {
         localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "string 1 - nl");
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testGetMessageAfterCommittedUpdate() {
+    L10nString l10nString = createL10nString("1", "test", "EN_PLUS_NL", "string 1 - nl");
+    L10nString otherL10nString = createL10nString("2", "test", "NL_ONLY", "string 2 - nl");
+    when(dataService.findAll(L10N_STRING, L10nString.class))
+        .thenReturn(Stream.of(l10nString, otherL10nString));
+    L10nString updatedL10nString = createL10nString("1", "test", "EN_PLUS_NL", "updated - nl");
+    when(dataService.findAll(eq(L10N_STRING), any(Stream.class), eq(L10nString.class)))
+        .thenReturn(Stream.of(updatedL10nString));
+
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "string 1 - nl");
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(emptySet(), singleton(EntityKey.create(L10N_STRING, "1"))));
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "updated - nl");
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("NL_ONLY", DUTCH), "string 2 - nl");
+
+    verify(dataService).findAll(L10N_STRING, L10nString.class);
+  }
+
+  @Test
+  public void testGetMessageAfterEntityTypeInvalidated() {
+    L10nString l10nString = createL10nString("1", "test", "EN_PLUS_NL", "string 1 - nl");
+    L10nString updatedL10nString = createL10nString("1", "test", "EN_PLUS_NL", "updated - nl");
+    when(dataService.findAll(L10N_STRING, L10nString.class))
+        .thenReturn(Stream.of(l10nString))
+        .thenReturn(Stream.of(updatedL10nString));
+
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "string 1 - nl");
+    cacheInvalidationBus.publish(CacheInvalidation.create(singleton(L10N_STRING), emptySet()));
+    assertEquals(
+        localizationService.resolveCodeWithoutArguments("EN_PLUS_NL", DUTCH), "updated - nl");
+  }
+
   @Test
   public void testGetMessages() {
+    L10nString l10nString = createL10nString("1", "test", "EN_PLUS_NL", "string 1 - nl");
+    L10nString otherL10nString = createL10nString("2", "test", "NL_ONLY", "string 2 - nl");
+    L10nString otherNamespaceL10nString = createL10nString("3", "other", "OTHER", "other - nl");
+    when(dataService.findAll(L10N_STRING, L10nString.class))
+        .thenReturn(Stream.of(l10nString, otherL10nString, otherNamespaceL10nString));
+
+    assertEquals(
+        localizationService.getMessages("test", DUTCH),
+        ImmutableMap.of("EN_PLUS_NL", "string 1 - nl", "NL_ONLY", "string 2 - nl"));
+  }
+
+  @Test
+  public void testGetMessagesDirtyTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(L10N_STRING));
     @SuppressWarnings("unchecked")
     Query<L10nString> query = mock(Query.class, RETURNS_SELF);
     when(dataService.query(L10N_STRING, L10nString.class)).thenReturn(query);
@@ -140,4 +234,15 @@ public class LocalizationServiceTest extends AbstractMockitoTest {
     when(nlOnly.getMessageID()).thenReturn("B");
     assertEquals(localizationService.getAllMessageIds(), Arrays.asList("A", "B"));
   }
+
+  private static L10nString createL10nString(
+      String id, String namespace, String messageId, String dutchMessage) {
+    L10nString l10nString = mock(L10nString.class);
+    when(l10nString.getId()).thenReturn(id);
+    when(l10nString.getNamespace()).thenReturn(namespace);
+    when(l10nString.getMessageID()).thenReturn(messageId);
+    when(l10nString.getString(anyString()))
+        .thenAnswer(invocation -> "nl".equals(invocation.getArgument(0)) ? dutchMessage : null);
+    return l10nString;
+  }
 }
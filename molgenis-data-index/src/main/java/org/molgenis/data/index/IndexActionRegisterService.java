@@ -23,9 +23,9 @@ public interface IndexActionRegisterService {
   void register(EntityType entityType, Object entityId);
 
   /**
-   * Stores the index actions in the repository. Creates a ReindexActionJob to group them by.
+   * Appends the index actions to the {@link org.molgenis.data.index.job.IndexActionLog}.
    * storeIndexActions uses a set as optimization to remove the double index actions before the
-   * index actions are stored in database.
+   * index actions are logged.
    *
    * @param transactionId ID for the transaction the index actions were registered under
    */
@@ -2,7 +2,6 @@ package org.molgenis.data.index;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
-import static com.google.common.collect.Streams.mapWithIndex;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
@@ -12,7 +11,6 @@ import static org.molgenis.data.index.Impact.createSingleEntityImpact;
 import static org.molgenis.data.index.IndexDependencyModel.ENTITY_TYPE_FETCH;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
-import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.PENDING;
 import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
 import static org.molgenis.data.meta.model.AttributeMetadata.REF_ENTITY_TYPE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
@@ -24,14 +22,10 @@ import com.google.common.collect.Sets;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.Fetch;
-import org.molgenis.data.index.meta.IndexAction;
-import org.molgenis.data.index.meta.IndexActionFactory;
-import org.molgenis.data.index.meta.IndexActionGroup;
-import org.molgenis.data.index.meta.IndexActionGroupFactory;
+import org.molgenis.data.index.job.IndexActionLog;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.transaction.TransactionInformation;
@@ -57,21 +51,16 @@ public class IndexActionRegisterServiceImpl
       synchronizedSetMultimap(HashMultimap.create());
 
   private final DataService dataService;
-  private final IndexActionFactory indexActionFactory;
-  private final IndexActionGroupFactory indexActionGroupFactory;
   private final IndexingStrategy indexingStrategy;
+  private final IndexActionLog indexActionLog;
 
   private final Set<String> excludedEntities = Sets.newConcurrentHashSet();
 
   IndexActionRegisterServiceImpl(
-      DataService dataService,
-      IndexActionFactory indexActionFactory,
-      IndexActionGroupFactory indexActionGroupFactory,
-      IndexingStrategy indexingStrategy) {
+      DataService dataService, IndexingStrategy indexingStrategy, IndexActionLog indexActionLog) {
     this.dataService = requireNonNull(dataService);
-    this.indexActionFactory = requireNonNull(indexActionFactory);
-    this.indexActionGroupFactory = requireNonNull(indexActionGroupFactory);
     this.indexingStrategy = requireNonNull(indexingStrategy);
+    this.indexActionLog = requireNonNull(indexActionLog);
 
     addExcludedEntity(INDEX_ACTION_GROUP);
     addExcludedEntity(INDEX_ACTION);
@@ -120,24 +109,16 @@ public class IndexActionRegisterServiceImpl
       return;
     }
 
-    IndexActionGroup indexActionGroup = indexActionGroupFactory.create(transactionId);
     IndexDependencyModel dependencyModel = createIndexDependencyModel(changes);
-    Stream<Impact> impactStream =
+    List<Impact> impacts =
         indexingStrategy.determineImpact(changes, dependencyModel).stream()
-            .filter(key -> !excludedEntities.contains(key.getEntityTypeId()));
-    List<IndexAction> indexActions =
-        mapWithIndex(
-                impactStream,
-                (key, actionOrder) -> createIndexAction(indexActionGroup, key, (int) actionOrder))
+            .filter(key -> !excludedEntities.contains(key.getEntityTypeId()))
             .collect(toList());
-    if (indexActions.isEmpty()) {
+    if (impacts.isEmpty()) {
       return;
     }
     LOG.debug("Store index actions for transaction {}", transactionId);
-    dataService.add(
-        INDEX_ACTION_GROUP,
-        indexActionGroupFactory.create(transactionId).setCount(indexActions.size()));
-    dataService.add(INDEX_ACTION, indexActions.stream());
+    indexActionLog.append(transactionId, impacts);
   }
 
   private IndexDependencyModel createIndexDependencyModel(Set<Impact> changes) {
@@ -151,20 +132,6 @@ public class IndexActionRegisterServiceImpl
     }
   }
 
-  private IndexAction createIndexAction(
-      IndexActionGroup indexActionGroup, Impact key, int actionOrder) {
-    IndexAction indexAction = indexActionFactory.create();
-    indexAction.setIndexStatus(PENDING);
-    Object entityId = key.getId();
-    if (entityId != null) {
-      indexAction.setEntityId(entityId.toString());
-    }
-    indexAction.setEntityTypeId(key.getEntityTypeId());
-    indexAction.setIndexActionGroup(indexActionGroup);
-    indexAction.setActionOrder(actionOrder);
-    return indexAction;
-  }
-
   /**
    * Retrieves all {@link EntityType}s. Queryies in pages of size ENTITY_FETCH_PAGE_SIZE so that
    * results can be cached. Uses a {@link Fetch} that specifies all fields needed to determine the
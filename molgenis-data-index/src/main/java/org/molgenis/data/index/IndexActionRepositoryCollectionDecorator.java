@@ -59,4 +59,10 @@ public class IndexActionRepositoryCollectionDecorator
     this.indexActionRegisterService.register(entityType, null);
     return delegate().createRepository(entityType);
   }
+
+  @Override
+  public void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    this.indexActionRegisterService.register(targetEntityType, null);
+    delegate().copyEntities(sourceEntityType, targetEntityType);
+  }
 }
@@ -3,9 +3,12 @@ package org.molgenis.data.index;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.index.job.IndexJobExecutionMetadata.INDEX_JOB_EXECUTION;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.PostConstruct;
 import org.molgenis.data.DataService;
-import org.molgenis.data.index.job.IndexJobExecution;
+import org.molgenis.data.index.job.IndexActionLog;
 import org.molgenis.data.index.job.IndexJobExecutionFactory;
 import org.molgenis.data.index.job.IndexJobExecutionMetadata;
 import org.molgenis.data.index.job.IndexJobScheduler;
@@ -19,11 +22,9 @@ import org.molgenis.data.index.meta.IndexPackage;
 import org.molgenis.data.index.transaction.IndexTransactionListener;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.data.transaction.TransactionManager;
-import org.molgenis.jobs.Job;
-import org.molgenis.jobs.JobExecutor;
-import org.molgenis.jobs.JobFactory;
 import org.molgenis.jobs.model.JobExecutionMetaData;
 import org.molgenis.jobs.model.JobPackage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -40,7 +41,8 @@ import org.springframework.context.annotation.Import;
   JobPackage.class,
   JobExecutionMetaData.class,
   IndexActionRegisterServiceImpl.class,
-  IndexingStrategy.class
+  IndexingStrategy.class,
+  IndexActionLog.class
 })
 @Configuration
 public class IndexConfig {
@@ -48,25 +50,28 @@ public class IndexConfig {
   private final TransactionManager transactionManager;
   private final DataService dataService;
   private final IndexService indexService;
-  private final IndexJobExecutionFactory indexJobExecutionFactory;
+  private final IndexActionLog indexActionLog;
   private final EntityTypeFactory entityTypeFactory;
-  private final JobExecutor jobExecutor;
+  private final int indexJobThreads;
+  private final int indexBatchSize;
 
   public IndexConfig(
       IndexActionRegisterService indexActionRegisterService,
       TransactionManager transactionManager,
       DataService dataService,
       IndexService indexService,
-      IndexJobExecutionFactory indexJobExecutionFactory,
+      IndexActionLog indexActionLog,
       EntityTypeFactory entityTypeFactory,
-      JobExecutor jobExecutor) {
+      @Value("${index_job_threads:4}") int indexJobThreads,
+      @Value("${index_batch_size:10000}") int indexBatchSize) {
     this.indexActionRegisterService = requireNonNull(indexActionRegisterService);
     this.transactionManager = requireNonNull(transactionManager);
     this.dataService = requireNonNull(dataService);
     this.indexService = requireNonNull(indexService);
-    this.indexJobExecutionFactory = requireNonNull(indexJobExecutionFactory);
+    this.indexActionLog = requireNonNull(indexActionLog);
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
-    this.jobExecutor = requireNonNull(jobExecutor);
+    this.indexJobThreads = indexJobThreads;
+    this.indexBatchSize = indexBatchSize;
   }
 
   @PostConstruct
@@ -84,22 +89,22 @@ public class IndexConfig {
 
   @Bean
   public IndexJobScheduler indexJobScheduler() {
-    return new IndexJobSchedulerImpl(dataService, indexJobExecutionFactory, jobExecutor);
+    ExecutorService executorService =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-index-scheduler-%d")
+                .setDaemon(true)
+                .build());
+    return new IndexJobSchedulerImpl(
+        indexActionLog, indexJobService(), indexBatchSize, executorService);
   }
 
   @Bean
   public IndexJobService indexJobService() {
-    return new IndexJobService(dataService, indexService, entityTypeFactory);
-  }
-
-  @Bean
-  public JobFactory<IndexJobExecution> indexJobFactory() {
-    return new JobFactory<IndexJobExecution>() {
-      @Override
-      public Job<Void> createJob(IndexJobExecution jobExecution) {
-        return progress ->
-            indexJobService().executeJob(progress, jobExecution.getIndexActionJobID());
-      }
-    };
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            indexJobThreads,
+            new ThreadFactoryBuilder().setNameFormat("molgenis-index-%d").setDaemon(true).build());
+    return new IndexJobService(dataService, indexService, entityTypeFactory, executorService);
   }
 }
@@ -3,15 +3,18 @@ package org.molgenis.data.index;
 import static java.lang.String.format;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.QueryUtils.containsAnyOperator;
 import static org.molgenis.data.QueryUtils.containsComputedAttribute;
 import static org.molgenis.data.QueryUtils.containsNestedQueryRuleField;
 import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
+import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -110,9 +113,17 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
     return unmodifiableSet(capabilities);
   }
 
+  /**
+   * Gets the query operators of the index and adds {@link Operator#PERMITTED} if the underlying
+   * repository supports it, the index does not contain access control lists.
+   */
   @Override
   public Set<Operator> getQueryOperators() {
-    return EnumSet.allOf(Operator.class);
+    Set<Operator> operators = EnumSet.complementOf(EnumSet.of(PERMITTED));
+    if (delegate().getQueryOperators().contains(PERMITTED)) {
+      operators.add(PERMITTED);
+    }
+    return operators;
   }
 
   @Override
@@ -136,9 +147,28 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
     }
   }
 
+  /**
+   * Aggregates in the underlying repository if it supports the aggregate query, so that aggregates
+   * are consistent with the current transaction and do not wait for indexing. Otherwise aggregates
+   * in the index.
+   */
   @Override
   public AggregateResult aggregate(AggregateQuery aggregateQuery) {
-    return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
+    if (aggregateSupported(aggregateQuery)) {
+      LOG.debug(
+          "public AggregateResult aggregate({}) entityTypeId: [{}] repository: [{}]",
+          aggregateQuery,
+          getEntityType().getId(),
+          DECORATED_REPOSITORY);
+      return delegate().aggregate(aggregateQuery);
+    } else {
+      LOG.debug(
+          "public AggregateResult aggregate({}) entityTypeId: [{}] repository: [{}]",
+          aggregateQuery,
+          getEntityType().getId(),
+          INDEX_REPOSITORY);
+      return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
+    }
   }
 
   /**
@@ -179,6 +209,27 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
         && !containsNestedQueryRuleField(q);
   }
 
+  /**
+   * Checks if the underlying repository can handle this aggregate query. Aggregate queries with an
+   * unsupported query, with attributes with computed values or with attributes referencing
+   * multiple entities are delegated to the index.
+   */
+  private boolean aggregateSupported(AggregateQuery aggregateQuery) {
+    if (!delegate().getCapabilities().contains(AGGREGATEABLE)) {
+      return false;
+    }
+    Query<Entity> q = aggregateQuery.getQuery();
+    if (q != null && !querySupported(q)) {
+      return false;
+    }
+    return Stream.of(
+            aggregateQuery.getAttributeX(),
+            aggregateQuery.getAttributeY(),
+            aggregateQuery.getAttributeDistinct())
+        .filter(Objects::nonNull)
+        .noneMatch(attr -> attr.hasExpression() || isMultipleReferenceType(attr));
+  }
+
   private void waitForIndexToBeStable() {
     try {
       indexJobScheduler.waitForIndexToBeStableIncludingReferences(getEntityType());
@@ -11,6 +11,7 @@ import org.molgenis.data.index.IndexActionRegisterService;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.job.IndexJobExecution;
 import org.molgenis.data.index.job.IndexJobExecutionMetadata;
+import org.molgenis.data.index.job.IndexJobScheduler;
 import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionGroupMetadata;
 import org.molgenis.data.index.meta.IndexActionMetadata;
@@ -32,18 +33,21 @@ public class IndexBootstrapper {
   private final IndexActionRegisterService indexActionRegisterService;
   private final DataService dataService;
   private final AttributeMetadata attrMetadata;
+  private final IndexJobScheduler indexJobScheduler;
 
   public IndexBootstrapper(
       MetaDataService metaDataService,
       IndexService indexService,
       IndexActionRegisterService indexActionRegisterService,
       DataService dataService,
-      AttributeMetadata attrMetadata) {
+      AttributeMetadata attrMetadata,
+      IndexJobScheduler indexJobScheduler) {
     this.metaDataService = metaDataService;
     this.indexService = indexService;
     this.indexActionRegisterService = indexActionRegisterService;
     this.dataService = dataService;
     this.attrMetadata = attrMetadata;
+    this.indexJobScheduler = indexJobScheduler;
   }
 
   public void bootstrap() {
@@ -65,6 +69,7 @@ public class IndexBootstrapper {
               .collect(Collectors.toList());
       failedIndexJobs.forEach(this::registerNewIndexActionForDirtyJobs);
     }
+    indexJobScheduler.scheduleReplay();
   }
 
   private void registerNewIndexActionForDirtyJobs(IndexJobExecution indexJobExecution) {
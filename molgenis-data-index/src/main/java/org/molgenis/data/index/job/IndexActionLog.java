@@ -0,0 +1,415 @@
+package org.molgenis.data.index.job;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyMap;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.PreDestroy;
+import org.molgenis.data.index.Impact;
+import org.molgenis.util.AppDataRootProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only log of the {@link Impact}s of transactions, stored in segment files.
+ *
+ * <p>Each logged impact gets the next sequence number. The impacts of a transaction are written to
+ * disk before the transaction commits and can be read once the transaction completed. The sequence
+ * up to which all impacts were indexed is stored as checkpoint, segments that only contain indexed
+ * impacts are deleted. After a restart all impacts after the checkpoint can be read again.
+ */
+@Component
+public class IndexActionLog implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(IndexActionLog.class);
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final String CHECKPOINT_TMP_FILE = "checkpoint.tmp";
+  private static final int FRAME_HEADER_SIZE = 8;
+
+  private final String directory;
+  private final long maxSegmentSize;
+
+  private Path logDirectory;
+  /** maps the first sequence of each segment to the segment file */
+  private final NavigableMap<Long, Path> segments = new TreeMap<>();
+  /** maps the id of transactions that did not complete yet to their logged impacts */
+  private final Map<String, LoggedTransaction> openTransactions = new HashMap<>();
+
+  private FileChannel segmentChannel;
+  private long lastSequence;
+  private long checkpoint;
+
+  /**
+   * @param directory log directory, defaults to a directory in the application data root if empty
+   * @param maxSegmentSize size in bytes after which a new segment is started
+   */
+  public IndexActionLog(
+      @Value("${index_action_log_dir:}") String directory,
+      @Value("${index_action_log_segment_size:67108864}") long maxSegmentSize) {
+    if (maxSegmentSize <= 0) {
+      throw new IllegalArgumentException("index_action_log_segment_size must be greater than 0");
+    }
+    this.directory = directory;
+    this.maxSegmentSize = maxSegmentSize;
+  }
+
+  /**
+   * Appends the impacts of a transaction to the log and forces them to disk. The impacts can be
+   * read after {@link #complete(String)} was called for the transaction.
+   */
+  public synchronized void append(String transactionId, Collection<Impact> impacts) {
+    if (impacts.isEmpty()) {
+      return;
+    }
+    open();
+
+    long firstSequence = lastSequence + 1;
+    ByteBuffer frame = createFrame(firstSequence, impacts);
+    try {
+      if (segmentChannel == null || segmentChannel.size() >= maxSegmentSize) {
+        startSegment(firstSequence);
+      }
+      writeFrame(frame);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    LoggedTransaction loggedTransaction =
+        openTransactions.computeIfAbsent(transactionId, id -> new LoggedTransaction(firstSequence));
+    for (Impact impact : impacts) {
+      loggedTransaction.add(impact.getEntityTypeId(), ++lastSequence);
+    }
+  }
+
+  /**
+   * Marks a transaction as completed, making its impacts readable.
+   *
+   * @return maps the entity type ids of the logged impacts of the transaction to the last sequence
+   *     of the entity type, empty if the transaction did not log impacts
+   */
+  public synchronized Map<String, Long> complete(String transactionId) {
+    LoggedTransaction loggedTransaction = openTransactions.remove(transactionId);
+    return loggedTransaction != null ? loggedTransaction.getWatermarks() : emptyMap();
+  }
+
+  /** Returns the sequence up to which the logged impacts can be read. */
+  public synchronized long getCompletedSequence() {
+    open();
+    return openTransactions.values().stream()
+        .mapToLong(loggedTransaction -> loggedTransaction.getFirstSequence() - 1)
+        .min()
+        .orElse(lastSequence);
+  }
+
+  /** Returns the sequence up to which all logged impacts were indexed. */
+  public synchronized long getCheckpoint() {
+    open();
+    return checkpoint;
+  }
+
+  /**
+   * Reads the logged impacts with a sequence after the from sequence up to and including the to
+   * sequence. The to sequence should not exceed the {@link #getCompletedSequence()}.
+   */
+  public void read(long fromSequence, long toSequence, Consumer<Impact> consumer) {
+    List<Path> segmentFiles;
+    synchronized (this) {
+      open();
+      Long firstSegmentSequence = segments.floorKey(fromSequence + 1);
+      segmentFiles =
+          new ArrayList<>(
+              (firstSegmentSequence != null
+                      ? segments.subMap(firstSegmentSequence, true, toSequence, true)
+                      : segments.headMap(toSequence, true))
+                  .values());
+    }
+
+    for (Path segmentFile : segmentFiles) {
+      try (InputStream inputStream = Files.newInputStream(segmentFile)) {
+        if (!readSegment(inputStream, fromSequence, toSequence, consumer)) {
+          return;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Stores the sequence up to which all logged impacts were indexed and deletes the segments that
+   * only contain indexed impacts.
+   */
+  public synchronized void checkpoint(long sequence) {
+    open();
+    try {
+      Path checkpointTmpFile = logDirectory.resolve(CHECKPOINT_TMP_FILE);
+      Files.write(checkpointTmpFile, Long.toString(sequence).getBytes(UTF_8));
+      Files.move(
+          checkpointTmpFile, logDirectory.resolve(CHECKPOINT_FILE), ATOMIC_MOVE, REPLACE_EXISTING);
+      checkpoint = sequence;
+
+      // the last segment is kept to append to
+      while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= sequence + 1) {
+        Files.delete(segments.pollFirstEntry().getValue());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @PreDestroy
+  @Override
+  public synchronized void close() {
+    if (segmentChannel != null) {
+      try {
+        segmentChannel.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing index action log", e);
+      }
+      segmentChannel = null;
+    }
+  }
+
+  /** Reads the checkpoint and segments and repairs the last segment on first use. */
+  private void open() {
+    if (logDirectory != null) {
+      return;
+    }
+
+    Path path =
+        directory.isEmpty()
+            ? AppDataRootProvider.getAppDataRoot().resolve("data").resolve("index")
+            : Paths.get(directory);
+    try {
+      Files.createDirectories(path);
+      Path checkpointFile = path.resolve(CHECKPOINT_FILE);
+      checkpoint =
+          Files.exists(checkpointFile)
+              ? Long.parseLong(new String(Files.readAllBytes(checkpointFile), UTF_8).trim())
+              : 0L;
+      try (Stream<Path> files = Files.list(path)) {
+        files
+            .filter(file -> isSegmentFile(file.getFileName().toString()))
+            .forEach(file -> segments.put(getSegmentSequence(file), file));
+      }
+      lastSequence = checkpoint;
+      if (!segments.isEmpty()) {
+        lastSequence = Math.max(lastSequence, recoverSegment(segments.lastEntry().getValue()));
+        segmentChannel = FileChannel.open(segments.lastEntry().getValue(), WRITE, APPEND);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    logDirectory = path;
+    LOG.debug(
+        "Opened index action log '{}' at sequence {}, checkpoint {}",
+        path,
+        lastSequence,
+        checkpoint);
+  }
+
+  /**
+   * Truncates the segment after the last complete frame, a frame can be incomplete if the
+   * application stopped while appending.
+   *
+   * @return the last sequence in the segment
+   */
+  private long recoverSegment(Path segmentFile) throws IOException {
+    long segmentSequence = getSegmentSequence(segmentFile);
+    long sequence = segmentSequence - 1;
+    long validSize = 0;
+    try (DataInputStream dataInputStream = new DataInputStream(Files.newInputStream(segmentFile))) {
+      byte[] payload;
+      while ((payload = readFrame(dataInputStream)) != null) {
+        sequence += countImpacts(payload);
+        validSize += FRAME_HEADER_SIZE + payload.length;
+      }
+    }
+    try (FileChannel fileChannel = FileChannel.open(segmentFile, WRITE)) {
+      if (fileChannel.size() > validSize) {
+        LOG.warn("Truncating incomplete index actions of index action log '{}'", segmentFile);
+        fileChannel.truncate(validSize);
+        fileChannel.force(true);
+      }
+    }
+    return sequence;
+  }
+
+  /** Writes the frame, a partially written frame is removed so that later frames can be read. */
+  private void writeFrame(ByteBuffer frame) throws IOException {
+    long size = segmentChannel.size();
+    try {
+      while (frame.hasRemaining()) {
+        segmentChannel.write(frame);
+      }
+      segmentChannel.force(false);
+    } catch (IOException e) {
+      segmentChannel.truncate(size);
+      throw e;
+    }
+  }
+
+  private void startSegment(long firstSequence) throws IOException {
+    if (segmentChannel != null) {
+      segmentChannel.close();
+    }
+    String fileName = String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    Path segmentFile = logDirectory.resolve(fileName);
+    segmentChannel = FileChannel.open(segmentFile, CREATE, WRITE, APPEND);
+    segments.put(firstSequence, segmentFile);
+  }
+
+  /** @return whether the to sequence was not reached */
+  private static boolean readSegment(
+      InputStream inputStream, long fromSequence, long toSequence, Consumer<Impact> consumer)
+      throws IOException {
+    DataInputStream dataInputStream = new DataInputStream(inputStream);
+    byte[] payload;
+    while ((payload = readFrame(dataInputStream)) != null) {
+      DataInputStream payloadInputStream =
+          new DataInputStream(new ByteArrayInputStream(payload));
+      long sequence = payloadInputStream.readLong();
+      int nrImpacts = payloadInputStream.readInt();
+      for (int i = 0; i < nrImpacts; ++i, ++sequence) {
+        Impact impact = readImpact(payloadInputStream);
+        if (sequence > toSequence) {
+          return false;
+        }
+        if (sequence > fromSequence) {
+          consumer.accept(impact);
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Returns the payload of the next frame or null if there is no complete valid frame. */
+  private static byte[] readFrame(DataInputStream dataInputStream) throws IOException {
+    try {
+      int length = dataInputStream.readInt();
+      int checksum = dataInputStream.readInt();
+      if (length <= 0) {
+        return null;
+      }
+      byte[] payload = new byte[length];
+      dataInputStream.readFully(payload);
+      return getChecksum(payload) == checksum ? payload : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private static int countImpacts(byte[] payload) throws IOException {
+    DataInputStream payloadInputStream =
+        new DataInputStream(new ByteArrayInputStream(payload));
+    payloadInputStream.readLong();
+    return payloadInputStream.readInt();
+  }
+
+  /**
+   * Creates a frame of the impacts: the payload length, the payload checksum and the payload
+   * consisting of the first sequence, the number of impacts and the impacts.
+   */
+  private static ByteBuffer createFrame(long firstSequence, Collection<Impact> impacts) {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+      dataOutputStream.writeLong(firstSequence);
+      dataOutputStream.writeInt(impacts.size());
+      for (Impact impact : impacts) {
+        dataOutputStream.writeUTF(impact.getEntityTypeId());
+        Object id = impact.getId();
+        dataOutputStream.writeBoolean(id != null);
+        if (id != null) {
+          dataOutputStream.writeUTF(id.toString());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    byte[] payload = byteArrayOutputStream.toByteArray();
+
+    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+    frame.putInt(payload.length).putInt(getChecksum(payload)).put(payload);
+    frame.flip();
+    return frame;
+  }
+
+  /** Reads an impact, the ids of single entity impacts are read as string. */
+  private static Impact readImpact(DataInputStream dataInputStream) throws IOException {
+    String entityTypeId = dataInputStream.readUTF();
+    return dataInputStream.readBoolean()
+        ? createSingleEntityImpact(entityTypeId, dataInputStream.readUTF())
+        : createWholeRepositoryImpact(entityTypeId);
+  }
+
+  private static int getChecksum(byte[] payload) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload);
+    return (int) crc32.getValue();
+  }
+
+  private static boolean isSegmentFile(String fileName) {
+    return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static long getSegmentSequence(Path segmentFile) {
+    String fileName = segmentFile.getFileName().toString();
+    return Long.parseLong(
+        fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private static class LoggedTransaction {
+    private final long firstSequence;
+    private final Map<String, Long> watermarks = new HashMap<>();
+
+    LoggedTransaction(long firstSequence) {
+      this.firstSequence = firstSequence;
+    }
+
+    void add(String entityTypeId, long sequence) {
+      watermarks.put(entityTypeId, sequence);
+    }
+
+    long getFirstSequence() {
+      return firstSequence;
+    }
+
+    Map<String, Long> getWatermarks() {
+      return watermarks;
+    }
+  }
+}
@@ -2,19 +2,23 @@ package org.molgenis.data.index.job;
 
 import org.molgenis.data.meta.model.EntityType;
 
-/** Schedules {@link IndexJobService}s. */
+/** Schedules indexing of the index actions in the {@link IndexActionLog}. */
 public interface IndexJobScheduler {
   /**
-   * Schedules a job to rebuild the index for all changes made in the context of a specific
-   * transaction. Does nothing if no IndexActionJob exists for this transactionId.
+   * Schedules indexing of the index actions logged by a transaction that completed. Index actions
+   * of multiple transactions are indexed together.
    *
    * @param transactionId the ID of the transaction.
    */
   void scheduleIndexJob(String transactionId);
 
+  /**
+   * Schedules indexing of the index actions that were logged but not indexed before the
+   * application stopped.
+   */
+  void scheduleReplay();
+
   void waitForAllIndicesStable() throws InterruptedException;
 
   void waitForIndexToBeStableIncludingReferences(EntityType entityType) throws InterruptedException;
-
-  void cleanupJobExecutions();
 }
@@ -1,76 +1,87 @@
 package org.molgenis.data.index.job;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
-import static org.molgenis.data.index.meta.IndexActionMetadata.ENTITY_TYPE_ID;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION_GROUP_ATTR;
-import static org.molgenis.jobs.model.JobExecution.Status.SUCCESS;
-import static org.molgenis.jobs.model.JobExecutionMetaData.END_DATE;
-import static org.molgenis.jobs.model.JobExecutionMetaData.STATUS;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Stream;
-import org.molgenis.data.DataService;
-import org.molgenis.data.Entity;
-import org.molgenis.data.index.meta.IndexActionGroup;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import org.molgenis.data.index.Impact;
 import org.molgenis.data.meta.model.EntityType;
-import org.molgenis.data.support.QueryImpl;
-import org.molgenis.jobs.JobExecutor;
 import org.molgenis.security.core.runas.RunAsSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 
+/**
+ * Tails the {@link IndexActionLog} on a background thread. The index actions of completed
+ * transactions are read in batches, duplicate index actions across transactions are merged and
+ * the batch is indexed. Entity types that fail to index are appended to the log again as whole
+ * repository impacts. Afterwards the log is checkpointed so that a restart only replays the index
+ * actions that were not indexed.
+ */
 public class IndexJobSchedulerImpl implements IndexJobScheduler {
   private static final Logger LOG = LoggerFactory.getLogger(IndexJobSchedulerImpl.class);
 
-  private final DataService dataService;
-  private final IndexJobExecutionFactory indexJobExecutionFactory;
-  // the executor for the index jobs.
-  private ExecutorService executorService = Executors.newSingleThreadExecutor();
-  private final JobExecutor jobExecutor;
+  private static final String REINDEX_TRANSACTION_PREFIX = "reindex-";
+
+  private final IndexActionLog indexActionLog;
+  private final IndexJobService indexJobService;
+  private final int batchSize;
+  private final ExecutorService executorService;
   private final IndexStatus indexStatus = new IndexStatus();
+  private final AtomicBoolean indexScheduled = new AtomicBoolean();
+
+  /** sequence up to which the logged index actions were indexed, -1 if unknown */
+  private long indexedSequence = -1;
 
+  /**
+   * @param batchSize maximum number of logged index actions that are indexed at once
+   * @param executorService single threaded executor that tails the log
+   */
   public IndexJobSchedulerImpl(
-      DataService dataService,
-      IndexJobExecutionFactory indexJobExecutionFactory,
-      JobExecutor jobExecutor) {
-    this.dataService = requireNonNull(dataService);
-    this.indexJobExecutionFactory = requireNonNull(indexJobExecutionFactory);
-    this.jobExecutor = requireNonNull(jobExecutor);
+      IndexActionLog indexActionLog,
+      IndexJobService indexJobService,
+      int batchSize,
+      ExecutorService executorService) {
+    this.indexActionLog = requireNonNull(indexActionLog);
+    this.indexJobService = requireNonNull(indexJobService);
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("index_batch_size must be greater than 0");
+    }
+    this.batchSize = batchSize;
+    this.executorService = requireNonNull(executorService);
   }
 
   @Override
-  @RunAsSystem
   public void scheduleIndexJob(String transactionId) {
     LOG.trace("Index transaction with id {}...", transactionId);
-    IndexActionGroup indexActionGroup =
-        dataService.findOneById(INDEX_ACTION_GROUP, transactionId, IndexActionGroup.class);
-
-    if (indexActionGroup != null) {
-      Stream<Entity> indexActions =
-          dataService.findAll(
-              INDEX_ACTION, new QueryImpl<>().eq(INDEX_ACTION_GROUP_ATTR, indexActionGroup));
-      Map<String, Long> numberOfActionsPerEntity =
-          indexActions.collect(
-              groupingBy(indexAction -> indexAction.getString(ENTITY_TYPE_ID), counting()));
-      indexStatus.addActionCounts(numberOfActionsPerEntity);
-
-      IndexJobExecution indexJobExecution = indexJobExecutionFactory.create();
-      indexJobExecution.setIndexActionJobID(transactionId);
-      jobExecutor
-          .submit(indexJobExecution, executorService)
-          .whenComplete((a, b) -> indexStatus.removeActionCounts(numberOfActionsPerEntity));
-    } else {
-      LOG.debug("No index job found for id [{}].", transactionId);
+    Map<String, Long> watermarks = indexActionLog.complete(transactionId);
+    if (!watermarks.isEmpty()) {
+      indexStatus.addWatermarks(watermarks);
+    }
+    // completing a transaction without index actions can make index actions of others readable
+    scheduleIndexing();
+  }
+
+  @Override
+  public void scheduleReplay() {
+    long checkpoint = indexActionLog.getCheckpoint();
+    long completedSequence = indexActionLog.getCompletedSequence();
+    if (checkpoint < completedSequence) {
+      LOG.info("Replaying index actions {} to {} ...", checkpoint + 1, completedSequence);
+      Map<String, Long> watermarks = new HashMap<>();
+      indexActionLog.read(
+          checkpoint,
+          completedSequence,
+          impact -> watermarks.put(impact.getEntityTypeId(), completedSequence));
+      indexStatus.addWatermarks(watermarks);
+      scheduleIndexing();
     }
   }
 
@@ -87,32 +98,72 @@ public class IndexJobSchedulerImpl implements IndexJobScheduler {
     indexStatus.waitForIndexToBeStableIncludingReferences(entityType);
   }
 
+  @PreDestroy
+  void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  /** Schedules indexing unless indexing is scheduled but did not start yet. */
+  private void scheduleIndexing() {
+    if (indexScheduled.compareAndSet(false, true)) {
+      executorService.execute(
+          () -> {
+            indexScheduled.set(false);
+            runAsSystem(this::indexLoggedActions);
+          });
+    }
+  }
+
+  /** Indexes the index actions of completed transactions, only runs on the executor thread. */
+  private void indexLoggedActions() {
+    if (indexedSequence == -1) {
+      indexedSequence = indexActionLog.getCheckpoint();
+    }
+    long completedSequence = indexActionLog.getCompletedSequence();
+    while (indexedSequence < completedSequence) {
+      long toSequence = Math.min(completedSequence, indexedSequence + batchSize);
+      try {
+        indexBatch(indexedSequence, toSequence);
+        indexActionLog.checkpoint(toSequence);
+      } catch (RuntimeException e) {
+        LOG.error("Error indexing index actions {} to {}", indexedSequence + 1, toSequence, e);
+      } finally {
+        indexedSequence = toSequence;
+        indexStatus.setIndexedSequence(toSequence);
+      }
+    }
+  }
+
+  private void indexBatch(long fromSequence, long toSequence) {
+    // merges duplicate index actions of the same or different transactions
+    Set<Impact> impacts = new LinkedHashSet<>();
+    indexActionLog.read(fromSequence, toSequence, impacts::add);
+    LOG.debug(
+        "Indexing {} index actions {} to {} ...", impacts.size(), fromSequence + 1, toSequence);
+    Set<String> failedEntityTypeIds;
+    try {
+      failedEntityTypeIds = indexJobService.index(impacts);
+    } catch (RuntimeException e) {
+      LOG.error("Error indexing index actions {} to {}", fromSequence + 1, toSequence, e);
+      failedEntityTypeIds =
+          impacts.stream().map(Impact::getEntityTypeId).collect(toCollection(LinkedHashSet::new));
+    }
+    if (!failedEntityTypeIds.isEmpty()) {
+      reindex(toSequence, failedEntityTypeIds);
+    }
+  }
+
   /**
-   * Cleans up successful IndexJobExecutions that finished longer than five minutes ago. delay for a
-   * minute to allow the transaction manager to become available
+   * Appends whole repository impacts for entity types that failed to index to the log, so that the
+   * entity types are indexed again the next time indexing runs or after a restart.
    */
-  @Scheduled(initialDelay = 1 * 60 * 1000, fixedRate = 5 * 60 * 1000)
-  public void cleanupJobExecutions() {
-    runAsSystem(
-        () -> {
-          LOG.trace("Clean up Index job executions...");
-          Instant fiveMinutesAgo = Instant.now().minus(5, ChronoUnit.MINUTES);
-          boolean indexJobExecutionExists =
-              dataService.hasRepository(IndexJobExecutionMetadata.INDEX_JOB_EXECUTION);
-          if (indexJobExecutionExists) {
-            Stream<Entity> executions =
-                dataService
-                    .getRepository(IndexJobExecutionMetadata.INDEX_JOB_EXECUTION)
-                    .query()
-                    .lt(END_DATE, fiveMinutesAgo)
-                    .and()
-                    .eq(STATUS, SUCCESS.toString())
-                    .findAll();
-            dataService.delete(IndexJobExecutionMetadata.INDEX_JOB_EXECUTION, executions);
-            LOG.debug("Cleaned up Index job executions.");
-          } else {
-            LOG.warn("{} does not exist", IndexJobExecutionMetadata.INDEX_JOB_EXECUTION);
-          }
-        });
+  private void reindex(long sequence, Set<String> entityTypeIds) {
+    LOG.warn("Entity types {} are indexed again the next time indexing runs", entityTypeIds);
+    String transactionId = REINDEX_TRANSACTION_PREFIX + sequence;
+    indexActionLog.append(
+        transactionId,
+        entityTypeIds.stream().map(Impact::createWholeRepositoryImpact).collect(toList()));
+    // no watermarks are added, waiting for a stable index should not wait for a retry
+    indexActionLog.complete(transactionId);
   }
 }
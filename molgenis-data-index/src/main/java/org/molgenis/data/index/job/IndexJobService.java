@@ -1,207 +1,198 @@
 package org.molgenis.data.index.job;
 
-import static java.text.MessageFormat.format;
+import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
-import static org.molgenis.data.QueryRule.Operator.EQUALS;
-import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
-import static org.molgenis.data.index.meta.IndexActionMetadata.ACTION_ORDER;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION_GROUP_ATTR;
+import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
 import static org.molgenis.data.util.EntityUtils.getTypedValue;
 
+import com.google.common.collect.Lists;
 import io.micrometer.core.annotation.Timed;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
-import org.molgenis.data.Query;
-import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
-import org.molgenis.data.Sort;
+import org.molgenis.data.index.Impact;
 import org.molgenis.data.index.IndexService;
-import org.molgenis.data.index.meta.IndexAction;
-import org.molgenis.data.index.meta.IndexActionGroup;
-import org.molgenis.data.index.meta.IndexActionMetadata;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
-import org.molgenis.data.support.QueryImpl;
-import org.molgenis.jobs.Progress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
 
-/** Executes the {@link IndexAction}s stored in an {@link IndexActionGroup}. */
+/**
+ * Indexes the {@link Impact}s of changes. The impacts are coalesced per entity type and the entity
+ * types are indexed in parallel.
+ */
 public class IndexJobService {
   private static final Logger LOG = LoggerFactory.getLogger(IndexJobService.class);
 
+  private static final int BATCH_SIZE = 1000;
+
   private final DataService dataService;
   private final IndexService indexService;
   private final EntityTypeFactory entityTypeFactory;
+  private final ExecutorService executorService;
 
+  /**
+   * @param executorService executor that indexes the entity types of a job, its number of threads
+   *     bounds the number of entity types that are indexed concurrently
+   */
   public IndexJobService(
-      DataService dataService, IndexService indexService, EntityTypeFactory entityTypeFactory) {
+      DataService dataService,
+      IndexService indexService,
+      EntityTypeFactory entityTypeFactory,
+      ExecutorService executorService) {
     this.dataService = requireNonNull(dataService);
     this.indexService = requireNonNull(indexService);
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
+    this.executorService = requireNonNull(executorService);
   }
 
+  /**
+   * Indexes the impacts. The impacts of each entity type are indexed as one task on the executor.
+   *
+   * @return ids of the entity types whose impacts were not indexed, empty if all were indexed
+   */
   @Timed(
       value = "service.index",
       description = "Timing information for the index service.",
       histogram = true)
-  public Void executeJob(Progress progress, String transactionId) {
-    requireNonNull(progress);
-    IndexActionGroup indexActionGroup =
-        dataService.findOneById(INDEX_ACTION_GROUP, transactionId, IndexActionGroup.class);
-    if (indexActionGroup != null && indexActionGroup.getCount() > 0) {
-      progress.setProgressMax(indexActionGroup.getCount());
-      progress.status(format("Start indexing for transaction id: [{0}]", transactionId));
-      performIndexActions(progress, transactionId);
-      progress.status(format("Finished indexing for transaction id: [{0}]", transactionId));
-    } else {
-      progress.status(format("No index actions found for transaction id: [{0}]", transactionId));
+  public Set<String> index(Collection<Impact> impacts) {
+    if (impacts.isEmpty()) {
+      return emptySet();
     }
-    return null;
-  }
-
-  /**
-   * Performs the IndexActions.
-   *
-   * @param progress {@link Progress} instance to log progress information to
-   */
-  private void performIndexActions(Progress progress, String transactionId) {
-    List<IndexAction> indexActions =
-        dataService
-            .findAll(INDEX_ACTION, createQueryGetAllIndexActions(transactionId), IndexAction.class)
-            .collect(toList());
+    LOG.debug("Indexing {} impacts...", impacts.size());
     try {
-      boolean success = true;
-      int count = 0;
-      for (IndexAction indexAction : indexActions) {
-        success &= performAction(progress, count++, indexAction);
-      }
-      if (success) {
-        progress.progress(count, "Executed all index actions, cleaning up the actions...");
-        dataService.delete(INDEX_ACTION, indexActions.stream());
-        dataService.deleteById(INDEX_ACTION_GROUP, transactionId);
-        progress.progress(count, "Cleaned up the actions.");
-      }
-    } catch (Exception ex) {
-      LOG.error("Error performing index actions", ex);
-      throw ex;
+      Map<String, List<Impact>> impactsPerEntityType =
+          impacts.stream()
+              .collect(groupingBy(Impact::getEntityTypeId, LinkedHashMap::new, toList()));
+
+      Map<String, Future<Boolean>> results = new LinkedHashMap<>();
+      impactsPerEntityType.forEach(
+          (entityTypeId, entityTypeImpacts) ->
+              results.put(
+                  entityTypeId,
+                  executorService.submit(
+                      new DelegatingSecurityContextCallable<>(
+                          () -> performActions(entityTypeId, entityTypeImpacts)))));
+
+      Set<String> failedEntityTypeIds = new LinkedHashSet<>();
+      results.forEach(
+          (entityTypeId, result) -> {
+            if (!getResult(result)) {
+              failedEntityTypeIds.add(entityTypeId);
+            }
+          });
+      return failedEntityTypeIds;
     } finally {
-      progress.status("Refresh index start");
       indexService.refreshIndex();
-      progress.status("Refresh index done");
+      LOG.debug("Indexed {} impacts.", impacts.size());
+    }
+  }
+
+  private static boolean getResult(Future<Boolean> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      LOG.error("Index job failed", e.getCause());
+      return false;
     }
   }
 
   /**
-   * Performs a single IndexAction
+   * Performs the impacts of one entity type. An impact on the whole entity type makes the impacts
+   * on single entities redundant, the single entities are indexed in bulk otherwise.
    *
-   * @param progress {@link Progress} to report progress to
-   * @param progressCount the progress count for this IndexAction
-   * @param indexAction Entity of type IndexActionMetaData
+   * @param entityTypeId the entity type id of the impacts
+   * @param impacts the impacts to perform
    * @return boolean indicating success or failure
    */
-  private boolean performAction(Progress progress, int progressCount, IndexAction indexAction) {
-    requireNonNull(indexAction);
-    String entityTypeId = indexAction.getEntityTypeId();
-    updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.STARTED);
+  private boolean performActions(String entityTypeId, List<Impact> impacts) {
     try {
+      boolean wholeRepository = impacts.stream().anyMatch(Impact::isWholeRepository);
       if (dataService.hasEntityType(entityTypeId)) {
         EntityType entityType = dataService.getEntityType(entityTypeId);
-        if (indexAction.getEntityId() != null) {
-          progress.progress(
-              progressCount,
-              format("Indexing {0}.{1}", entityType.getId(), indexAction.getEntityId()));
-          rebuildIndexOneEntity(entityTypeId, indexAction.getEntityId());
-        } else {
-          progress.progress(progressCount, format("Indexing {0}", entityType.getId()));
+        if (wholeRepository) {
+          LOG.debug("Indexing {}", entityType.getId());
           final Repository<Entity> repository = dataService.getRepository(entityType.getId());
           indexService.rebuildIndex(repository);
+        } else {
+          Set<String> entityIds =
+              impacts.stream()
+                  .map(impact -> impact.getId().toString())
+                  .collect(toCollection(LinkedHashSet::new));
+          LOG.debug("Indexing {} entities of {}", entityIds.size(), entityType.getId());
+          rebuildIndexEntities(entityType, entityIds);
         }
       } else {
-        EntityType entityType = getEntityType(indexAction);
+        EntityType entityType = entityTypeFactory.create(entityTypeId);
         if (indexService.hasIndex(entityType)) {
-          progress.progress(
-              progressCount, format("Dropping entityType with id: {0}", entityType.getId()));
+          LOG.debug("Dropping entityType with id: {}", entityType.getId());
           indexService.deleteIndex(entityType);
         } else {
-          // Index Job is finished, here we concluded that we don't have enough info to continue the
-          // index job
-          progress.progress(
-              progressCount,
-              format("Skip index entity {0}.{1}", entityType.getId(), indexAction.getEntityId()));
+          // we don't have enough info to index the entity type
+          LOG.debug("Skip index entity type {}", entityType.getId());
         }
       }
-      updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FINISHED);
       return true;
     } catch (Exception ex) {
       LOG.error("Index job failed", ex);
-      updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FAILED);
       return false;
     }
   }
 
   /**
-   * Updates the {@link IndexStatus} of a IndexAction and stores the change.
+   * Indexes entity instances in bulk. Entities that no longer exist are deleted from the index.
    *
-   * @param indexAction the IndexAction of which the status is updated
-   * @param status the new {@link IndexStatus}
+   * @param entityType the entity type of the entities
+   * @param untypedEntityIds the identifiers of the entities to update
    */
-  private void updateIndexActionStatus(
-      IndexAction indexAction, IndexActionMetadata.IndexStatus status) {
-    indexAction.setIndexStatus(status);
-    dataService.update(INDEX_ACTION, indexAction);
-  }
+  private void rebuildIndexEntities(EntityType entityType, Set<String> untypedEntityIds) {
+    LOG.trace("Indexing [{}].{}... ", entityType.getId(), untypedEntityIds);
 
-  /**
-   * Indexes one single entity instance.
-   *
-   * @param entityTypeId the id of the entity's repository
-   * @param untypedEntityId the identifier of the entity to update
-   */
-  private void rebuildIndexOneEntity(String entityTypeId, String untypedEntityId) {
-    LOG.trace("Indexing [{}].[{}]... ", entityTypeId, untypedEntityId);
-
-    // convert entity id string to typed entity id
-    EntityType entityType = dataService.getEntityType(entityTypeId);
-    if (null != entityType) {
-      Object entityId = getTypedValue(untypedEntityId, entityType.getIdAttribute());
-      String entityFullName = entityType.getId();
-
-      Entity actualEntity = dataService.findOneById(entityFullName, entityId);
-
-      if (null == actualEntity) {
-        // Delete
-        LOG.debug("Index delete [{}].[{}].", entityFullName, entityId);
-        indexService.deleteById(entityType, entityId);
-        return;
-      }
+    if (!indexService.hasIndex(entityType)) {
+      LOG.debug(
+          "Create mapping of repository [{}] because it was not exist yet", entityType.getId());
+      indexService.createIndex(entityType);
+    }
 
-      boolean indexEntityExists = indexService.hasIndex(entityType);
-      if (!indexEntityExists) {
-        LOG.debug("Create mapping of repository [{}] because it was not exist yet", entityTypeId);
-        indexService.createIndex(entityType);
-      }
+    // convert entity id strings to typed entity ids
+    Attribute idAttribute = entityType.getIdAttribute();
+    List<Object> entityIds =
+        untypedEntityIds.stream()
+            .map(untypedEntityId -> getTypedValue(untypedEntityId, idAttribute))
+            .collect(toList());
 
-      LOG.debug("Index [{}].[{}].", entityTypeId, entityId);
-      indexService.index(actualEntity.getEntityType(), actualEntity);
-    } else {
-      throw new MolgenisDataException("Unknown EntityType for entityTypeId: " + entityTypeId);
+    Fetch fetch = createFetchForReindexing(entityType);
+    Set<Object> deletedEntityIds = new LinkedHashSet<>(entityIds);
+    for (List<Object> batchEntityIds : Lists.partition(entityIds, BATCH_SIZE)) {
+      List<Entity> entities =
+          dataService.findAll(entityType.getId(), batchEntityIds.stream(), fetch).collect(toList());
+      entities.forEach(entity -> deletedEntityIds.remove(entity.getIdValue()));
+      LOG.debug("Index [{}] {} entities.", entityType.getId(), entities.size());
+      indexService.index(entityType, entities.stream());
     }
-  }
-
-  /** Retrieves the query to get all index actions sorted */
-  static Query<IndexAction> createQueryGetAllIndexActions(String transactionId) {
-    QueryRule rule = new QueryRule(INDEX_ACTION_GROUP_ATTR, EQUALS, transactionId);
-    QueryImpl<IndexAction> q = new QueryImpl<>(rule);
-    q.setSort(new Sort(ACTION_ORDER));
-    return q;
-  }
 
-  private EntityType getEntityType(IndexAction indexAction) {
-    return entityTypeFactory.create(indexAction.getEntityTypeId());
+    if (!deletedEntityIds.isEmpty()) {
+      LOG.debug("Index delete [{}].{}.", entityType.getId(), deletedEntityIds);
+      indexService.deleteAll(entityType, deletedEntityIds.stream());
+    }
   }
 }
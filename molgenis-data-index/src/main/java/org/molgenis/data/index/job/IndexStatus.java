@@ -3,7 +3,7 @@ package org.molgenis.data.index.job;
 import static com.google.common.collect.Streams.stream;
 import static java.util.stream.Collectors.toSet;
 
-import com.google.common.util.concurrent.AtomicLongMap;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Condition;
@@ -14,43 +14,46 @@ import org.molgenis.data.meta.model.EntityType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Keeps track of outstanding index actions. */
+/**
+ * Keeps track of outstanding index actions using the sequences of the {@link IndexActionLog}. Per
+ * entity type the watermark is the last sequence of its logged index actions, an entity type is
+ * stable once the index actions up to its watermark are indexed.
+ */
 public class IndexStatus {
   private final Lock lock = new ReentrantLock();
   private final Condition allEntitiesStable = lock.newCondition();
   private final Condition singleEntityStable = lock.newCondition();
 
-  /** Counts how many actions are pending for each entity. */
-  private AtomicLongMap<String> actionCountsPerEntity = AtomicLongMap.create();
+  /** Last sequence of the pending index actions for each entity type. */
+  private final Map<String, Long> watermarksPerEntity = new HashMap<>();
+  /** Sequence up to which the index actions were indexed. */
+  private long indexedSequence;
 
   private static final Logger LOG = LoggerFactory.getLogger(IndexStatus.class);
 
-  void addActionCounts(Map<String, Long> actionsRegistered) {
-    LOG.debug("addActionCounts {}", actionsRegistered);
+  void addWatermarks(Map<String, Long> watermarks) {
+    LOG.debug("addWatermarks {}", watermarks);
     lock.lock();
     try {
-      for (Map.Entry<String, Long> addedForEntity : actionsRegistered.entrySet()) {
-        final String entityTypeId = addedForEntity.getKey();
-        final Long numberOfActions = addedForEntity.getValue();
-        actionCountsPerEntity.addAndGet(entityTypeId, numberOfActions);
+      for (Map.Entry<String, Long> watermark : watermarks.entrySet()) {
+        // index actions can be indexed before their watermarks are added
+        if (watermark.getValue() > indexedSequence) {
+          watermarksPerEntity.merge(watermark.getKey(), watermark.getValue(), Math::max);
+        }
       }
     } finally {
       lock.unlock();
     }
   }
 
-  void removeActionCounts(Map<String, Long> actionsPerformed) {
-    LOG.debug("removeActionCount {}", actionsPerformed);
+  void setIndexedSequence(long sequence) {
+    LOG.debug("setIndexedSequence {}", sequence);
     lock.lock();
     try {
-      for (Map.Entry<String, Long> actionsPerEntity : actionsPerformed.entrySet()) {
-        final String entityTypeId = actionsPerEntity.getKey();
-        Long numberOfActions = actionsPerEntity.getValue();
-        if (actionCountsPerEntity.addAndGet(entityTypeId, -numberOfActions) == 0) {
-          actionCountsPerEntity.removeAllZeros();
-          LOG.debug("Entity {} is stable.", entityTypeId);
-          singleEntityStable.signalAll();
-        }
+      indexedSequence = sequence;
+      if (watermarksPerEntity.values().removeIf(watermark -> watermark <= sequence)) {
+        LOG.debug("Entities stable up to sequence {}.", sequence);
+        singleEntityStable.signalAll();
       }
       if (isAllIndicesStable()) {
         LOG.debug("All entities stable.");
@@ -82,7 +85,7 @@ public class IndexStatus {
             .map(attribute -> attribute.getRefEntity().getId())
             .collect(toSet());
     referencedEntityIds.add(emd.getId());
-    return referencedEntityIds.stream().noneMatch(actionCountsPerEntity::containsKey);
+    return referencedEntityIds.stream().noneMatch(watermarksPerEntity::containsKey);
   }
 
   void waitForIndexToBeStableIncludingReferences(EntityType emd) throws InterruptedException {
@@ -97,6 +100,6 @@ public class IndexStatus {
   }
 
   private boolean isAllIndicesStable() {
-    return actionCountsPerEntity.isEmpty();
+    return watermarksPerEntity.isEmpty();
   }
 }
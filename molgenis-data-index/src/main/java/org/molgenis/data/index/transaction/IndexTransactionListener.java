@@ -41,9 +41,9 @@ public class IndexTransactionListener implements TransactionListener {
   @Override
   public void doCleanupAfterCompletion(String transactionId) {
     try {
-      if (indexActionRegisterService.forgetIndexActions(transactionId)) {
-        indexJobScheduler.scheduleIndexJob(transactionId);
-      }
+      indexActionRegisterService.forgetIndexActions(transactionId);
+      // index actions are logged before commit, a failed commit also needs to complete the log
+      indexJobScheduler.scheduleIndexJob(transactionId);
     } catch (Exception ex) {
       LOG.error("Error during cleanupAfterCompletion", ex);
     }
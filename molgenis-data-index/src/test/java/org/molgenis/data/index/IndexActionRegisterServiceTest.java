@@ -1,35 +1,24 @@
 package org.molgenis.data.index;
 
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
-import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
-import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.PENDING;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
 import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
-import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
-import com.google.common.collect.Lists;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.Query;
-import org.molgenis.data.index.meta.IndexAction;
-import org.molgenis.data.index.meta.IndexActionFactory;
-import org.molgenis.data.index.meta.IndexActionGroup;
-import org.molgenis.data.index.meta.IndexActionGroupFactory;
+import org.molgenis.data.index.job.IndexActionLog;
 import org.molgenis.data.meta.model.AttributeMetadata;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.transaction.TransactionConstants;
@@ -41,20 +30,15 @@ import org.testng.annotations.Test;
 
 public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
   private IndexActionRegisterServiceImpl indexActionRegisterServiceImpl;
-  @Mock private IndexActionGroupFactory indexActionGroupFactory;
-  @Mock private IndexActionGroup indexActionGroup;
-  @Mock private IndexActionFactory indexActionFactory;
-  @Mock private IndexAction indexAction;
   @Mock private DataService dataService;
-  @Captor private ArgumentCaptor<Stream<IndexAction>> indexActionStreamCaptor;
+  @Mock private IndexActionLog indexActionLog;
 
   @BeforeMethod
   public void beforeMethod() {
     TransactionSynchronizationManager.bindResource(
         TransactionConstants.TRANSACTION_ID_RESOURCE_NAME, "1");
     indexActionRegisterServiceImpl =
-        new IndexActionRegisterServiceImpl(
-            dataService, indexActionFactory, indexActionGroupFactory, new IndexingStrategy());
+        new IndexActionRegisterServiceImpl(dataService, new IndexingStrategy(), indexActionLog);
   }
 
   @AfterMethod
@@ -66,15 +50,6 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
   @SuppressWarnings("unchecked")
   @Test
   public void testRegisterCreateSingleEntityNoReferences() {
-    when(indexActionGroupFactory.create("1")).thenReturn(indexActionGroup);
-    when(indexActionGroup.setCount(1)).thenReturn(indexActionGroup);
-
-    when(indexActionFactory.create()).thenReturn(indexAction);
-    when(indexAction.setIndexActionGroup(indexActionGroup)).thenReturn(indexAction);
-    when(indexAction.setEntityTypeId("entityTypeId")).thenReturn(indexAction);
-    when(indexAction.setEntityId("123")).thenReturn(indexAction);
-    when(indexAction.setActionOrder(0)).thenReturn(indexAction);
-    when(indexAction.setIndexStatus(PENDING)).thenReturn(indexAction);
     EntityType entityType = mock(EntityType.class);
     when(entityType.getId()).thenReturn("entityTypeId");
 
@@ -89,11 +64,8 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
     doReturn(refEntityQuery).when(dataService).query(ATTRIBUTE_META_DATA);
     indexActionRegisterServiceImpl.storeIndexActions("1");
 
-    verify(dataService).add(INDEX_ACTION_GROUP, indexActionGroup);
-    verify(dataService).add(eq(INDEX_ACTION), indexActionStreamCaptor.capture());
-    assertEquals(
-        indexActionStreamCaptor.getValue().collect(Collectors.toList()),
-        Lists.newArrayList(indexAction));
+    verify(indexActionLog)
+        .append("1", singletonList(createSingleEntityImpact("entityTypeId", 123)));
   }
 
   @Test
@@ -110,7 +82,7 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
 
     indexActionRegisterServiceImpl.storeIndexActions("1");
 
-    verifyZeroInteractions(dataService);
+    verifyZeroInteractions(dataService, indexActionLog);
   }
 
   @Test
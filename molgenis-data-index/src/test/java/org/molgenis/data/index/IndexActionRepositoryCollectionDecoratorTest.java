@@ -75,4 +75,12 @@ public class IndexActionRepositoryCollectionDecoratorTest {
     verify(decoratedRepositoryCollection).createRepository(entityType);
     verify(indexActionRegisterService).register(entityType, null);
   }
+
+  @Test
+  public void copyEntities() {
+    EntityType targetEntityType = mock(EntityType.class);
+    indexActionRepositoryCollectionDecorator.copyEntities(entityType, targetEntityType);
+    verify(decoratedRepositoryCollection).copyEntities(entityType, targetEntityType);
+    verify(indexActionRegisterService).register(targetEntityType, null);
+  }
 }
@@ -16,10 +16,14 @@ import static org.molgenis.data.QueryRule.Operator.FUZZY_MATCH;
 import static org.molgenis.data.QueryRule.Operator.IN;
 import static org.molgenis.data.QueryRule.Operator.LESS;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_NOTNULL_CONSTRAINT;
+import static org.molgenis.data.meta.AttributeType.MREF;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 
 import java.io.IOException;
@@ -138,6 +142,45 @@ public class IndexedRepositoryDecoratorTest {
     verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
   }
 
+  @Test
+  public void aggregateDecoratedRepository() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = when(mock(Attribute.class).getName()).thenReturn("xAttr").getMock();
+    when(xAttr.getDataType()).thenReturn(STRING);
+    Attribute yAttr = when(mock(Attribute.class).getName()).thenReturn("yAttr").getMock();
+    when(yAttr.getDataType()).thenReturn(XREF);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr).attrY(yAttr).query(query);
+    AggregateResult aggregateResult = mock(AggregateResult.class);
+    when(delegateRepository.aggregate(aggregateQuery)).thenReturn(aggregateResult);
+
+    assertEquals(indexedRepositoryDecorator.aggregate(aggregateQuery), aggregateResult);
+    verifyZeroInteractions(searchService);
+  }
+
+  @Test
+  public void aggregateUnsupportedQuery() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = when(mock(Attribute.class).getName()).thenReturn("xAttr").getMock();
+    when(xAttr.getDataType()).thenReturn(STRING);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr).query(unsupportedQuery);
+
+    indexedRepositoryDecorator.aggregate(aggregateQuery);
+    verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
+    verify(delegateRepository, never()).aggregate(aggregateQuery);
+  }
+
+  @Test
+  public void aggregateMultipleReferenceAttribute() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = when(mock(Attribute.class).getName()).thenReturn("xAttr").getMock();
+    when(xAttr.getDataType()).thenReturn(MREF);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr);
+
+    indexedRepositoryDecorator.aggregate(aggregateQuery);
+    verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
+    verify(delegateRepository, never()).aggregate(aggregateQuery);
+  }
+
   @Test
   public void aggregateUnknownIndexExceptionRecoverable() {
     AggregateQuery aggregateQuery = mock(AggregateQuery.class);
@@ -415,6 +458,14 @@ public class IndexedRepositoryDecoratorTest {
 
   @Test
   public void getQueryOperators() {
+    assertEquals(
+        indexedRepositoryDecorator.getQueryOperators(),
+        EnumSet.complementOf(EnumSet.of(PERMITTED)));
+  }
+
+  @Test
+  public void getQueryOperatorsDelegateSupportsPermitted() {
+    when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(EQUALS, PERMITTED));
     assertEquals(indexedRepositoryDecorator.getQueryOperators(), EnumSet.allOf(Operator.class));
   }
 
@@ -28,6 +28,7 @@ import org.molgenis.data.index.IndexActionRegisterService;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.job.IndexJobExecution;
 import org.molgenis.data.index.job.IndexJobExecutionMetadata;
+import org.molgenis.data.index.job.IndexJobScheduler;
 import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionGroupMetadata;
 import org.molgenis.data.index.meta.IndexActionMetadata;
@@ -54,6 +55,7 @@ public class IndexBootstrapperTest extends AbstractMolgenisSpringTest {
   @Autowired private IndexActionRegisterService indexActionRegisterService;
   @Autowired private DataService dataService;
   @Autowired private AttributeMetadata attributeMetadata;
+  @Autowired private IndexJobScheduler indexJobScheduler;
 
   private IndexBootstrapper indexBootstrapper;
 
@@ -71,7 +73,8 @@ public class IndexBootstrapperTest extends AbstractMolgenisSpringTest {
             indexService,
             indexActionRegisterService,
             dataService,
-            attributeMetadata);
+            attributeMetadata,
+            indexJobScheduler);
   }
 
   @Test
@@ -191,6 +194,7 @@ public class IndexBootstrapperTest extends AbstractMolgenisSpringTest {
 
     // verify that no new jobs are registered
     verify(indexActionRegisterService, never()).register(any(EntityType.class), any());
+    verify(indexJobScheduler).scheduleReplay();
   }
 
   @Configuration
@@ -203,6 +207,8 @@ public class IndexBootstrapperTest extends AbstractMolgenisSpringTest {
 
     @Mock AttributeMetadata attributeMetadata;
 
+    @Mock IndexJobScheduler indexJobScheduler;
+
     public Config() {
       initMocks(this);
     }
@@ -222,8 +228,18 @@ public class IndexBootstrapperTest extends AbstractMolgenisSpringTest {
       return metaDataService;
     }
 
+    @Bean
+    public IndexJobScheduler indexJobScheduler() {
+      return indexJobScheduler;
+    }
+
     void resetMocks() {
-      reset(indexService, indexActionRegisterService, metaDataService, attributeMetadata);
+      reset(
+          indexService,
+          indexActionRegisterService,
+          metaDataService,
+          attributeMetadata,
+          indexJobScheduler);
     }
   }
 }
@@ -0,0 +1,164 @@
+package org.molgenis.data.index.job;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Comparator.reverseOrder;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
+import static org.testng.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.molgenis.data.index.Impact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class IndexActionLogTest {
+  private Path directory;
+  private IndexActionLog indexActionLog;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() throws IOException {
+    directory = Files.createTempDirectory("index-action-log");
+    indexActionLog = new IndexActionLog(directory.toString(), 1024);
+  }
+
+  @AfterMethod
+  public void tearDownAfterMethod() throws IOException {
+    indexActionLog.close();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testIndexActionLogInvalidSegmentSize() {
+    new IndexActionLog(directory.toString(), 0);
+  }
+
+  @Test
+  public void testAppendComplete() {
+    indexActionLog.append(
+        "transactionId",
+        asList(
+            createSingleEntityImpact("entityTypeId", "id0"),
+            createWholeRepositoryImpact("otherEntityTypeId"),
+            createSingleEntityImpact("entityTypeId", "id1")));
+    assertEquals(indexActionLog.getCompletedSequence(), 0L);
+
+    assertEquals(
+        indexActionLog.complete("transactionId"),
+        ImmutableMap.of("entityTypeId", 3L, "otherEntityTypeId", 2L));
+    assertEquals(indexActionLog.getCompletedSequence(), 3L);
+    assertEquals(
+        read(indexActionLog, 0, 3),
+        asList(
+            createSingleEntityImpact("entityTypeId", "id0"),
+            createWholeRepositoryImpact("otherEntityTypeId"),
+            createSingleEntityImpact("entityTypeId", "id1")));
+  }
+
+  @Test
+  public void testCompleteUnknownTransaction() {
+    assertEquals(indexActionLog.complete("transactionId"), emptyMap());
+  }
+
+  @Test
+  public void testGetCompletedSequenceOpenTransaction() {
+    indexActionLog.append(
+        "transactionId0", singletonList(createSingleEntityImpact("entityTypeId", "id0")));
+    indexActionLog.append(
+        "transactionId1", singletonList(createSingleEntityImpact("entityTypeId", "id1")));
+
+    indexActionLog.complete("transactionId1");
+    assertEquals(indexActionLog.getCompletedSequence(), 0L);
+    indexActionLog.complete("transactionId0");
+    assertEquals(indexActionLog.getCompletedSequence(), 2L);
+  }
+
+  @Test
+  public void testReadRange() {
+    for (int i = 0; i < 100; ++i) {
+      indexActionLog.append(
+          "transactionId", singletonList(createSingleEntityImpact("entityTypeId", i)));
+    }
+    indexActionLog.complete("transactionId");
+
+    assertEquals(
+        read(indexActionLog, 49, 51),
+        asList(
+            createSingleEntityImpact("entityTypeId", "49"),
+            createSingleEntityImpact("entityTypeId", "50")));
+  }
+
+  @Test
+  public void testCheckpointRestart() throws IOException {
+    for (int i = 0; i < 100; ++i) {
+      indexActionLog.append(
+          "transactionId", singletonList(createSingleEntityImpact("entityTypeId", i)));
+    }
+    indexActionLog.complete("transactionId");
+    long nrSegments = countSegments();
+
+    indexActionLog.checkpoint(99);
+    indexActionLog.close();
+    assertEquals(countSegments(), 1L, "expected one segment of " + nrSegments + " segments");
+
+    IndexActionLog restartedIndexActionLog = new IndexActionLog(directory.toString(), 1024);
+    try {
+      assertEquals(restartedIndexActionLog.getCheckpoint(), 99L);
+      assertEquals(restartedIndexActionLog.getCompletedSequence(), 100L);
+      assertEquals(
+          read(restartedIndexActionLog, 99, 100),
+          singletonList(createSingleEntityImpact("entityTypeId", "99")));
+    } finally {
+      restartedIndexActionLog.close();
+    }
+  }
+
+  @Test
+  public void testRestartIncompleteAppend() throws IOException {
+    indexActionLog.append(
+        "transactionId", singletonList(createSingleEntityImpact("entityTypeId", "id0")));
+    indexActionLog.close();
+    try (Stream<Path> paths = Files.list(directory)) {
+      Path segment = paths.filter(path -> path.toString().endsWith(".log")).findFirst().get();
+      Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, APPEND);
+    }
+
+    IndexActionLog restartedIndexActionLog = new IndexActionLog(directory.toString(), 1024);
+    try {
+      restartedIndexActionLog.append(
+          "transactionId", singletonList(createSingleEntityImpact("entityTypeId", "id1")));
+      restartedIndexActionLog.complete("transactionId");
+      assertEquals(
+          read(restartedIndexActionLog, 0, 2),
+          asList(
+              createSingleEntityImpact("entityTypeId", "id0"),
+              createSingleEntityImpact("entityTypeId", "id1")));
+    } finally {
+      restartedIndexActionLog.close();
+    }
+  }
+
+  private long countSegments() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".log")).count();
+    }
+  }
+
+  private static List<Impact> read(
+      IndexActionLog indexActionLog, long fromSequence, long toSequence) {
+    List<Impact> impacts = new ArrayList<>();
+    indexActionLog.read(fromSequence, toSequence, impacts::add);
+    return impacts;
+  }
+}
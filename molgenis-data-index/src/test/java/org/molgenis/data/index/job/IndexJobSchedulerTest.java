@@ -1,151 +1,169 @@
 package org.molgenis.data.index.job;
 
-import static org.mockito.Mockito.any;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.mockito.MockitoAnnotations.initMocks;
-import static org.molgenis.data.index.job.IndexJobExecutionMetadata.INDEX_JOB_EXECUTION;
-import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
-import static org.molgenis.data.util.MolgenisDateFormat.parseInstant;
-import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertTrue;
-
-import java.time.Duration;
-import java.time.Instant;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.function.Consumer;
 import org.mockito.Mock;
-import org.molgenis.data.AbstractMolgenisSpringTest;
-import org.molgenis.data.DataService;
-import org.molgenis.data.Entity;
-import org.molgenis.data.Query;
-import org.molgenis.data.Repository;
-import org.molgenis.data.index.IndexActionRegisterServiceImpl;
-import org.molgenis.data.index.IndexConfig;
-import org.molgenis.data.index.IndexService;
-import org.molgenis.data.index.config.IndexTestConfig;
-import org.molgenis.data.support.QueryImpl;
-import org.molgenis.data.transaction.TransactionListener;
-import org.molgenis.data.transaction.TransactionManager;
-import org.molgenis.jobs.JobExecutor;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Import;
-import org.springframework.mail.MailSender;
-import org.springframework.test.context.ContextConfiguration;
-import org.testng.annotations.BeforeClass;
+import org.molgenis.data.index.Impact;
+import org.molgenis.test.AbstractMockitoTest;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-@ContextConfiguration(classes = {IndexJobSchedulerTest.Config.class, IndexTestConfig.class})
-public class IndexJobSchedulerTest extends AbstractMolgenisSpringTest {
-  @Autowired private DataService dataService;
-
-  @Autowired private TransactionManager transactionManager;
-
-  @Autowired private TransactionListener molgenisTransactionListener;
-
-  @Autowired private JobExecutor jobExecutor;
-
-  @Mock private Repository<Entity> repository;
-
-  @Autowired private IndexJobScheduler indexJobScheduler;
-
-  @Mock private Stream<Entity> jobExecutions;
+public class IndexJobSchedulerTest extends AbstractMockitoTest {
+  @Mock private IndexActionLog indexActionLog;
+  @Mock private IndexJobService indexJobService;
 
-  @Captor private ArgumentCaptor<IndexJobExecution> indexJobExecutionCaptor;
+  private IndexJobSchedulerImpl indexJobScheduler;
 
-  @Captor private ArgumentCaptor<Query<Entity>> queryCaptor;
-
-  @Captor private ArgumentCaptor<Runnable> runnableArgumentCaptor;
-
-  @Autowired private Config config;
-
-  @BeforeClass
-  public void setUp() throws Exception {
-    verify(transactionManager).addTransactionListener(molgenisTransactionListener);
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    indexJobScheduler =
+        new IndexJobSchedulerImpl(indexActionLog, indexJobService, 2, newDirectExecutorService());
   }
 
-  @BeforeMethod
-  public void beforeMethod() throws Exception {
-    config.resetMocks();
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testIndexJobSchedulerImplInvalidBatchSize() {
+    new IndexJobSchedulerImpl(indexActionLog, indexJobService, 0, newDirectExecutorService());
   }
 
-  @SuppressWarnings("unchecked")
   @Test
-  public void testRebuildIndexDoesNothingIfNoIndexActionJobIsFound() throws Exception {
-    when(dataService.findOneById(INDEX_ACTION_GROUP, "abcde")).thenReturn(null);
+  public void testScheduleIndexJobNothingToIndex() {
+    when(indexActionLog.complete("transactionId")).thenReturn(emptyMap());
 
-    indexJobScheduler.scheduleIndexJob("abcde");
+    indexJobScheduler.scheduleIndexJob("transactionId");
 
-    verify(jobExecutor, never()).submit(any());
+    verify(indexJobService, never()).index(any());
+    verify(indexActionLog, never()).checkpoint(anyLong());
   }
 
   @Test
-  public void testCleanupJobExecutions() throws Exception {
-    when(dataService.getRepository(INDEX_JOB_EXECUTION)).thenReturn(repository);
-    when(repository.query()).thenReturn(new QueryImpl<>(repository));
-    when(repository.findAll(queryCaptor.capture())).thenReturn(jobExecutions);
-    when(dataService.hasRepository(INDEX_JOB_EXECUTION)).thenReturn(true);
-
-    indexJobScheduler.cleanupJobExecutions();
-
-    verify(dataService).delete(INDEX_JOB_EXECUTION, jobExecutions);
-
-    Query<Entity> actualQuery = queryCaptor.getValue();
-    Pattern queryPattern =
-        Pattern.compile("rules=\\['endDate' < '(.*)', AND, 'status' = 'SUCCESS'\\]");
-    Matcher queryMatcher = queryPattern.matcher(actualQuery.toString());
-    assertTrue(queryMatcher.matches());
-
-    // check the endDate time limit in the query
-    assertEquals(
-        Duration.between(parseInstant(queryMatcher.group(1)), Instant.now()).toMinutes(), 5);
+  public void testScheduleIndexJobMergesDuplicates() throws InterruptedException {
+    when(indexActionLog.complete("transactionId")).thenReturn(singletonMap("entityTypeId", 2L));
+    when(indexActionLog.getCheckpoint()).thenReturn(0L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(2L);
+    mockRead(
+        0,
+        2,
+        createSingleEntityImpact("entityTypeId", "id"),
+        createSingleEntityImpact("entityTypeId", "id"));
+    when(indexJobService.index(ImmutableSet.of(createSingleEntityImpact("entityTypeId", "id"))))
+        .thenReturn(emptySet());
+
+    indexJobScheduler.scheduleIndexJob("transactionId");
+
+    verify(indexActionLog).checkpoint(2);
+    indexJobScheduler.waitForAllIndicesStable();
   }
 
-  @Configuration
-  @Import({IndexConfig.class, IndexActionRegisterServiceImpl.class})
-  public static class Config {
-    @Mock private JobExecutor jobExecutor;
+  @Test
+  public void testScheduleIndexJobBatches() throws InterruptedException {
+    when(indexActionLog.complete("transactionId")).thenReturn(singletonMap("entityTypeId", 3L));
+    when(indexActionLog.getCheckpoint()).thenReturn(0L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(3L);
+    Impact impact0 = createSingleEntityImpact("entityTypeId", "id0");
+    Impact impact1 = createSingleEntityImpact("entityTypeId", "id1");
+    Impact impact2 = createWholeRepositoryImpact("entityTypeId");
+    mockRead(0, 2, impact0, impact1);
+    mockRead(2, 3, impact2);
+    when(indexJobService.index(ImmutableSet.of(impact0, impact1))).thenReturn(emptySet());
+    when(indexJobService.index(ImmutableSet.of(impact2))).thenReturn(emptySet());
+
+    indexJobScheduler.scheduleIndexJob("transactionId");
+
+    verify(indexActionLog).checkpoint(2);
+    verify(indexActionLog).checkpoint(3);
+    indexJobScheduler.waitForAllIndicesStable();
+  }
 
-    @Mock private MailSender mailSender;
+  @Test
+  public void testScheduleIndexJobFailedBatchReindexed() throws InterruptedException {
+    when(indexActionLog.complete("transactionId")).thenReturn(singletonMap("entityTypeId", 3L));
+    when(indexActionLog.getCheckpoint()).thenReturn(0L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(3L);
+    Impact impact0 = createSingleEntityImpact("entityTypeId", "id0");
+    Impact impact1 = createSingleEntityImpact("entityTypeId", "id1");
+    mockRead(0, 2, impact0);
+    mockRead(2, 3, impact1);
+    when(indexJobService.index(ImmutableSet.of(impact0))).thenReturn(singleton("entityTypeId"));
+    when(indexJobService.index(ImmutableSet.of(impact1))).thenReturn(emptySet());
+
+    indexJobScheduler.scheduleIndexJob("transactionId");
+
+    verify(indexActionLog)
+        .append("reindex-2", singletonList(createWholeRepositoryImpact("entityTypeId")));
+    verify(indexActionLog).complete("reindex-2");
+    verify(indexActionLog).checkpoint(2);
+    verify(indexActionLog).checkpoint(3);
+    indexJobScheduler.waitForAllIndicesStable();
+  }
 
-    @Mock private TransactionManager transactionManager;
+  @Test
+  public void testScheduleIndexJobExceptionReindexed() throws InterruptedException {
+    when(indexActionLog.complete("transactionId")).thenReturn(singletonMap("entityTypeId", 1L));
+    when(indexActionLog.getCheckpoint()).thenReturn(0L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(1L);
+    Impact impact = createSingleEntityImpact("entityTypeId", "id");
+    mockRead(0, 1, impact);
+    when(indexJobService.index(ImmutableSet.of(impact))).thenThrow(new RuntimeException());
+
+    indexJobScheduler.scheduleIndexJob("transactionId");
+
+    verify(indexActionLog)
+        .append("reindex-1", singletonList(createWholeRepositoryImpact("entityTypeId")));
+    verify(indexActionLog).checkpoint(1);
+    indexJobScheduler.waitForAllIndicesStable();
+  }
 
-    @Mock private IndexService indexService;
+  @Test
+  public void testScheduleReplay() throws InterruptedException {
+    when(indexActionLog.getCheckpoint()).thenReturn(1L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(2L);
+    Impact impact = createSingleEntityImpact("entityTypeId", "id");
+    mockRead(1, 2, impact);
+    when(indexJobService.index(ImmutableSet.of(impact))).thenReturn(emptySet());
 
-    public Config() {
-      initMocks(this);
-    }
+    indexJobScheduler.scheduleReplay();
 
-    private void resetMocks() {
-      reset(jobExecutor, mailSender, transactionManager, indexService);
-    }
+    verify(indexActionLog).checkpoint(2);
+    indexJobScheduler.waitForAllIndicesStable();
+  }
 
-    @Bean
-    public JobExecutor jobExecutor() {
-      return jobExecutor;
-    }
+  @Test
+  public void testScheduleReplayNothingToReplay() {
+    when(indexActionLog.getCheckpoint()).thenReturn(2L);
+    when(indexActionLog.getCompletedSequence()).thenReturn(2L);
 
-    @Bean
-    public IndexService indexService() {
-      return indexService;
-    }
+    indexJobScheduler.scheduleReplay();
 
-    @Bean
-    public TransactionManager molgenisTransactionManager() {
-      return transactionManager;
-    }
+    verify(indexJobService, never()).index(any());
+  }
 
-    @Bean
-    public MailSender mailSender() {
-      return mailSender;
-    }
+  @SuppressWarnings("unchecked")
+  private void mockRead(long fromSequence, long toSequence, Impact... impacts) {
+    doAnswer(
+            invocation -> {
+              Consumer<Impact> consumer = invocation.getArgument(2);
+              for (Impact impact : impacts) {
+                consumer.accept(impact);
+              }
+              return null;
+            })
+        .when(indexActionLog)
+        .read(eq(fromSequence), eq(toSequence), any(Consumer.class));
   }
 }
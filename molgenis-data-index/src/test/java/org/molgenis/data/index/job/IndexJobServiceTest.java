@@ -1,26 +1,25 @@
 package org.molgenis.data.index.job;
 
-import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Stream.empty;
 import static java.util.stream.Stream.of;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
-import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
-import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
-import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FAILED;
-import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FINISHED;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
 import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertSame;
 
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -32,20 +31,14 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityTestHarness;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
-import org.molgenis.data.Query;
 import org.molgenis.data.TestHarnessConfig;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.config.IndexTestConfig;
-import org.molgenis.data.index.meta.IndexAction;
-import org.molgenis.data.index.meta.IndexActionFactory;
-import org.molgenis.data.index.meta.IndexActionGroup;
-import org.molgenis.data.index.meta.IndexActionGroupFactory;
-import org.molgenis.data.index.meta.IndexActionMetadata;
 import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
-import org.molgenis.jobs.Progress;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -58,21 +51,17 @@ import org.testng.annotations.Test;
 @ContextConfiguration(classes = {IndexJobServiceTest.Config.class})
 public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<Stream<Entity>> streamCaptor;
+  @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
 
-  @Autowired private Progress progress;
   @Autowired private Authentication authentication;
   @Autowired private IndexService indexService;
   @Autowired private MetaDataService mds;
   @Autowired private Config config;
   @Autowired private DataService dataService;
   @Autowired private EntityTestHarness harness;
-  @Autowired private IndexActionFactory indexActionFactory;
-  @Autowired private IndexActionGroupFactory indexActionGroupFactory;
 
   @Autowired private EntityTypeFactory entityTypeFactory;
-  private final String transactionId = "aabbcc";
   private IndexJobService indexJobService;
-  private IndexActionGroup indexActionGroup;
   private EntityType testEntityType;
   private Entity toIndexEntity;
 
@@ -83,288 +72,130 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   @BeforeMethod
   public void beforeMethod() {
     config.resetMocks();
-    indexJobService = new IndexJobService(dataService, indexService, entityTypeFactory);
-    indexActionGroup = indexActionGroupFactory.create(transactionId).setCount(0);
-    when(dataService.findOneById(INDEX_ACTION_GROUP, transactionId, IndexActionGroup.class))
-        .thenReturn(indexActionGroup);
+    indexJobService =
+        new IndexJobService(
+            dataService, indexService, entityTypeFactory, newDirectExecutorService());
     when(dataService.getMeta()).thenReturn(mds);
     testEntityType = harness.createDynamicRefEntityType();
     when(mds.getEntityType("TypeTestRefDynamic")).thenReturn(Optional.of(testEntityType));
     toIndexEntity = harness.createTestRefEntities(testEntityType, 1).get(0);
+    toIndexEntity.setIdValue("entityId");
     when(dataService.hasEntityType("TypeTestRefDynamic")).thenReturn(true);
     when(dataService.getEntityType("TypeTestRefDynamic")).thenReturn(testEntityType);
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(toIndexEntity);
     when(dataService.hasEntityType("entityType")).thenReturn(true);
     when(dataService.getEntityType("entityType")).thenReturn(testEntityType);
   }
 
   @Test
-  public void testNoIndexActionJobForTransaction() {
-    when(dataService.findOneById(INDEX_ACTION_GROUP, transactionId)).thenReturn(null);
-    mockGetAllIndexActions(empty());
-
-    indexJobService.executeJob(progress, transactionId);
-
-    verify(progress).status("No index actions found for transaction id: [aabbcc]");
-    verify(indexService, never()).refreshIndex();
-  }
-
-  @Test
-  public void testNoIndexActionsForTransaction() {
-    mockGetAllIndexActions(empty());
-
-    indexJobService.executeJob(progress, transactionId);
-
-    verify(progress).status("No index actions found for transaction id: [aabbcc]");
+  public void testIndexNoImpacts() {
+    assertEquals(indexJobService.index(emptyList()), emptySet());
     verify(indexService, never()).refreshIndex();
   }
 
-  private void mockGetAllIndexActions(Stream<IndexAction> entities) {
-    Query<IndexAction> q = IndexJobService.createQueryGetAllIndexActions(transactionId);
-    when(dataService.findAll(INDEX_ACTION, q, IndexAction.class)).thenReturn(entities);
-  }
-
-  @Test
-  public void testCreateQueryGetAllIndexActions() {
-    Query<IndexAction> q = IndexJobService.createQueryGetAllIndexActions("testme");
-    assertEquals(
-        q.toString(),
-        "rules=['indexActionGroup' = 'testme'], sort=Sort [orders=[Order [attr=actionOrder, direction=ASC]]]");
-  }
-
   @Test
   public void rebuildIndexDeleteSingleEntityTest() {
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(null);
-
-    IndexAction indexAction =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId("entityId")
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-    mockGetAllIndexActions(of(indexAction));
-    indexActionGroup.setCount(1);
-
     when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
 
-    indexJobService.executeJob(progress, transactionId);
-    assertEquals(indexAction.getIndexStatus(), FINISHED);
-
-    verify(indexService).deleteById(testEntityType, "entityId");
+    assertEquals(
+        indexJobService.index(singletonList(createSingleEntityImpact("entityType", "entityId"))),
+        emptySet());
 
-    // verify progress messages
-    verify(progress).status("Start indexing for transaction id: [aabbcc]");
-    verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic.entityId");
-    verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
-    verify(progress).status("Refresh index start");
-    verify(progress).status("Refresh index done");
-    verify(progress).status("Finished indexing for transaction id: [aabbcc]");
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), singletonList("entityId"));
     verify(indexService).refreshIndex();
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
   }
 
   @Test
+  @SuppressWarnings("unchecked")
   public void rebuildIndexCreateSingleEntityTest() {
-    IndexAction indexAction =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId("entityId")
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-    mockGetAllIndexActions(of(indexAction));
     when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
-    indexActionGroup.setCount(1);
-
-    indexJobService.executeJob(progress, transactionId);
-    assertEquals(indexAction.getIndexStatus(), FINISHED);
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class), any(Fetch.class)))
+        .thenReturn(of(toIndexEntity));
 
-    verify(this.indexService).index(testEntityType, toIndexEntity);
-
-    verify(progress).status("Start indexing for transaction id: [aabbcc]");
-    verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic.entityId");
-    verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
-    verify(progress).status("Refresh index start");
-    verify(progress).status("Refresh index done");
-    verify(progress).status("Finished indexing for transaction id: [aabbcc]");
-
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
-  }
+    assertEquals(
+        indexJobService.index(singletonList(createSingleEntityImpact("entityType", "entityId"))),
+        emptySet());
 
-  @Test
-  private void rebuildIndexMetaUpdateDataTest() {
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
-    EntityType entityType = dataService.getEntityType("TypeTestRefDynamic");
-    when(indexService.hasIndex(entityType)).thenReturn(true);
-
-    IndexAction indexAction =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId(null)
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-    mockGetAllIndexActions(of(indexAction));
-    indexActionGroup.setCount(1);
-
-    indexJobService.executeJob(progress, transactionId);
-    assertEquals(indexAction.getIndexStatus(), FINISHED);
-    verify(this.indexService).rebuildIndex(this.dataService.getRepository("any"));
-    verify(progress).status("Start indexing for transaction id: [aabbcc]");
-    verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic");
-    verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
-    verify(progress).status("Refresh index start");
-    verify(progress).status("Refresh index done");
-    verify(progress).status("Finished indexing for transaction id: [aabbcc]");
-
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
-
-    // make sure both the actions and the action job got deleted
-    verify(dataService).delete(eq(INDEX_ACTION), streamCaptor.capture());
-    assertEquals(streamCaptor.getValue().collect(toList()), newArrayList(indexAction));
-    verify(dataService).deleteById(INDEX_ACTION_GROUP, transactionId);
+    verify(indexService).createIndex(testEntityType);
+    verify(indexService).index(eq(testEntityType), streamCaptor.capture());
+    assertEquals(streamCaptor.getValue().collect(toList()), singletonList(toIndexEntity));
+    verify(indexService, never()).deleteAll(any(), any());
+    verify(indexService).refreshIndex();
   }
 
   @Test
-  private void rebuildIndexMetaCreateDataTest() {
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
+  public void rebuildIndexWholeRepositoryTest() {
+    assertEquals(
+        indexJobService.index(singletonList(createWholeRepositoryImpact("entityType"))),
+        emptySet());
 
-    IndexAction indexAction =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId(null)
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-    mockGetAllIndexActions(of(indexAction));
-    indexActionGroup.setCount(1);
-
-    indexJobService.executeJob(progress, transactionId);
-    assertEquals(indexAction.getIndexStatus(), FINISHED);
-    verify(this.indexService).rebuildIndex(this.dataService.getRepository("any"));
-    verify(progress).status("Start indexing for transaction id: [aabbcc]");
-    verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic");
-    verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
-    verify(progress).status("Refresh index start");
-    verify(progress).status("Refresh index done");
-    verify(progress).status("Finished indexing for transaction id: [aabbcc]");
-
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
-
-    // make sure both the actions and the action job got deleted
-    verify(dataService).delete(eq(INDEX_ACTION), streamCaptor.capture());
-    assertEquals(streamCaptor.getValue().collect(toList()), newArrayList(indexAction));
-    verify(dataService).deleteById(INDEX_ACTION_GROUP, transactionId);
-
-    verify(dataService).deleteById(INDEX_ACTION_GROUP, transactionId);
+    verify(indexService).rebuildIndex(dataService.getRepository("TypeTestRefDynamic"));
+    verify(indexService).refreshIndex();
   }
 
   @Test
   public void rebuildIndexDeleteMetaDataEntityTest() {
-    String entityTypeId = "entityTypeId";
-    String entityTypeLabel = "entityTypeLabel";
-    EntityType entityType = mock(EntityType.class);
-    when(entityType.getId()).thenReturn(entityTypeId);
-    when(entityType.getLabel()).thenReturn(entityTypeLabel);
-    IndexAction indexAction =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId(entityTypeId)
-            .setEntityId(null)
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-    mockGetAllIndexActions(of(indexAction));
-    indexActionGroup.setCount(1);
-
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(false);
-    when(dataService.getEntityType("entityTypeName")).thenReturn(null);
-
     when(indexService.hasIndex(any(EntityType.class))).thenReturn(true);
 
-    indexJobService.executeJob(progress, transactionId);
-    assertEquals(indexAction.getIndexStatus(), FINISHED);
+    assertEquals(
+        indexJobService.index(singletonList(createWholeRepositoryImpact("entityTypeId"))),
+        emptySet());
 
     ArgumentCaptor<EntityType> entityTypeCaptor = ArgumentCaptor.forClass(EntityType.class);
-    verify(this.indexService).deleteIndex(entityTypeCaptor.capture());
-    EntityType actualEntityType = entityTypeCaptor.getValue();
-    assertEquals(actualEntityType.getId(), entityTypeId);
-
-    verify(progress).status("Start indexing for transaction id: [aabbcc]");
-    verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Dropping entityType with id: entityTypeId");
-    verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
-    verify(progress).status("Refresh index start");
-    verify(progress).status("Refresh index done");
-    verify(progress).status("Finished indexing for transaction id: [aabbcc]");
-
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verify(indexService).deleteIndex(entityTypeCaptor.capture());
+    assertEquals(entityTypeCaptor.getValue().getId(), "entityTypeId");
+    verify(indexService).refreshIndex();
   }
 
   @Test
-  public void indexSingleEntityindexServiceThrowsExceptionOnSecondEntityId() {
-    IndexAction indexAction1 =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId("entityId1")
-            .setActionOrder(0)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-
-    IndexAction indexAction2 =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId("entityId2")
-            .setActionOrder(1)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-
-    IndexAction indexAction3 =
-        indexActionFactory
-            .create()
-            .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
-            .setEntityId("entityId3")
-            .setActionOrder(2)
-            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
-
-    mockGetAllIndexActions(of(indexAction1, indexAction2, indexAction3));
-    indexActionGroup.setCount(3);
-
+  public void indexEntitiesIndexServiceThrowsException() {
     MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
-    doThrow(mde).when(indexService).deleteById(testEntityType, "entityId2");
+    doThrow(mde).when(indexService).deleteAll(eq(testEntityType), any());
 
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
+    assertEquals(
+        indexJobService.index(
+            asList(
+                createSingleEntityImpact("entityType", "entityId1"),
+                createSingleEntityImpact("entityType", "entityId2"))),
+        singleton("entityType"));
+
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), asList("entityId1", "entityId2"));
+    verify(indexService).refreshIndex();
+  }
 
-    try {
-      indexJobService.executeJob(progress, transactionId);
-    } catch (Exception expected) {
-      assertSame(expected, mde);
-    }
+  @Test
+  public void rebuildIndexCoalescesSingleEntityActions() {
+    assertEquals(
+        indexJobService.index(
+            asList(
+                createSingleEntityImpact("entityType", "entityId"),
+                createWholeRepositoryImpact("entityType"))),
+        emptySet());
+
+    verify(indexService).rebuildIndex(any());
+    verify(indexService, never()).index(any(), any(Stream.class));
+    verify(indexService, never()).deleteAll(any(), any());
+  }
+
+  @Test
+  public void indexEntityTypesFailureIsolated() {
+    EntityType otherEntityType = mock(EntityType.class);
+    when(otherEntityType.getId()).thenReturn("otherEntityType");
+    when(dataService.hasEntityType("otherEntityType")).thenReturn(true);
+    when(dataService.getEntityType("otherEntityType")).thenReturn(otherEntityType);
+    MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
+    doThrow(mde).when(indexService).rebuildIndex(any());
 
-    verify(indexService).deleteById(testEntityType, "entityId1");
-    verify(indexService).deleteById(testEntityType, "entityId2");
-    verify(indexService).deleteById(testEntityType, "entityId3");
+    assertEquals(
+        indexJobService.index(
+            asList(
+                createWholeRepositoryImpact("otherEntityType"),
+                createSingleEntityImpact("entityType", "entityId"))),
+        singleton("otherEntityType"));
 
+    verify(indexService).deleteAll(eq(testEntityType), any());
     verify(indexService).refreshIndex();
-
-    // Make sure the action status got updated and that the actionJob didn't get deleted
-    assertEquals(indexAction1.getIndexStatus(), FINISHED);
-    assertEquals(indexAction2.getIndexStatus(), FAILED);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction1);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction2);
-    verify(dataService, never()).delete(INDEX_ACTION_GROUP, indexActionGroup);
   }
 
   @Configuration
@@ -372,7 +203,6 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   public static class Config {
     @Autowired private EntityTypeFactory entityTypeFactory;
 
-    @Mock private Progress progress;
     @Mock private Authentication authentication;
     @Mock private IndexService indexService;
     @Mock private MetaDataService mds;
@@ -381,11 +211,6 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
       initMocks(this);
     }
 
-    @Bean
-    public Progress progress() {
-      return progress;
-    }
-
     @Bean
     public Authentication authentication() {
       return authentication;
@@ -402,7 +227,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     }
 
     void resetMocks() {
-      reset(progress, authentication, indexService, mds);
+      reset(authentication, indexService, mds);
     }
   }
 }
@@ -2,6 +2,7 @@ package org.molgenis.data.platform;
 
 import static java.util.Objects.requireNonNull;
 
+import org.molgenis.data.DecoratedRepositoryCache;
 import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.RepositoryCollectionDecorator;
 import org.molgenis.data.RepositoryCollectionDecoratorFactory;
@@ -15,19 +16,23 @@ public class RepositoryCollectionDecoratorFactoryImpl
     implements RepositoryCollectionDecoratorFactory {
   private final RepositoryDecoratorFactory repositoryDecoratorFactory;
   private final IndexActionRegisterService indexActionRegisterService;
+  private final DecoratedRepositoryCache decoratedRepositoryCache;
 
   public RepositoryCollectionDecoratorFactoryImpl(
       RepositoryDecoratorFactory repositoryDecoratorFactory,
-      IndexActionRegisterService indexActionRegisterService) {
+      IndexActionRegisterService indexActionRegisterService,
+      DecoratedRepositoryCache decoratedRepositoryCache) {
     this.repositoryDecoratorFactory = requireNonNull(repositoryDecoratorFactory);
     this.indexActionRegisterService = requireNonNull(indexActionRegisterService);
+    this.decoratedRepositoryCache = requireNonNull(decoratedRepositoryCache);
   }
 
   @Override
   public RepositoryCollection createDecoratedRepositoryCollection(
       RepositoryCollection repositoryCollection) {
     RepositoryCollection repoCollectionDecorator =
-        new RepositoryCollectionDecorator(repositoryCollection, repositoryDecoratorFactory);
+        new RepositoryCollectionDecorator(
+            repositoryCollection, repositoryDecoratorFactory, decoratedRepositoryCache);
     repoCollectionDecorator =
         new IndexActionRepositoryCollectionDecorator(
             repoCollectionDecorator, indexActionRegisterService);
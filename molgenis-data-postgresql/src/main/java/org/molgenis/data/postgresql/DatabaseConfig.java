@@ -3,8 +3,11 @@ package org.molgenis.data.postgresql;
 import static java.util.Objects.requireNonNull;
 
 import javax.sql.DataSource;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
 import org.molgenis.data.config.DataSourceConfig;
 import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.postgresql.cache.PostgreSqlCacheInvalidationBus;
 import org.molgenis.data.postgresql.transaction.PostgreSqlTransactionManager;
 import org.molgenis.data.transaction.TransactionExceptionTranslatorRegistry;
 import org.molgenis.data.transaction.TransactionManager;
@@ -33,6 +36,13 @@ public class DatabaseConfig implements TransactionManagementConfigurer {
   @Value("${db_password:@null}")
   private String dbPassword;
 
+  /**
+   * 'local' for a single application node, 'postgresql' for multiple application nodes sharing the
+   * same database
+   */
+  @Value("${cache_invalidation:local}")
+  private String cacheInvalidation;
+
   private final IdGenerator idGenerator;
   private final DataSource dataSource;
   private final TransactionExceptionTranslatorRegistry transactionExceptionTranslatorRegistry;
@@ -53,6 +63,22 @@ public class DatabaseConfig implements TransactionManagementConfigurer {
         idGenerator, dataSource, transactionExceptionTranslatorRegistry);
   }
 
+  @Bean
+  public CacheInvalidationBus cacheInvalidationBus() {
+    switch (cacheInvalidation) {
+      case "local":
+        return new LocalCacheInvalidationBus();
+      case "postgresql":
+        PostgreSqlCacheInvalidationBus cacheInvalidationBus =
+            new PostgreSqlCacheInvalidationBus(dataSource, idGenerator.generateId());
+        cacheInvalidationBus.start();
+        return cacheInvalidationBus;
+      default:
+        throw new IllegalArgumentException(
+            String.format("unknown cache_invalidation value '%s'", cacheInvalidation));
+    }
+  }
+
   @Override
   public PlatformTransactionManager annotationDrivenTransactionManager() {
     return transactionManager();
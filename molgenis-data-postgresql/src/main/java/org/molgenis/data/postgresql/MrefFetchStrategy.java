@@ -0,0 +1,60 @@
+package org.molgenis.data.postgresql;
+
+import static org.molgenis.data.QueryRule.Operator.EQUALS;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getJunctionTableAttributes;
+
+import java.util.List;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.Sort;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+
+/** Strategy to select the values of attributes that are persisted in junction tables. */
+enum MrefFetchStrategy {
+  /** Select the values with a correlated sub-query per row and attribute in the entity select. */
+  SUB_QUERY,
+  /**
+   * Select the entities without the values, then select the values for all entities in the batch
+   * with one junction table query per attribute.
+   */
+  JUNCTION_TABLE_BATCH;
+
+  /**
+   * Chooses a strategy based on the fetch shape of a query. Sub-queries require the least round
+   * trips for single row lookups, junction table batches avoid a sub-query per row for larger
+   * results.
+   */
+  static <E extends Entity> MrefFetchStrategy choose(EntityType entityType, Query<E> q) {
+    Fetch fetch = q.getFetch();
+    Attribute idAttribute = entityType.getIdAttribute();
+    if (fetch != null && !fetch.hasField(idAttribute)) {
+      // junction table rows can't be matched with entities without their id
+      return SUB_QUERY;
+    }
+    if (q.getPageSize() == 1 || isIdLookup(idAttribute, q)) {
+      return SUB_QUERY;
+    }
+    Sort sort = q.getSort();
+    if (sort != null
+        && getJunctionTableAttributes(entityType).anyMatch(attr -> sort.hasField(attr.getName()))) {
+      // sorting on a junction table attribute requires its values in the entity select
+      return SUB_QUERY;
+    }
+    boolean fetchesJunctionTableAttributes =
+        getJunctionTableAttributes(entityType)
+            .anyMatch(attr -> fetch == null || fetch.hasField(attr));
+    return fetchesJunctionTableAttributes ? JUNCTION_TABLE_BATCH : SUB_QUERY;
+  }
+
+  private static <E extends Entity> boolean isIdLookup(Attribute idAttribute, Query<E> q) {
+    List<QueryRule> rules = q.getRules();
+    if (rules.size() != 1) {
+      return false;
+    }
+    QueryRule rule = rules.get(0);
+    return rule.getOperator() == EQUALS && idAttribute.getName().equals(rule.getField());
+  }
+}
@@ -0,0 +1,115 @@
+package org.molgenis.data.postgresql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.Objects.requireNonNull;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import javax.annotation.Nullable;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Writes rows to a <code>COPY ... FROM STDIN</code> operation in text format. Rows are buffered up
+ * to a fixed number of characters before they are sent to the database.
+ */
+class PostgreSqlCopyWriter implements AutoCloseable {
+  static final int BUFFER_SIZE = 65536;
+
+  private static final char COLUMN_DELIMITER = '\t';
+  private static final char ROW_DELIMITER = '\n';
+  private static final String NULL_VALUE = "\\N";
+
+  private final CopyIn copyIn;
+  private final StringBuilder buffer;
+  private boolean firstColumn = true;
+
+  PostgreSqlCopyWriter(CopyIn copyIn) {
+    this.copyIn = requireNonNull(copyIn);
+    this.buffer = new StringBuilder(BUFFER_SIZE + 1024);
+  }
+
+  /**
+   * Writes a column value of the current row.
+   *
+   * @param value value as returned by {@link PostgreSqlUtils#getPostgreSqlValue}
+   */
+  void writeValue(@Nullable Object value) {
+    if (!firstColumn) {
+      buffer.append(COLUMN_DELIMITER);
+    }
+    firstColumn = false;
+    appendValue(buffer, value);
+  }
+
+  /** Ends the current row and sends the buffered rows if the buffer is full. */
+  void endRow() throws SQLException {
+    buffer.append(ROW_DELIMITER);
+    firstColumn = true;
+    if (buffer.length() >= BUFFER_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the remaining rows and completes the copy operation.
+   *
+   * @return number of copied rows
+   */
+  long endCopy() throws SQLException {
+    flush();
+    return copyIn.endCopy();
+  }
+
+  /** Cancels the copy operation if it was not completed. */
+  @Override
+  public void close() throws SQLException {
+    if (copyIn.isActive()) {
+      copyIn.cancelCopy();
+    }
+  }
+
+  private void flush() throws SQLException {
+    if (buffer.length() > 0) {
+      byte[] bytes = buffer.toString().getBytes(UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      buffer.setLength(0);
+    }
+  }
+
+  static void appendValue(StringBuilder builder, @Nullable Object value) {
+    if (value == null) {
+      builder.append(NULL_VALUE);
+    } else if (value instanceof Boolean) {
+      builder.append((Boolean) value ? 't' : 'f');
+    } else if (value instanceof OffsetDateTime) {
+      builder.append(ISO_OFFSET_DATE_TIME.format((OffsetDateTime) value));
+    } else if (value instanceof Number) {
+      builder.append(value);
+    } else {
+      appendEscaped(builder, value.toString());
+    }
+  }
+
+  private static void appendEscaped(StringBuilder builder, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+  }
+}
@@ -8,13 +8,16 @@ import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getColumnName
 import static org.molgenis.data.util.MolgenisDateFormat.parseInstant;
 import static org.molgenis.data.util.MolgenisDateFormat.parseLocalDate;
 
+import com.google.common.collect.Multimap;
 import java.math.BigDecimal;
 import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.Fetch;
@@ -34,26 +37,67 @@ class PostgreSqlEntityFactory {
   private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlEntityFactory.class);
 
   private final EntityManager entityManager;
+  private final ValueMapper valueMapper;
 
   public PostgreSqlEntityFactory(EntityManager entityManager) {
     this.entityManager = requireNonNull(entityManager);
+    this.valueMapper = new ValueMapper(entityManager);
   }
 
   RowMapper<Entity> createRowMapper(EntityType entityType, Fetch fetch) {
-    return new EntityMapper(entityManager, entityType, fetch);
+    return new EntityMapper(entityManager, valueMapper, entityType, fetch);
+  }
+
+  /**
+   * Maps a single result set value to a value of the attribute type.
+   *
+   * @param resultSet result set
+   * @param attr attribute
+   * @param colName column name in the result set
+   * @return value for the given attribute in the type defined by the attribute type
+   * @throws SQLException if an error occurs reading from the result set
+   */
+  Object mapValue(ResultSet resultSet, Attribute attr, String colName) throws SQLException {
+    return valueMapper.mapValue(resultSet, attr, colName);
   }
 
   Iterable<Entity> getReferences(EntityType refEntityType, Iterable<?> ids) {
     return entityManager.getReferences(refEntityType, ids);
   }
 
+  /**
+   * Sets the values of an attribute persisted in a junction table on entities that were mapped
+   * without them.
+   *
+   * @param entities entities that were mapped by a row mapper of this factory
+   * @param attr attribute persisted in a junction table
+   * @param refIds ids of the referenced entities per entity id, in attribute value order
+   */
+  void setJunctionTableValues(
+      Iterable<Entity> entities, Attribute attr, Multimap<Object, Object> refIds) {
+    EntityType refEntityType = attr.getRefEntity();
+    String attrName = attr.getName();
+    for (Entity entity : entities) {
+      Collection<Object> entityRefIds = refIds.get(entity.getIdValue());
+      // same value as mapped from an empty array_agg sub-query
+      Object value =
+          !entityRefIds.isEmpty()
+              ? entityManager.getReferences(refEntityType, new ArrayList<>(entityRefIds))
+              : null;
+      entity.set(attrName, value);
+    }
+  }
+
   private static class EntityMapper implements RowMapper<Entity> {
     private final EntityManager entityManager;
+    private final ValueMapper valueMapper;
     private final EntityType entityType;
     private final Fetch fetch;
 
-    private EntityMapper(EntityManager entityManager, EntityType entityType, Fetch fetch) {
+    private EntityMapper(
+        EntityManager entityManager, ValueMapper valueMapper, EntityType entityType, Fetch fetch) {
       this.entityManager = requireNonNull(entityManager);
+      this.valueMapper = requireNonNull(valueMapper);
       this.entityType = requireNonNull(entityType);
       this.fetch = fetch; // can be null
     }
@@ -85,7 +129,15 @@ class PostgreSqlEntityFactory {
      * @throws SQLException if an error occurs reading from the result set
      */
     private Object mapValue(ResultSet resultSet, Attribute attr) throws SQLException {
-      return mapValue(resultSet, attr, getColumnName(attr, false));
+      return valueMapper.mapValue(resultSet, attr, getColumnName(attr, false));
+    }
+  }
+
+  private static class ValueMapper {
+    private final EntityManager entityManager;
+
+    private ValueMapper(EntityManager entityManager) {
+      this.entityManager = requireNonNull(entityManager);
     }
 
     /**
@@ -50,6 +50,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.molgenis.data.AclPermissionFilter;
+import org.molgenis.data.AclPermissionFilter.AclSid;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
@@ -57,6 +59,7 @@ import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.Sort;
 import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
@@ -80,6 +83,11 @@ class PostgreSqlQueryGenerator {
 
   static final String ERR_CODE_READONLY_VIOLATION = "23506";
 
+  /** Result set column names of aggregate queries */
+  static final String AGGREGATE_X_COLUMN = "agg_x";
+  static final String AGGREGATE_Y_COLUMN = "agg_y";
+  static final String AGGREGATE_COUNT_COLUMN = "agg_count";
+
   private PostgreSqlQueryGenerator() {}
 
   private static String getSqlConstraintPrimaryKey(EntityType entityType, Attribute attr) {
@@ -449,6 +457,83 @@ class PostgreSqlQueryGenerator {
         + ") VALUES (?,?,?)";
   }
 
+  static String getSqlCopy(EntityType entityType) {
+    String columnNames =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .collect(joining(", "));
+    return "COPY " + getTableName(entityType) + " (" + columnNames + ") FROM STDIN";
+  }
+
+  static String getSqlCopyJunction(EntityType entityType, Attribute attr) {
+    return "COPY "
+        + getJunctionTableName(entityType, attr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(entityType.getIdAttribute())
+        + ','
+        + getColumnName(attr)
+        + ") FROM STDIN";
+  }
+
+  /**
+   * Returns SQL to copy all rows of the source entity table to the target entity table, the
+   * columns of the target attributes are matched by attribute name with the source columns.
+   */
+  static String getSqlInsertSelect(EntityType sourceEntityType, EntityType targetEntityType) {
+    List<Attribute> targetAttrs = getTableAttributes(targetEntityType).collect(toList());
+    String targetColumnNames =
+        targetAttrs.stream().map(PostgreSqlNameGenerator::getColumnName).collect(joining(", "));
+    String sourceColumnNames =
+        targetAttrs.stream()
+            .map(targetAttr -> getColumnName(getSourceAttribute(sourceEntityType, targetAttr)))
+            .collect(joining(", "));
+    return "INSERT INTO "
+        + getTableName(targetEntityType)
+        + " ("
+        + targetColumnNames
+        + ") SELECT "
+        + sourceColumnNames
+        + " FROM "
+        + getTableName(sourceEntityType);
+  }
+
+  /**
+   * Returns SQL to copy all rows of the junction table of the source attribute to the junction
+   * table of the target attribute.
+   */
+  static String getSqlInsertSelectJunction(
+      EntityType sourceEntityType,
+      Attribute sourceAttr,
+      EntityType targetEntityType,
+      Attribute targetAttr) {
+    return "INSERT INTO "
+        + getJunctionTableName(targetEntityType, targetAttr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(targetEntityType.getIdAttribute())
+        + ','
+        + getColumnName(targetAttr)
+        + ") SELECT "
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(sourceEntityType.getIdAttribute())
+        + ','
+        + getColumnName(sourceAttr)
+        + " FROM "
+        + getJunctionTableName(sourceEntityType, sourceAttr);
+  }
+
+  private static Attribute getSourceAttribute(EntityType sourceEntityType, Attribute targetAttr) {
+    Attribute sourceAttr = sourceEntityType.getAttribute(targetAttr.getName());
+    if (sourceAttr == null) {
+      throw new UnknownAttributeException(sourceEntityType, targetAttr.getName());
+    }
+    return sourceAttr;
+  }
+
   static String getSqlDeleteAll(EntityType entityType) {
     return "DELETE FROM " + getTableName(entityType);
   }
@@ -686,6 +771,58 @@ class PostgreSqlQueryGenerator {
     return sqlBuilder.toString();
   }
 
+  /**
+   * Produces SQL to count the entities that match the aggregate query per value of the aggregate
+   * attribute(s). Counts the distinct values of the distinct attribute instead if the aggregate
+   * query has a distinct attribute.
+   *
+   * @param aggregateQuery aggregate query with attributes that are stored in the entity table
+   * @param parameters prepared statement parameters
+   * @return SQL string
+   */
+  static String getSqlAggregate(
+      EntityType entityType, AggregateQuery aggregateQuery, List<Object> parameters) {
+    Query<Entity> q =
+        aggregateQuery.getQuery() != null ? aggregateQuery.getQuery() : new QueryImpl<>();
+    Attribute attrX = aggregateQuery.getAttributeX();
+    Attribute attrY = aggregateQuery.getAttributeY();
+    Attribute attrDistinct = aggregateQuery.getAttributeDistinct();
+
+    StringBuilder groupBy = new StringBuilder("this.").append(getColumnName(attrX));
+    StringBuilder sqlBuilder =
+        new StringBuilder("SELECT this.")
+            .append(getColumnName(attrX))
+            .append(" AS ")
+            .append(AGGREGATE_X_COLUMN);
+    if (attrY != null) {
+      groupBy.append(", this.").append(getColumnName(attrY));
+      sqlBuilder
+          .append(", this.")
+          .append(getColumnName(attrY))
+          .append(" AS ")
+          .append(AGGREGATE_Y_COLUMN);
+    }
+
+    if (attrDistinct != null) {
+      sqlBuilder.append(", COUNT(DISTINCT this.").append(getColumnName(attrDistinct)).append(')');
+    } else if (isDistinctSelectRequired(entityType, q)) {
+      // distinct count in case query contains one or more rules referring to MREF attributes.
+      sqlBuilder
+          .append(", COUNT(DISTINCT this.")
+          .append(getColumnName(entityType.getIdAttribute()))
+          .append(')');
+    } else {
+      sqlBuilder.append(", COUNT(*)");
+    }
+    sqlBuilder.append(" AS ").append(AGGREGATE_COUNT_COLUMN).append(getSqlFrom(entityType, q));
+
+    String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    if (where.length() > 0) {
+      sqlBuilder.append(" WHERE ").append(where);
+    }
+    return sqlBuilder.append(" GROUP BY ").append(groupBy).toString();
+  }
+
   private static String getSqlColumn(EntityType entityType, Attribute attr, ColumnMode columnMode) {
     StringBuilder sqlBuilder = new StringBuilder(getColumnName(attr)).append(' ');
 
@@ -1030,6 +1167,15 @@ class PostgreSqlQueryGenerator {
           }
           result.append(predicate);
           break;
+        case PERMITTED:
+          if (result.length() > 0
+              && !result.toString().endsWith(" OR ")
+              && !result.toString().endsWith(" AND ")
+              && !result.toString().endsWith(" NOT ")) {
+            result.append(" AND ");
+          }
+          getSqlWhereForPermittedQueryRule(r, entityType, parameters, result);
+          break;
         case DIS_MAX:
         case FUZZY_MATCH:
         case FUZZY_MATCH_NGRAM:
@@ -1048,6 +1194,61 @@ class PostgreSqlQueryGenerator {
     return result.toString().trim();
   }
 
+  /**
+   * Semi-join against the access control list tables that matches rows for which the first access
+   * control entry with a matching mask and security identity, ordered by security identity priority
+   * and entry order, is granting. Assumes that row access control lists have no parent.
+   */
+  private static void getSqlWhereForPermittedQueryRule(
+      QueryRule r, EntityType entityType, List<Object> parameters, StringBuilder result) {
+    Object value = r.getValue();
+    if (!(value instanceof AclPermissionFilter)) {
+      throw new MolgenisDataException(
+          format(
+              "PERMITTED value is of type [%s] instead of [%s]",
+              value != null ? value.getClass().getSimpleName() : null,
+              AclPermissionFilter.class.getSimpleName()));
+    }
+    AclPermissionFilter aclPermissionFilter = (AclPermissionFilter) value;
+    List<AclSid> sids = aclPermissionFilter.getSids();
+
+    parameters.add(aclPermissionFilter.getAclClass());
+    parameters.add(aclPermissionFilter.getMask());
+    sids.forEach(
+        sid -> {
+          parameters.add(sid.isPrincipal());
+          parameters.add(sid.getSid());
+        });
+    String sidConditions =
+        sids.stream()
+            .map(sid -> "(acl_sid.principal = ? AND acl_sid.sid = ?)")
+            .collect(joining(" OR "));
+    StringBuilder sidPriority = new StringBuilder("CASE");
+    for (int i = 0; i < sids.size(); i++) {
+      AclSid sid = sids.get(i);
+      parameters.add(sid.isPrincipal());
+      parameters.add(sid.getSid());
+      sidPriority.append(" WHEN acl_sid.principal = ? AND acl_sid.sid = ? THEN ").append(i);
+    }
+    sidPriority.append(" END");
+
+    result
+        .append("EXISTS (SELECT 1 FROM acl_object_identity acl_oi")
+        .append(" WHERE acl_oi.object_id_class =")
+        .append(" (SELECT acl_class.id FROM acl_class WHERE acl_class.class = ?)")
+        .append(" AND acl_oi.object_id_identity = CAST(this.")
+        .append(getColumnName(entityType.getIdAttribute()))
+        .append(" AS VARCHAR)")
+        .append(" AND (SELECT acl_e.granting FROM acl_entry acl_e")
+        .append(" JOIN acl_sid ON acl_sid.id = acl_e.sid")
+        .append(" WHERE acl_e.acl_object_identity = acl_oi.id AND (acl_e.mask & ?) <> 0")
+        .append(" AND (")
+        .append(sidConditions)
+        .append(") ORDER BY ")
+        .append(sidPriority)
+        .append(", acl_e.ace_order LIMIT 1) IS TRUE)");
+  }
+
   private static void getSqlWhereForInQueryRule(
       QueryRule r,
       EntityType entityType,
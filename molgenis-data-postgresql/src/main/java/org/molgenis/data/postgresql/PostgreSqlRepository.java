@@ -2,13 +2,15 @@ package org.molgenis.data.postgresql;
 
 import static com.google.common.base.Stopwatch.createStarted;
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableSet;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.nullsLast;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.QueryRule.Operator.AND;
@@ -22,7 +24,9 @@ import static org.molgenis.data.QueryRule.Operator.LIKE;
 import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.NOT;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.QueryRule.Operator.RANGE;
+import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
@@ -31,9 +35,16 @@ import static org.molgenis.data.RepositoryCapability.VALIDATE_READONLY_CONSTRAIN
 import static org.molgenis.data.RepositoryCapability.VALIDATE_REFERENCE_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_UNIQUE_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.WRITABLE;
-import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
+import static org.molgenis.data.postgresql.MrefFetchStrategy.JUNCTION_TABLE_BATCH;
+import static org.molgenis.data.postgresql.MrefFetchStrategy.SUB_QUERY;
 import static org.molgenis.data.postgresql.PostgreSqlExceptionTranslator.VALUE_TOO_LONG_MSG;
 import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getJunctionTableOrderColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.AGGREGATE_COUNT_COLUMN;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.AGGREGATE_X_COLUMN;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.AGGREGATE_Y_COLUMN;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlAggregate;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopy;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopyJunction;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCount;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDelete;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDeleteAll;
@@ -44,8 +55,10 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelect
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpdate;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getJunctionTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getTableAttributes;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isTableAttribute;
 import static org.molgenis.data.postgresql.PostgreSqlUtils.getPostgreSqlValue;
-import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
+import static org.molgenis.data.support.KeysetBatchingQueryResult.isApplicable;
+import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ArrayListMultimap;
@@ -59,34 +72,45 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.aggregation.AggregateQuery;
+import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.AbstractRepository;
 import org.molgenis.data.support.BatchingQueryResult;
+import org.molgenis.data.support.KeysetBatchingQueryResult;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 
@@ -104,6 +128,9 @@ class PostgreSqlRepository extends AbstractRepository {
 
   /** JDBC batch operation size */
   static final int BATCH_SIZE = 1000;
+
+  /** Number of entities per COPY operation when adding more than {@link #BATCH_SIZE} entities */
+  static final int COPY_BATCH_SIZE = 10000;
   /** Repository capabilities */
   private static final Set<RepositoryCapability> REPO_CAPABILITIES =
       unmodifiableSet(
@@ -115,7 +142,12 @@ class PostgreSqlRepository extends AbstractRepository {
               VALIDATE_UNIQUE_CONSTRAINT,
               VALIDATE_NOTNULL_CONSTRAINT,
               VALIDATE_READONLY_CONSTRAINT,
-              CACHEABLE));
+              CACHEABLE,
+              AGGREGATEABLE));
+
+  /** Sorts aggregate labels by their string representation, missing value label last */
+  private static final Comparator<Object> AGGREGATE_LABEL_COMPARATOR =
+      nullsLast(comparing(Object::toString));
 
   /** Supported query operators */
   private static final Set<Operator> QUERY_OPERATORS =
@@ -132,7 +164,8 @@ class PostgreSqlRepository extends AbstractRepository {
               NOT,
               AND,
               OR,
-              NESTED));
+              NESTED,
+              PERMITTED));
 
   private final PostgreSqlEntityFactory postgreSqlEntityFactory;
   private final JdbcTemplate jdbcTemplate;
@@ -153,7 +186,7 @@ class PostgreSqlRepository extends AbstractRepository {
   @Override
   public Iterator<Entity> iterator() {
     Query<Entity> q = new QueryImpl<>();
-    return findAllBatching(q).iterator();
+    return findAllKeysetBatching(q).iterator();
   }
 
   @Override
@@ -186,8 +219,42 @@ class PostgreSqlRepository extends AbstractRepository {
         sql, parameters.toArray(new Object[parameters.size()]), Long.class);
   }
 
+  /**
+   * Aggregates the entities with a single query that groups the entities by the values of the
+   * aggregate attribute(s). Only attributes stored in the entity table can be aggregated.
+   */
+  @Override
+  public AggregateResult aggregate(AggregateQuery aggregateQuery) {
+    validateAggregateQuery(aggregateQuery);
+
+    List<Object> parameters = Lists.newArrayList();
+    String sql = getSqlAggregate(entityType, aggregateQuery, parameters);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Aggregating [{}] rows for query [{}]", getName(), aggregateQuery.getQuery());
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+      }
+    }
+    Attribute attrX = aggregateQuery.getAttributeX();
+    Attribute attrY = aggregateQuery.getAttributeY();
+    List<AggregateCount> aggregateCounts =
+        jdbcTemplate.query(
+            sql,
+            parameters.toArray(new Object[parameters.size()]),
+            (resultSet, rowNum) ->
+                new AggregateCount(
+                    mapAggregateLabel(resultSet, attrX, AGGREGATE_X_COLUMN),
+                    attrY != null ? mapAggregateLabel(resultSet, attrY, AGGREGATE_Y_COLUMN) : null,
+                    resultSet.getLong(AGGREGATE_COUNT_COLUMN)));
+    return createAggregateResult(attrX, attrY, aggregateCounts);
+  }
+
   @Override
   public Stream<Entity> findAll(Query<Entity> q) {
+    if (isApplicable(q, entityType.getIdAttribute().getName())) {
+      return stream(findAllKeysetBatching(q));
+    }
     return stream(findAllBatching(q));
   }
 
@@ -279,89 +346,41 @@ class PostgreSqlRepository extends AbstractRepository {
 
   @Override
   public Integer add(Stream<Entity> entities) {
-    return addBatching(entities.iterator());
+    Iterator<Entity> iterator = entities.iterator();
+    List<Entity> firstBatch = newArrayList(Iterators.limit(iterator, BATCH_SIZE));
+    if (iterator.hasNext()) {
+      // COPY outperforms batched inserts for large numbers of entities (e.g. imports)
+      return addCopying(Iterators.concat(firstBatch.iterator(), iterator));
+    }
+    return addBatching(firstBatch.iterator());
   }
 
   @Override
   public void forEachBatched(Fetch fetch, Consumer<List<Entity>> consumer, int batchSize) {
     final Stopwatch stopwatch = createStarted();
-    final JdbcTemplate template = new JdbcTemplate(dataSource);
-    template.setFetchSize(batchSize);
+    final String idAttributeName = entityType.getIdAttribute().getName();
 
     final Query<Entity> query = new QueryImpl<>();
     if (fetch != null) {
-      query.fetch(fetch);
+      // batches are continued on id
+      query.fetch(fetch.hasField(idAttributeName) ? fetch : withField(fetch, idAttributeName));
     }
-    final String allRowsSelect = getSqlSelect(entityType, query, emptyList(), false);
     LOG.debug("Fetching [{}] data...", getName());
-    LOG.trace("SQL: {}", allRowsSelect);
-    RowMapper<Entity> rowMapper = postgreSqlEntityFactory.createRowMapper(entityType, fetch);
-    template.query(
-        allRowsSelect,
-        (ResultSetExtractor<Object>)
-            resultSet -> processResultSet(consumer, batchSize, entityType, rowMapper, resultSet));
+    KeysetBatchingQueryResult<Entity> batches =
+        new KeysetBatchingQueryResult<Entity>(batchSize, query, idAttributeName) {
+          @Override
+          protected List<Entity> getBatch(Query<Entity> batchQuery) {
+            return findAllBatch(batchQuery);
+          }
+        };
+    Iterators.partition(batches.iterator(), batchSize).forEachRemaining(consumer);
     LOG.debug("Streamed entire repository in batches of size {} in {}.", batchSize, stopwatch);
   }
 
-  private Object processResultSet(
-      Consumer<List<Entity>> consumer,
-      int batchSize,
-      EntityType entityType,
-      RowMapper<Entity> rowMapper,
-      ResultSet resultSet)
-      throws SQLException {
-    int rowNum = 0;
-    Map<Object, Entity> batch = newHashMap();
-    while (resultSet.next()) {
-      Entity entity = rowMapper.mapRow(resultSet, rowNum++);
-      batch.put(entity.getIdValue(), entity);
-      if (rowNum % batchSize == 0) {
-        handleBatch(consumer, entityType, batch);
-        batch = newHashMap();
-      }
-    }
-    if (!batch.isEmpty()) {
-      handleBatch(consumer, entityType, batch);
-    }
-    return null;
-  }
-
-  /**
-   * Handles a batch of Entities. Looks up the values for MREF ID attributes and sets them as
-   * references in the entities. Then feeds the entities to the {@link Consumer}
-   *
-   * @param consumer {@link Consumer} to feed the batch to after setting the MREF ID values
-   * @param entityType EntityType for the {@link Entity}s in the batch
-   * @param batch {@link Map} mapping entity ID to entity for all {@link Entity}s in the batch
-   */
-  private void handleBatch(
-      Consumer<List<Entity>> consumer, EntityType entityType, Map<Object, Entity> batch) {
-    AttributeType idAttributeDataType = entityType.getIdAttribute().getDataType();
-    LOG.debug("Select ID values for a batch of MREF attributes...");
-    for (Attribute mrefAttr : entityType.getAtomicAttributes()) {
-      if (mrefAttr.getExpression() == null
-          && isMultipleReferenceType(mrefAttr)
-          && !(mrefAttr.getDataType() == ONE_TO_MANY && mrefAttr.isMappedBy())) {
-        EntityType refEntityType = mrefAttr.getRefEntity();
-        Multimap<Object, Object> mrefIDs =
-            selectMrefIDsForAttribute(
-                entityType,
-                idAttributeDataType,
-                mrefAttr,
-                batch.keySet(),
-                refEntityType.getIdAttribute().getDataType());
-        for (Map.Entry entry : batch.entrySet()) {
-          batch
-              .get(entry.getKey())
-              .set(
-                  mrefAttr.getName(),
-                  postgreSqlEntityFactory.getReferences(
-                      refEntityType, newArrayList(mrefIDs.get(entry.getKey()))));
-        }
-      }
-    }
-    LOG.trace("Feeding batch of {} rows to consumer.", batch.size());
-    consumer.accept(batch.values().stream().collect(toList()));
+  private static Fetch withField(Fetch fetch, String field) {
+    Fetch fetchWithField = new Fetch();
+    fetch.forEach(entry -> fetchWithField.field(entry.getKey(), entry.getValue()));
+    return fetchWithField.field(field);
   }
 
   /**
@@ -451,23 +470,69 @@ class PostgreSqlRepository extends AbstractRepository {
     return new BatchingQueryResult<Entity>(BATCH_SIZE, q) {
       @Override
       protected List<Entity> getBatch(Query<Entity> batchQuery) {
-        List<Object> parameters = new ArrayList<>();
+        return findAllBatch(batchQuery);
+      }
+    };
+  }
 
-        String sql = getSqlSelect(getEntityType(), batchQuery, parameters, true);
-        RowMapper<Entity> entityMapper =
-            postgreSqlEntityFactory.createRowMapper(getEntityType(), batchQuery.getFetch());
-        LOG.debug("Fetching [{}] data for query [{}]", getName(), batchQuery);
-        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
-        Stopwatch sw = createStarted();
-        List<Entity> result =
-            jdbcTemplate.query(
-                sql, parameters.toArray(new Object[parameters.size()]), entityMapper);
-        LOG.trace("That took {}", sw);
-        return result;
+  /**
+   * Batches the query on the id attribute instead of on offset so that the cost per batch stays
+   * constant for large tables.
+   */
+  private KeysetBatchingQueryResult<Entity> findAllKeysetBatching(Query<Entity> q) {
+    return new KeysetBatchingQueryResult<Entity>(
+        BATCH_SIZE, q, entityType.getIdAttribute().getName()) {
+      @Override
+      protected List<Entity> getBatch(Query<Entity> batchQuery) {
+        return findAllBatch(batchQuery);
       }
     };
   }
 
+  private List<Entity> findAllBatch(Query<Entity> batchQuery) {
+    MrefFetchStrategy mrefFetchStrategy = MrefFetchStrategy.choose(entityType, batchQuery);
+    List<Object> parameters = new ArrayList<>();
+
+    boolean includeMrefs = mrefFetchStrategy == SUB_QUERY;
+    String sql = getSqlSelect(getEntityType(), batchQuery, parameters, includeMrefs);
+    RowMapper<Entity> entityMapper =
+        postgreSqlEntityFactory.createRowMapper(getEntityType(), batchQuery.getFetch());
+    LOG.debug("Fetching [{}] data for query [{}]", getName(), batchQuery);
+    LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+    Stopwatch sw = createStarted();
+    List<Entity> result =
+        jdbcTemplate.query(sql, parameters.toArray(new Object[parameters.size()]), entityMapper);
+    LOG.trace("That took {}", sw);
+
+    if (mrefFetchStrategy == JUNCTION_TABLE_BATCH && !result.isEmpty()) {
+      fetchJunctionTableValues(result, batchQuery.getFetch());
+    }
+    return result;
+  }
+
+  /**
+   * Selects the values of the fetched attributes persisted in junction tables for a batch of
+   * entities, with one query per attribute, and sets them on the entities.
+   */
+  private void fetchJunctionTableValues(List<Entity> entities, @Nullable Fetch fetch) {
+    AttributeType idAttributeDataType = entityType.getIdAttribute().getDataType();
+    Set<Object> ids =
+        entities.stream().map(Entity::getIdValue).collect(toCollection(LinkedHashSet::new));
+    getJunctionTableAttributes(entityType)
+        .filter(attr -> fetch == null || fetch.hasField(attr))
+        .forEach(
+            attr -> {
+              Multimap<Object, Object> refIds =
+                  selectMrefIDsForAttribute(
+                      entityType,
+                      idAttributeDataType,
+                      attr,
+                      ids,
+                      attr.getRefEntity().getIdAttribute().getDataType());
+              postgreSqlEntityFactory.setJunctionTableValues(entities, attr, refIds);
+            });
+  }
+
   private Integer addBatching(Iterator<? extends Entity> entities) {
     AtomicInteger count = new AtomicInteger();
 
@@ -510,6 +575,122 @@ class PostgreSqlRepository extends AbstractRepository {
     return count.get();
   }
 
+  private Integer addCopying(Iterator<? extends Entity> entities) {
+    AtomicInteger count = new AtomicInteger();
+
+    final Attribute idAttr = entityType.getIdAttribute();
+    final List<Attribute> tableAttrs = getTableAttributes(entityType).collect(toList());
+    final List<Attribute> junctionTableAttrs =
+        getJunctionTableAttributes(entityType).collect(toList());
+    final String copySql = getSqlCopy(entityType);
+
+    Iterators.partition(entities, COPY_BATCH_SIZE)
+        .forEachRemaining(
+            entitiesBatch -> {
+              if (LOG.isDebugEnabled()) {
+                LOG.debug("Copying {} [{}] entities", entitiesBatch.size(), getName());
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("SQL: {}", copySql);
+                }
+              }
+
+              // persist values in entity table
+              copy(
+                  copySql,
+                  writer -> {
+                    for (Entity entity : entitiesBatch) {
+                      for (Attribute attr : tableAttrs) {
+                        writer.writeValue(getPostgreSqlValue(entity, attr));
+                      }
+                      writer.endRow();
+                    }
+                  });
+
+              // persist values in entity junction tables
+              for (Attribute attr : junctionTableAttrs) {
+                copyMrefs(entitiesBatch, attr, idAttr);
+              }
+
+              count.addAndGet(entitiesBatch.size());
+            });
+
+    return count.get();
+  }
+
+  private void copyMrefs(List<? extends Entity> entities, Attribute attr, Attribute idAttr) {
+    String copyMrefSql = getSqlCopyJunction(entityType, attr);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Copying junction table entries for entity [{}] attribute [{}]",
+          getName(),
+          attr.getName());
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}", copyMrefSql);
+      }
+    }
+
+    try {
+      copy(
+          copyMrefSql,
+          writer -> {
+            for (Entity entity : entities) {
+              Iterable<Entity> refEntities = entity.getEntities(attr.getName());
+              // database doesn't validate NOT NULL constraint for attribute values referencing
+              // multiple entities, so validate it ourselves
+              if (!attr.isNillable() && Iterables.isEmpty(refEntities)) {
+                throw new MolgenisValidationException(
+                    new ConstraintViolation(
+                        format(
+                            "The attribute [%s] of entity [%s] with id [%s] can not be null.",
+                            attr.getName(), entityType.getId(), entity.getIdValue().toString())));
+              }
+
+              Object idValue = getPostgreSqlValue(entity, idAttr);
+              int seqNr = 0;
+              for (Entity refEntity : refEntities) {
+                writer.writeValue(seqNr++);
+                writer.writeValue(idValue);
+                writer.writeValue(
+                    getPostgreSqlValue(refEntity, refEntity.getEntityType().getIdAttribute()));
+                writer.endRow();
+              }
+            }
+          });
+    } catch (MolgenisValidationException mve) {
+      if (mve.getMessage().equals(VALUE_TOO_LONG_MSG)) {
+        mve =
+            new MolgenisValidationException(
+                new ConstraintViolation(
+                    format(
+                        "One of the mref values in entity type [%s] attribute [%s] is too long.",
+                        getEntityType().getId(), attr.getName())));
+      }
+      throw mve;
+    }
+  }
+
+  /**
+   * Executes a COPY FROM STDIN operation on the connection of the current transaction. SQL
+   * exceptions are translated by the exception translator of the {@link JdbcTemplate}.
+   */
+  private void copy(String copySql, CopyRowsWriter rowsWriter) {
+    jdbcTemplate.execute(
+        (ConnectionCallback<Long>)
+            connection -> {
+              CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+              try (PostgreSqlCopyWriter writer =
+                  new PostgreSqlCopyWriter(copyManager.copyIn(copySql))) {
+                rowsWriter.writeRows(writer);
+                return writer.endCopy();
+              }
+            });
+  }
+
+  @FunctionalInterface
+  private interface CopyRowsWriter {
+    void writeRows(PostgreSqlCopyWriter writer) throws SQLException;
+  }
+
   private static Map<String, List<Map<String, Object>>> createMrefMap(
       Attribute idAttr, List<Attribute> junctionTableAttrs, List<? extends Entity> entitiesBatch) {
     Map<String, List<Map<String, Object>>> mrefs =
@@ -681,6 +862,109 @@ class PostgreSqlRepository extends AbstractRepository {
         deleteMrefSql, new BatchJunctionTableDeletePreparedStatementSetter(ids));
   }
 
+  private void validateAggregateQuery(AggregateQuery aggregateQuery) {
+    Attribute attrX = aggregateQuery.getAttributeX();
+    if (attrX == null) {
+      throw new IllegalArgumentException(
+          "Aggregation requires at least one isAggregatable attribute");
+    }
+    validateAggregateAttribute(attrX);
+    Attribute attrY = aggregateQuery.getAttributeY();
+    if (attrY != null) {
+      validateAggregateAttribute(attrY);
+    }
+    Attribute attrDistinct = aggregateQuery.getAttributeDistinct();
+    if (attrDistinct != null && !isAggregateColumn(attrDistinct)) {
+      throw new UnsupportedOperationException(
+          format(
+              "Can't count distinct values of attribute [%s] of entity [%s]",
+              attrDistinct.getName(), getName()));
+    }
+  }
+
+  private void validateAggregateAttribute(Attribute attr) {
+    if (!attr.isAggregatable()) {
+      throw new IllegalArgumentException(
+          "Attribute is not isAggregatable [ " + attr.getName() + "]");
+    }
+    if (!isAggregateColumn(attr)) {
+      throw new UnsupportedOperationException(
+          format("Can't aggregate attribute [%s] of entity [%s]", attr.getName(), getName()));
+    }
+  }
+
+  private static boolean isAggregateColumn(Attribute attr) {
+    return attr.getExpression() == null && isTableAttribute(attr);
+  }
+
+  /** Maps an aggregate label, labels of reference attributes are mapped to the referenced id. */
+  private Object mapAggregateLabel(ResultSet resultSet, Attribute attr, String colName)
+      throws SQLException {
+    Attribute labelAttr =
+        isSingleReferenceType(attr) ? attr.getRefEntity().getIdAttribute() : attr;
+    return postgreSqlEntityFactory.mapValue(resultSet, labelAttr, colName);
+  }
+
+  private AggregateResult createAggregateResult(
+      Attribute attrX, @Nullable Attribute attrY, List<AggregateCount> aggregateCounts) {
+    List<Object> xLabels = getAggregateLabels(aggregateCounts, AggregateCount::getX);
+    List<Object> yLabels =
+        attrY != null ? getAggregateLabels(aggregateCounts, AggregateCount::getY) : emptyList();
+    Map<Object, Integer> xLabelIndices = getAggregateLabelIndices(xLabels);
+    Map<Object, Integer> yLabelIndices = getAggregateLabelIndices(yLabels);
+
+    int nrYLabels = attrY != null ? yLabels.size() : 1;
+    List<List<Long>> matrix = new ArrayList<>(xLabels.size());
+    for (int i = 0; i < xLabels.size(); ++i) {
+      List<Long> yValues = new ArrayList<>(nrYLabels);
+      for (int j = 0; j < nrYLabels; ++j) {
+        yValues.add(0L);
+      }
+      matrix.add(yValues);
+    }
+    for (AggregateCount aggregateCount : aggregateCounts) {
+      int yIndex = attrY != null ? yLabelIndices.get(aggregateCount.getY()) : 0;
+      matrix.get(xLabelIndices.get(aggregateCount.getX())).set(yIndex, aggregateCount.getCount());
+    }
+
+    if (isSingleReferenceType(attrX)) {
+      convertIdLabelsToEntities(xLabels, attrX.getRefEntity());
+    }
+    if (attrY != null && isSingleReferenceType(attrY)) {
+      convertIdLabelsToEntities(yLabels, attrY.getRefEntity());
+    }
+    return new AggregateResult(matrix, xLabels, yLabels);
+  }
+
+  private static List<Object> getAggregateLabels(
+      List<AggregateCount> aggregateCounts, Function<AggregateCount, Object> labelFunction) {
+    return aggregateCounts.stream()
+        .map(labelFunction)
+        .distinct()
+        .sorted(AGGREGATE_LABEL_COMPARATOR)
+        .collect(toCollection(ArrayList::new));
+  }
+
+  private static Map<Object, Integer> getAggregateLabelIndices(List<Object> labels) {
+    Map<Object, Integer> labelIndices = new HashMap<>();
+    for (int i = 0; i < labels.size(); ++i) {
+      labelIndices.put(labels.get(i), i);
+    }
+    return labelIndices;
+  }
+
+  /** Replaces the referenced id labels with (lazy) entities, keeps the missing value label. */
+  private void convertIdLabelsToEntities(List<Object> labels, EntityType refEntityType) {
+    List<Object> ids = labels.stream().filter(Objects::nonNull).collect(toList());
+    Iterator<Entity> entities =
+        postgreSqlEntityFactory.getReferences(refEntityType, ids).iterator();
+    for (int i = 0; i < labels.size(); ++i) {
+      if (labels.get(i) != null) {
+        labels.set(i, entities.next());
+      }
+    }
+  }
+
   private static class BatchAddPreparedStatementSetter implements BatchPreparedStatementSetter {
     private final List<? extends Entity> entities;
     private final List<Attribute> tableAttrs;
@@ -813,4 +1097,28 @@ class PostgreSqlRepository extends AbstractRepository {
       return entityIds.size();
     }
   }
+
+  private static class AggregateCount {
+    private final Object x;
+    private final Object y;
+    private final long count;
+
+    AggregateCount(Object x, Object y, long count) {
+      this.x = x;
+      this.y = y;
+      this.count = count;
+    }
+
+    Object getX() {
+      return x;
+    }
+
+    Object getY() {
+      return y;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
 }
@@ -5,6 +5,7 @@ import static java.lang.String.format;
 import static java.util.EnumSet.of;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.META_DATA_PERSISTABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.UPDATABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.WRITABLE;
@@ -36,6 +37,8 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropNo
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropTable;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropUniqueKey;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropUpdateTrigger;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsertSelect;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsertSelectJunction;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSetDataType;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSetNotNull;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpdate;
@@ -115,7 +118,7 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   @Override
   public Set<RepositoryCollectionCapability> getCapabilities() {
-    return immutableEnumSet(of(WRITABLE, UPDATABLE, META_DATA_PERSISTABLE));
+    return immutableEnumSet(of(WRITABLE, UPDATABLE, META_DATA_PERSISTABLE, COPYABLE));
   }
 
   @Override
@@ -194,6 +197,53 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
     //  no actions needed
   }
 
+  @Override
+  public void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    if (sourceEntityType.isAbstract()) {
+      throw new UnknownRepositoryException(sourceEntityType.getId());
+    }
+    if (targetEntityType.isAbstract()) {
+      throw new UnknownRepositoryException(targetEntityType.getId());
+    }
+
+    String sqlInsertSelect = getSqlInsertSelect(sourceEntityType, targetEntityType);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Copying entities from entity [{}] to entity [{}]",
+          sourceEntityType.getId(),
+          targetEntityType.getId());
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}", sqlInsertSelect);
+      }
+    }
+    jdbcTemplate.execute(sqlInsertSelect);
+
+    getJunctionTableAttributes(targetEntityType)
+        .forEach(targetAttr -> copyJunctionTable(sourceEntityType, targetEntityType, targetAttr));
+  }
+
+  private void copyJunctionTable(
+      EntityType sourceEntityType, EntityType targetEntityType, Attribute targetAttr) {
+    Attribute sourceAttr = sourceEntityType.getAttribute(targetAttr.getName());
+    if (sourceAttr == null) {
+      throw new UnknownAttributeException(sourceEntityType, targetAttr.getName());
+    }
+
+    String sqlInsertSelectJunction =
+        getSqlInsertSelectJunction(sourceEntityType, sourceAttr, targetEntityType, targetAttr);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Copying junction table entries from entity [{}] attribute [{}] to entity [{}]",
+          sourceEntityType.getId(),
+          sourceAttr.getName(),
+          targetEntityType.getId());
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}", sqlInsertSelectJunction);
+      }
+    }
+    jdbcTemplate.execute(sqlInsertSelectJunction);
+  }
+
   private void dropTables(EntityType entityType) {
     getJunctionTableAttributes(entityType)
         .forEach(mrefAttr -> dropJunctionTable(entityType, mrefAttr));
@@ -0,0 +1,273 @@
+package org.molgenis.data.postgresql.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import javax.sql.DataSource;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CacheInvalidationBus} that uses PostgreSQL LISTEN/NOTIFY to distribute cache
+ * invalidations to all application nodes connected to the same database.
+ *
+ * <p>Each node listens on a dedicated connection. After this connection is (re)established all
+ * local caches are invalidated, since notifications sent while the node was not listening are
+ * lost.
+ */
+public class PostgreSqlCacheInvalidationBus extends LocalCacheInvalidationBus
+    implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCacheInvalidationBus.class);
+
+  static final String CHANNEL = "molgenis_cache_invalidation";
+  /** PostgreSQL notification payloads must be shorter than 8000 bytes */
+  static final int MAX_PAYLOAD_BYTES = 7999;
+
+  private static final int POLL_TIMEOUT_MILLIS = 1000;
+  private static final int RECONNECT_DELAY_MILLIS = 5000;
+  private static final String COMPLETE = "*";
+  private static final String ENTITY_TYPE = "T";
+  private static final String ENTITY = "E";
+  private static final char SEPARATOR = '\t';
+  private static final char NEWLINE = '\n';
+
+  private final DataSource dataSource;
+  private final String nodeId;
+  private final ExecutorService listenerExecutorService;
+
+  private volatile boolean running;
+
+  public PostgreSqlCacheInvalidationBus(DataSource dataSource, String nodeId) {
+    this.dataSource = requireNonNull(dataSource);
+    this.nodeId = requireNonNull(nodeId);
+    this.listenerExecutorService =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-cache-invalidation-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  public void start() {
+    running = true;
+    listenerExecutorService.execute(this::listen);
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    listenerExecutorService.shutdownNow();
+  }
+
+  @Override
+  public void publish(CacheInvalidation cacheInvalidation) {
+    notifyListeners(cacheInvalidation);
+    if (!cacheInvalidation.isEmpty()) {
+      notifyOtherNodes(cacheInvalidation);
+    }
+  }
+
+  private void notifyOtherNodes(CacheInvalidation cacheInvalidation) {
+    String payload = serialize(nodeId, cacheInvalidation);
+    // use a connection that does not participate in the (committed) transaction
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+      statement.setString(1, CHANNEL);
+      statement.setString(2, payload);
+      statement.execute();
+    } catch (SQLException e) {
+      LOG.error("Error notifying other nodes of cache invalidation", e);
+    }
+  }
+
+  private void listen() {
+    boolean reconnect = false;
+    while (running) {
+      try (Connection connection = dataSource.getConnection()) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        if (reconnect) {
+          LOG.info("Reconnected cache invalidation listener, invalidating all caches");
+          notifyListeners(CacheInvalidation.complete());
+        }
+        reconnect = true;
+
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              handleNotification(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException e) {
+        if (running) {
+          LOG.error("Cache invalidation listener lost its connection, reconnecting", e);
+          sleepBeforeReconnect();
+        }
+      }
+    }
+  }
+
+  private void handleNotification(String payload) {
+    try {
+      CacheInvalidation cacheInvalidation = deserialize(nodeId, payload);
+      if (cacheInvalidation != null) {
+        notifyListeners(cacheInvalidation);
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Error handling cache invalidation '{}', invalidating all caches", payload, e);
+      notifyListeners(CacheInvalidation.complete());
+    }
+  }
+
+  private void sleepBeforeReconnect() {
+    try {
+      Thread.sleep(RECONNECT_DELAY_MILLIS);
+    } catch (InterruptedException e) {
+      running = false;
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Serializes a cache invalidation to a notification payload. Entity keys are widened to their
+   * entity type if the payload would otherwise exceed the maximum payload size, if that is not
+   * sufficient the payload invalidates all caches.
+   */
+  static String serialize(String nodeId, CacheInvalidation cacheInvalidation) {
+    if (!cacheInvalidation.isComplete()) {
+      Set<String> entityTypeIds = new LinkedHashSet<>(cacheInvalidation.getEntityTypeIds());
+      List<EntityKey> entityKeys = new ArrayList<>();
+      for (EntityKey entityKey : cacheInvalidation.getEntityKeys()) {
+        if (entityTypeIds.contains(entityKey.getEntityTypeId())) {
+          continue;
+        }
+        if (isSerializable(entityKey.getId())) {
+          entityKeys.add(entityKey);
+        } else {
+          entityTypeIds.add(entityKey.getEntityTypeId());
+        }
+      }
+
+      String payload = serialize(nodeId, entityTypeIds, entityKeys);
+      if (payload.getBytes(UTF_8).length <= MAX_PAYLOAD_BYTES) {
+        return payload;
+      }
+
+      entityKeys.forEach(entityKey -> entityTypeIds.add(entityKey.getEntityTypeId()));
+      payload = serialize(nodeId, entityTypeIds, new ArrayList<>());
+      if (payload.getBytes(UTF_8).length <= MAX_PAYLOAD_BYTES) {
+        return payload;
+      }
+    }
+    return nodeId + NEWLINE + COMPLETE;
+  }
+
+  private static String serialize(
+      String nodeId, Set<String> entityTypeIds, List<EntityKey> entityKeys) {
+    StringBuilder builder = new StringBuilder(nodeId);
+    entityTypeIds.forEach(
+        entityTypeId ->
+            builder.append(NEWLINE).append(ENTITY_TYPE).append(SEPARATOR).append(entityTypeId));
+    for (EntityKey entityKey : entityKeys) {
+      Object id = entityKey.getId();
+      builder
+          .append(NEWLINE)
+          .append(ENTITY)
+          .append(SEPARATOR)
+          .append(entityKey.getEntityTypeId())
+          .append(SEPARATOR)
+          .append(getIdType(id))
+          .append(SEPARATOR)
+          .append(id);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Deserializes a notification payload.
+   *
+   * @return cache invalidation or <code>null</code> if the notification originated from this node
+   */
+  @CheckForNull
+  static CacheInvalidation deserialize(String nodeId, String payload) {
+    String[] lines = payload.split(String.valueOf(NEWLINE));
+    if (lines[0].equals(nodeId)) {
+      return null;
+    }
+
+    Set<String> entityTypeIds = new LinkedHashSet<>();
+    List<EntityKey> entityKeys = new ArrayList<>();
+    for (int i = 1; i < lines.length; i++) {
+      String line = lines[i];
+      if (line.equals(COMPLETE)) {
+        return CacheInvalidation.complete();
+      }
+      String[] tokens = line.split(String.valueOf(SEPARATOR), 4);
+      switch (tokens[0]) {
+        case ENTITY_TYPE:
+          entityTypeIds.add(tokens[1]);
+          break;
+        case ENTITY:
+          entityKeys.add(EntityKey.create(tokens[1], toId(tokens[2], tokens[3])));
+          break;
+        default:
+          throw new IllegalArgumentException(
+              String.format("Unknown cache invalidation line '%s'", line));
+      }
+    }
+    return CacheInvalidation.create(entityTypeIds, entityKeys);
+  }
+
+  private static boolean isSerializable(Object id) {
+    if (id instanceof String) {
+      String stringId = (String) id;
+      return stringId.indexOf(NEWLINE) == -1 && stringId.indexOf(SEPARATOR) == -1;
+    }
+    return id instanceof Integer || id instanceof Long;
+  }
+
+  private static String getIdType(Object id) {
+    if (id instanceof Integer) {
+      return "I";
+    } else if (id instanceof Long) {
+      return "L";
+    } else {
+      return "S";
+    }
+  }
+
+  private static Object toId(String idType, String idValue) {
+    switch (idType) {
+      case "I":
+        return Integer.valueOf(idValue);
+      case "L":
+        return Long.valueOf(idValue);
+      case "S":
+        return idValue;
+      default:
+        throw new IllegalArgumentException(String.format("Unknown id type '%s'", idType));
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package org.molgenis.data.postgresql;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.MREF;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getJunctionTableName;
+import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getJunctionTableOrderColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getTableName;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCreateJunctionTableIndex;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlJunctionTableSelect;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Compares the {@link MrefFetchStrategy} strategies for selecting a page of rows from a table with
+ * a varying number of MREF attributes. Requires a PostgreSQL database, configured with the
+ * <code>db_uri</code>, <code>db_user</code> and <code>db_password</code> system properties. Run
+ * {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MrefFetchStrategyBenchmark {
+  private static final int NR_ROWS = 10000;
+  private static final int NR_REFS_PER_ROW = 5;
+
+  @Param({"1", "10", "50"})
+  private int nrMrefAttributes;
+
+  private JdbcTemplate jdbcTemplate;
+  private EntityType entityType;
+  private List<Attribute> mrefAttributes;
+  private Query<Entity> pageQuery;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource(
+            System.getProperty("db_uri", "jdbc:postgresql://localhost/molgenis_test"),
+            System.getProperty("db_user", "molgenis"),
+            System.getProperty("db_password", "molgenis"));
+    jdbcTemplate = new JdbcTemplate(dataSource);
+
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getName()).thenReturn("id");
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    List<Attribute> attributes = new ArrayList<>();
+    attributes.add(idAttribute);
+    mrefAttributes = new ArrayList<>();
+    for (int i = 0; i < nrMrefAttributes; i++) {
+      Attribute mrefAttribute = mock(Attribute.class);
+      when(mrefAttribute.getName()).thenReturn("mref" + i);
+      when(mrefAttribute.getDataType()).thenReturn(MREF);
+      mrefAttributes.add(mrefAttribute);
+    }
+    attributes.addAll(mrefAttributes);
+
+    entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("MrefFetchStrategyBenchmark");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getAttribute("id")).thenReturn(idAttribute);
+    when(entityType.getAtomicAttributes()).thenReturn(attributes);
+
+    pageQuery = new QueryImpl<>().pageSize(PostgreSqlRepository.BATCH_SIZE);
+
+    createTables(idAttribute);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (Attribute mrefAttribute : mrefAttributes) {
+      jdbcTemplate.execute("DROP TABLE " + getJunctionTableName(entityType, mrefAttribute));
+    }
+    jdbcTemplate.execute("DROP TABLE " + getTableName(entityType));
+  }
+
+  @Benchmark
+  public void subQuery(Blackhole blackhole) {
+    List<Object> parameters = new ArrayList<>();
+    String sql = getSqlSelect(entityType, pageQuery, parameters, true);
+    jdbcTemplate.query(
+        sql,
+        row -> {
+          blackhole.consume(row.getString(1));
+          for (int i = 0; i < nrMrefAttributes; i++) {
+            blackhole.consume(row.getArray(i + 2).getArray());
+          }
+        },
+        parameters.toArray());
+  }
+
+  @Benchmark
+  public void junctionTableBatch(Blackhole blackhole) {
+    List<Object> parameters = new ArrayList<>();
+    String sql = getSqlSelect(entityType, pageQuery, parameters, false);
+    List<String> ids =
+        jdbcTemplate.query(sql, (row, rowNum) -> row.getString(1), parameters.toArray());
+    for (Attribute mrefAttribute : mrefAttributes) {
+      jdbcTemplate.query(
+          getSqlJunctionTableSelect(entityType, mrefAttribute, ids.size()),
+          row -> {
+            blackhole.consume(row.getString(1));
+            blackhole.consume(row.getString(3));
+          },
+          ids.toArray());
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(MrefFetchStrategyBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  private void createTables(Attribute idAttribute) {
+    String tableName = getTableName(entityType);
+    String idColumnName = getColumnName(idAttribute);
+    jdbcTemplate.execute(
+        "CREATE TABLE " + tableName + " (" + idColumnName + " VARCHAR(255) PRIMARY KEY)");
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < NR_ROWS; i++) {
+      rows.add(new Object[] {"id" + i});
+    }
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO " + tableName + " (" + idColumnName + ") VALUES (?)", rows);
+
+    for (Attribute mrefAttribute : mrefAttributes) {
+      String junctionTableName = getJunctionTableName(entityType, mrefAttribute);
+      String mrefColumnName = getColumnName(mrefAttribute);
+      jdbcTemplate.execute(
+          "CREATE TABLE "
+              + junctionTableName
+              + " ("
+              + getJunctionTableOrderColumnName()
+              + " INT, "
+              + idColumnName
+              + " VARCHAR(255) NOT NULL, "
+              + mrefColumnName
+              + " VARCHAR(255) NOT NULL)");
+      jdbcTemplate.execute(getSqlCreateJunctionTableIndex(entityType, mrefAttribute));
+
+      List<Object[]> junctionRows = new ArrayList<>();
+      for (int i = 0; i < NR_ROWS; i++) {
+        for (int j = 0; j < NR_REFS_PER_ROW; j++) {
+          junctionRows.add(new Object[] {j, "id" + i, "ref" + j});
+        }
+      }
+      jdbcTemplate.batchUpdate(
+          "INSERT INTO "
+              + junctionTableName
+              + " ("
+              + getJunctionTableOrderColumnName()
+              + ", "
+              + idColumnName
+              + ", "
+              + mrefColumnName
+              + ") VALUES (?, ?, ?)",
+          junctionRows);
+    }
+    jdbcTemplate.execute("ANALYZE");
+  }
+}
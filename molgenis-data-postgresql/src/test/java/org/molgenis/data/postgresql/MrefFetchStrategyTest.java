@@ -0,0 +1,86 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Arrays.asList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.MREF;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.postgresql.MrefFetchStrategy.JUNCTION_TABLE_BATCH;
+import static org.molgenis.data.postgresql.MrefFetchStrategy.SUB_QUERY;
+import static org.testng.Assert.assertEquals;
+
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Sort;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MrefFetchStrategyTest {
+  private EntityType entityType;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = mock(Attribute.class);
+    when(mrefAttr.getName()).thenReturn("mref");
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+
+    entityType = mock(EntityType.class);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr));
+  }
+
+  @Test
+  public void testChoose() {
+    assertEquals(MrefFetchStrategy.choose(entityType, new QueryImpl<>()), JUNCTION_TABLE_BATCH);
+  }
+
+  @Test
+  public void testChooseFetchWithoutMref() {
+    QueryImpl<Entity> q = new QueryImpl<>();
+    q.fetch(new Fetch().field("id"));
+    assertEquals(MrefFetchStrategy.choose(entityType, q), SUB_QUERY);
+  }
+
+  @Test
+  public void testChooseFetchWithoutId() {
+    QueryImpl<Entity> q = new QueryImpl<>();
+    q.fetch(new Fetch().field("mref"));
+    assertEquals(MrefFetchStrategy.choose(entityType, q), SUB_QUERY);
+  }
+
+  @Test
+  public void testChooseSingleRow() {
+    assertEquals(MrefFetchStrategy.choose(entityType, new QueryImpl<>().pageSize(1)), SUB_QUERY);
+  }
+
+  @Test
+  public void testChooseIdLookup() {
+    assertEquals(MrefFetchStrategy.choose(entityType, new QueryImpl<>().eq("id", "0")), SUB_QUERY);
+  }
+
+  @Test
+  public void testChooseOtherLookup() {
+    assertEquals(
+        MrefFetchStrategy.choose(entityType, new QueryImpl<>().eq("mref", "0")),
+        JUNCTION_TABLE_BATCH);
+  }
+
+  @Test
+  public void testChooseSortOnMref() {
+    assertEquals(
+        MrefFetchStrategy.choose(entityType, new QueryImpl<>().sort(new Sort("mref"))), SUB_QUERY);
+  }
+
+  @Test
+  public void testChooseSortOnOtherAttribute() {
+    assertEquals(
+        MrefFetchStrategy.choose(entityType, new QueryImpl<>().sort(new Sort("id"))),
+        JUNCTION_TABLE_BATCH);
+  }
+}
@@ -0,0 +1,109 @@
+package org.molgenis.data.postgresql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import org.mockito.Mock;
+import org.molgenis.test.AbstractMockitoTest;
+import org.postgresql.copy.CopyIn;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class PostgreSqlCopyWriterTest extends AbstractMockitoTest {
+  @Mock private CopyIn copyIn;
+  private PostgreSqlCopyWriter postgreSqlCopyWriter;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    postgreSqlCopyWriter = new PostgreSqlCopyWriter(copyIn);
+  }
+
+  @DataProvider(name = "appendValueProvider")
+  public static Object[][] appendValueProvider() {
+    return new Object[][] {
+      {null, "\\N"},
+      {true, "t"},
+      {false, "f"},
+      {123, "123"},
+      {123L, "123"},
+      {1.5, "1.5"},
+      {LocalDate.of(2019, 1, 2), "2019-01-02"},
+      {OffsetDateTime.of(2019, 1, 2, 3, 4, 0, 0, UTC), "2019-01-02T03:04:00Z"},
+      {"str", "str"},
+      {"a\\b\tc\nd\re", "a\\\\b\\tc\\nd\\re"}
+    };
+  }
+
+  @Test(dataProvider = "appendValueProvider")
+  public void testAppendValue(Object value, String expectedText) {
+    StringBuilder builder = new StringBuilder();
+    PostgreSqlCopyWriter.appendValue(builder, value);
+    assertEquals(builder.toString(), expectedText);
+  }
+
+  @Test
+  public void testEndCopy() throws Exception {
+    ByteArrayOutputStream copyData = captureCopyData();
+    when(copyIn.endCopy()).thenReturn(2L);
+
+    postgreSqlCopyWriter.writeValue("id0");
+    postgreSqlCopyWriter.writeValue(null);
+    postgreSqlCopyWriter.endRow();
+    postgreSqlCopyWriter.writeValue("id1");
+    postgreSqlCopyWriter.writeValue(1);
+    postgreSqlCopyWriter.endRow();
+
+    assertEquals(postgreSqlCopyWriter.endCopy(), 2L);
+    assertEquals(new String(copyData.toByteArray(), UTF_8), "id0\t\\N\nid1\t1\n");
+  }
+
+  @Test
+  public void testEndRowFlushesFullBuffer() throws Exception {
+    ByteArrayOutputStream copyData = captureCopyData();
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < PostgreSqlCopyWriter.BUFFER_SIZE; i++) {
+      value.append('x');
+    }
+    postgreSqlCopyWriter.writeValue(value.toString());
+    postgreSqlCopyWriter.endRow();
+
+    assertEquals(copyData.size(), PostgreSqlCopyWriter.BUFFER_SIZE + 1);
+  }
+
+  @Test
+  public void testCloseCancelsActiveCopy() throws Exception {
+    when(copyIn.isActive()).thenReturn(true);
+    postgreSqlCopyWriter.close();
+    verify(copyIn).cancelCopy();
+  }
+
+  @Test
+  public void testCloseCompletedCopy() throws Exception {
+    postgreSqlCopyWriter.close();
+    verify(copyIn, never()).cancelCopy();
+  }
+
+  private ByteArrayOutputStream captureCopyData() throws Exception {
+    ByteArrayOutputStream copyData = new ByteArrayOutputStream();
+    doAnswer(
+            invocation -> {
+              copyData.write(
+                  invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+              return null;
+            })
+        .when(copyIn)
+        .writeToCopy(any(byte[].class), anyInt(), anyInt());
+    return copyData;
+  }
+}
@@ -10,6 +10,8 @@ import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 import java.sql.Array;
 import java.sql.ResultSet;
 import org.molgenis.data.Entity;
@@ -124,4 +126,30 @@ public class PostgreSqlEntityFactoryTest {
         postgreSqlEntityFactory.createRowMapper(entityType, null).mapRow(rs, rowNum), entity);
     verify(entity).set(xrefAttr, refEntity);
   }
+
+  @Test
+  public void setJunctionTableValues() {
+    EntityType refEntityType = mock(EntityType.class);
+    Attribute mrefAttr = mock(Attribute.class);
+    when(mrefAttr.getName()).thenReturn("mrefAttr");
+    when(mrefAttr.getRefEntity()).thenReturn(refEntityType);
+
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getIdValue()).thenReturn("id0");
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getIdValue()).thenReturn("id1");
+
+    Multimap<Object, Object> refIds = ArrayListMultimap.create();
+    refIds.put("id0", "refId1");
+    refIds.put("id0", "refId0");
+    Entity refEntity1 = mock(Entity.class);
+    Entity refEntity0 = mock(Entity.class);
+    when(entityManager.getReferences(refEntityType, newArrayList("refId1", "refId0")))
+        .thenReturn(newArrayList(refEntity1, refEntity0));
+
+    postgreSqlEntityFactory.setJunctionTableValues(
+        newArrayList(entity0, entity1), mrefAttr, refIds);
+    verify(entity0).set("mrefAttr", newArrayList(refEntity1, refEntity0));
+    verify(entity1).set("mrefAttr", null);
+  }
 }
@@ -3,12 +3,14 @@ package org.molgenis.data.postgresql;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.AND;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
 import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.meta.AttributeType.BOOL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL_MREF;
@@ -38,17 +40,22 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.molgenis.data.AclPermissionFilter;
+import org.molgenis.data.AclPermissionFilter.AclSid;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.Sort;
+import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode;
+import org.molgenis.data.support.AggregateQueryImpl;
 import org.molgenis.data.support.QueryImpl;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -426,6 +433,118 @@ public class PostgreSqlQueryGeneratorTest {
         "INSERT INTO \"entityTypeId#c34894ba_attr\" (\"order\",\"idAttr\",\"attr\") VALUES (?,?,?)");
   }
 
+  @Test
+  public void getSqlCopy() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(INT);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr, attr));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopy(entityType),
+        "COPY \"entityTypeId#c34894ba\" (\"idAttr\", \"attr\") FROM STDIN");
+  }
+
+  @Test
+  public void getSqlCopyJunction() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopyJunction(entityType, attr),
+        "COPY \"entityTypeId#c34894ba_attr\" (\"order\",\"idAttr\",\"attr\") FROM STDIN");
+  }
+
+  @Test
+  public void getSqlInsertSelect() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(INT);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetEntityType.getId()).thenReturn("entity");
+    when(targetEntityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr, attr));
+
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute sourceAttr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceEntityType.getId()).thenReturn("entityTypeId");
+    when(sourceEntityType.getAttribute("idAttr")).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("attr")).thenReturn(sourceAttr);
+
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlInsertSelect(sourceEntityType, targetEntityType),
+        "INSERT INTO \"entity#6844280e\" (\"idAttr\", \"attr\") SELECT \"idAttr\", \"attr\" FROM \"entityTypeId#c34894ba\"");
+  }
+
+  @Test(expectedExceptions = UnknownAttributeException.class)
+  public void getSqlInsertSelectUnknownSourceAttribute() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetEntityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    EntityType sourceEntityType = mock(EntityType.class);
+    PostgreSqlQueryGenerator.getSqlInsertSelect(sourceEntityType, targetEntityType);
+  }
+
+  @Test
+  public void getSqlInsertSelectJunction() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetEntityType.getId()).thenReturn("entity");
+    when(targetEntityType.getIdAttribute()).thenReturn(idAttr);
+
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute sourceAttr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceEntityType.getId()).thenReturn("entityTypeId");
+    when(sourceEntityType.getIdAttribute()).thenReturn(sourceIdAttr);
+
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlInsertSelectJunction(
+            sourceEntityType, sourceAttr, targetEntityType, attr),
+        "INSERT INTO \"entity#6844280e_attr\" (\"order\",\"idAttr\",\"attr\") SELECT \"order\",\"idAttr\",\"attr\" FROM \"entityTypeId#c34894ba_attr\"");
+  }
+
+  @Test
+  public void getSqlAggregate() {
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(attr);
+    List<Object> parameters = new ArrayList<>();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlAggregate(entityType, aggregateQuery, parameters),
+        "SELECT this.\"attr\" AS agg_x, COUNT(*) AS agg_count FROM \"entityTypeId#c34894ba\" AS this GROUP BY this.\"attr\"");
+    assertEquals(parameters, emptyList());
+  }
+
+  @Test
+  public void getSqlAggregateTwoDimensionalDistinct() {
+    Attribute xAttr = when(mock(Attribute.class).getName()).thenReturn("xAttr").getMock();
+    Attribute yAttr = when(mock(Attribute.class).getName()).thenReturn("yAttr").getMock();
+    Attribute distinctAttr =
+        when(mock(Attribute.class).getName()).thenReturn("distinctAttr").getMock();
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    AggregateQuery aggregateQuery =
+        new AggregateQueryImpl().attrX(xAttr).attrY(yAttr).attrDistinct(distinctAttr);
+    List<Object> parameters = new ArrayList<>();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlAggregate(entityType, aggregateQuery, parameters),
+        "SELECT this.\"xAttr\" AS agg_x, this.\"yAttr\" AS agg_y, COUNT(DISTINCT this.\"distinctAttr\") AS agg_count FROM \"entityTypeId#c34894ba\" AS this GROUP BY this.\"xAttr\", this.\"yAttr\"");
+    assertEquals(parameters, emptyList());
+  }
+
   @Test
   public void getSqlInsertJunctionInversedBy() {
     EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
@@ -1350,6 +1469,46 @@ public class PostgreSqlQueryGeneratorTest {
             + "(\"data_categories_filter3\".\"data_categories\" = ?  OR \"data_categories_filter4\".\"data_categories\" = ?))");
   }
 
+  @Test
+  public void getSqlWherePermitted() {
+    Attribute idAttribute = createIdAttribute("id");
+    EntityType entityType = createMockEntityWithIdAttribute("MyEntityType", idAttribute, "id");
+
+    AclPermissionFilter aclPermissionFilter =
+        AclPermissionFilter.create(
+            "entity-MyEntityType",
+            asList(AclSid.create(true, "user"), AclSid.create(false, "ROLE_USER")),
+            3);
+    QueryImpl<Entity> q =
+        new QueryImpl<>(
+            newArrayList(
+                new QueryRule("id", EQUALS, "value"),
+                new QueryRule(AND),
+                new QueryRule(PERMITTED, aclPermissionFilter)));
+
+    List<Object> parameters = Lists.newArrayList();
+
+    String sqlWhere =
+        PostgreSqlQueryGenerator.getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    assertEquals(
+        sqlWhere,
+        "this.\"id\" = ?  AND EXISTS (SELECT 1 FROM acl_object_identity acl_oi WHERE acl_oi.object_id_class = (SELECT acl_class.id FROM acl_class WHERE acl_class.class = ?) AND acl_oi.object_id_identity = CAST(this.\"id\" AS VARCHAR) AND (SELECT acl_e.granting FROM acl_entry acl_e JOIN acl_sid ON acl_sid.id = acl_e.sid WHERE acl_e.acl_object_identity = acl_oi.id AND (acl_e.mask & ?) <> 0 AND ((acl_sid.principal = ? AND acl_sid.sid = ?) OR (acl_sid.principal = ? AND acl_sid.sid = ?)) ORDER BY CASE WHEN acl_sid.principal = ? AND acl_sid.sid = ? THEN 0 WHEN acl_sid.principal = ? AND acl_sid.sid = ? THEN 1 END, acl_e.ace_order LIMIT 1) IS TRUE)");
+    assertEquals(
+        parameters,
+        asList(
+            "value",
+            "entity-MyEntityType",
+            3,
+            true,
+            "user",
+            false,
+            "ROLE_USER",
+            true,
+            "user",
+            false,
+            "ROLE_USER"));
+  }
+
   @Test
   public void testGetSqlUpdate() {
     String idAttributeName = "MyIdAttribute";
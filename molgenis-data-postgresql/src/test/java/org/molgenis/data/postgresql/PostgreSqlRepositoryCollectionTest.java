@@ -32,6 +32,7 @@ import org.molgenis.data.DataService;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.UnknownRepositoryException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -876,4 +877,43 @@ public class PostgreSqlRepositoryCollectionTest {
     verify(jdbcTemplate).execute("DROP TABLE \"entity#6844280e\"");
     verifyNoMoreInteractions(jdbcTemplate);
   }
+
+  @Test
+  public void copyEntities() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    EntityType targetEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(targetEntityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr));
+    when(targetEntityType.getIdAttribute()).thenReturn(idAttr);
+
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute sourceMrefAttr =
+        when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    when(sourceEntityType.getAttribute("idAttr")).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("mrefAttr")).thenReturn(sourceMrefAttr);
+    when(sourceEntityType.getIdAttribute()).thenReturn(sourceIdAttr);
+
+    postgreSqlRepoCollection.copyEntities(sourceEntityType, targetEntityType);
+    verify(jdbcTemplate)
+        .execute(
+            "INSERT INTO \"entity#6844280e\" (\"idAttr\") SELECT \"idAttr\" FROM \"entityTypeId#c34894ba\"");
+    verify(jdbcTemplate)
+        .execute(
+            "INSERT INTO \"entity#6844280e_mrefAttr\" (\"order\",\"idAttr\",\"mrefAttr\") SELECT \"order\",\"idAttr\",\"mrefAttr\" FROM \"entityTypeId#c34894ba_mrefAttr\"");
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
+  @Test(expectedExceptions = UnknownRepositoryException.class)
+  public void copyEntitiesAbstractSource() {
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    when(sourceEntityType.isAbstract()).thenReturn(true);
+    EntityType targetEntityType = mock(EntityType.class);
+    postgreSqlRepoCollection.copyEntities(sourceEntityType, targetEntityType);
+  }
 }
@@ -2,13 +2,18 @@ package org.molgenis.data.postgresql;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockitoSession;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -29,6 +34,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,13 +45,17 @@ import org.mockito.MockitoSession;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
+import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.AggregateQueryImpl;
+import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
@@ -174,6 +184,99 @@ public class PostgreSqlRepositoryTest {
     assertEquals(postgreSqlRepo.findAll(query).collect(toList()), singletonList(entity0));
   }
 
+  @Test
+  public void findAllQueryKeysetBatching() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("entityId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getId()).thenReturn("entityId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("entityId")).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
+
+    List<Entity> firstBatch = new ArrayList<>();
+    for (int i = 0; i < PostgreSqlRepository.BATCH_SIZE; i++) {
+      firstBatch.add(mock(Entity.class));
+    }
+    Entity lastEntity = firstBatch.get(PostgreSqlRepository.BATCH_SIZE - 1);
+    when(lastEntity.getIdValue()).thenReturn("lastId");
+    Entity entity = mock(Entity.class);
+
+    String firstSql =
+        "SELECT this.\"entityId\" FROM \"entityId#fc2928f6\" AS this ORDER BY \"entityId\" ASC LIMIT 1000";
+    when(jdbcTemplate.query(firstSql, new Object[] {}, rowMapper)).thenReturn(firstBatch);
+    String nextSql =
+        "SELECT this.\"entityId\" FROM \"entityId#fc2928f6\" AS this WHERE this.\"entityId\" > ? ORDER BY \"entityId\" ASC LIMIT 1000";
+    when(jdbcTemplate.query(nextSql, new Object[] {"lastId"}, rowMapper))
+        .thenReturn(singletonList(entity));
+
+    List<Entity> entities = postgreSqlRepo.findAll(new QueryImpl<>()).collect(toList());
+    assertEquals(entities.size(), PostgreSqlRepository.BATCH_SIZE + 1);
+    assertEquals(entities.get(PostgreSqlRepository.BATCH_SIZE), entity);
+  }
+
+  @Test
+  public void findAllQueryJunctionTableBatch() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("entityId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    Attribute refIdAttr = mock(Attribute.class);
+    when(refIdAttr.getDataType()).thenReturn(STRING);
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+
+    Attribute mrefAttr = mock(Attribute.class);
+    when(mrefAttr.getName()).thenReturn("mrefAttr");
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    when(mrefAttr.getRefEntity()).thenReturn(refEntityType);
+
+    when(entityType.getId()).thenReturn("entityId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("entityId")).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, mrefAttr));
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
+
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getIdValue()).thenReturn("id0");
+    String sql =
+        "SELECT this.\"entityId\", NULL AS \"mrefAttr\" FROM \"entityId#fc2928f6\" AS this ORDER BY \"entityId\" ASC LIMIT 1000";
+    when(jdbcTemplate.query(sql, new Object[] {}, rowMapper)).thenReturn(singletonList(entity0));
+
+    assertEquals(
+        postgreSqlRepo.findAll(new QueryImpl<>()).collect(toList()), singletonList(entity0));
+
+    String junctionTableSql =
+        "SELECT \"entityId\",\"order\",\"mrefAttr\" FROM \"entityId#fc2928f6_mrefAttr\" WHERE \"entityId\" in (?) ORDER BY \"entityId\",\"order\"";
+    verify(jdbcTemplate).query(eq(junctionTableSql), any(RowCallbackHandler.class), eq("id0"));
+    verify(postgreSqlEntityFactory)
+        .setJunctionTableValues(eq(singletonList(entity0)), eq(mrefAttr), any(Multimap.class));
+  }
+
+  @Test
+  public void testAddCopying() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = mock(Attribute.class);
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    when(mrefAttr.getName()).thenReturn("mrefAttr");
+
+    when(entityType.getId()).thenReturn("entity");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, mrefAttr));
+
+    int nrEntities = PostgreSqlRepository.BATCH_SIZE + 1;
+    Stream<Entity> entities = Stream.generate(() -> mock(Entity.class)).limit(nrEntities);
+    assertEquals(postgreSqlRepo.add(entities), Integer.valueOf(nrEntities));
+
+    // one COPY for the entity table and one for the junction table
+    verify(jdbcTemplate, times(2)).execute(any(ConnectionCallback.class));
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
   @Test
   public void testUpdateEntitiesExist() {
     Attribute idAttr = mock(Attribute.class);
@@ -302,4 +405,91 @@ public class PostgreSqlRepositoryTest {
             idType, refType, ArrayListMultimap.create());
     mrefIdRowCallbackHandler.processRow(mock(ResultSet.class));
   }
+
+  @Test
+  public void aggregate() throws SQLException {
+    Attribute xAttr = mock(Attribute.class);
+    when(xAttr.getName()).thenReturn("xAttr");
+    when(xAttr.getDataType()).thenReturn(STRING);
+    when(xAttr.isAggregatable()).thenReturn(true);
+    when(entityType.getId()).thenReturn("entity");
+
+    ResultSet resultSet = mock(ResultSet.class);
+    when(postgreSqlEntityFactory.mapValue(resultSet, xAttr, "agg_x")).thenReturn("b", null, "a");
+    when(resultSet.getLong("agg_count")).thenReturn(2L, 1L, 3L);
+    String sql =
+        "SELECT this.\"xAttr\" AS agg_x, COUNT(*) AS agg_count FROM \"entity#6844280e\" AS this GROUP BY this.\"xAttr\"";
+    doAnswer(invocation -> mapRows(invocation.getArgument(2), resultSet, 3))
+        .when(jdbcTemplate)
+        .query(eq(sql), any(Object[].class), any(RowMapper.class));
+
+    AggregateResult aggregateResult =
+        postgreSqlRepo.aggregate(new AggregateQueryImpl().attrX(xAttr));
+    assertEquals(
+        aggregateResult,
+        new AggregateResult(
+            asList(singletonList(3L), singletonList(2L), singletonList(1L)),
+            asList("a", "b", null),
+            emptyList()));
+  }
+
+  @Test
+  public void aggregateReferenceAttribute() throws SQLException {
+    Attribute xAttr = mock(Attribute.class);
+    when(xAttr.getName()).thenReturn("xAttr");
+    when(xAttr.getDataType()).thenReturn(STRING);
+    when(xAttr.isAggregatable()).thenReturn(true);
+    Attribute refIdAttr = mock(Attribute.class);
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    Attribute yAttr = mock(Attribute.class);
+    when(yAttr.getName()).thenReturn("yAttr");
+    when(yAttr.getDataType()).thenReturn(XREF);
+    when(yAttr.isAggregatable()).thenReturn(true);
+    when(yAttr.getRefEntity()).thenReturn(refEntityType);
+    when(entityType.getId()).thenReturn("entity");
+
+    ResultSet resultSet = mock(ResultSet.class);
+    when(postgreSqlEntityFactory.mapValue(resultSet, xAttr, "agg_x")).thenReturn("a", "b", "a");
+    when(postgreSqlEntityFactory.mapValue(resultSet, refIdAttr, "agg_y"))
+        .thenReturn("ref0", "ref0", null);
+    when(resultSet.getLong("agg_count")).thenReturn(2L, 1L, 4L);
+    String sql =
+        "SELECT this.\"xAttr\" AS agg_x, this.\"yAttr\" AS agg_y, COUNT(*) AS agg_count FROM \"entity#6844280e\" AS this GROUP BY this.\"xAttr\", this.\"yAttr\"";
+    doAnswer(invocation -> mapRows(invocation.getArgument(2), resultSet, 3))
+        .when(jdbcTemplate)
+        .query(eq(sql), any(Object[].class), any(RowMapper.class));
+    Entity refEntity = mock(Entity.class);
+    when(postgreSqlEntityFactory.getReferences(refEntityType, singletonList("ref0")))
+        .thenReturn(singletonList(refEntity));
+
+    AggregateResult aggregateResult =
+        postgreSqlRepo.aggregate(new AggregateQueryImpl().attrX(xAttr).attrY(yAttr));
+    assertEquals(
+        aggregateResult,
+        new AggregateResult(
+            asList(asList(2L, 4L), asList(1L, 0L)), asList("a", "b"), asList(refEntity, null)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void aggregateNotAggregatable() {
+    postgreSqlRepo.aggregate(new AggregateQueryImpl().attrX(mock(Attribute.class)));
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void aggregateMultipleReferenceAttribute() {
+    Attribute attr = mock(Attribute.class);
+    when(attr.getDataType()).thenReturn(MREF);
+    when(attr.isAggregatable()).thenReturn(true);
+    postgreSqlRepo.aggregate(new AggregateQueryImpl().attrX(attr));
+  }
+
+  private static List<Object> mapRows(RowMapper<?> rowMapper, ResultSet resultSet, int nrRows)
+      throws SQLException {
+    List<Object> rows = new ArrayList<>(nrRows);
+    for (int i = 0; i < nrRows; ++i) {
+      rows.add(rowMapper.mapRow(resultSet, i));
+    }
+    return rows;
+  }
 }
@@ -0,0 +1,77 @@
+package org.molgenis.data.postgresql.cache;
+
+import static com.google.common.base.Strings.repeat;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.molgenis.data.postgresql.cache.PostgreSqlCacheInvalidationBus.deserialize;
+import static org.molgenis.data.postgresql.cache.PostgreSqlCacheInvalidationBus.serialize;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.testng.annotations.Test;
+
+public class PostgreSqlCacheInvalidationBusTest {
+  @Test
+  public void testSerializeDeserialize() {
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(
+            singleton("entityType0"),
+            asList(
+                EntityKey.create("entityType1", "id"),
+                EntityKey.create("entityType1", 1),
+                EntityKey.create("entityType2", 2L)));
+    assertEquals(deserialize("node1", serialize("node0", cacheInvalidation)), cacheInvalidation);
+  }
+
+  @Test
+  public void testSerializeDeserializeComplete() {
+    CacheInvalidation cacheInvalidation = CacheInvalidation.complete();
+    assertEquals(deserialize("node1", serialize("node0", cacheInvalidation)), cacheInvalidation);
+  }
+
+  @Test
+  public void testDeserializeSameNode() {
+    assertNull(deserialize("node0", serialize("node0", CacheInvalidation.complete())));
+  }
+
+  @Test
+  public void testSerializeUnserializableId() {
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(emptySet(), singleton(EntityKey.create("entityType", "a\tb")));
+    assertEquals(
+        deserialize("node1", serialize("node0", cacheInvalidation)),
+        CacheInvalidation.create(singleton("entityType"), emptySet()));
+  }
+
+  @Test
+  public void testSerializeTooManyEntityKeys() {
+    List<EntityKey> entityKeys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      entityKeys.add(EntityKey.create("entityType", "id" + i));
+    }
+    CacheInvalidation cacheInvalidation = CacheInvalidation.create(emptySet(), entityKeys);
+    String payload = serialize("node0", cacheInvalidation);
+    assertTrue(payload.length() <= PostgreSqlCacheInvalidationBus.MAX_PAYLOAD_BYTES);
+    assertEquals(
+        deserialize("node1", payload),
+        CacheInvalidation.create(singleton("entityType"), emptySet()));
+  }
+
+  @Test
+  public void testSerializeTooManyEntityTypes() {
+    List<String> entityTypeIds = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      entityTypeIds.add(repeat("x", 10) + i);
+    }
+    CacheInvalidation cacheInvalidation = CacheInvalidation.create(entityTypeIds, emptySet());
+    assertEquals(
+        deserialize("node1", serialize("node0", cacheInvalidation)),
+        CacheInvalidation.complete());
+  }
+}
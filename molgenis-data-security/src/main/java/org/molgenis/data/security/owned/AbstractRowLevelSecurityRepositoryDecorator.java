@@ -14,6 +14,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
@@ -51,7 +53,7 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
   @Override
   public Iterator<E> iterator() {
     Iterable<E> iterable = () -> delegate().iterator();
-    return stream(iterable).filter(entity -> isActionPermitted(entity, READ)).iterator();
+    return filterPermittedBatched(stream(iterable), READ).iterator();
   }
 
   @Override
@@ -59,31 +61,38 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
     delegate()
         .forEachBatched(
             fetch,
-            entities ->
-                consumer.accept(
-                    entities.stream()
-                        .filter(entity -> isActionPermitted(entity, READ))
-                        .collect(toList())),
-            batchSize);
+            entities -> consumer.accept(filterPermitted(entities, READ)), batchSize);
   }
 
   @Override
   public long count() {
-    return findAllPermitted(COUNT).count();
+    return count(new QueryImpl<>());
   }
 
   @Override
   public long count(Query<E> q) {
+    Query<E> permittedQuery = createPermittedQuery(q, COUNT);
+    if (permittedQuery != null) {
+      return delegate().count(permittedQuery);
+    }
     return findAllPermitted(q, COUNT).count();
   }
 
   @Override
   public Stream<E> findAll(Query<E> q) {
+    Query<E> permittedQuery = createPermittedQuery(q, READ);
+    if (permittedQuery != null) {
+      return delegate().findAll(permittedQuery);
+    }
     return findAllPermitted(q, READ);
   }
 
   @Override
   public E findOne(Query<E> q) {
+    Query<E> permittedQuery = createPermittedQuery(q, READ);
+    if (permittedQuery != null) {
+      return delegate().findOne(permittedQuery);
+    }
     return findAllPermitted(q, READ).findFirst().orElse(null);
   }
 
@@ -108,14 +117,12 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
 
   @Override
   public Stream<E> findAll(Stream<Object> ids) {
-    Stream<E> entities = delegate().findAll(ids);
-    entities = entities.filter(entity -> isActionPermitted(entity, READ));
-    return entities;
+    return filterPermittedBatched(delegate().findAll(ids), READ);
   }
 
   @Override
   public Stream<E> findAll(Stream<Object> ids, Fetch fetch) {
-    return delegate().findAll(ids, fetch).filter(entity -> isActionPermitted(entity, READ));
+    return filterPermittedBatched(delegate().findAll(ids, fetch), READ);
   }
 
   @Override
@@ -224,15 +231,37 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
                 }));
   }
 
-  private Stream<E> findAllPermitted(Action action) {
-    return findAllPermitted(new QueryImpl<>(), action);
+  /**
+   * Returns a query for the underlying repository that only matches the entities of the given
+   * query for which the action is permitted, so that filtering, paging and counting is done by the
+   * underlying repository. Returns null if permissions can't be expressed as query, in which case
+   * the permission for each entity is checked instead.
+   */
+  @Nullable
+  @CheckForNull
+  protected Query<E> createPermittedQuery(Query<E> query, Action action) {
+    return null;
+  }
+
+  /**
+   * Returns the entities for which the action is permitted. Override to check the permissions of a
+   * batch of entities at once instead of one entity at a time.
+   */
+  protected List<E> filterPermitted(List<E> entities, Action action) {
+    return entities.stream().filter(entity -> isActionPermitted(entity, action)).collect(toList());
+  }
+
+  private Stream<E> filterPermittedBatched(Stream<E> entities, Action action) {
+    return stream(partition(entities.iterator(), BATCH_SIZE))
+        .flatMap(batch -> filterPermitted(batch, action).stream())
+        .onClose(entities::close);
   }
 
   private Stream<E> findAllPermitted(Query<E> query, Action action) {
     Query<E> qWithoutLimitOffset = new QueryImpl<>(query);
     qWithoutLimitOffset.offset(0).pageSize(Integer.MAX_VALUE);
     Stream<E> permittedEntityStream =
-        delegate().findAll(qWithoutLimitOffset).filter(entity -> isActionPermitted(entity, action));
+        filterPermittedBatched(delegate().findAll(qWithoutLimitOffset), action);
     if (query.getOffset() > 0) {
       permittedEntityStream = permittedEntityStream.skip(query.getOffset());
     }
@@ -1,21 +1,54 @@
 package org.molgenis.data.security.owned;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.QueryRule.Operator.DIS_MAX;
+import static org.molgenis.data.QueryRule.Operator.FUZZY_MATCH;
+import static org.molgenis.data.QueryRule.Operator.FUZZY_MATCH_NGRAM;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
+import static org.molgenis.data.QueryRule.Operator.SEARCH;
+import static org.molgenis.data.QueryRule.Operator.SHOULD;
+import static org.molgenis.data.QueryUtils.containsAnyOperator;
+import static org.molgenis.data.QueryUtils.containsComputedAttribute;
+import static org.molgenis.data.QueryUtils.containsNestedQueryRuleField;
+import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSystem;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.AclPermissionFilter;
+import org.molgenis.data.AclPermissionFilter.AclSid;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.Repository;
 import org.molgenis.data.security.EntityIdentity;
+import org.molgenis.data.security.EntityIdentityUtils;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.SidUtils;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.util.UnexpectedEnumException;
+import org.springframework.security.acls.domain.CumulativePermission;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * RepositoryDecorator that works on EntityTypes that are row-level secured. It is reponsible to
@@ -23,16 +56,26 @@ import org.springframework.security.acls.model.Sid;
  */
 public class RowLevelSecurityRepositoryDecorator
     extends AbstractRowLevelSecurityRepositoryDecorator<Entity> {
+  /** Operators that the underlying repository can only evaluate using the index */
+  private static final Set<Operator> INDEX_OPERATORS =
+      EnumSet.of(SEARCH, FUZZY_MATCH, FUZZY_MATCH_NGRAM, SHOULD, DIS_MAX);
+
   private final UserPermissionEvaluator userPermissionEvaluator;
   private final MutableAclService mutableAclService;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
+  private final PermissionRegistry permissionRegistry;
 
   RowLevelSecurityRepositoryDecorator(
       Repository<Entity> delegateRepository,
       UserPermissionEvaluator userPermissionEvaluator,
-      MutableAclService mutableAclService) {
+      MutableAclService mutableAclService,
+      SidRetrievalStrategy sidRetrievalStrategy,
+      PermissionRegistry permissionRegistry) {
     super(delegateRepository, mutableAclService);
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
   }
 
   @Override
@@ -50,6 +93,96 @@ public class RowLevelSecurityRepositoryDecorator
     throw new EntityPermissionDeniedException(getPermission(action), entity);
   }
 
+  /** Looks up the access control lists of all entities at once. */
+  @Override
+  protected List<Entity> filterPermitted(List<Entity> entities, Action action) {
+    if (entities.isEmpty()) {
+      return entities;
+    }
+    List<EntityIdentity> entityIdentities =
+        entities.stream().map(this::toEntityIdentity).collect(toList());
+    Set<ObjectIdentity> permittedEntityIdentities =
+        userPermissionEvaluator.getPermittedObjectIdentities(
+            entityIdentities, getPermission(action));
+
+    List<Entity> permittedEntities = new ArrayList<>(entities.size());
+    for (int i = 0; i < entities.size(); i++) {
+      if (permittedEntityIdentities.contains(entityIdentities.get(i))) {
+        permittedEntities.add(entities.get(i));
+      }
+    }
+    return permittedEntities;
+  }
+
+  /**
+   * Adds a {@link Operator#PERMITTED} rule to the query that lets the underlying repository join
+   * the entities with the access control lists of the current user. Returns null if the underlying
+   * repository can't evaluate the query, in which case the permission for each entity is checked.
+   */
+  @Nullable
+  @CheckForNull
+  @Override
+  protected Query<Entity> createPermittedQuery(Query<Entity> query, Action action) {
+    if (currentUserIsSuOrSystem()) {
+      return query;
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !isPermittedQuerySupported(query)) {
+      return null;
+    }
+
+    List<AclSid> aclSids =
+        sidRetrievalStrategy.getSids(authentication).stream()
+            .map(RowLevelSecurityRepositoryDecorator::toAclSid)
+            .filter(Objects::nonNull)
+            .collect(toList());
+    if (aclSids.isEmpty()) {
+      return null;
+    }
+    AclPermissionFilter aclPermissionFilter =
+        AclPermissionFilter.create(
+            EntityIdentityUtils.toType(getEntityType()),
+            aclSids,
+            getCumulativePermission(getPermission(action)).getMask());
+
+    QueryImpl<Entity> permittedQuery = new QueryImpl<>();
+    if (!query.getRules().isEmpty()) {
+      permittedQuery.addRule(new QueryRule(query.getRules()));
+      permittedQuery.and();
+    }
+    permittedQuery.addRule(new QueryRule(PERMITTED, aclPermissionFilter));
+    permittedQuery.setOffset(query.getOffset());
+    permittedQuery.setPageSize(query.getPageSize());
+    permittedQuery.setSort(query.getSort());
+    permittedQuery.setFetch(query.getFetch());
+    return permittedQuery;
+  }
+
+  private boolean isPermittedQuerySupported(Query<Entity> query) {
+    return delegate().getQueryOperators().contains(PERMITTED)
+        && !containsAnyOperator(query, INDEX_OPERATORS)
+        && !containsComputedAttribute(query, getEntityType())
+        && !containsNestedQueryRuleField(query);
+  }
+
+  @Nullable
+  @CheckForNull
+  private static AclSid toAclSid(Sid sid) {
+    if (sid instanceof PrincipalSid) {
+      return AclSid.create(true, ((PrincipalSid) sid).getPrincipal());
+    } else if (sid instanceof GrantedAuthoritySid) {
+      return AclSid.create(false, ((GrantedAuthoritySid) sid).getGrantedAuthority());
+    } else {
+      return null;
+    }
+  }
+
+  private CumulativePermission getCumulativePermission(EntityPermission entityPermission) {
+    CumulativePermission cumulativePermission = new CumulativePermission();
+    permissionRegistry.getPermissions(entityPermission).forEach(cumulativePermission::set);
+    return cumulativePermission;
+  }
+
   private boolean isActionPermitted(EntityIdentity entityIdentity, Action action) {
     if (action == Action.CREATE) {
       return true;
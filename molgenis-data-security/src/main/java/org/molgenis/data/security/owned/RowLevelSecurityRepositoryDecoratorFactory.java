@@ -2,12 +2,15 @@ package org.molgenis.data.security.owned;
 
 import static java.util.Objects.requireNonNull;
 
+import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.security.EntityIdentityUtils;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.stereotype.Component;
 
 /** @see RowLevelSecurityRepositoryDecorator */
@@ -16,30 +19,63 @@ public class RowLevelSecurityRepositoryDecoratorFactory {
   private final UserPermissionEvaluator userPermissionEvaluator;
   private final MutableAclService mutableAclService;
   private final MutableAclClassService mutableAclClassService;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
+  private final PermissionRegistry permissionRegistry;
 
   RowLevelSecurityRepositoryDecoratorFactory(
       UserPermissionEvaluator userPermissionEvaluator,
       MutableAclService mutableAclService,
-      MutableAclClassService mutableAclClassService) {
+      MutableAclClassService mutableAclClassService,
+      SidRetrievalStrategy sidRetrievalStrategy,
+      PermissionRegistry permissionRegistry) {
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
     this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
   }
 
+  /**
+   * Returns a decorated repository that applies row level security while row level security is
+   * enabled for the entity type. Row level security can be enabled and disabled while the decorated
+   * repository is in use, so this is checked on each repository call instead of once.
+   */
   public Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
-    Repository<Entity> decoratedRepository;
-    if (isRowLevelSecured(repository)) {
-      decoratedRepository =
-          new RowLevelSecurityRepositoryDecorator(
-              repository, userPermissionEvaluator, mutableAclService);
-    } else {
-      decoratedRepository = repository;
-    }
-    return decoratedRepository;
+    Repository<Entity> rowLevelSecurityRepository =
+        new RowLevelSecurityRepositoryDecorator(
+            repository,
+            userPermissionEvaluator,
+            mutableAclService,
+            sidRetrievalStrategy,
+            permissionRegistry);
+    String aclClass = EntityIdentityUtils.toType(repository.getEntityType());
+    return new RowLevelSecuritySwitchingRepositoryDecorator(
+        repository, rowLevelSecurityRepository, aclClass);
   }
 
-  private boolean isRowLevelSecured(Repository<Entity> repository) {
-    String aclClass = EntityIdentityUtils.toType(repository.getEntityType());
-    return mutableAclClassService.hasAclClass(aclClass);
+  /**
+   * Delegates to the row level security decorator or to the undecorated repository depending on
+   * whether the entity type currently has an ACL class.
+   */
+  private class RowLevelSecuritySwitchingRepositoryDecorator
+      extends AbstractRepositoryDecorator<Entity> {
+    private final Repository<Entity> rowLevelSecurityRepository;
+    private final String aclClass;
+
+    RowLevelSecuritySwitchingRepositoryDecorator(
+        Repository<Entity> delegateRepository,
+        Repository<Entity> rowLevelSecurityRepository,
+        String aclClass) {
+      super(delegateRepository);
+      this.rowLevelSecurityRepository = requireNonNull(rowLevelSecurityRepository);
+      this.aclClass = requireNonNull(aclClass);
+    }
+
+    @Override
+    protected Repository<Entity> delegate() {
+      return mutableAclClassService.hasAclClass(aclClass)
+          ? rowLevelSecurityRepository
+          : super.delegate();
+    }
   }
 }
@@ -1,18 +1,27 @@
 package org.molgenis.data.security.owned;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.security.EntityPermission.READ;
 import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.assertNull;
 
 import org.mockito.Mock;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTest;
 import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -20,35 +29,65 @@ public class RowLevelSecurityRepositoryDecoratorFactoryTest extends AbstractMock
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
   @Mock private MutableAclService mutableAclService;
   @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private SidRetrievalStrategy sidRetrievalStrategy;
+  @Mock private PermissionRegistry permissionRegistry;
   private RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecoratorFactory =
         new RowLevelSecurityRepositoryDecoratorFactory(
-            userPermissionEvaluator, mutableAclService, mutableAclClassService);
+            userPermissionEvaluator,
+            mutableAclService,
+            mutableAclClassService,
+            sidRetrievalStrategy,
+            permissionRegistry);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecoratorFactory() {
-    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null);
+    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null, null, null);
   }
 
   @Test
   public void testCreateDecoratedRepositoryRowLevelSecurityEnabled() {
     Repository<Entity> repository = getRepositoryMock();
     when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
-    assertTrue(
-        rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(repository)
-            instanceof RowLevelSecurityRepositoryDecorator);
+    when(userPermissionEvaluator.hasPermission(any(EntityIdentity.class), eq(READ)))
+        .thenReturn(false);
+    assertNull(
+        rowLevelSecurityRepositoryDecoratorFactory
+            .createDecoratedRepository(repository)
+            .findOneById("id"));
+    verify(repository, never()).findOneById("id");
   }
 
   @Test
   public void testCreateDecoratedRepositoryRowLevelSecurityDisabled() {
     Repository<Entity> repository = getRepositoryMock();
+    Entity entity = mock(Entity.class);
+    when(repository.findOneById("id")).thenReturn(entity);
     assertEquals(
-        rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(repository),
-        repository);
+        rowLevelSecurityRepositoryDecoratorFactory
+            .createDecoratedRepository(repository)
+            .findOneById("id"),
+        entity);
+    verifyZeroInteractions(userPermissionEvaluator);
+  }
+
+  @Test
+  public void testCreateDecoratedRepositoryRowLevelSecurityEnabledAfterCreation() {
+    Repository<Entity> repository = getRepositoryMock();
+    Entity entity = mock(Entity.class);
+    when(repository.findOneById("id")).thenReturn(entity);
+    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(false, true);
+    when(userPermissionEvaluator.hasPermission(any(EntityIdentity.class), eq(READ)))
+        .thenReturn(false);
+
+    Repository<Entity> decoratedRepository =
+        rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    assertEquals(decoratedRepository.findOneById("id"), entity);
+    assertNull(decoratedRepository.findOneById("id"));
   }
 
   private Repository<Entity> getRepositoryMock() {
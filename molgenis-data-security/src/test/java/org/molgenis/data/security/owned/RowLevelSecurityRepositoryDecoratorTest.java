@@ -3,6 +3,7 @@ package org.molgenis.data.security.owned;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
@@ -12,35 +13,49 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.QueryRule.Operator.AND;
+import static org.molgenis.data.QueryRule.Operator.EQUALS;
+import static org.molgenis.data.QueryRule.Operator.NESTED;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.security.EntityPermission.READ;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.molgenis.data.AclPermissionFilter;
+import org.molgenis.data.AclPermissionFilter.AclSid;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
 import org.springframework.test.context.ContextConfiguration;
@@ -57,18 +72,24 @@ public class RowLevelSecurityRepositoryDecoratorTest
   @Mock private Repository<Entity> delegateRepository;
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
   @Mock private MutableAclService mutableAclService;
+  @Mock private SidRetrievalStrategy sidRetrievalStrategy;
+  @Mock private PermissionRegistry permissionRegistry;
   private RowLevelSecurityRepositoryDecorator rowLevelSecurityRepositoryDecorator;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecorator =
         new RowLevelSecurityRepositoryDecorator(
-            delegateRepository, userPermissionEvaluator, mutableAclService);
+            delegateRepository,
+            userPermissionEvaluator,
+            mutableAclService,
+            sidRetrievalStrategy,
+            permissionRegistry);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecorator() {
-    new RowLevelSecurityRepositoryDecorator(null, null, null);
+    new RowLevelSecurityRepositoryDecorator(null, null, null, null, null);
   }
 
   @WithMockUser(username = USERNAME)
@@ -370,7 +391,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Entity entity = getEntityMock();
     when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(entity, rowLevelSecurityRepositoryDecorator.findOne(query));
   }
 
@@ -391,12 +414,60 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Entity entity = getEntityMock();
     when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(
         rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
         singletonList(entity));
   }
 
+  @WithMockUser(username = USERNAME)
+  @Test
+  public void testFindAllQueryPermittedQuery() {
+    Query<Entity> query = createPermittedQueryMocks();
+    Entity entity = mock(Entity.class);
+    when(delegateRepository.findAll(createExpectedPermittedQuery()))
+        .thenAnswer(invocation -> Stream.of(entity));
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
+        singletonList(entity));
+  }
+
+  @WithMockUser(username = USERNAME)
+  @Test
+  public void testFindAllQueryPermittedQueryNotSupported() {
+    when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(EQUALS, AND, NESTED));
+    Entity entity = getEntityMock();
+    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
+        .thenAnswer(invocation -> Stream.of(entity));
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(new QueryImpl<>()).collect(toList()),
+        singletonList(entity));
+  }
+
+  @WithMockUser(username = USERNAME, roles = "SU")
+  @Test
+  public void testFindAllQuerySuperuser() {
+    Query<Entity> query = new QueryImpl<>().pageSize(10);
+    Entity entity = mock(Entity.class);
+    when(delegateRepository.findAll(query)).thenAnswer(invocation -> Stream.of(entity));
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
+        singletonList(entity));
+  }
+
+  @WithMockUser(username = USERNAME)
+  @Test
+  public void testCountQueryPermittedQuery() {
+    Query<Entity> query = createPermittedQueryMocks();
+    when(delegateRepository.count(createExpectedPermittedQuery())).thenReturn(3L);
+    assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 3L);
+  }
+
   @Test
   public void testFindAllQueryPermissionDenied() {
     @SuppressWarnings("unchecked")
@@ -413,7 +484,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Object entityId = "entityId";
     Entity entity = getEntityMock();
     when(delegateRepository.findAll(any(Stream.class))).thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(
         rowLevelSecurityRepositoryDecorator.findAll(Stream.of(entityId)).collect(toList()),
         singletonList(entity));
@@ -438,7 +511,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Fetch fetch = mock(Fetch.class);
     when(delegateRepository.findAll(any(Stream.class), eq(fetch)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(
         rowLevelSecurityRepositoryDecorator.findAll(Stream.of(entityId), fetch).collect(toList()),
         singletonList(entity));
@@ -462,8 +537,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Entity entity = getEntityMock();
     when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), EntityPermission.READ))
-        .thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(rowLevelSecurityRepositoryDecorator.count(), 1L);
   }
 
@@ -482,8 +558,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
     Entity entity = getEntityMock();
     when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), EntityPermission.READ))
-        .thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 1L);
   }
 
@@ -501,7 +578,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
   public void testIterator() {
     Entity entity = getEntityMock();
     when(delegateRepository.iterator()).thenReturn(singletonList(entity).iterator());
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     assertEquals(
         newArrayList(rowLevelSecurityRepositoryDecorator.iterator()), singletonList(entity));
   }
@@ -526,7 +605,9 @@ public class RowLevelSecurityRepositoryDecoratorTest
             })
         .when(delegateRepository)
         .forEachBatched(eq(fetch), any(), eq(1000));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(
+            singletonList(new EntityIdentity(entity)), READ))
+        .thenReturn(singleton(new EntityIdentity(entity)));
     rowLevelSecurityRepositoryDecorator.forEachBatched(fetch, actualEntities::addAll, 1000);
     assertEquals(actualEntities, singletonList(entity));
   }
@@ -564,6 +645,37 @@ public class RowLevelSecurityRepositoryDecoratorTest
     rowLevelSecurityRepositoryDecorator.aggregate(aggregateQuery);
   }
 
+  private Query<Entity> createPermittedQueryMocks() {
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    when(entityType.getAttribute("attr")).thenReturn(mock(Attribute.class));
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    when(delegateRepository.getQueryOperators())
+        .thenReturn(EnumSet.of(EQUALS, AND, NESTED, PERMITTED));
+    List<Sid> sids = asList(new PrincipalSid(USERNAME), new GrantedAuthoritySid("ROLE_USER"));
+    when(sidRetrievalStrategy.getSids(any(Authentication.class))).thenReturn(sids);
+    when(permissionRegistry.getPermissions(READ)).thenReturn(singleton(PermissionSet.READ));
+
+    Query<Entity> query = new QueryImpl<>().eq("attr", "value");
+    query.offset(20).pageSize(10);
+    return query;
+  }
+
+  private static Query<Entity> createExpectedPermittedQuery() {
+    AclPermissionFilter aclPermissionFilter =
+        AclPermissionFilter.create(
+            "entity-entityTypeId",
+            asList(AclSid.create(true, USERNAME), AclSid.create(false, "ROLE_USER")),
+            PermissionSet.READ.getMask());
+    QueryImpl<Entity> expectedQuery =
+        new QueryImpl<>(
+            asList(
+                new QueryRule(singletonList(new QueryRule("attr", EQUALS, "value"))),
+                new QueryRule(AND),
+                new QueryRule(PERMITTED, aclPermissionFilter)));
+    return expectedQuery.setOffset(20).setPageSize(10);
+  }
+
   private Entity getEntityMock() {
     EntityType entityType = mock(EntityType.class);
     when(entityType.getId()).thenReturn("entityTypeId");
@@ -0,0 +1,18 @@
+package org.molgenis.data.validation;
+
+import java.util.Collection;
+
+/** Ids of the entities of an entity type that can be referenced by validated entities. */
+interface EntityIdSet {
+  /** Returns whether an entity with the given id exists or was added during validation. */
+  boolean contains(Object id);
+
+  /** Adds the id of a validated entity, so that subsequent entities can reference it. */
+  void add(Object id);
+
+  /**
+   * Prepares for {@link #contains(Object)} calls for the given ids, e.g. by retrieving them from
+   * the repository at once.
+   */
+  default void prefetch(Collection<Object> ids) {}
+}
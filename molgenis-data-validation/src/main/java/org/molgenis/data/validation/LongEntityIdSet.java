@@ -0,0 +1,99 @@
+package org.molgenis.data.validation;
+
+/**
+ * {@link EntityIdSet} for integer and long ids that holds all ids in memory. Ids are stored as
+ * primitive longs in an open addressing hash table, which takes a fraction of the memory of a set
+ * of boxed ids.
+ */
+class LongEntityIdSet implements EntityIdSet {
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private int mask;
+  private int size;
+  // zero marks an empty slot in the hash table and is stored separately
+  private boolean containsZero;
+
+  LongEntityIdSet(int expectedSize) {
+    allocate(getCapacity(expectedSize));
+  }
+
+  @Override
+  public boolean contains(Object id) {
+    if (!(id instanceof Integer || id instanceof Long)) {
+      return false;
+    }
+    long key = ((Number) id).longValue();
+    if (key == 0) {
+      return containsZero;
+    }
+    for (int i = hash(key); keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void add(Object id) {
+    if (!(id instanceof Integer || id instanceof Long)) {
+      throw new IllegalArgumentException(
+          String.format("Id [%s] is not an integer or long", id.getClass().getSimpleName()));
+    }
+    long key = ((Number) id).longValue();
+    if (key == 0) {
+      containsZero = true;
+    } else if (insert(key)) {
+      size++;
+      if (size * 2 > keys.length) {
+        rehash();
+      }
+    }
+  }
+
+  int size() {
+    return containsZero ? size + 1 : size;
+  }
+
+  private boolean insert(long key) {
+    int i = hash(key);
+    while (keys[i] != 0) {
+      if (keys[i] == key) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    return true;
+  }
+
+  private void rehash() {
+    long[] oldKeys = keys;
+    allocate(oldKeys.length * 2);
+    for (long key : oldKeys) {
+      if (key != 0) {
+        insert(key);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  private int hash(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /** Returns the power of two table size that keeps the load factor at or below one half. */
+  private static int getCapacity(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2L) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
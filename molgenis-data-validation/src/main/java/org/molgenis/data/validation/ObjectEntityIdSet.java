@@ -0,0 +1,24 @@
+package org.molgenis.data.validation;
+
+import static com.google.common.collect.Sets.newHashSetWithExpectedSize;
+
+import java.util.Set;
+
+/** {@link EntityIdSet} that holds all ids in memory. */
+class ObjectEntityIdSet implements EntityIdSet {
+  private final Set<Object> ids;
+
+  ObjectEntityIdSet(int expectedSize) {
+    ids = newHashSetWithExpectedSize(expectedSize);
+  }
+
+  @Override
+  public boolean contains(Object id) {
+    return ids.contains(id);
+  }
+
+  @Override
+  public void add(Object id) {
+    ids.add(id);
+  }
+}
@@ -90,6 +90,10 @@ public class QueryValidator {
             .getNestedRules()
             .forEach(nestedQueryRule -> validateQueryRule(nestedQueryRule, entityType));
         break;
+      case PERMITTED:
+        // reserved for row level security that applies the access control lists of the user
+        throw new MolgenisValidationException(
+            new ConstraintViolation(format("Query rule with operator [%s] not allowed", operator)));
       default:
         throw new UnexpectedEnumException(operator);
     }
@@ -0,0 +1,64 @@
+package org.molgenis.data.validation;
+
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * {@link EntityIdSet} that looks up ids in the repository instead of loading all ids beforehand.
+ * Only the ids of the current batch and the ids added during validation are kept in memory.
+ */
+class RepositoryEntityIdSet implements EntityIdSet {
+  private final DataService dataService;
+  private final String entityTypeId;
+  private final Fetch idFetch;
+  private final Set<Object> addedIds;
+  private Set<Object> prefetchedIds;
+  private Set<Object> existingIds;
+
+  RepositoryEntityIdSet(DataService dataService, EntityType entityType) {
+    this.dataService = requireNonNull(dataService);
+    this.entityTypeId = entityType.getId();
+    this.idFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    this.addedIds = new HashSet<>();
+    this.prefetchedIds = emptySet();
+    this.existingIds = emptySet();
+  }
+
+  @Override
+  public boolean contains(Object id) {
+    if (addedIds.contains(id) || existingIds.contains(id)) {
+      return true;
+    }
+    if (prefetchedIds.contains(id)) {
+      return false;
+    }
+    return dataService.findOneById(entityTypeId, id, idFetch) != null;
+  }
+
+  @Override
+  public void add(Object id) {
+    addedIds.add(id);
+  }
+
+  /** Retrieves the ids that were not added during validation with one repository query. */
+  @Override
+  public void prefetch(Collection<Object> ids) {
+    prefetchedIds = ids.stream().filter(id -> !addedIds.contains(id)).collect(toSet());
+    existingIds =
+        prefetchedIds.isEmpty()
+            ? emptySet()
+            : dataService
+                .findAll(entityTypeId, prefetchedIds.stream(), idFetch)
+                .map(Entity::getIdValue)
+                .collect(toSet());
+  }
+}
@@ -1,11 +1,13 @@
 package org.molgenis.data.validation;
 
+import static com.google.common.collect.Iterators.partition;
 import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.unmodifiableSet;
@@ -15,19 +17,24 @@ import static org.molgenis.data.RepositoryCapability.VALIDATE_NOTNULL_CONSTRAINT
 import static org.molgenis.data.RepositoryCapability.VALIDATE_READONLY_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_REFERENCE_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_UNIQUE_CONSTRAINT;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.LONG;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
-import java.io.IOException;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.DataConverter;
 import org.molgenis.data.DataService;
@@ -38,11 +45,16 @@ import org.molgenis.data.Repository;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
-import org.molgenis.util.HugeMap;
-import org.molgenis.util.HugeSet;
 import org.molgenis.validation.ConstraintViolation;
 
 public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<Entity> {
+  /** Maximum number of entities of which ids or unique values are loaded before validation */
+  private static final int MAX_PRELOADED_ENTITIES = 100_000;
+  /** Maximum number of entities with integer or long ids of which ids are loaded */
+  private static final int MAX_PRELOADED_LONG_IDS = 1_000_000;
+
+  private static final int BATCH_SIZE = 1000;
+
   private enum ValidationMode {
     ADD,
     UPDATE
@@ -65,34 +77,24 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
   @Override
   public void update(Entity entity) {
-    try (ValidationResource validationResource = new ValidationResource()) {
-      validate(entity, validationResource, ValidationMode.UPDATE);
-    }
+    validate(entity, new ValidationResource(), ValidationMode.UPDATE);
     delegate().update(entity);
   }
 
   @Override
   public void update(Stream<Entity> entities) {
-    try (ValidationResource validationResource = new ValidationResource()) {
-      entities = validate(entities, validationResource, ValidationMode.UPDATE);
-      delegate().update(entities);
-    }
+    delegate().update(validate(entities, new ValidationResource(), ValidationMode.UPDATE));
   }
 
   @Override
   public void add(Entity entity) {
-    try (ValidationResource validationResource = new ValidationResource()) {
-      validate(entity, validationResource, ValidationMode.ADD);
-    }
+    validate(entity, new ValidationResource(), ValidationMode.ADD);
     delegate().add(entity);
   }
 
   @Override
   public Integer add(Stream<Entity> entities) {
-    try (ValidationResource validationResource = new ValidationResource()) {
-      entities = validate(entities, validationResource, ValidationMode.ADD);
-      return delegate().add(entities);
-    }
+    return delegate().add(validate(entities, new ValidationResource(), ValidationMode.ADD));
   }
 
   @Override
@@ -137,13 +139,77 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     ValidationProfile validationProfile = new ValidationProfile().invoke();
 
-    // add validation operation to stream
-    return entities.filter(
-        entity -> {
-          validate(entity, validationResource, validationMode, validationProfile);
+    // add validation operation to stream, references and unique values that are not loaded
+    // beforehand are looked up per batch
+    return stream(partition(entities.iterator(), BATCH_SIZE))
+        .flatMap(
+            batch -> {
+              prefetch(batch, validationResource);
+              for (Entity entity : batch) {
+                validate(entity, validationResource, validationMode, validationProfile);
+              }
+              return batch.stream();
+            })
+        .onClose(entities::close);
+  }
+
+  /**
+   * Looks up the referenced entity ids and unique attribute values of a batch of entities that were
+   * not loaded beforehand with one query per referenced entity type and unique attribute.
+   */
+  private void prefetch(List<Entity> entities, ValidationResource validationResource) {
+    if (!validationResource.isPrefetchRequired()) {
+      return;
+    }
+
+    SetMultimap<String, Object> refEntitiesIds = HashMultimap.create();
+    for (Attribute refAttr : validationResource.getRefAttrs()) {
+      String refEntityTypeId = refAttr.getRefEntity().getId();
+      for (Entity entity : entities) {
+        getReferencedIds(entity, refAttr).forEach(id -> refEntitiesIds.put(refEntityTypeId, id));
+      }
+    }
+    refEntitiesIds
+        .asMap()
+        .forEach(
+            (refEntityTypeId, ids) ->
+                validationResource.getRefEntitiesIds().get(refEntityTypeId).prefetch(ids));
+
+    for (Attribute uniqueAttr : validationResource.getUniqueAttrs()) {
+      List<Object> values = new ArrayList<>(entities.size());
+      for (Entity entity : entities) {
+        Object value = getUniqueValue(entity, uniqueAttr);
+        if (value != null) {
+          values.add(value);
+        }
+      }
+      validationResource.getUniqueAttrsValues().get(uniqueAttr.getName()).prefetch(values);
+    }
+  }
 
-          return true;
-        });
+  /** Returns referenced ids, ignoring values of the wrong type which are reported later */
+  private static List<Object> getReferencedIds(Entity entity, Attribute refAttr) {
+    Object value = entity.get(refAttr.getName());
+    if (value instanceof Entity) {
+      return singletonList(((Entity) value).getIdValue());
+    } else if (value instanceof Iterable) {
+      return stream((Iterable<?>) value)
+          .filter(Entity.class::isInstance)
+          .map(refEntity -> ((Entity) refEntity).getIdValue())
+          .collect(toList());
+    } else {
+      return emptyList();
+    }
+  }
+
+  @Nullable
+  @CheckForNull
+  private static Object getUniqueValue(Entity entity, Attribute uniqueAttr) {
+    Object value = entity.get(uniqueAttr.getName());
+    if (value instanceof Entity) {
+      value = ((Entity) value).getIdValue();
+    }
+    return value;
   }
 
   private void validate(
@@ -232,23 +298,14 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     // get referenced entity ids
     if (!refAttrs.isEmpty()) {
-      Map<String, HugeSet<Object>> refEntitiesIds = new HashMap<>();
+      Map<String, EntityIdSet> refEntitiesIds = new HashMap<>();
       refAttrs.forEach(
           refAttr -> {
             EntityType refEntityType = refAttr.getRefEntity();
             String refEntityName = refEntityType.getId();
-            HugeSet<Object> refEntityIds = refEntitiesIds.get(refEntityName);
-            if (refEntityIds == null) {
-              refEntityIds = new HugeSet<>();
+            if (!refEntitiesIds.containsKey(refEntityName)) {
+              EntityIdSet refEntityIds = createEntityIdSet(refEntityType, validationResource);
               refEntitiesIds.put(refEntityName, refEntityIds);
-
-              Query<Entity> q =
-                  new QueryImpl<>()
-                      .fetch(new Fetch().field(refEntityType.getIdAttribute().getName()));
-              for (Iterator<Entity> it = dataService.findAll(refEntityName, q).iterator();
-                  it.hasNext(); ) {
-                refEntityIds.add(it.next().getIdValue());
-              }
             }
           });
 
@@ -261,6 +318,29 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     validationResource.setRefAttrs(refAttrs);
   }
 
+  /**
+   * Loads the ids of referenced entities into memory if the number of entities is small enough,
+   * otherwise ids are looked up per batch of validated entities.
+   */
+  private EntityIdSet createEntityIdSet(
+      EntityType refEntityType, ValidationResource validationResource) {
+    String refEntityName = refEntityType.getId();
+    Attribute refIdAttr = refEntityType.getIdAttribute();
+    boolean longIds = refIdAttr.getDataType() == INT || refIdAttr.getDataType() == LONG;
+
+    long count = dataService.count(refEntityName);
+    if (count > (longIds ? MAX_PRELOADED_LONG_IDS : MAX_PRELOADED_ENTITIES)) {
+      validationResource.setPrefetchRequired(true);
+      return new RepositoryEntityIdSet(dataService, refEntityType);
+    }
+
+    EntityIdSet refEntityIds =
+        longIds ? new LongEntityIdSet((int) count) : new ObjectEntityIdSet((int) count);
+    Query<Entity> q = new QueryImpl<>().fetch(new Fetch().field(refIdAttr.getName()));
+    dataService.findAll(refEntityName, q).forEach(entity -> refEntityIds.add(entity.getIdValue()));
+    return refEntityIds;
+  }
+
   private boolean isDifferentBackend(String backend, Attribute attr) {
     EntityType refEntity = attr.getRefEntity();
     String refEntityBackend = dataService.getMeta().getBackend(refEntity).getName();
@@ -275,34 +355,45 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               .filter(attr -> attr.isUnique() && attr.getExpression() == null)
               .collect(toList());
 
-      // get existing values for each attributes
+      // get existing values for each attributes, or look them up per batch for large repositories
       if (!uniqueAttrs.isEmpty()) {
-        Map<String, HugeMap<Object, Object>> uniqueAttrsValues = new HashMap<>();
-
-        Fetch fetch = new Fetch();
-        uniqueAttrs.forEach(
-            uniqueAttr -> {
-              uniqueAttrsValues.put(uniqueAttr.getName(), new HugeMap<>());
-              fetch.field(uniqueAttr.getName());
-            });
-
-        Query<Entity> q = new QueryImpl<>().fetch(fetch);
-        delegate()
-            .findAll(q)
-            .forEach(
-                entity ->
-                    uniqueAttrs.forEach(
-                        uniqueAttr -> {
-                          HugeMap<Object, Object> uniqueAttrValues =
-                              uniqueAttrsValues.get(uniqueAttr.getName());
-                          Object attrValue = entity.get(uniqueAttr.getName());
-                          if (attrValue != null) {
-                            if (isSingleReferenceType(uniqueAttr)) {
-                              attrValue = ((Entity) attrValue).getIdValue();
+        Map<String, UniqueAttributeValues> uniqueAttrsValues = new HashMap<>();
+
+        if (delegate().count() > MAX_PRELOADED_ENTITIES) {
+          uniqueAttrs.forEach(
+              uniqueAttr ->
+                  uniqueAttrsValues.put(
+                      uniqueAttr.getName(),
+                      UniqueAttributeValues.createLookup(delegate(), uniqueAttr)));
+          validationResource.setPrefetchRequired(true);
+        } else {
+          Fetch fetch = new Fetch();
+          uniqueAttrs.forEach(
+              uniqueAttr -> {
+                uniqueAttrsValues.put(
+                    uniqueAttr.getName(),
+                    UniqueAttributeValues.createPreloaded(delegate(), uniqueAttr));
+                fetch.field(uniqueAttr.getName());
+              });
+
+          Query<Entity> q = new QueryImpl<>().fetch(fetch);
+          delegate()
+              .findAll(q)
+              .forEach(
+                  entity ->
+                      uniqueAttrs.forEach(
+                          uniqueAttr -> {
+                            UniqueAttributeValues uniqueAttrValues =
+                                uniqueAttrsValues.get(uniqueAttr.getName());
+                            Object attrValue = entity.get(uniqueAttr.getName());
+                            if (attrValue != null) {
+                              if (isSingleReferenceType(uniqueAttr)) {
+                                attrValue = ((Entity) attrValue).getIdValue();
+                              }
+                              uniqueAttrValues.put(attrValue, entity.getIdValue());
                             }
-                            uniqueAttrValues.put(attrValue, entity.getIdValue());
-                          }
-                        }));
+                          }));
+        }
 
         validationResource.setUniqueAttrsValues(uniqueAttrsValues);
       }
@@ -369,9 +460,9 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
                   attrValue = ((Entity) attrValue).getIdValue();
                 }
 
-                HugeMap<Object, Object> uniqueAttrValues =
+                UniqueAttributeValues uniqueAttrValues =
                     validationResource.getUniqueAttrsValues().get(uniqueAttr.getName());
-                Object existingEntityId = uniqueAttrValues.get(attrValue);
+                Object existingEntityId = uniqueAttrValues.getEntityId(attrValue);
                 if ((validationMode == ValidationMode.ADD && existingEntityId != null)
                     || (validationMode == ValidationMode.UPDATE
                         && existingEntityId != null
@@ -395,7 +486,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
         .getRefAttrs()
         .forEach(
             refAttr -> {
-              HugeSet<Object> refEntityIds =
+              EntityIdSet refEntityIds =
                   validationResource.getRefEntitiesIds().get(refAttr.getRefEntity().getId());
 
               Iterable<Entity> refEntities;
@@ -482,15 +573,16 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
   }
 
   /** Container with validation data used during stream validation */
-  private static class ValidationResource implements AutoCloseable {
+  private static class ValidationResource {
     private AtomicInteger rowNr;
     private List<Attribute> requiredValueAttrs;
     private List<Attribute> refAttrs;
-    private Map<String, HugeSet<Object>> refEntitiesIds;
+    private Map<String, EntityIdSet> refEntitiesIds;
     private List<Attribute> uniqueAttrs;
-    private Map<String, HugeMap<Object, Object>> uniqueAttrsValues;
+    private Map<String, UniqueAttributeValues> uniqueAttrsValues;
     private List<Attribute> readonlyAttrs;
     private boolean selfReferencing;
+    private boolean prefetchRequired;
     private Set<ConstraintViolation> violations;
 
     ValidationResource() {
@@ -521,16 +613,16 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.refAttrs = refAttrs;
     }
 
-    Map<String, HugeSet<Object>> getRefEntitiesIds() {
+    Map<String, EntityIdSet> getRefEntitiesIds() {
       return refEntitiesIds != null ? unmodifiableMap(refEntitiesIds) : emptyMap();
     }
 
-    void setRefEntitiesIds(Map<String, HugeSet<Object>> refEntitiesIds) {
+    void setRefEntitiesIds(Map<String, EntityIdSet> refEntitiesIds) {
       this.refEntitiesIds = refEntitiesIds;
     }
 
     void addRefEntityId(String name, Object idValue) {
-      HugeSet<Object> refEntityIds = refEntitiesIds.get(name);
+      EntityIdSet refEntityIds = refEntitiesIds.get(name);
       // only add entity id if this validation run requires entity
       if (refEntityIds != null) {
         refEntityIds.add(idValue);
@@ -545,11 +637,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.uniqueAttrs = uniqueAttrs;
     }
 
-    Map<String, HugeMap<Object, Object>> getUniqueAttrsValues() {
+    Map<String, UniqueAttributeValues> getUniqueAttrsValues() {
       return uniqueAttrsValues != null ? unmodifiableMap(uniqueAttrsValues) : emptyMap();
     }
 
-    void setUniqueAttrsValues(Map<String, HugeMap<Object, Object>> uniqueAttrsValues) {
+    void setUniqueAttrsValues(Map<String, UniqueAttributeValues> uniqueAttrsValues) {
       this.uniqueAttrsValues = uniqueAttrsValues;
     }
 
@@ -569,6 +661,14 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       return selfReferencing;
     }
 
+    void setPrefetchRequired(boolean prefetchRequired) {
+      this.prefetchRequired = prefetchRequired;
+    }
+
+    boolean isPrefetchRequired() {
+      return prefetchRequired;
+    }
+
     boolean hasViolations() {
       return violations != null && !violations.isEmpty();
     }
@@ -583,28 +683,6 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     public Set<ConstraintViolation> getViolations() {
       return violations != null ? unmodifiableSet(violations) : emptySet();
     }
-
-    @Override
-    public void close() {
-      if (refEntitiesIds != null) {
-        for (HugeSet<Object> refEntityIds : refEntitiesIds.values()) {
-          try {
-            refEntityIds.close();
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        }
-      }
-      if (uniqueAttrsValues != null) {
-        for (HugeMap<Object, Object> uniqueAttrValues : uniqueAttrsValues.values()) {
-          try {
-            uniqueAttrValues.close();
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        }
-      }
-    }
   }
 
   private class ValidationProfile {
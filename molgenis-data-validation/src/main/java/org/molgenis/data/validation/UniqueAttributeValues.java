@@ -0,0 +1,106 @@
+package org.molgenis.data.validation;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.support.QueryImpl;
+
+/**
+ * Maps values of a unique attribute to the id of the entity that has the value. Values are either
+ * all loaded beforehand or looked up in the repository per batch of validated entities, in which
+ * case only the values of the current batch and the values added during validation are kept in
+ * memory.
+ */
+class UniqueAttributeValues {
+  private final Repository<Entity> repository;
+  private final Attribute attribute;
+  private final boolean preloaded;
+  private final Map<Object, Object> entityIds;
+  private Set<Object> prefetchedValues;
+  private Map<Object, Object> existingEntityIds;
+
+  private UniqueAttributeValues(
+      Repository<Entity> repository, Attribute attribute, boolean preloaded) {
+    this.repository = requireNonNull(repository);
+    this.attribute = requireNonNull(attribute);
+    this.preloaded = preloaded;
+    this.entityIds = new HashMap<>();
+    this.prefetchedValues = emptySet();
+    this.existingEntityIds = emptyMap();
+  }
+
+  /** Creates values that are populated by the caller using {@link #put(Object, Object)}. */
+  static UniqueAttributeValues createPreloaded(Repository<Entity> repository, Attribute attribute) {
+    return new UniqueAttributeValues(repository, attribute, true);
+  }
+
+  /** Creates values that are looked up in the repository. */
+  static UniqueAttributeValues createLookup(Repository<Entity> repository, Attribute attribute) {
+    return new UniqueAttributeValues(repository, attribute, false);
+  }
+
+  /** Returns the id of the entity with the given value or null if no entity has this value. */
+  @Nullable
+  @CheckForNull
+  Object getEntityId(Object value) {
+    Object entityId = entityIds.get(value);
+    if (entityId != null || preloaded) {
+      return entityId;
+    }
+    if (prefetchedValues.contains(value)) {
+      return existingEntityIds.get(value);
+    }
+    return findEntityIds(value).get(value);
+  }
+
+  void put(Object value, Object entityId) {
+    entityIds.put(value, entityId);
+  }
+
+  /** Retrieves the values that were not added during validation with one repository query. */
+  void prefetch(Collection<Object> values) {
+    if (preloaded) {
+      return;
+    }
+    prefetchedValues =
+        values.stream().filter(value -> !entityIds.containsKey(value)).collect(toSet());
+    existingEntityIds =
+        prefetchedValues.isEmpty() ? emptyMap() : findEntityIds(prefetchedValues.toArray());
+  }
+
+  private Map<Object, Object> findEntityIds(Object... values) {
+    String attributeName = attribute.getName();
+    String idAttributeName = repository.getEntityType().getIdAttribute().getName();
+    QueryImpl<Entity> query = new QueryImpl<>();
+    query.in(attributeName, asList(values));
+    query.fetch(new Fetch().field(idAttributeName).field(attributeName));
+
+    Map<Object, Object> foundEntityIds = new HashMap<>();
+    repository
+        .findAll(query)
+        .forEach(entity -> foundEntityIds.put(getValue(entity), entity.getIdValue()));
+    return foundEntityIds;
+  }
+
+  private Object getValue(Entity entity) {
+    Object value = entity.get(attribute.getName());
+    if (value != null && isSingleReferenceType(attribute)) {
+      value = ((Entity) value).getIdValue();
+    }
+    return value;
+  }
+}
@@ -0,0 +1,61 @@
+package org.molgenis.data.validation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class LongEntityIdSetTest {
+  @Test
+  public void testAddContains() {
+    LongEntityIdSet longEntityIdSet = new LongEntityIdSet(2);
+    for (long id = -100; id <= 100; id++) {
+      longEntityIdSet.add(id);
+    }
+    assertEquals(longEntityIdSet.size(), 201);
+    for (long id = -100; id <= 100; id++) {
+      assertTrue(longEntityIdSet.contains(id));
+    }
+    assertFalse(longEntityIdSet.contains(101L));
+    assertFalse(longEntityIdSet.contains(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void testAddDuplicate() {
+    LongEntityIdSet longEntityIdSet = new LongEntityIdSet(1);
+    longEntityIdSet.add(1L);
+    longEntityIdSet.add(1L);
+    longEntityIdSet.add(0L);
+    longEntityIdSet.add(0L);
+    assertEquals(longEntityIdSet.size(), 2);
+  }
+
+  @Test
+  public void testContainsInteger() {
+    LongEntityIdSet longEntityIdSet = new LongEntityIdSet(1);
+    longEntityIdSet.add(3);
+    assertTrue(longEntityIdSet.contains(3));
+    assertTrue(longEntityIdSet.contains(3L));
+  }
+
+  @Test
+  public void testContainsZero() {
+    LongEntityIdSet longEntityIdSet = new LongEntityIdSet(1);
+    assertFalse(longEntityIdSet.contains(0L));
+    longEntityIdSet.add(0L);
+    assertTrue(longEntityIdSet.contains(0L));
+  }
+
+  @Test
+  public void testContainsOtherType() {
+    LongEntityIdSet longEntityIdSet = new LongEntityIdSet(1);
+    longEntityIdSet.add(1L);
+    assertFalse(longEntityIdSet.contains("1"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAddOtherType() {
+    new LongEntityIdSet(1).add("1");
+  }
+}
@@ -1,6 +1,7 @@
 package org.molgenis.data.validation;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
@@ -12,6 +13,7 @@ import static org.molgenis.data.QueryRule.Operator.IN;
 import static org.molgenis.data.QueryRule.Operator.LESS;
 import static org.molgenis.data.QueryRule.Operator.LESS_EQUAL;
 import static org.molgenis.data.QueryRule.Operator.LIKE;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.QueryRule.Operator.RANGE;
 import static org.molgenis.data.meta.AttributeType.BOOL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
@@ -40,6 +42,8 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import org.molgenis.data.AclPermissionFilter;
+import org.molgenis.data.AclPermissionFilter.AclSid;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.Query;
@@ -285,6 +289,13 @@ public class QueryValidatorTest {
                     }));
     queries.add(new Object[] {new QueryImpl().eq("unknownAttr", "str"), createEntityType(STRING)});
     queries.add(new Object[] {new QueryImpl().eq("attr", "str"), createEntityType(COMPOUND)});
+    AclPermissionFilter aclPermissionFilter =
+        AclPermissionFilter.create(
+            "entity-MyEntityType", singletonList(AclSid.create(true, "user")), 1);
+    queries.add(
+        new Object[] {
+          new QueryImpl<>(new QueryRule(PERMITTED, aclPermissionFilter)), createEntityType(STRING)
+        });
     return queries.iterator();
   }
 
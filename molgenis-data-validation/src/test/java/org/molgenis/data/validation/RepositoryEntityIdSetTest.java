@@ -0,0 +1,67 @@
+package org.molgenis.data.validation;
+
+import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.stream.Stream;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RepositoryEntityIdSetTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private EntityType entityType;
+  @Mock private Attribute idAttribute;
+  private RepositoryEntityIdSet repositoryEntityIdSet;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(idAttribute.getName()).thenReturn("id");
+    repositoryEntityIdSet = new RepositoryEntityIdSet(dataService, entityType);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testPrefetch() {
+    Entity entity = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    when(dataService.findAll(any(), any(Stream.class), any(Fetch.class)))
+        .thenAnswer(invocation -> Stream.of(entity));
+
+    repositoryEntityIdSet.prefetch(asList("id0", "id1"));
+    assertTrue(repositoryEntityIdSet.contains("id0"));
+    assertFalse(repositoryEntityIdSet.contains("id1"));
+    verify(dataService).findAll(any(), any(Stream.class), any(Fetch.class));
+    verifyNoMoreInteractions(dataService);
+  }
+
+  @Test
+  public void testPrefetchAddedIds() {
+    repositoryEntityIdSet.add("id0");
+    repositoryEntityIdSet.prefetch(asList("id0"));
+    assertTrue(repositoryEntityIdSet.contains("id0"));
+    verifyNoMoreInteractions(dataService);
+  }
+
+  @Test
+  public void testContainsNotPrefetched() {
+    Fetch fetch = new Fetch().field("id");
+    when(dataService.findOneById("entityTypeId", "id0", fetch)).thenReturn(mock(Entity.class));
+    when(dataService.findOneById("entityTypeId", "id1", fetch)).thenReturn(null);
+    assertTrue(repositoryEntityIdSet.contains("id0"));
+    assertFalse(repositoryEntityIdSet.contains("id1"));
+  }
+}
@@ -4,8 +4,11 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -3877,4 +3880,72 @@ public class RepositoryValidationDecoratorTest {
         .validateEntitiesNotReferencedById(entityIdStream, entityType);
     repositoryValidationDecorator.deleteAll(entityIdStream);
   }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamLookupReferencesAndUniqueValues() {
+    when(dataService.count(refEntityName)).thenReturn(200_000L);
+    when(delegateRepository.count()).thenReturn(200_000L);
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenAnswer(invocation -> Stream.of(refEntity0));
+    when(delegateRepository.findAll(any(Query.class))).thenAnswer(invocation -> Stream.empty());
+
+    Entity entity0 = createLookupEntityMock(refEntity0);
+
+    repositoryValidationDecorator.add(Stream.of(entity0));
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(captor.capture());
+    assertEquals(captor.getValue().collect(toList()), singletonList(entity0));
+    verify(dataService, times(1))
+        .findAll(eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName)));
+    verify(dataService, never()).findAll(eq(refEntityName), any(Query.class));
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamLookupReferencesValidationError() {
+    when(dataService.count(refEntityName)).thenReturn(200_000L);
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenAnswer(invocation -> Stream.of(refEntity0));
+
+    Entity entity0 = createLookupEntityMock(refEntity1);
+
+    repositoryValidationDecorator.add(Stream.of(entity0));
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(captor.capture());
+    try {
+      captor.getValue().collect(toList());
+      throw new RuntimeException("Expected MolgenisValidationException instead of no exception");
+    } catch (MolgenisValidationException e) {
+      assertEquals(
+          e.getMessage(),
+          "Unknown xref value 'idref1' for attribute 'xrefAttr' of entity 'entity'. (entity 1)");
+    }
+  }
+
+  private Entity createLookupEntityMock(Entity xrefEntity) {
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(xrefEntity);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(xrefEntity);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+    return entity0;
+  }
 }
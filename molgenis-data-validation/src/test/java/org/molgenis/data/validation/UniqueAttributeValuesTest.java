@@ -0,0 +1,68 @@
+package org.molgenis.data.validation;
+
+import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.stream.Stream;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.Test;
+
+public class UniqueAttributeValuesTest extends AbstractMockitoTest {
+  @Mock private Repository<Entity> repository;
+  @Mock private Attribute attribute;
+
+  @Test
+  public void testGetEntityIdPreloaded() {
+    UniqueAttributeValues uniqueAttributeValues =
+        UniqueAttributeValues.createPreloaded(repository, attribute);
+    uniqueAttributeValues.put("value0", "id0");
+    uniqueAttributeValues.prefetch(asList("value0", "value1"));
+    assertEquals(uniqueAttributeValues.getEntityId("value0"), "id0");
+    assertNull(uniqueAttributeValues.getEntityId("value1"));
+    verifyNoMoreInteractions(repository);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testGetEntityIdLookup() {
+    when(attribute.getName()).thenReturn("attr");
+    when(attribute.getDataType()).thenReturn(STRING);
+    EntityType entityType = mock(EntityType.class);
+    Attribute idAttribute = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Entity entity = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    when(entity.get("attr")).thenReturn("value0");
+    when(repository.findAll(any(Query.class))).thenAnswer(invocation -> Stream.of(entity));
+
+    UniqueAttributeValues uniqueAttributeValues =
+        UniqueAttributeValues.createLookup(repository, attribute);
+    uniqueAttributeValues.prefetch(asList("value0", "value1"));
+    assertEquals(uniqueAttributeValues.getEntityId("value0"), "id0");
+    assertNull(uniqueAttributeValues.getEntityId("value1"));
+    verify(repository).findAll(any(Query.class));
+  }
+
+  @Test
+  public void testGetEntityIdLookupAddedValue() {
+    UniqueAttributeValues uniqueAttributeValues =
+        UniqueAttributeValues.createLookup(repository, attribute);
+    uniqueAttributeValues.put("value0", "id0");
+    uniqueAttributeValues.prefetch(asList("value0"));
+    assertEquals(uniqueAttributeValues.getEntityId("value0"), "id0");
+    verifyNoMoreInteractions(repository);
+  }
+}
@@ -90,6 +90,11 @@ public abstract class AbstractRepositoryCollectionDecorator extends ForwardingOb
     delegate().deleteAttribute(entityType, attr);
   }
 
+  @Override
+  public void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    delegate().copyEntities(sourceEntityType, targetEntityType);
+  }
+
   @Override
   public Iterator<Repository<Entity>> iterator() {
     return delegate().iterator();
@@ -0,0 +1,44 @@
+package org.molgenis.data;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * Value of a {@link QueryRule.Operator#PERMITTED} query rule: entities match if the access control
+ * list of the entity grants one of the permissions in the mask to the security identities.
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class AclPermissionFilter {
+  /** Access control list class of the entities, e.g. 'entity-myEntityTypeId' */
+  public abstract String getAclClass();
+
+  /** Security identities ordered by priority, the first identity with a matching entry decides */
+  public abstract ImmutableList<AclSid> getSids();
+
+  /** Permission bit mask, matches entries that have at least one of these bits */
+  public abstract int getMask();
+
+  public static AclPermissionFilter create(String aclClass, List<AclSid> sids, int mask) {
+    if (sids.isEmpty()) {
+      throw new IllegalArgumentException("sids cannot be empty");
+    }
+    return new AutoValue_AclPermissionFilter(aclClass, ImmutableList.copyOf(sids), mask);
+  }
+
+  /** Security identity: a principal (user name) or a granted authority (role). */
+  @AutoValue
+  @SuppressWarnings(
+      "squid:S1610") // Abstract classes without fields should be converted to interfaces
+  public abstract static class AclSid {
+    public abstract boolean isPrincipal();
+
+    public abstract String getSid();
+
+    public static AclSid create(boolean principal, String sid) {
+      return new AutoValue_AclPermissionFilter_AclSid(principal, sid);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package org.molgenis.data;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
+import static org.molgenis.data.decorator.meta.DecoratorParametersMetadata.DECORATOR_PARAMETERS;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches decorated repositories per entity type, so that the decorator chain of a repository is
+ * not rebuilt on every repository lookup.
+ *
+ * <p>Cached repositories are versioned with the metadata revision they were created in. The
+ * revision is incremented after a change to entity types, attributes or decorator configurations
+ * was committed on this or on another application node, after which repositories are rebuilt on
+ * first access. Transactions that changed metadata bypass the cache.
+ */
+@Component
+public class DecoratedRepositoryCache {
+  private static final Set<String> METADATA_ENTITY_TYPE_IDS =
+      ImmutableSet.of(
+          ENTITY_TYPE_META_DATA,
+          ATTRIBUTE_META_DATA,
+          DECORATOR_CONFIGURATION,
+          DECORATOR_PARAMETERS);
+
+  private final TransactionInformation transactionInformation;
+  private final ConcurrentMap<String, VersionedRepository> repositories;
+  private final AtomicLong revision;
+  private volatile boolean bootstrappingDone;
+
+  public DecoratedRepositoryCache(
+      TransactionInformation transactionInformation, CacheInvalidationBus cacheInvalidationBus) {
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.repositories = new ConcurrentHashMap<>();
+    this.revision = new AtomicLong();
+    cacheInvalidationBus.addListener(this::onCacheInvalidation);
+  }
+
+  /**
+   * Returns the cached decorated repository for an entity type or creates and caches a new one.
+   *
+   * @param entityTypeId entity type id
+   * @param repositorySupplier creates the decorated repository, may return null if the repository
+   *     does not exist
+   * @return decorated repository or null if the repository does not exist
+   */
+  @Nullable
+  public Repository<Entity> get(
+      String entityTypeId, Supplier<Repository<Entity>> repositorySupplier) {
+    if (!isCacheable()) {
+      return repositorySupplier.get();
+    }
+
+    long currentRevision = revision.get();
+    VersionedRepository versionedRepository = repositories.get(entityTypeId);
+    if (versionedRepository != null && versionedRepository.getRevision() == currentRevision) {
+      return versionedRepository.getRepository();
+    }
+
+    Repository<Entity> repository = repositorySupplier.get();
+    if (repository != null) {
+      repositories.put(entityTypeId, new VersionedRepository(repository, currentRevision));
+    }
+    return repository;
+  }
+
+  /** Discards all cached repositories. */
+  public void invalidate() {
+    revision.incrementAndGet();
+    repositories.clear();
+  }
+
+  @EventListener
+  public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    // the decorators of repositories created during bootstrapping differ from the final decorators
+    invalidate();
+    bootstrappingDone = bootstrappingEvent.getStatus() == FINISHED;
+  }
+
+  private void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()
+        || cacheInvalidation.getEntityTypeIds().stream().anyMatch(this::isMetadata)
+        || cacheInvalidation.getEntityKeys().stream()
+            .map(EntityKey::getEntityTypeId)
+            .anyMatch(this::isMetadata)) {
+      invalidate();
+    }
+  }
+
+  private boolean isCacheable() {
+    return bootstrappingDone
+        && transactionInformation.getDirtyRepositories().stream().noneMatch(this::isMetadata);
+  }
+
+  private boolean isMetadata(String entityTypeId) {
+    return METADATA_ENTITY_TYPE_IDS.contains(entityTypeId);
+  }
+
+  private static class VersionedRepository {
+    private final Repository<Entity> repository;
+    private final long revision;
+
+    VersionedRepository(Repository<Entity> repository, long revision) {
+      this.repository = requireNonNull(repository);
+      this.revision = revision;
+    }
+
+    Repository<Entity> getRepository() {
+      return repository;
+    }
+
+    long getRevision() {
+      return revision;
+    }
+  }
+}
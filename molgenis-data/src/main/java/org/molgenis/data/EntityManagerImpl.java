@@ -1,8 +1,8 @@
 package org.molgenis.data;
 
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.StreamSupport.stream;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.EntityManager.CreationMode.POPULATE;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
@@ -12,15 +12,23 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.populate.EntityPopulator;
@@ -28,30 +36,53 @@ import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.EntityWithComputedAttributes;
 import org.molgenis.data.support.PartialEntity;
 import org.molgenis.data.util.EntityTypeUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Entity manager responsible for creating entities, entity references and resolving references of
  * reference attributes.
+ *
+ * <p>References are resolved per batch of entities. Outside of a transaction, the entities of
+ * different referenced entity types are retrieved concurrently and the references of the next batch
+ * are resolved while the current batch is processed.
  */
 @Component
 public class EntityManagerImpl implements EntityManager {
-  private static final int BATCH_SIZE = 100;
+  private static final int MIN_BATCH_SIZE = 100;
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final int MAX_REFERENCES_PER_BATCH = 1000;
+  private static final ThreadLocal<Boolean> IS_RETRIEVAL_THREAD =
+      ThreadLocal.withInitial(() -> false);
 
   private final DataService dataService;
   private final EntityFactoryRegistry entityFactoryRegistry;
   private final EntityPopulator entityPopulator;
   private final EntityReferenceCreator entityReferenceCreator;
+  private final ExecutorService executorService;
 
   public EntityManagerImpl(
       DataService dataService,
       EntityFactoryRegistry entityFactoryRegistry,
       EntityPopulator entityPopulator,
-      EntityReferenceCreator entityReferenceCreator) {
+      EntityReferenceCreator entityReferenceCreator,
+      @Value("${reference_resolution_threads:4}") int referenceResolutionThreads) {
     this.dataService = requireNonNull(dataService);
     this.entityFactoryRegistry = requireNonNull(entityFactoryRegistry);
     this.entityPopulator = requireNonNull(entityPopulator);
     this.entityReferenceCreator = requireNonNull(entityReferenceCreator);
+    if (referenceResolutionThreads <= 0) {
+      throw new IllegalArgumentException("reference_resolution_threads must be greater than 0");
+    }
+    this.executorService =
+        Executors.newFixedThreadPool(
+            referenceResolutionThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-reference-resolution-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -136,98 +167,214 @@ public class EntityManagerImpl implements EntityManager {
       return entities;
     }
 
-    Iterable<List<Entity>> iterable = () -> Iterators.partition(entities.iterator(), BATCH_SIZE);
-    return Streams.stream(iterable)
-        .flatMap(
-            batch -> {
-              List<Entity> batchWithReferences = resolveReferences(resolvableAttrs, batch, fetch);
-              return batchWithReferences.stream();
-            });
+    Iterator<List<Entity>> batches =
+        Iterators.partition(entities.iterator(), getBatchSize(resolvableAttrs));
+    Iterator<List<Entity>> batchesWithReferences =
+        new PrefetchingBatchIterator(batches, resolvableAttrs, fetch);
+    return Streams.stream(batchesWithReferences).flatMap(List::stream).onClose(entities::close);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executorService.shutdownNow();
   }
 
   private List<Entity> resolveReferences(
       List<Attribute> resolvableAttrs, List<Entity> entities, Fetch fetch) {
-    // entity name --> entity ids
-    SetMultimap<String, Object> lazyRefEntityIdsMap =
-        HashMultimap.create(resolvableAttrs.size(), 16);
-    // entity name --> attributes referring to this entity
-    SetMultimap<String, Attribute> refEntityAttrsMap =
-        HashMultimap.create(resolvableAttrs.size(), 2);
-
-    // fill maps
-    for (Attribute attr : resolvableAttrs) {
-      String refEntityName = attr.getRefEntity().getId();
-
-      if (isSingleReferenceType(attr)) {
-        for (Entity entity : entities) {
-          Entity lazyRefEntity = entity.getEntity(attr.getName());
-          if (lazyRefEntity != null) {
-            lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
-          }
-        }
+    return new ReferenceResolution(resolvableAttrs, entities, fetch).get();
+  }
 
-      } else if (isMultipleReferenceType(attr)) {
-        for (Entity entity : entities) {
-          Iterable<Entity> lazyRefEntities = entity.getEntities(attr.getName());
-          for (Entity lazyRefEntity : lazyRefEntities) {
-            lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
-          }
-        }
-      }
+  /**
+   * Returns the number of entities per batch, so that a batch contains about the same number of
+   * references regardless of the number of reference attributes in the fetch.
+   */
+  private static int getBatchSize(List<Attribute> resolvableAttrs) {
+    int batchSize = MAX_REFERENCES_PER_BATCH / resolvableAttrs.size();
+    return Math.max(MIN_BATCH_SIZE, Math.min(batchSize, MAX_BATCH_SIZE));
+  }
 
-      refEntityAttrsMap.put(refEntityName, attr);
+  /**
+   * Referenced entities are retrieved on the caller thread within a transaction, because the
+   * transaction is bound to this thread, and for nested references that are resolved while
+   * retrieving referenced entities, to prevent waiting for tasks queued behind the current one.
+   */
+  private boolean isConcurrentRetrievalAllowed() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+        && !IS_RETRIEVAL_THREAD.get();
+  }
+
+  private Map<Object, Entity> findRefEntities(
+      String refEntityName, Collection<Object> refEntityIds, Fetch subFetch) {
+    Stream<Entity> refEntities =
+        dataService.findAll(refEntityName, refEntityIds.stream(), subFetch);
+    return refEntities.collect(Collectors.toMap(Entity::getIdValue, Function.identity()));
+  }
+
+  private Map<Object, Entity> findRefEntitiesOnRetrievalThread(
+      String refEntityName, Collection<Object> refEntityIds, Fetch subFetch) {
+    IS_RETRIEVAL_THREAD.set(true);
+    try {
+      return findRefEntities(refEntityName, refEntityIds, subFetch);
+    } finally {
+      IS_RETRIEVAL_THREAD.remove();
     }
+  }
 
-    // batch retrieve referred entities and replace entity references with actual entities
-    for (Entry<String, Collection<Object>> entry : lazyRefEntityIdsMap.asMap().entrySet()) {
-      String refEntityName = entry.getKey();
+  private static Map<Object, Entity> getRefEntities(Future<Map<Object, Entity>> refEntities) {
+    try {
+      return refEntities.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MolgenisDataException(cause);
+    }
+  }
+
+  /**
+   * Resolves the references of a batch of entities. The referenced entities of each referenced
+   * entity type are retrieved concurrently as soon as the resolution is created.
+   */
+  private class ReferenceResolution {
+    private final List<Entity> entities;
+    // entity name --> attributes referring to this entity
+    private final SetMultimap<String, Attribute> refEntityAttrsMap;
+    // entity name --> referenced entities by id
+    private final Map<String, Future<Map<Object, Entity>>> refEntitiesMap;
 
-      // create a fetch for the referenced entity which is a union of the fetches defined by
-      // attributes
-      // referencing this entity
-      Set<Attribute> attrs = refEntityAttrsMap.get(refEntityName);
-      Fetch subFetch = createSubFetch(fetch, attrs);
+    ReferenceResolution(List<Attribute> resolvableAttrs, List<Entity> entities, Fetch fetch) {
+      this.entities = entities;
+      this.refEntityAttrsMap = HashMultimap.create(resolvableAttrs.size(), 2);
+      this.refEntitiesMap = new LinkedHashMap<>();
 
-      // retrieve referenced entities
-      Stream<Entity> refEntities =
-          dataService.findAll(refEntityName, entry.getValue().stream(), subFetch);
+      // entity name --> entity ids
+      SetMultimap<String, Object> lazyRefEntityIdsMap =
+          HashMultimap.create(resolvableAttrs.size(), 16);
 
-      Map<Object, Entity> refEntitiesIdMap =
-          refEntities.collect(Collectors.toMap(Entity::getIdValue, Function.identity()));
+      // fill maps
+      for (Attribute attr : resolvableAttrs) {
+        String refEntityName = attr.getRefEntity().getId();
 
-      for (Attribute attr : attrs) {
         if (isSingleReferenceType(attr)) {
-          String attrName = attr.getName();
           for (Entity entity : entities) {
-            Entity lazyRefEntity = entity.getEntity(attrName);
+            Entity lazyRefEntity = entity.getEntity(attr.getName());
             if (lazyRefEntity != null) {
-              // replace lazy entity with real entity
-              Object refEntityId = lazyRefEntity.getIdValue();
-              Entity refEntity = refEntitiesIdMap.get(refEntityId);
-              entity.set(attrName, refEntity);
+              lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
             }
           }
+
         } else if (isMultipleReferenceType(attr)) {
-          String attrName = attr.getName();
           for (Entity entity : entities) {
-            // replace lazy entities with real entities
-            Iterable<Entity> lazyRefEntities = entity.getEntities(attrName);
-            List<Entity> mrefEntities =
-                stream(lazyRefEntities.spliterator(), true)
-                    .map(
-                        lazyRefEntity -> {
-                          // replace lazy entity with real entity
-                          Object refEntityId = lazyRefEntity.getIdValue();
-                          return refEntitiesIdMap.get(refEntityId);
-                        })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            entity.set(attrName, mrefEntities);
+            Iterable<Entity> lazyRefEntities = entity.getEntities(attr.getName());
+            for (Entity lazyRefEntity : lazyRefEntities) {
+              lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
+            }
+          }
+        }
+
+        refEntityAttrsMap.put(refEntityName, attr);
+      }
+
+      // batch retrieve referred entities
+      boolean concurrent = isConcurrentRetrievalAllowed();
+      for (Entry<String, Collection<Object>> entry : lazyRefEntityIdsMap.asMap().entrySet()) {
+        String refEntityName = entry.getKey();
+        Collection<Object> refEntityIds = entry.getValue();
+
+        // create a fetch for the referenced entity which is a union of the fetches defined by
+        // attributes referencing this entity
+        Fetch subFetch = createSubFetch(fetch, refEntityAttrsMap.get(refEntityName));
+
+        Future<Map<Object, Entity>> refEntities;
+        if (concurrent) {
+          refEntities =
+              executorService.submit(
+                  new DelegatingSecurityContextCallable<>(
+                      () ->
+                          findRefEntitiesOnRetrievalThread(refEntityName, refEntityIds, subFetch)));
+        } else {
+          refEntities = immediateFuture(findRefEntities(refEntityName, refEntityIds, subFetch));
+        }
+        refEntitiesMap.put(refEntityName, refEntities);
+      }
+    }
+
+    /** Waits for the referenced entities and replaces entity references with actual entities. */
+    List<Entity> get() {
+      for (Entry<String, Future<Map<Object, Entity>>> entry : refEntitiesMap.entrySet()) {
+        Map<Object, Entity> refEntitiesIdMap = getRefEntities(entry.getValue());
+
+        for (Attribute attr : refEntityAttrsMap.get(entry.getKey())) {
+          if (isSingleReferenceType(attr)) {
+            String attrName = attr.getName();
+            for (Entity entity : entities) {
+              Entity lazyRefEntity = entity.getEntity(attrName);
+              if (lazyRefEntity != null) {
+                // replace lazy entity with real entity
+                Object refEntityId = lazyRefEntity.getIdValue();
+                Entity refEntity = refEntitiesIdMap.get(refEntityId);
+                entity.set(attrName, refEntity);
+              }
+            }
+          } else if (isMultipleReferenceType(attr)) {
+            String attrName = attr.getName();
+            for (Entity entity : entities) {
+              // replace lazy entities with real entities
+              List<Entity> mrefEntities =
+                  Streams.stream(entity.getEntities(attrName))
+                      .map(lazyRefEntity -> refEntitiesIdMap.get(lazyRefEntity.getIdValue()))
+                      .filter(Objects::nonNull)
+                      .collect(Collectors.toList());
+              entity.set(attrName, mrefEntities);
+            }
           }
         }
       }
+      return entities;
+    }
+  }
+
+  /**
+   * Starts resolving the references of the next batch before the current batch is returned, so that
+   * referenced entities of the next batch are retrieved while the current batch is processed. At
+   * most two batches are held in memory.
+   */
+  private class PrefetchingBatchIterator implements Iterator<List<Entity>> {
+    private final Iterator<List<Entity>> batches;
+    private final List<Attribute> resolvableAttrs;
+    private final Fetch fetch;
+    private ReferenceResolution nextResolution;
+
+    PrefetchingBatchIterator(
+        Iterator<List<Entity>> batches, List<Attribute> resolvableAttrs, Fetch fetch) {
+      this.batches = batches;
+      this.resolvableAttrs = resolvableAttrs;
+      this.fetch = fetch;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextResolution != null || batches.hasNext();
+    }
+
+    @Override
+    public List<Entity> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ReferenceResolution resolution =
+          nextResolution != null ? nextResolution : startResolution(batches.next());
+      nextResolution = batches.hasNext() ? startResolution(batches.next()) : null;
+      return resolution.get();
+    }
+
+    private ReferenceResolution startResolution(List<Entity> batch) {
+      return new ReferenceResolution(resolvableAttrs, batch, fetch);
     }
-    return entities;
   }
 
   private static Fetch createSubFetch(Fetch fetch, Iterable<Attribute> attrs) {
@@ -114,7 +114,13 @@ public class QueryRule {
     FUZZY_MATCH("FUZZY_MATCH"),
 
     /** Fuzzy match operator */
-    FUZZY_MATCH_NGRAM("FUZZY_MATCH_NGRAM");
+    FUZZY_MATCH_NGRAM("FUZZY_MATCH_NGRAM"),
+
+    /**
+     * entity is permitted by its access control list, 'value' is an {@link AclPermissionFilter}.
+     * The parameter 'field' is omitted. Only used by row level security, not by clients.
+     */
+    PERMITTED("PERMITTED");
 
     private String label;
 
@@ -159,7 +165,7 @@ public class QueryRule {
   /** Specific constructor for rules that do not apply to a field such as LIMIT and OFFSET. */
   @SuppressWarnings("unchecked")
   public QueryRule(Operator operator, Object value) {
-    if (operator == Operator.SEARCH) {
+    if (operator == Operator.SEARCH || operator == Operator.PERMITTED) {
       this.operator = operator;
       setValue(value);
     } else if (Operator.NESTED.equals(operator)) {
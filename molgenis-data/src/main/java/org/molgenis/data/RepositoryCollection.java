@@ -104,4 +104,18 @@ public interface RepositoryCollection extends Iterable<Repository<Entity>> {
    *     RepositoryCollectionCapability#UPDATABLE}
    */
   void deleteAttribute(EntityType entityType, Attribute attr);
+
+  /**
+   * Copies all entities of a repository to another repository of this repository collection
+   * within the backend. Attributes of the target entity type are matched by name with the
+   * attributes of the source entity type, entity identifiers are preserved.
+   *
+   * @param sourceEntityType entity meta data of the repository to copy entities from
+   * @param targetEntityType entity meta data of the empty repository to copy entities to
+   * @throws UnsupportedOperationException if this repository collection is not {@link
+   *     RepositoryCollectionCapability#COPYABLE}
+   */
+  default void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    throw new UnsupportedOperationException();
+  }
 }
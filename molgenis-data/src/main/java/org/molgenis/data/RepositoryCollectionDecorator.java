@@ -8,15 +8,21 @@ import java.util.Iterator;
 import java.util.stream.StreamSupport;
 import org.molgenis.data.meta.model.EntityType;
 
-/** Applies {@link Repository} decorators to all {@link RepositoryCollection} repositories. */
+/**
+ * Applies {@link Repository} decorators to all {@link RepositoryCollection} repositories. Decorated
+ * repositories retrieved by id or entity type are cached in the {@link DecoratedRepositoryCache}.
+ */
 public class RepositoryCollectionDecorator extends AbstractRepositoryCollectionDecorator {
   private final RepositoryDecoratorFactory repositoryDecoratorFactory;
+  private final DecoratedRepositoryCache decoratedRepositoryCache;
 
   public RepositoryCollectionDecorator(
       RepositoryCollection delegateRepositoryCollection,
-      RepositoryDecoratorFactory repositoryDecoratorFactory) {
+      RepositoryDecoratorFactory repositoryDecoratorFactory,
+      DecoratedRepositoryCache decoratedRepositoryCache) {
     super(delegateRepositoryCollection);
     this.repositoryDecoratorFactory = requireNonNull(repositoryDecoratorFactory);
+    this.decoratedRepositoryCache = requireNonNull(decoratedRepositoryCache);
   }
 
   @Override
@@ -34,15 +40,17 @@ public class RepositoryCollectionDecorator extends AbstractRepositoryCollectionD
 
   @Override
   public Repository<Entity> getRepository(String id) {
-    Repository<Entity> repository = delegate().getRepository(id);
-    return repository != null
-        ? repositoryDecoratorFactory.createDecoratedRepository(repository)
-        : null;
+    return decoratedRepositoryCache.get(
+        id, () -> createDecoratedRepository(delegate().getRepository(id)));
   }
 
   @Override
   public Repository<Entity> getRepository(EntityType entityType) {
-    Repository<Entity> repository = delegate().getRepository(entityType);
+    return decoratedRepositoryCache.get(
+        entityType.getId(), () -> createDecoratedRepository(delegate().getRepository(entityType)));
+  }
+
+  private Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
     return repository != null
         ? repositoryDecoratorFactory.createDecoratedRepository(repository)
         : null;
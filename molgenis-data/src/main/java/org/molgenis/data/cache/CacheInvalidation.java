@@ -0,0 +1,45 @@
+package org.molgenis.data.cache;
+
+import static java.util.Collections.emptySet;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import org.molgenis.data.EntityKey;
+
+/**
+ * Describes which cached data became stale after a transaction was committed. Either a complete
+ * invalidation, or a set of entity types of which all cached data is stale combined with a set of
+ * individual stale entities.
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class CacheInvalidation {
+  /** @return whether all cached data of all entity types is stale */
+  public abstract boolean isComplete();
+
+  /** @return ids of entity types of which all cached data is stale */
+  public abstract ImmutableSet<String> getEntityTypeIds();
+
+  /** @return keys of individual stale entities */
+  public abstract ImmutableSet<EntityKey> getEntityKeys();
+
+  public boolean isEmpty() {
+    return !isComplete() && getEntityTypeIds().isEmpty() && getEntityKeys().isEmpty();
+  }
+
+  public static CacheInvalidation create(
+      Collection<String> entityTypeIds, Collection<EntityKey> entityKeys) {
+    return new AutoValue_CacheInvalidation(
+        false, ImmutableSet.copyOf(entityTypeIds), ImmutableSet.copyOf(entityKeys));
+  }
+
+  public static CacheInvalidation complete() {
+    return new AutoValue_CacheInvalidation(true, ImmutableSet.of(), ImmutableSet.of());
+  }
+
+  public static CacheInvalidation empty() {
+    return create(emptySet(), emptySet());
+  }
+}
@@ -0,0 +1,20 @@
+package org.molgenis.data.cache;
+
+/**
+ * Distributes {@link CacheInvalidation}s to the caches of this application node and, depending on
+ * the implementation, to the caches of other application nodes sharing the same database.
+ */
+public interface CacheInvalidationBus {
+  /**
+   * Publishes a cache invalidation. Listeners on this application node are notified synchronously,
+   * listeners on other nodes are notified asynchronously.
+   *
+   * @param cacheInvalidation cache invalidation, must only be published after the transaction that
+   *     caused it has been committed
+   */
+  void publish(CacheInvalidation cacheInvalidation);
+
+  void addListener(CacheInvalidationListener listener);
+
+  void removeListener(CacheInvalidationListener listener);
+}
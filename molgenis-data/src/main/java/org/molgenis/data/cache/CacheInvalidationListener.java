@@ -0,0 +1,7 @@
+package org.molgenis.data.cache;
+
+/** Listener that evicts stale data from a cache when a {@link CacheInvalidation} is received. */
+@FunctionalInterface
+public interface CacheInvalidationListener {
+  void onCacheInvalidation(CacheInvalidation cacheInvalidation);
+}
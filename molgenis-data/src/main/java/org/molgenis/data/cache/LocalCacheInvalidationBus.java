@@ -0,0 +1,30 @@
+package org.molgenis.data.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** {@link CacheInvalidationBus} for a single application node. */
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+  private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(CacheInvalidation cacheInvalidation) {
+    notifyListeners(cacheInvalidation);
+  }
+
+  @Override
+  public void addListener(CacheInvalidationListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(CacheInvalidationListener listener) {
+    listeners.remove(listener);
+  }
+
+  protected void notifyListeners(CacheInvalidation cacheInvalidation) {
+    if (!cacheInvalidation.isEmpty()) {
+      listeners.forEach(listener -> listener.onCacheInvalidation(cacheInvalidation));
+    }
+  }
+}
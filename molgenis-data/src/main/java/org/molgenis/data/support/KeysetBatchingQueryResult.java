@@ -0,0 +1,128 @@
+package org.molgenis.data.support;
+
+import static java.util.Collections.emptyIterator;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.QueryRule.Operator.AND;
+import static org.molgenis.data.QueryRule.Operator.GREATER;
+import static org.molgenis.data.QueryRule.Operator.LESS;
+import static org.molgenis.data.Sort.Direction.ASC;
+
+import com.google.common.collect.AbstractIterator;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.Sort;
+import org.molgenis.data.Sort.Direction;
+
+/**
+ * Iterable that batches a Query using keyset (seek) pagination on the id attribute.
+ *
+ * <p>Instead of changing the offset of each batch, it continues after the id of the last entity of
+ * the previous batch. The cost of retrieving a batch therefore does not depend on how many rows
+ * have been retrieved before.
+ *
+ * <p>Only applicable to queries without offset that are not sorted or sorted on the id attribute
+ * only, see {@link #isApplicable(Query, String)}.
+ */
+public abstract class KeysetBatchingQueryResult<E extends Entity> implements Iterable<E> {
+  private final int batchSize;
+  private final Query<E> query;
+  private final String idAttributeName;
+  private final Direction direction;
+
+  public KeysetBatchingQueryResult(int batchSize, Query<E> query, String idAttributeName) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("BatchSize must be greater than 0");
+    }
+    if (!isApplicable(query, idAttributeName)) {
+      throw new IllegalArgumentException(
+          "Keyset batching requires a query without offset sorted on the id attribute");
+    }
+    this.batchSize = batchSize;
+    this.query = requireNonNull(query);
+    this.idAttributeName = requireNonNull(idAttributeName);
+
+    Sort sort = query.getSort();
+    this.direction =
+        sort != null && sort.iterator().hasNext() ? sort.iterator().next().getDirection() : ASC;
+  }
+
+  /**
+   * Returns whether the given query can be batched using keyset pagination on the given id
+   * attribute: it must not have an offset, the id attribute must be fetched and the query must not
+   * be sorted or sorted on the id attribute only.
+   */
+  public static boolean isApplicable(Query<?> query, String idAttributeName) {
+    if (query.getOffset() != 0) {
+      return false;
+    }
+    Fetch fetch = query.getFetch();
+    if (fetch != null && !fetch.hasField(idAttributeName)) {
+      return false;
+    }
+    Sort sort = query.getSort();
+    if (sort == null) {
+      return true;
+    }
+    Iterator<Sort.Order> orders = sort.iterator();
+    return !orders.hasNext()
+        || (orders.next().getAttr().equals(idAttributeName) && !orders.hasNext());
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new AbstractIterator<E>() {
+      private final int limit = query.getPageSize();
+      private Iterator<E> batchIterator = emptyIterator();
+      private boolean hasNextBatch = true;
+      private int nrRemaining = limit;
+      private Object lastId;
+
+      @Override
+      protected E computeNext() {
+        while (!batchIterator.hasNext()) {
+          if (!hasNextBatch) {
+            return endOfData();
+          }
+          batchIterator = nextBatch();
+        }
+        E entity = batchIterator.next();
+        lastId = entity.getIdValue();
+        return entity;
+      }
+
+      private Iterator<E> nextBatch() {
+        int nextBatchSize = limit > 0 ? Math.min(batchSize, nrRemaining) : batchSize;
+        List<E> batch = getBatch(createBatchQuery(lastId, nextBatchSize));
+        nrRemaining -= batch.size();
+        hasNextBatch = batch.size() >= nextBatchSize && (limit == 0 || nrRemaining > 0);
+        return batch.iterator();
+      }
+    };
+  }
+
+  private Query<E> createBatchQuery(@Nullable Object lastId, int pageSize) {
+    QueryImpl<E> batchQuery;
+    if (lastId == null) {
+      batchQuery = new QueryImpl<>(query);
+    } else {
+      batchQuery = new QueryImpl<>();
+      List<QueryRule> rules = query.getRules();
+      if (!rules.isEmpty()) {
+        batchQuery.addRule(new QueryRule(rules));
+        batchQuery.addRule(new QueryRule(AND));
+      }
+      batchQuery.addRule(new QueryRule(idAttributeName, direction == ASC ? GREATER : LESS, lastId));
+      batchQuery.setSort(query.getSort());
+      batchQuery.setFetch(query.getFetch());
+    }
+    batchQuery.setPageSize(pageSize);
+    return batchQuery;
+  }
+
+  protected abstract List<E> getBatch(Query<E> q);
+}
@@ -0,0 +1,114 @@
+package org.molgenis.data;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
+
+import com.google.common.collect.ObjectArrays;
+import java.util.Map;
+import java.util.Set;
+import org.molgenis.data.meta.SystemEntityType;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.AttributeMetadata;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.data.meta.model.EntityTypeMetadata;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.util.GenericDependencyResolver;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Application context with bootstrapped system entity types for JMH benchmarks that run without a
+ * database. Create it in a {@code @Setup} method and close it in a {@code @TearDown} method.
+ */
+public class BenchmarkHarness implements AutoCloseable {
+  private final AnnotationConfigApplicationContext applicationContext;
+
+  /** @param componentClasses component classes in addition to the molgenis test configuration */
+  public BenchmarkHarness(Class<?>... componentClasses) {
+    applicationContext =
+        new AnnotationConfigApplicationContext(
+            ObjectArrays.concat(AbstractMolgenisSpringTest.Config.class, componentClasses));
+    bootstrapMetadata();
+  }
+
+  public <T> T getBean(Class<T> beanClass) {
+    return applicationContext.getBean(beanClass);
+  }
+
+  /** Creates an entity type with a string id attribute 'id' and the given string attributes. */
+  public EntityType createEntityType(String entityTypeId, String... attributeNames) {
+    AttributeFactory attributeFactory = getBean(AttributeFactory.class);
+    EntityType entityType = getBean(EntityTypeFactory.class).create(entityTypeId);
+    entityType.addAttribute(attributeFactory.create().setName("id").setDataType(STRING), ROLE_ID);
+    for (String attributeName : attributeNames) {
+      entityType.addAttribute(attributeFactory.create().setName(attributeName).setDataType(STRING));
+    }
+    return entityType;
+  }
+
+  /**
+   * Returns transaction information of a transaction that changed all entities of the given entity
+   * types.
+   */
+  public static TransactionInformation createTransactionInformation(
+      Set<String> dirtyEntityTypeIds) {
+    return new BenchmarkTransactionInformation(dirtyEntityTypeIds);
+  }
+
+  @Override
+  public void close() {
+    applicationContext.close();
+  }
+
+  private void bootstrapMetadata() {
+    EntityTypeMetadata entityTypeMeta = getBean(EntityTypeMetadata.class);
+    entityTypeMeta.setBackendEnumOptions(newArrayList("test"));
+    getBean(AttributeMetadata.class).bootstrap(entityTypeMeta);
+    Map<String, SystemEntityType> systemEntityTypeMap =
+        applicationContext.getBeansOfType(SystemEntityType.class);
+    new GenericDependencyResolver()
+        .resolve(systemEntityTypeMap.values(), SystemEntityType::getDependencies)
+        .forEach(systemEntityType -> systemEntityType.bootstrap(entityTypeMeta));
+  }
+
+  private static class BenchmarkTransactionInformation implements TransactionInformation {
+    private final Set<String> dirtyEntityTypeIds;
+
+    BenchmarkTransactionInformation(Set<String> dirtyEntityTypeIds) {
+      this.dirtyEntityTypeIds = requireNonNull(dirtyEntityTypeIds);
+    }
+
+    @Override
+    public boolean isEntityDirty(EntityKey entityKey) {
+      return dirtyEntityTypeIds.contains(entityKey.getEntityTypeId());
+    }
+
+    @Override
+    public boolean isEntireRepositoryDirty(EntityType entityType) {
+      return dirtyEntityTypeIds.contains(entityType.getId());
+    }
+
+    @Override
+    public boolean isRepositoryCompletelyClean(EntityType entityType) {
+      return !dirtyEntityTypeIds.contains(entityType.getId());
+    }
+
+    @Override
+    public Set<EntityKey> getDirtyEntities() {
+      return emptySet();
+    }
+
+    @Override
+    public Set<String> getEntirelyDirtyRepositories() {
+      return dirtyEntityTypeIds;
+    }
+
+    @Override
+    public Set<String> getDirtyRepositories() {
+      return dirtyEntityTypeIds;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.molgenis.data;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.STARTED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.function.Supplier;
+import org.mockito.Mock;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DecoratedRepositoryCacheTest extends AbstractMockitoTest {
+  @Mock private TransactionInformation transactionInformation;
+  private LocalCacheInvalidationBus cacheInvalidationBus;
+  private DecoratedRepositoryCache decoratedRepositoryCache;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    cacheInvalidationBus = new LocalCacheInvalidationBus();
+    decoratedRepositoryCache =
+        new DecoratedRepositoryCache(transactionInformation, cacheInvalidationBus);
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testDecoratedRepositoryCache() {
+    new DecoratedRepositoryCache(null, null);
+  }
+
+  @Test
+  public void testGet() {
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    assertSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testGetRepositoryDoesNotExist() {
+    assertNull(decoratedRepositoryCache.get("entityTypeId", () -> null));
+  }
+
+  @Test
+  public void testGetBootstrapping() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(STARTED));
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    assertNotSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testGetMetadataDirtyInTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ATTRIBUTE_META_DATA));
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    assertNotSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testGetDataDirtyInTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("entityTypeId"));
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    assertSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testInvalidate() {
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    decoratedRepositoryCache.invalidate();
+    assertNotSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testCacheInvalidationMetadataEntity() {
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(
+            emptySet(), singleton(EntityKey.create(ENTITY_TYPE_META_DATA, "otherEntityTypeId"))));
+    assertNotSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testCacheInvalidationComplete() {
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    cacheInvalidationBus.publish(CacheInvalidation.complete());
+    assertNotSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @Test
+  public void testCacheInvalidationData() {
+    Supplier<Repository<Entity>> repositorySupplier = createRepositorySupplier();
+    Repository<Entity> repository =
+        decoratedRepositoryCache.get("entityTypeId", repositorySupplier);
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(singleton("entityTypeId"), singleton(EntityKey.create("a", 1))));
+    assertSame(decoratedRepositoryCache.get("entityTypeId", repositorySupplier), repository);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<Repository<Entity>> createRepositorySupplier() {
+    return () -> mock(Repository.class);
+  }
+}
@@ -1,19 +1,28 @@
 package org.molgenis.data;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.populate.EntityPopulator;
 import org.molgenis.data.support.DynamicEntity;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -32,12 +41,23 @@ public class EntityManagerImplTest {
     entityReferenceCreator = mock(EntityReferenceCreator.class);
     entityManagerImpl =
         new EntityManagerImpl(
-            dataService, entityFactoryRegistry, entityPopulator, entityReferenceCreator);
+            dataService, entityFactoryRegistry, entityPopulator, entityReferenceCreator, 2);
+  }
+
+  @AfterMethod
+  public void tearDownAfterMethod() {
+    entityManagerImpl.shutdown();
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void EntityManagerImpl() {
-    new EntityManagerImpl(null, null, null, null);
+    new EntityManagerImpl(null, null, null, null, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void EntityManagerImplInvalidThreads() {
+    new EntityManagerImpl(
+        dataService, entityFactoryRegistry, entityPopulator, entityReferenceCreator, 0);
   }
 
   @Test
@@ -84,4 +104,81 @@ public class EntityManagerImplTest {
         entityManagerImpl.resolveReferences(entityType, Stream.of(entity0, entity1), fetch);
     assertEquals(entities.collect(Collectors.toList()), Arrays.asList(entity0, entity1));
   }
+
+  @Test
+  public void resolveReferencesStream() {
+    EntityType entityType = createEntityTypeWithReferences();
+    Entity refEntity0 = createRefEntityMocks("refEntityType0", "refId0");
+    Entity refEntity1 = createRefEntityMocks("refEntityType1", "refId1");
+    Entity entity = createEntityMock();
+
+    Fetch fetch = new Fetch().field("xref0").field("xref1");
+    List<Entity> entities =
+        entityManagerImpl
+            .resolveReferences(entityType, Stream.of(entity), fetch)
+            .collect(Collectors.toList());
+    assertEquals(entities, singletonList(entity));
+    verify(entity).set("xref0", refEntity0);
+    verify(entity).set("xref1", refEntity1);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void resolveReferencesStreamInTransaction() {
+    EntityType entityType = createEntityTypeWithReferences();
+    Thread thread = Thread.currentThread();
+    List<Thread> retrievalThreads = new CopyOnWriteArrayList<>();
+    when(dataService.findAll(anyString(), any(Stream.class), isNull()))
+        .thenAnswer(
+            invocation -> {
+              retrievalThreads.add(Thread.currentThread());
+              return Stream.empty();
+            });
+    Entity entity = createEntityMock();
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      Fetch fetch = new Fetch().field("xref0").field("xref1");
+      entityManagerImpl
+          .resolveReferences(entityType, Stream.of(entity), fetch)
+          .collect(Collectors.toList());
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+    assertEquals(retrievalThreads, Arrays.asList(thread, thread));
+  }
+
+  private static EntityType createEntityTypeWithReferences() {
+    EntityType entityType = mock(EntityType.class);
+    Attribute xref0Attr = createXrefAttribute("xref0", "refEntityType0");
+    Attribute xref1Attr = createXrefAttribute("xref1", "refEntityType1");
+    when(entityType.getAtomicAttributes()).thenReturn(Arrays.asList(xref0Attr, xref1Attr));
+    return entityType;
+  }
+
+  private static Attribute createXrefAttribute(String name, String refEntityTypeId) {
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn(name).getMock();
+    when(attr.getDataType()).thenReturn(XREF);
+    EntityType refEntityType =
+        when(mock(EntityType.class).getId()).thenReturn(refEntityTypeId).getMock();
+    when(attr.getRefEntity()).thenReturn(refEntityType);
+    return attr;
+  }
+
+  private static Entity createEntityMock() {
+    Entity entity = mock(Entity.class);
+    Entity lazyRefEntity0 = when(mock(Entity.class).getIdValue()).thenReturn("refId0").getMock();
+    Entity lazyRefEntity1 = when(mock(Entity.class).getIdValue()).thenReturn("refId1").getMock();
+    when(entity.getEntity("xref0")).thenReturn(lazyRefEntity0);
+    when(entity.getEntity("xref1")).thenReturn(lazyRefEntity1);
+    return entity;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Entity createRefEntityMocks(String refEntityTypeId, String refId) {
+    Entity refEntity = when(mock(Entity.class).getIdValue()).thenReturn(refId).getMock();
+    when(dataService.findAll(eq(refEntityTypeId), any(Stream.class), isNull()))
+        .thenAnswer(invocation -> Stream.of(refEntity));
+    return refEntity;
+  }
 }
@@ -0,0 +1,46 @@
+package org.molgenis.data.cache;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.mockito.Mock;
+import org.molgenis.data.EntityKey;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LocalCacheInvalidationBusTest extends AbstractMockitoTest {
+  @Mock private CacheInvalidationListener listener;
+  private LocalCacheInvalidationBus localCacheInvalidationBus;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    localCacheInvalidationBus = new LocalCacheInvalidationBus();
+  }
+
+  @Test
+  public void testPublish() {
+    localCacheInvalidationBus.addListener(listener);
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(singleton("entityType"), singleton(EntityKey.create("ref", 1)));
+    localCacheInvalidationBus.publish(cacheInvalidation);
+    verify(listener).onCacheInvalidation(cacheInvalidation);
+  }
+
+  @Test
+  public void testPublishEmpty() {
+    localCacheInvalidationBus.addListener(listener);
+    localCacheInvalidationBus.publish(CacheInvalidation.create(emptySet(), emptySet()));
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void testRemoveListener() {
+    localCacheInvalidationBus.addListener(listener);
+    localCacheInvalidationBus.removeListener(listener);
+    localCacheInvalidationBus.publish(CacheInvalidation.complete());
+    verifyZeroInteractions(listener);
+  }
+}
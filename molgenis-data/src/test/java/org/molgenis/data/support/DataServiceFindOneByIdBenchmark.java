@@ -0,0 +1,177 @@
+package org.molgenis.data.support;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.data.AbstractRepositoryDecorator;
+import org.molgenis.data.BenchmarkHarness;
+import org.molgenis.data.DataService;
+import org.molgenis.data.DecoratedRepositoryCache;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.RepositoryCollection;
+import org.molgenis.data.RepositoryCollectionDecorator;
+import org.molgenis.data.RepositoryDecoratorFactory;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.mem.InMemoryRepository;
+import org.molgenis.data.meta.MetaDataService;
+import org.molgenis.data.meta.model.EntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link DataServiceImpl#findOneById(String, Object)} with and without the {@link
+ * DecoratedRepositoryCache}. The repository collection creates a new repository per lookup and the
+ * decorator factory applies as many decorators as the production decorator chain, so that the
+ * benchmark measures the cost of building the chain. Run {@link #main(String[])} from the test
+ * classpath, the GC profiler reports the number of bytes allocated per operation.
+ *
+ * <p>With {@code cached=false} each lookup builds the decorator chain, with {@code cached=true}
+ * lookups use the {@link DecoratedRepositoryCache}. Compare the throughput and the {@code
+ * gc.alloc.rate.norm} of both runs, for example after running {@code mvn exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.molgenis.data.support.DataServiceFindOneByIdBenchmark} in molgenis-data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataServiceFindOneByIdBenchmark {
+  private static final String ENTITY_TYPE_ID = "Benchmark";
+  private static final int NR_DECORATORS = 16;
+
+  @Param({"false", "true"})
+  private boolean cached;
+
+  private BenchmarkHarness benchmarkHarness;
+  private DataService dataService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    benchmarkHarness = new BenchmarkHarness();
+    EntityType entityType = benchmarkHarness.createEntityType(ENTITY_TYPE_ID);
+
+    InMemoryRepository repository = new InMemoryRepository(entityType);
+    Entity entity = new DynamicEntity(entityType);
+    entity.set("id", "id0");
+    repository.add(entity);
+
+    DecoratedRepositoryCache decoratedRepositoryCache =
+        new DecoratedRepositoryCache(
+            BenchmarkHarness.createTransactionInformation(emptySet()),
+            new LocalCacheInvalidationBus());
+    if (cached) {
+      decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    }
+    RepositoryCollection repositoryCollection =
+        new RepositoryCollectionDecorator(
+            new BenchmarkRepositoryCollection(repository),
+            BenchmarkRepositoryDecorator::decorate,
+            decoratedRepositoryCache);
+
+    MetaDataService metaDataService = mock(MetaDataService.class);
+    when(metaDataService.getRepository(ENTITY_TYPE_ID))
+        .thenAnswer(
+            invocation -> Optional.ofNullable(repositoryCollection.getRepository(entityType)));
+    DataServiceImpl dataServiceImpl = new DataServiceImpl();
+    dataServiceImpl.setMetaDataService(metaDataService);
+    dataService = dataServiceImpl;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    benchmarkHarness.close();
+  }
+
+  @Benchmark
+  public Entity findOneById() {
+    return dataService.findOneById(ENTITY_TYPE_ID, "id0");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(DataServiceFindOneByIdBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+
+  /** Creates a new repository per lookup like the PostgreSQL repository collection does. */
+  private static class BenchmarkRepositoryCollection extends AbstractRepositoryCollection {
+    private final Repository<Entity> repository;
+
+    BenchmarkRepositoryCollection(Repository<Entity> repository) {
+      this.repository = repository;
+    }
+
+    @Override
+    public String getName() {
+      return "benchmark";
+    }
+
+    @Override
+    public Iterable<String> getEntityTypeIds() {
+      return singletonList(ENTITY_TYPE_ID);
+    }
+
+    @Override
+    public Repository<Entity> getRepository(String id) {
+      return ENTITY_TYPE_ID.equals(id) ? new BenchmarkRepositoryDecorator(repository) : null;
+    }
+
+    @Override
+    public boolean hasRepository(String id) {
+      return ENTITY_TYPE_ID.equals(id);
+    }
+
+    @Override
+    public boolean hasRepository(EntityType entityType) {
+      return hasRepository(entityType.getId());
+    }
+
+    @Override
+    public Iterator<Repository<Entity>> iterator() {
+      return singletonList(getRepository(ENTITY_TYPE_ID)).iterator();
+    }
+  }
+
+  private static class BenchmarkRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
+    BenchmarkRepositoryDecorator(Repository<Entity> delegateRepository) {
+      super(delegateRepository);
+    }
+
+    /** @see RepositoryDecoratorFactory#createDecoratedRepository(Repository) */
+    static Repository<Entity> decorate(Repository<Entity> repository) {
+      Repository<Entity> decoratedRepository = repository;
+      for (int i = 0; i < NR_DECORATORS; i++) {
+        decoratedRepository = new BenchmarkRepositoryDecorator(decoratedRepository);
+      }
+      return decoratedRepository;
+    }
+  }
+}
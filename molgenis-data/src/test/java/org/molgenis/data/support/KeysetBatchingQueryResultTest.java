@@ -0,0 +1,144 @@
+package org.molgenis.data.support;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.QueryRule.Operator.AND;
+import static org.molgenis.data.QueryRule.Operator.EQUALS;
+import static org.molgenis.data.QueryRule.Operator.GREATER;
+import static org.molgenis.data.QueryRule.Operator.LESS;
+import static org.molgenis.data.QueryRule.Operator.NESTED;
+import static org.molgenis.data.Sort.Direction.DESC;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.Sort;
+import org.testng.annotations.Test;
+
+public class KeysetBatchingQueryResultTest {
+  @Test
+  public void testIsApplicable() {
+    assertTrue(KeysetBatchingQueryResult.isApplicable(new QueryImpl<>(), "id"));
+  }
+
+  @Test
+  public void testIsApplicableSortOnId() {
+    assertTrue(
+        KeysetBatchingQueryResult.isApplicable(new QueryImpl<>().sort(new Sort("id")), "id"));
+  }
+
+  @Test
+  public void testIsApplicableSortOnOtherAttribute() {
+    assertFalse(
+        KeysetBatchingQueryResult.isApplicable(new QueryImpl<>().sort(new Sort("label")), "id"));
+  }
+
+  @Test
+  public void testIsApplicableSortOnIdAndOtherAttribute() {
+    assertFalse(
+        KeysetBatchingQueryResult.isApplicable(
+            new QueryImpl<>().sort(new Sort("id").on("label")), "id"));
+  }
+
+  @Test
+  public void testIsApplicableOffset() {
+    assertFalse(KeysetBatchingQueryResult.isApplicable(new QueryImpl<>().offset(10), "id"));
+  }
+
+  @Test
+  public void testIsApplicableFetchWithoutId() {
+    assertFalse(
+        KeysetBatchingQueryResult.isApplicable(
+            new QueryImpl<>().fetch(new Fetch().field("label")), "id"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testKeysetBatchingQueryResultNotApplicable() {
+    new DummyKeysetBatchingQueryResult(2, new QueryImpl<>().offset(1), emptyList());
+  }
+
+  @Test
+  public void testIterator() {
+    Query<Entity> query = new QueryImpl<>().eq("label", "value");
+    DummyKeysetBatchingQueryResult result =
+        new DummyKeysetBatchingQueryResult(2, query, asList(1, 2, 3, 4, 5));
+
+    assertEquals(Lists.newArrayList(result).size(), 5);
+
+    List<Query<Entity>> batchQueries = result.getBatchQueries();
+    assertEquals(batchQueries.size(), 3);
+    assertEquals(batchQueries.get(0).getRules(), query.getRules());
+    List<QueryRule> rules = batchQueries.get(2).getRules();
+    assertEquals(rules.size(), 3);
+    assertEquals(rules.get(0).getOperator(), NESTED);
+    assertEquals(rules.get(0).getNestedRules().get(0).getOperator(), EQUALS);
+    assertEquals(rules.get(1).getOperator(), AND);
+    assertEquals(rules.get(2), new QueryRule("id", GREATER, 4));
+    batchQueries.forEach(
+        batchQuery -> {
+          assertEquals(batchQuery.getOffset(), 0);
+          assertEquals(batchQuery.getPageSize(), 2);
+        });
+  }
+
+  @Test
+  public void testIteratorDescending() {
+    Query<Entity> query = new QueryImpl<>().sort(new Sort("id", DESC));
+    DummyKeysetBatchingQueryResult result =
+        new DummyKeysetBatchingQueryResult(2, query, asList(3, 2, 1));
+
+    assertEquals(Lists.newArrayList(result).size(), 3);
+    assertEquals(result.getBatchQueries().get(1).getRules(), asList(new QueryRule("id", LESS, 2)));
+  }
+
+  @Test
+  public void testIteratorPageSize() {
+    Query<Entity> query = new QueryImpl<>().pageSize(3);
+    DummyKeysetBatchingQueryResult result =
+        new DummyKeysetBatchingQueryResult(2, query, asList(1, 2, 3, 4, 5));
+
+    assertEquals(Lists.newArrayList(result).size(), 3);
+    assertEquals(
+        result.getBatchQueries().stream().map(Query::getPageSize).collect(toList()), asList(2, 1));
+  }
+
+  private static class DummyKeysetBatchingQueryResult extends KeysetBatchingQueryResult<Entity> {
+    private final int batchSize;
+    private final List<Integer> ids;
+    private final List<Query<Entity>> batchQueries = new ArrayList<>();
+
+    private DummyKeysetBatchingQueryResult(int batchSize, Query<Entity> query, List<Integer> ids) {
+      super(batchSize, query, "id");
+      this.batchSize = batchSize;
+      this.ids = ids;
+    }
+
+    @Override
+    protected List<Entity> getBatch(Query<Entity> q) {
+      batchQueries.add(q);
+      int fromIndex = Math.min(ids.size(), (batchQueries.size() - 1) * batchSize);
+      int toIndex = Math.min(ids.size(), fromIndex + q.getPageSize());
+      List<Entity> batch = new ArrayList<>();
+      for (Integer id : ids.subList(fromIndex, toIndex)) {
+        Entity entity = mock(Entity.class);
+        when(entity.getIdValue()).thenReturn(id);
+        batch.add(entity);
+      }
+      return batch;
+    }
+
+    List<Query<Entity>> getBatchQueries() {
+      return batchQueries;
+    }
+  }
+}
@@ -10,7 +10,6 @@ import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 import org.molgenis.data.DataService;
-import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.csv.CsvWriter;
 import org.molgenis.data.excel.ExcelSheetWriter;
 import org.molgenis.data.excel.ExcelWriter;
@@ -24,8 +23,6 @@ import org.molgenis.dataexplorer.controller.DataRequest;
 import org.molgenis.util.UnexpectedEnumException;
 
 public class DataExplorerDownloadHandler {
-  // Magic value: https://github.com/molgenis/molgenis/issues/6687
-  private static final long MAX_EXCEL_CELLS = 500000L;
   private final DataService dataService;
   private final AttributeFactory attrMetaFactory;
 
@@ -37,7 +34,6 @@ public class DataExplorerDownloadHandler {
   public void writeToExcel(DataRequest dataRequest, OutputStream outputStream) throws IOException {
     String entityTypeId = dataRequest.getEntityName();
     List<Attribute> attributes = filterAttributes(dataRequest);
-    checkNumberOfCells(dataRequest, entityTypeId, attributes.size());
     AttributeWriteMode attributeWriteMode = getAttributeWriteMode(dataRequest.getColNames());
     try (ExcelWriter excelWriter = new ExcelWriter(outputStream, attrMetaFactory, FileFormat.XLSX);
         ExcelSheetWriter excelSheetWriter =
@@ -55,16 +51,6 @@ public class DataExplorerDownloadHandler {
         .collect(toList());
   }
 
-  private void checkNumberOfCells(DataRequest dataRequest, String entityTypeId, int cols) {
-    long rows = dataService.count(entityTypeId, dataRequest.getQuery());
-    if (rows * cols >= MAX_EXCEL_CELLS) {
-      throw new MolgenisDataException(
-          String.format(
-              "Total number of cells for this download exceeds the maximum of %s for .xlsx downloads, please use .csv instead",
-              MAX_EXCEL_CELLS));
-    }
-  }
-
   public void writeToCsv(DataRequest request, OutputStream outputStream, char separator)
       throws IOException {
     writeToCsv(request, outputStream, separator, false);
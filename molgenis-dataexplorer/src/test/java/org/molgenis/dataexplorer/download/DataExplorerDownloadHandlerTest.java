@@ -5,7 +5,6 @@ import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static org.apache.poi.ss.usermodel.Row.MissingCellPolicy.CREATE_NULL_AS_BLANK;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -18,7 +17,6 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
@@ -33,7 +31,6 @@ import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
-import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
@@ -110,28 +107,6 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
     verifyNoMoreInteractions(refEntity1, refEntity2, attribute1, attribute2);
   }
 
-  @Test(
-      expectedExceptions = MolgenisDataException.class,
-      expectedExceptionsMessageRegExp =
-          "Total number of cells for this download exceeds the maximum of 500000 for .xlsx downloads, please use .csv instead")
-  public void testWriteToExcelTooManyCells() throws Exception {
-    when(dataService.count("sys_set_thousandgenomes", query)).thenReturn(2500001L);
-    when(dataService.getEntityType("sys_set_thousandgenomes")).thenReturn(entityType);
-    when(entityType.getAtomicAttributes()).thenReturn(asList(attribute1, attribute2, attribute3));
-    when(attribute1.getName()).thenReturn("attr1");
-    when(attribute2.getName()).thenReturn("attr2");
-    when(attribute3.getName()).thenReturn("attr3");
-
-    DataRequest dataRequest = new DataRequest();
-    dataRequest.setEntityName("sys_set_thousandgenomes");
-    dataRequest.setQuery(query);
-    dataRequest.setAttributeNames(asList("attr1", "attr2"));
-    dataRequest.setColNames(DataRequest.ColNames.ATTRIBUTE_NAMES);
-    dataRequest.setEntityValues(DataRequest.EntityValues.ENTITY_LABELS);
-
-    dataExplorerDownloadHandler.writeToExcel(dataRequest, mock(OutputStream.class));
-  }
-
   @DataProvider
   public static Object[][] writeToExcelDataProvider() {
     return new Object[][] {
@@ -185,7 +160,6 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
       Map<String, List<List<String>>> expected)
       throws Exception {
     String entityTypeId = "sys_set_thousandgenomes";
-    when(dataService.count(entityTypeId, query)).thenReturn(2L);
     when(dataService.getEntityType(entityTypeId)).thenReturn(entityType);
     when(entityType.getAtomicAttributes()).thenReturn(asList(attribute1, attribute2, attribute3));
     if (colNames == DataRequest.ColNames.ATTRIBUTE_LABELS) {
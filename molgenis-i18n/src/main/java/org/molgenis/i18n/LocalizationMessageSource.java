@@ -5,9 +5,9 @@ import static org.molgenis.util.i18n.LanguageService.DEFAULT_LOCALE;
 
 import java.text.MessageFormat;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.molgenis.util.i18n.format.MessageFormatFactory;
@@ -21,12 +21,16 @@ import org.springframework.context.support.AbstractMessageSource;
  *
  * <p>Marks missing values with # characters.
  *
- * <p>Caching should be done by the {@link MessageResolution}.
+ * <p>Caching of messages should be done by the {@link MessageResolution}. The {@link
+ * MessageFormat} created for a code and locale is cached until the message of the code changes,
+ * {@link AbstractMessageSource} synchronizes on a {@link MessageFormat} while formatting a message.
  */
 public class LocalizationMessageSource extends AbstractMessageSource {
   private final MessageFormatFactory messageFormatFactory;
   private final MessageResolution messageRepository;
   private final Supplier<Locale> fallbackLocaleSupplier;
+  /** maps code to a map of locale to message format */
+  private final Map<String, Map<Locale, CachedMessageFormat>> messageFormats;
 
   public LocalizationMessageSource(
       MessageFormatFactory messageFormatFactory,
@@ -36,6 +40,7 @@ public class LocalizationMessageSource extends AbstractMessageSource {
     this.messageFormatFactory = requireNonNull(messageFormatFactory);
     this.messageRepository = messageRepository;
     this.fallbackLocaleSupplier = fallbackLocaleSupplier;
+    this.messageFormats = new ConcurrentHashMap<>();
     setAlwaysUseMessageFormat(false);
     setUseCodeAsDefaultMessage(false);
   }
@@ -56,7 +61,7 @@ public class LocalizationMessageSource extends AbstractMessageSource {
    *
    * @param code the code to look up
    * @param locale the {@link Locale} for which the code should be looked up
-   * @return newly created {@link MessageFormat}
+   * @return cached {@link MessageFormat}
    */
   @Override
   public MessageFormat resolveCode(String code, Locale locale) {
@@ -64,7 +69,15 @@ public class LocalizationMessageSource extends AbstractMessageSource {
     if (resolved == null) {
       return null;
     }
-    return createMessageFormat(resolved, locale);
+    Map<Locale, CachedMessageFormat> codeMessageFormats =
+        messageFormats.computeIfAbsent(code, key -> new ConcurrentHashMap<>());
+    CachedMessageFormat cachedMessageFormat = codeMessageFormats.get(locale);
+    if (cachedMessageFormat == null || !cachedMessageFormat.getMessage().equals(resolved)) {
+      cachedMessageFormat =
+          new CachedMessageFormat(resolved, createMessageFormat(resolved, locale));
+      codeMessageFormats.put(locale, cachedMessageFormat);
+    }
+    return cachedMessageFormat.getMessageFormat();
   }
 
   @Override
@@ -76,7 +89,7 @@ public class LocalizationMessageSource extends AbstractMessageSource {
    * Looks up a code in the {@link MessageResolution}.
    *
    * <p>First tries the given locale if it is nonnull, then the fallbackLocale and finally the
-   * default locale.
+   * default locale. Locales with the same language are only tried once.
    *
    * @param code the messageID to look up.
    * @param locale the Locale whose language code should be tried first, may be null
@@ -84,13 +97,24 @@ public class LocalizationMessageSource extends AbstractMessageSource {
    */
   @Override
   protected String resolveCodeWithoutArguments(String code, @Nullable @CheckForNull Locale locale) {
-    Stream<Locale> candidates = Stream.of(locale, tryGetFallbackLocale(), DEFAULT_LOCALE);
-    return candidates
-        .filter(Objects::nonNull)
-        .map(candidate -> messageRepository.resolveCodeWithoutArguments(code, candidate))
-        .filter(Objects::nonNull)
-        .findFirst()
-        .orElse(null);
+    String message = null;
+    if (locale != null) {
+      message = messageRepository.resolveCodeWithoutArguments(code, locale);
+    }
+    Locale fallbackLocale = tryGetFallbackLocale();
+    if (message == null && fallbackLocale != null && !isSameLanguage(fallbackLocale, locale)) {
+      message = messageRepository.resolveCodeWithoutArguments(code, fallbackLocale);
+    }
+    if (message == null
+        && !isSameLanguage(DEFAULT_LOCALE, locale)
+        && !isSameLanguage(DEFAULT_LOCALE, fallbackLocale)) {
+      message = messageRepository.resolveCodeWithoutArguments(code, DEFAULT_LOCALE);
+    }
+    return message;
+  }
+
+  private static boolean isSameLanguage(Locale locale, @Nullable Locale otherLocale) {
+    return otherLocale != null && locale.getLanguage().equals(otherLocale.getLanguage());
   }
 
   private Locale tryGetFallbackLocale() {
@@ -101,4 +125,22 @@ public class LocalizationMessageSource extends AbstractMessageSource {
     }
     return fallbackLocale;
   }
+
+  private static class CachedMessageFormat {
+    private final String message;
+    private final MessageFormat messageFormat;
+
+    CachedMessageFormat(String message, MessageFormat messageFormat) {
+      this.message = requireNonNull(message);
+      this.messageFormat = requireNonNull(messageFormat);
+    }
+
+    String getMessage() {
+      return message;
+    }
+
+    MessageFormat getMessageFormat() {
+      return messageFormat;
+    }
+  }
 }
@@ -5,10 +5,12 @@ import static java.util.Locale.GERMAN;
 import static java.util.Locale.KOREAN;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.util.i18n.LanguageService.DEFAULT_LOCALE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 import java.util.Locale;
 import java.util.function.Supplier;
@@ -82,6 +84,35 @@ public class LocalizationMessageSourceTest extends AbstractMockitoTest {
         "label: 'The Label'");
   }
 
+  @Test
+  public void testResolveCodeWithoutArgumentsTriesLanguageOnce() {
+    doReturn(ENGLISH).when(fallbackLocaleSupplier).get();
+
+    assertNull(messageSource.resolveCodeWithoutArguments("MISSING", ENGLISH));
+    verify(messageRepository).resolveCodeWithoutArguments("MISSING", ENGLISH);
+  }
+
+  @Test
+  public void testResolveCodeCachesMessageFormat() {
+    when(messageRepository.resolveCodeWithoutArguments("TEST_MESSAGE_EN", ENGLISH))
+        .thenReturn("label: ''{0, label}''");
+    assertSame(
+        messageSource.resolveCode("TEST_MESSAGE_EN", ENGLISH),
+        messageSource.resolveCode("TEST_MESSAGE_EN", ENGLISH));
+  }
+
+  @Test
+  public void testResolveCodeMessageChanged() {
+    when(messageRepository.resolveCodeWithoutArguments("TEST_MESSAGE_EN", ENGLISH))
+        .thenReturn("label: ''{0, label}''")
+        .thenReturn("changed label: ''{0, label}''");
+    messageSource.resolveCode("TEST_MESSAGE_EN", ENGLISH);
+    doReturn("The Label").when(labeled).getLabel("en");
+    assertEquals(
+        messageSource.resolveCode("TEST_MESSAGE_EN", ENGLISH).format(new Object[] {labeled}),
+        "changed label: 'The Label'");
+  }
+
   @Test
   public void testResolveCodeFallbackIsIndependentOfArgumentFallback() {
     doReturn(new Locale("nl")).when(fallbackLocaleSupplier).get();
@@ -2,10 +2,12 @@ package org.molgenis.jobs;
 
 import static java.util.Objects.requireNonNull;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.molgenis.jobs.scheduler.SchedulerConfig;
 import org.molgenis.security.token.RunAsUserTokenFactory;
 import org.molgenis.security.user.UserDetailsServiceImpl;
 import org.molgenis.web.i18n.UserLocaleResolver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -17,15 +19,21 @@ public class JobConfig {
   private final UserDetailsServiceImpl userDetailsServiceImpl;
   private final RunAsUserTokenFactory runAsUserTokenFactory;
   private final UserLocaleResolver userLocaleResolver;
+  private final MeterRegistry meterRegistry;
+  private final long jobExecutionUpdateInterval;
 
   @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
   public JobConfig(
       UserDetailsServiceImpl userDetailsServiceImpl,
       RunAsUserTokenFactory runAsUserTokenFactory,
-      UserLocaleResolver userLocaleResolver) {
+      UserLocaleResolver userLocaleResolver,
+      MeterRegistry meterRegistry,
+      @Value("${job_execution_update_interval:1000}") long jobExecutionUpdateInterval) {
     this.userDetailsServiceImpl = requireNonNull(userDetailsServiceImpl);
     this.runAsUserTokenFactory = requireNonNull(runAsUserTokenFactory);
     this.userLocaleResolver = requireNonNull(userLocaleResolver);
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.jobExecutionUpdateInterval = jobExecutionUpdateInterval;
   }
 
   @Bean
@@ -46,6 +54,7 @@ public class JobConfig {
 
   @Bean
   public JobExecutionUpdater jobExecutionUpdater() {
-    return new JobExecutionUpdaterImpl(jobExecutionContextFactory());
+    return new JobExecutionUpdaterImpl(
+        jobExecutionContextFactory(), meterRegistry, jobExecutionUpdateInterval);
   }
 }
@@ -1,38 +1,146 @@
 package org.molgenis.jobs;
 
+import static java.lang.Math.max;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.molgenis.jobs.model.JobExecution.Status.CANCELED;
+import static org.molgenis.jobs.model.JobExecution.Status.FAILED;
+import static org.molgenis.jobs.model.JobExecution.Status.SUCCESS;
+import static org.molgenis.jobs.model.JobExecutionMetaData.STATUS;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.jobs.model.JobExecution;
+import org.molgenis.jobs.model.JobExecution.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Writes {@link JobExecution} updates on a single background thread. Updates of a job execution
+ * are coalesced: an update replaces the pending update of the same job execution and a job
+ * execution is written at most once per update interval. Updates of finished job executions are
+ * written immediately.
+ */
 @Component
 public class JobExecutionUpdaterImpl implements JobExecutionUpdater {
   private static final Logger LOG = LoggerFactory.getLogger(JobExecutionUpdater.class);
+  private static final Set<Status> FINISHED_STATUSES = EnumSet.of(SUCCESS, FAILED, CANCELED);
 
   private final JobExecutionContextFactory jobExecutionContextFactory;
-  private final ExecutorService executorService;
-  @Autowired private DataService dataService;
+  private final ScheduledExecutorService executorService;
+  private final long updateIntervalNanos;
+  /** maps job execution identifier to the latest job execution that wasn't written yet */
+  private final Map<String, JobExecution> pendingUpdates;
+  /** maps job execution identifier to the state of a job execution that didn't finish yet */
+  private final Map<String, JobExecutionState> jobExecutionStates;
 
-  JobExecutionUpdaterImpl(JobExecutionContextFactory jobExecutionContextFactory) {
+  private final Counter requestedCounter;
+  private final Timer writeTimer;
+  private DataService dataService;
+
+  /** @param updateInterval minimum time in milliseconds between two writes of a job execution */
+  @Autowired
+  JobExecutionUpdaterImpl(
+      JobExecutionContextFactory jobExecutionContextFactory,
+      MeterRegistry meterRegistry,
+      @Value("${job_execution_update_interval:1000}") long updateInterval) {
+    this(
+        jobExecutionContextFactory,
+        meterRegistry,
+        updateInterval,
+        newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-job-execution-updater-%d")
+                .setDaemon(true)
+                .build()));
+  }
+
+  JobExecutionUpdaterImpl(
+      JobExecutionContextFactory jobExecutionContextFactory,
+      MeterRegistry meterRegistry,
+      long updateInterval,
+      ScheduledExecutorService executorService) {
+    if (updateInterval < 0) {
+      throw new IllegalArgumentException("updateInterval must be >= 0");
+    }
     this.jobExecutionContextFactory = requireNonNull(jobExecutionContextFactory);
-    this.executorService = Executors.newSingleThreadExecutor();
+    this.executorService = requireNonNull(executorService);
+    this.updateIntervalNanos = MILLISECONDS.toNanos(updateInterval);
+    this.pendingUpdates = new ConcurrentHashMap<>();
+    this.jobExecutionStates = new ConcurrentHashMap<>();
+
+    this.requestedCounter =
+        Counter.builder("jobs.updates.requested")
+            .description("Number of requested job execution updates")
+            .register(meterRegistry);
+    this.writeTimer =
+        Timer.builder("jobs.updates.write")
+            .description("Time spent writing coalesced job execution updates")
+            .register(meterRegistry);
+    Gauge.builder("jobs.updates.pending", pendingUpdates, Map::size)
+        .description("Number of job executions with an update that wasn't written yet")
+        .register(meterRegistry);
+  }
+
+  @Autowired
+  void setDataService(DataService dataService) {
+    this.dataService = requireNonNull(dataService);
   }
 
   @Override
   public void update(JobExecution jobExecution) {
-    JobExecutionContext jobExecutionContext =
-        jobExecutionContextFactory.createJobExecutionContext(jobExecution);
-    executorService.execute(() -> updateInternal(jobExecution, jobExecutionContext));
+    String identifier = jobExecution.getIdentifier();
+    JobExecutionState jobExecutionState =
+        jobExecutionStates.computeIfAbsent(
+            identifier,
+            key ->
+                new JobExecutionState(
+                    jobExecutionContextFactory.createJobExecutionContext(jobExecution),
+                    System.nanoTime() - updateIntervalNanos));
+    requestedCounter.increment();
+
+    boolean pending = pendingUpdates.put(identifier, jobExecution) != null;
+    if (isFinished(jobExecution)) {
+      executorService.execute(() -> write(identifier, jobExecutionState));
+    } else if (!pending) {
+      long delay =
+          max(0L, jobExecutionState.getWriteTime() + updateIntervalNanos - System.nanoTime());
+      executorService.schedule(() -> write(identifier, jobExecutionState), delay, NANOSECONDS);
+    }
+  }
+
+  private void write(String identifier, JobExecutionState jobExecutionState) {
+    JobExecution jobExecution = pendingUpdates.remove(identifier);
+    if (jobExecution == null) {
+      // written by an earlier write of a finished job execution
+      return;
+    }
+    jobExecutionState.setWriteTime(System.nanoTime());
+    if (isFinished(jobExecution)) {
+      jobExecutionStates.remove(identifier);
+    }
+
+    long startTime = System.nanoTime();
+    updateInternal(jobExecution, jobExecutionState.getJobExecutionContext());
+    writeTimer.record(System.nanoTime() - startTime, NANOSECONDS);
   }
 
   private void updateInternal(JobExecution jobExecution, JobExecutionContext jobExecutionContext) {
@@ -58,4 +166,31 @@ public class JobExecutionUpdaterImpl implements JobExecutionUpdater {
       LOG.warn("Error updating job execution", ex);
     }
   }
+
+  private static boolean isFinished(JobExecution jobExecution) {
+    String status = jobExecution.getString(STATUS);
+    return status != null && FINISHED_STATUSES.contains(Status.valueOf(status));
+  }
+
+  private static class JobExecutionState {
+    private final JobExecutionContext jobExecutionContext;
+    private volatile long writeTime;
+
+    JobExecutionState(JobExecutionContext jobExecutionContext, long writeTime) {
+      this.jobExecutionContext = requireNonNull(jobExecutionContext);
+      this.writeTime = writeTime;
+    }
+
+    JobExecutionContext getJobExecutionContext() {
+      return jobExecutionContext;
+    }
+
+    long getWriteTime() {
+      return writeTime;
+    }
+
+    void setWriteTime(long writeTime) {
+      this.writeTime = writeTime;
+    }
+  }
 }
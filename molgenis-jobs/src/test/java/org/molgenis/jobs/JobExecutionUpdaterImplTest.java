@@ -0,0 +1,121 @@
+package org.molgenis.jobs;
+
+import static java.util.Locale.ENGLISH;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.jobs.model.JobExecutionMetaData.STATUS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ScheduledExecutorService;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.jobs.model.JobExecution;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.security.core.Authentication;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JobExecutionUpdaterImplTest extends AbstractMockitoTest {
+  @Mock private JobExecutionContextFactory jobExecutionContextFactory;
+  @Mock private ScheduledExecutorService executorService;
+  @Mock private DataService dataService;
+  @Mock private JobExecution jobExecution;
+  @Captor private ArgumentCaptor<Runnable> runnableCaptor;
+  @Captor private ArgumentCaptor<Long> delayCaptor;
+  private MeterRegistry meterRegistry;
+  private JobExecutionUpdaterImpl jobExecutionUpdater;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    jobExecutionUpdater =
+        new JobExecutionUpdaterImpl(
+            jobExecutionContextFactory, meterRegistry, 1000, executorService);
+    jobExecutionUpdater.setDataService(dataService);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testJobExecutionUpdaterImplInvalidUpdateInterval() {
+    new JobExecutionUpdaterImpl(jobExecutionContextFactory, meterRegistry, -1, executorService);
+  }
+
+  @Test
+  public void testUpdateCoalesced() {
+    when(jobExecution.getString(STATUS)).thenReturn("RUNNING");
+    setUpJobExecution();
+
+    jobExecutionUpdater.update(jobExecution);
+    jobExecutionUpdater.update(jobExecution);
+
+    verify(executorService)
+        .schedule(runnableCaptor.capture(), delayCaptor.capture(), eq(NANOSECONDS));
+    assertEquals(delayCaptor.getValue().longValue(), 0L);
+    assertEquals(meterRegistry.get("jobs.updates.pending").gauge().value(), 1.0);
+
+    runnableCaptor.getValue().run();
+
+    verify(dataService).update(eq("sys_job_TestJobExecution"), any(Entity.class));
+    verify(jobExecutionContextFactory).createJobExecutionContext(jobExecution);
+    assertEquals(meterRegistry.get("jobs.updates.requested").counter().count(), 2.0);
+    assertEquals(meterRegistry.get("jobs.updates.write").timer().count(), 1L);
+    assertEquals(meterRegistry.get("jobs.updates.pending").gauge().value(), 0.0);
+  }
+
+  @Test
+  public void testUpdateRateLimited() {
+    when(jobExecution.getString(STATUS)).thenReturn("RUNNING");
+    setUpJobExecution();
+
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).schedule(runnableCaptor.capture(), anyLong(), eq(NANOSECONDS));
+    runnableCaptor.getValue().run();
+
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService, times(2))
+        .schedule(any(Runnable.class), delayCaptor.capture(), eq(NANOSECONDS));
+    long delay = delayCaptor.getValue();
+    assertTrue(delay > 0 && delay <= SECONDS.toNanos(1));
+  }
+
+  @Test
+  public void testUpdateFinishedWrittenImmediately() {
+    when(jobExecution.getString(STATUS)).thenReturn("RUNNING").thenReturn("SUCCESS");
+    setUpJobExecution();
+
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).schedule(runnableCaptor.capture(), anyLong(), eq(NANOSECONDS));
+    Runnable scheduledWrite = runnableCaptor.getValue();
+
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).execute(runnableCaptor.capture());
+    runnableCaptor.getValue().run();
+    scheduledWrite.run();
+
+    verify(dataService).update(eq("sys_job_TestJobExecution"), any(Entity.class));
+    verifyNoMoreInteractions(dataService);
+  }
+
+  private void setUpJobExecution() {
+    when(jobExecution.getIdentifier()).thenReturn("jobId");
+    when(jobExecutionContextFactory.createJobExecutionContext(jobExecution))
+        .thenReturn(JobExecutionContext.create(mock(Authentication.class), ENGLISH));
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("sys_job_TestJobExecution");
+    when(jobExecution.getEntityType()).thenReturn(entityType);
+  }
+}
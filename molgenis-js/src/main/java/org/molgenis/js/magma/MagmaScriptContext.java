@@ -0,0 +1,242 @@
+package org.molgenis.js.magma;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.AttributeType.COMPOUND;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.SimpleBindings;
+import jdk.nashorn.api.scripting.AbstractJSObject;
+import jdk.nashorn.api.scripting.JSObject;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.IllegalAttributeTypeException;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.js.nashorn.NashornScriptEngine;
+import org.molgenis.util.UnexpectedEnumException;
+
+/**
+ * Nashorn global with the MagmaScript library loaded. A context is not thread-safe and should only
+ * be used by one thread at a time.
+ *
+ * <p>Expressions are evaluated in the global of the context instead of in a new global per
+ * evaluation. Each expression is evaluated in its own function scope, so that variables declared or
+ * assigned by an expression are not visible to expressions that are evaluated later on in the same
+ * context.
+ */
+class MagmaScriptContext {
+  private static final String NASHORN_GLOBAL = "nashorn.global";
+  private static final String KEY_IS_NULL = "_isNull";
+  private static final String KEY_NEW_VALUE = "newValue";
+  private static final String KEY_DOLLAR = "$";
+  private static final String KEY_MAGMA_SCRIPT = "MagmaScript";
+  private static final String KEY_ARRAY = "Array";
+  private static final String BIND = "bind";
+
+  private final NashornScriptEngine jsScriptEngine;
+  private final Bindings bindings;
+  private final JSObject dollarFunction;
+  private final JSObject bindFunction;
+  private final JSObject arrayConstructor;
+
+  MagmaScriptContext(NashornScriptEngine jsScriptEngine, List<CompiledScript> libraryScripts)
+      throws javax.script.ScriptException {
+    this.jsScriptEngine = requireNonNull(jsScriptEngine);
+    this.bindings = new SimpleBindings();
+    for (CompiledScript libraryScript : libraryScripts) {
+      libraryScript.eval(bindings);
+    }
+
+    JSObject global = (JSObject) bindings.get(NASHORN_GLOBAL);
+    JSObject magmaScript = (JSObject) global.getMember(KEY_MAGMA_SCRIPT);
+    this.dollarFunction = (JSObject) magmaScript.getMember(KEY_DOLLAR);
+    this.bindFunction = (JSObject) dollarFunction.getMember(BIND);
+    this.arrayConstructor = (JSObject) global.getMember(KEY_ARRAY);
+    bindings.put(KEY_NEW_VALUE, magmaScript.getMember(KEY_NEW_VALUE));
+    bindings.put(KEY_IS_NULL, magmaScript.getMember(KEY_IS_NULL));
+  }
+
+  /**
+   * Binds the magmascript $ function to the given entity. Attribute values are converted on first
+   * access, so only the attributes referenced by expressions are read from the entity.
+   *
+   * @param entity the entity to bind to the magmascript $ function
+   * @param depth maximum depth to follow references
+   */
+  void bind(Entity entity, int depth) {
+    Object boundDollar = bindFunction.call(dollarFunction, toScriptEngineValueMap(entity, depth));
+    bindings.put(KEY_DOLLAR, boundDollar);
+  }
+
+  /**
+   * Evaluates an expression for the entity that was bound last.
+   *
+   * @param expression JavaScript expression to evaluate
+   * @return evaluated expression result, return type depends on the expression.
+   */
+  Object eval(String expression) throws javax.script.ScriptException {
+    return jsScriptEngine.eval(bindings, expression);
+  }
+
+  /**
+   * Converts an entity to a JavaScript object. The object contains "_idValue" as a special key for
+   * quick access to the id value of the entity.
+   *
+   * @param entity the entity to convert
+   * @param depth the number of reference levels to convert to JavaScript objects
+   * @return JavaScript object for the entity or the entity id value if depth is 0
+   */
+  private Object toScriptEngineValueMap(@Nullable Entity entity, int depth) {
+    if (entity != null) {
+      if (depth == 0) {
+        return toScriptEngineValue(entity, entity.getEntityType().getIdAttribute(), 0);
+      } else {
+        return new EntityJsObject(entity, depth);
+      }
+    } else {
+      return null;
+    }
+  }
+
+  private Object toScriptEngineValue(Entity entity, Attribute attr, int depth) {
+    Object value = null;
+
+    String attrName = attr.getName();
+    AttributeType attrType = attr.getDataType();
+    switch (attrType) {
+      case BOOL:
+        value = entity.getBoolean(attrName);
+        break;
+      case CATEGORICAL:
+      case FILE:
+      case XREF:
+        Entity xrefEntity = entity.getEntity(attrName);
+        value = toScriptEngineValueMap(xrefEntity, depth - 1);
+        break;
+      case CATEGORICAL_MREF:
+      case MREF:
+      case ONE_TO_MANY:
+        ScriptObjectMirror jsArray = (ScriptObjectMirror) arrayConstructor.newObject();
+        @SuppressWarnings("unchecked")
+        List<Object> mrefValues = jsArray.to(List.class);
+        entity
+            .getEntities(attrName)
+            .forEach(mrefEntity -> mrefValues.add(toScriptEngineValueMap(mrefEntity, depth - 1)));
+        value = jsArray;
+        break;
+      case DATE:
+        LocalDate localDate = entity.getLocalDate(attrName);
+        if (localDate != null) {
+          value = localDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        break;
+      case DATE_TIME:
+        Instant instant = entity.getInstant(attrName);
+        if (instant != null) {
+          value = instant.toEpochMilli();
+        }
+        break;
+      case DECIMAL:
+        value = entity.getDouble(attrName);
+        break;
+      case EMAIL:
+      case ENUM:
+      case HTML:
+      case HYPERLINK:
+      case SCRIPT:
+      case STRING:
+      case TEXT:
+        value = entity.getString(attrName);
+        break;
+      case INT:
+        value = entity.getInt(attrName);
+        break;
+      case LONG:
+        value = entity.getLong(attrName);
+        break;
+      case COMPOUND:
+        throw new IllegalAttributeTypeException(attrType);
+      default:
+        throw new UnexpectedEnumException(attrType);
+    }
+    return value;
+  }
+
+  /** JavaScript object for an entity that converts attribute values on first access. */
+  private class EntityJsObject extends AbstractJSObject {
+    private final Entity entity;
+    private final int depth;
+    private final Map<String, Object> values;
+
+    EntityJsObject(Entity entity, int depth) {
+      this.entity = requireNonNull(entity);
+      this.depth = depth;
+      this.values = new HashMap<>();
+    }
+
+    @Override
+    public Object getMember(String name) {
+      if (values.containsKey(name)) {
+        return values.get(name);
+      }
+
+      Object value;
+      if (name.equals(JsMagmaScriptEvaluator.KEY_ID_VALUE)) {
+        value = toScriptEngineValue(entity, entity.getEntityType().getIdAttribute(), 0);
+      } else {
+        Attribute attr = getAtomicAttribute(name);
+        if (attr == null) {
+          return null;
+        }
+        value = toScriptEngineValue(entity, attr, depth);
+      }
+      values.put(name, value);
+      return value;
+    }
+
+    @Override
+    public boolean hasMember(String name) {
+      return name.equals(JsMagmaScriptEvaluator.KEY_ID_VALUE) || getAtomicAttribute(name) != null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+      Set<String> keys = new LinkedHashSet<>();
+      entity.getEntityType().getAtomicAttributes().forEach(attr -> keys.add(attr.getName()));
+      keys.add(JsMagmaScriptEvaluator.KEY_ID_VALUE);
+      return keys;
+    }
+
+    @Override
+    public Collection<Object> values() {
+      Collection<Object> memberValues = new ArrayList<>();
+      keySet().forEach(key -> memberValues.add(getMember(key)));
+      return memberValues;
+    }
+
+    @Override
+    public String getClassName() {
+      return "Object";
+    }
+
+    @Nullable
+    private Attribute getAtomicAttribute(String name) {
+      EntityType entityType = entity.getEntityType();
+      Attribute attr = entityType.getAttribute(name);
+      return attr != null && attr.getDataType() != COMPOUND ? attr : null;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package org.molgenis.js.nashorn;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import jdk.nashorn.api.tree.AssignmentTree;
+import jdk.nashorn.api.tree.CompilationUnitTree;
+import jdk.nashorn.api.tree.Diagnostic;
+import jdk.nashorn.api.tree.ExpressionStatementTree;
+import jdk.nashorn.api.tree.ExpressionTree;
+import jdk.nashorn.api.tree.ForInLoopTree;
+import jdk.nashorn.api.tree.FunctionDeclarationTree;
+import jdk.nashorn.api.tree.FunctionExpressionTree;
+import jdk.nashorn.api.tree.IdentifierTree;
+import jdk.nashorn.api.tree.Parser;
+import jdk.nashorn.api.tree.SimpleTreeVisitorES5_1;
+
+/**
+ * Rewrites an expression to a script that evaluates the expression in its own function scope.
+ *
+ * <p>Variables declared by the expression and variables that the expression assigns without
+ * declaring them are local to the function, so that they are not visible to other expressions that
+ * are evaluated in the same global. Each expression statement outside nested functions stores its
+ * value in a result variable that the function returns, like the completion value of a script.
+ */
+final class FunctionScopedExpression {
+  private static final String RESULT = "_expressionResult";
+
+  private FunctionScopedExpression() {}
+
+  /**
+   * @param expression JavaScript expression
+   * @return script that returns the value of the expression, or the expression itself if it can't
+   *     be parsed so that compiling it reports the syntax error
+   */
+  static String wrap(String expression) {
+    List<Diagnostic> errors = new ArrayList<>();
+    CompilationUnitTree compilationUnit = Parser.create().parse("<eval>", expression, errors::add);
+    if (compilationUnit == null || !errors.isEmpty()) {
+      return expression;
+    }
+
+    ExpressionScanner scanner = new ExpressionScanner(expression);
+    compilationUnit.accept(scanner, false);
+
+    StringBuilder script = new StringBuilder("(function() {var ").append(RESULT);
+    scanner.assignedIdentifiers.forEach(identifier -> script.append(", ").append(identifier));
+    script.append(';');
+    int position = 0;
+    for (int[] span : scanner.resultSpans) {
+      script.append(expression, position, span[0]).append(RESULT).append(" = (");
+      script.append(expression, span[0], span[1]);
+      // the span of a statement at the end of the expression includes a trailing line comment
+      script.append(containsLineComment(expression, span) ? "\n)" : ")");
+      position = span[1];
+    }
+    script.append(expression.substring(position));
+    return script.append("\nreturn ").append(RESULT).append(";})()").toString();
+  }
+
+  private static boolean containsLineComment(String expression, int[] span) {
+    int lineStart = expression.lastIndexOf('\n', span[1] - 1) + 1;
+    return expression.substring(Math.max(lineStart, span[0]), span[1]).contains("//");
+  }
+
+  /**
+   * Collects the expression statements outside functions and the identifiers that are assigned.
+   * The parameter of the visit methods indicates whether the visited tree is inside a function.
+   */
+  private static class ExpressionScanner extends SimpleTreeVisitorES5_1<Void, Boolean> {
+    private final String expression;
+    private final List<int[]> resultSpans = new ArrayList<>();
+    private final Set<String> assignedIdentifiers = new LinkedHashSet<>();
+
+    ExpressionScanner(String expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementTree node, Boolean inFunction) {
+      if (!inFunction) {
+        resultSpans.add(getSpan(node));
+      }
+      return super.visitExpressionStatement(node, inFunction);
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentTree node, Boolean inFunction) {
+      addIdentifier(node.getVariable());
+      return super.visitAssignment(node, inFunction);
+    }
+
+    @Override
+    public Void visitForInLoop(ForInLoopTree node, Boolean inFunction) {
+      addIdentifier(node.getVariable());
+      return super.visitForInLoop(node, inFunction);
+    }
+
+    @Override
+    public Void visitFunctionDeclaration(FunctionDeclarationTree node, Boolean inFunction) {
+      return super.visitFunctionDeclaration(node, true);
+    }
+
+    @Override
+    public Void visitFunctionExpression(FunctionExpressionTree node, Boolean inFunction) {
+      return super.visitFunctionExpression(node, true);
+    }
+
+    private void addIdentifier(ExpressionTree variable) {
+      if (variable instanceof IdentifierTree) {
+        assignedIdentifiers.add(((IdentifierTree) variable).getName());
+      }
+    }
+
+    /**
+     * Returns the source span of an expression statement without its semicolon. The parser excludes
+     * the quotes of a string literal at the start or end of a statement from its position.
+     */
+    private int[] getSpan(ExpressionStatementTree node) {
+      int start = (int) node.getStartPosition();
+      if (start > 0 && isQuote(expression.charAt(start - 1))) {
+        start--;
+      }
+      int end = (int) node.getEndPosition();
+      if (end < expression.length() && isQuote(expression.charAt(end))) {
+        end++;
+      }
+      return new int[] {start, end};
+    }
+
+    private static boolean isQuote(char c) {
+      return c == '\'' || c == '"';
+    }
+  }
+}
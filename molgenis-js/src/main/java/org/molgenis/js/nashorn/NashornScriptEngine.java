@@ -38,7 +38,8 @@ public class NashornScriptEngine {
   }
 
   /**
-   * Evaluates an expression using the given bindings.
+   * Evaluates an expression in its own function scope using the given bindings. Variables of the
+   * expression are local to the evaluation. The expression is compiled once and cached.
    *
    * @param bindings the Bindings to use as ENGINE_SCOPE
    * @param expression the expression to evaluate
@@ -51,8 +52,22 @@ public class NashornScriptEngine {
     return convertNashornValue(returnValue);
   }
 
-  public ScriptObjectMirror newJSArray() {
-    return (ScriptObjectMirror) ((JSObject) scriptEngine.get("Array")).newObject();
+  /**
+   * Compiles a script without caching the compiled script, e.g. for large library scripts that
+   * would otherwise evict all cached expressions.
+   *
+   * @param script the script to compile
+   * @return compiled script that can be evaluated with different bindings
+   * @throws ScriptException if the compilation fails
+   */
+  public synchronized CompiledScript compile(String script) throws ScriptException {
+    return ((Compilable) scriptEngine).compile(script);
+  }
+
+  /** Returns the number of compiled expressions in the cache. */
+  long getExpressionCacheSize() {
+    expressions.cleanUp();
+    return expressions.estimatedSize();
   }
 
   private void initScriptEngine() {
@@ -64,7 +79,7 @@ public class NashornScriptEngine {
         Caffeine.newBuilder()
             .maximumWeight(MAX_COMPILED_EXPRESSIONS_SCRIPTS_LENGTH)
             .weigher((Weigher<String, CompiledScript>) (key, value) -> key.length())
-            .build(((Compilable) this.scriptEngine)::compile);
+            .build(expression -> compile(FunctionScopedExpression.wrap(expression)));
     LOG.debug("Initialized Nashorn script engine");
   }
 
@@ -95,6 +110,8 @@ public class NashornScriptEngine {
       } else {
         convertedValue = nashornValue;
       }
+    } else if (nashornValue instanceof JSObject) {
+      convertedValue = ((JSObject) nashornValue).getMember(KEY_ID_VALUE);
     } else {
       convertedValue = nashornValue;
     }
@@ -6,6 +6,8 @@ import static java.time.ZoneOffset.UTC;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.BOOL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
@@ -25,10 +27,15 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.script.ScriptException;
 import org.molgenis.data.Entity;
@@ -866,4 +873,57 @@ public class JsMagmaScriptEvaluatorTest {
     result = jsMagmaScriptEvaluator.eval(script, person3, 3);
     assertEquals(result, false);
   }
+
+  @Test
+  public void testEvalConvertsReferencedAttributesOnly() {
+    Entity person = mock(Entity.class);
+    when(person.getEntityType()).thenReturn(personWeightAndHeightEntityType);
+    when(person.getInt("weight")).thenReturn(82);
+
+    Object result = jsMagmaScriptEvaluator.eval("$('weight').value()", person, 3);
+    assertEquals(result, 82);
+    verify(person, never()).getInt("height");
+  }
+
+  @Test
+  public void testEvalVariableNotVisibleInNextEval() {
+    Entity person = new DynamicEntity(personWeightEntityType);
+    person.set("weight", 82);
+
+    assertEquals(
+        jsMagmaScriptEvaluator.eval(
+            "var weight = $('weight').value(); assigned = weight; typeof weight", person),
+        "number");
+    assertEquals(
+        jsMagmaScriptEvaluator.eval("typeof weight + ' ' + typeof assigned", person),
+        "undefined undefined");
+  }
+
+  @Test
+  public void testEvalUnknownAttribute() {
+    Entity person = new DynamicEntity(personWeightEntityType);
+
+    Object result = jsMagmaScriptEvaluator.eval("$('unknown').value()", person, 3);
+    assertEquals(result.getClass(), org.molgenis.script.core.ScriptException.class);
+  }
+
+  @Test
+  public void testEvalConcurrently() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        Entity person = new DynamicEntity(personWeightEntityType);
+        person.set("weight", i);
+        results.add(
+            executorService.submit(
+                () -> jsMagmaScriptEvaluator.eval("$('weight').times(2).value()", person)));
+      }
+      for (int i = 0; i < 100; i++) {
+        assertEquals(results.get(i).get(), i * 2);
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
 }
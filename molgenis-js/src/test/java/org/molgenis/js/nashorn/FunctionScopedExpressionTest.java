@@ -0,0 +1,36 @@
+package org.molgenis.js.nashorn;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+public class FunctionScopedExpressionTest {
+  @Test
+  public void testWrap() {
+    assertEquals(
+        FunctionScopedExpression.wrap("var x = 1; y = x; 'x'"),
+        "(function() {var _expressionResult, y;var x = 1; _expressionResult = (y = x);"
+            + " _expressionResult = ('x')\nreturn _expressionResult;})()");
+  }
+
+  @Test
+  public void testWrapLineComment() {
+    assertEquals(
+        FunctionScopedExpression.wrap("x // comment"),
+        "(function() {var _expressionResult;_expressionResult = (x // comment\n)"
+            + "\nreturn _expressionResult;})()");
+  }
+
+  @Test
+  public void testWrapNestedFunction() {
+    assertEquals(
+        FunctionScopedExpression.wrap("[1].map(function (v) { v; })"),
+        "(function() {var _expressionResult;"
+            + "_expressionResult = ([1].map(function (v) { v; }))\nreturn _expressionResult;})()");
+  }
+
+  @Test
+  public void testWrapSyntaxError() {
+    assertEquals(FunctionScopedExpression.wrap("1 +"), "1 +");
+  }
+}
@@ -4,7 +4,9 @@ import static org.testng.Assert.assertEquals;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import javax.script.Bindings;
 import javax.script.ScriptException;
+import javax.script.SimpleBindings;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -42,4 +44,27 @@ public class NashornScriptEngineTest {
     nashornScriptEngine.eval("piet = 3");
     nashornScriptEngine.eval("piet");
   }
+
+  @Test
+  public void testEvalBindingsCompilesExpressionOnce() throws ScriptException {
+    NashornScriptEngine scriptEngine = new NashornScriptEngine();
+    Bindings bindings = new SimpleBindings();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(scriptEngine.eval(bindings, "'a' + 'b'"), "ab");
+    }
+    assertEquals(scriptEngine.eval(bindings, "'c'"), "c");
+    assertEquals(scriptEngine.getExpressionCacheSize(), 2L);
+  }
+
+  @Test
+  public void testEvalBindingsVariablesNotVisibleInNextEval() throws ScriptException {
+    Bindings bindings = new SimpleBindings();
+    assertEquals(
+        nashornScriptEngine.eval(
+            bindings, "var declared = 'a'; assigned = 'b'; declared + assigned"),
+        "ab");
+    assertEquals(
+        nashornScriptEngine.eval(bindings, "typeof declared + ' ' + typeof assigned"),
+        "undefined undefined");
+  }
 }
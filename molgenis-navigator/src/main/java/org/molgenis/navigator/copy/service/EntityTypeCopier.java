@@ -5,24 +5,32 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.concat;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformExtends;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformMappedBys;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformPackage;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformRefEntities;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.meta.EntityTypeDependencyResolver;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.util.EntityTypeUtils;
+import org.molgenis.security.acl.AclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -34,16 +42,22 @@ public class EntityTypeCopier {
   private final IdGenerator idGenerator;
   private final EntityTypeDependencyResolver entityTypeDependencyResolver;
   private final EntityTypeMetadataCopier entityTypeMetadataCopier;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final AclClassService aclClassService;
 
   EntityTypeCopier(
       DataService dataService,
       IdGenerator idGenerator,
       EntityTypeDependencyResolver entityTypeDependencyResolver,
-      EntityTypeMetadataCopier entityTypeMetadataCopier) {
+      EntityTypeMetadataCopier entityTypeMetadataCopier,
+      UserPermissionEvaluator userPermissionEvaluator,
+      AclClassService aclClassService) {
     this.dataService = requireNonNull(dataService);
     this.idGenerator = requireNonNull(idGenerator);
     this.entityTypeDependencyResolver = requireNonNull(entityTypeDependencyResolver);
     this.entityTypeMetadataCopier = requireNonNull(entityTypeMetadataCopier);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.aclClassService = requireNonNull(aclClassService);
   }
 
   public void copy(List<EntityType> entityTypes, CopyState state) {
@@ -166,13 +180,32 @@ public class EntityTypeCopier {
   private EntityType copyEntities(EntityType copy, CopyState state) {
     String originalEntityTypeId = state.originalEntityTypeIds().get(copy.getId());
     if (!copy.isAbstract()) {
-      dataService
-          .getRepository(originalEntityTypeId)
-          .forEachBatched(batch -> addEntityBatch(copy, state, batch), BATCH_SIZE);
+      EntityType original = dataService.getEntityType(originalEntityTypeId);
+      RepositoryCollection backend = dataService.getMeta().getBackend(copy);
+      if (isCopyableInBackend(original, copy, backend)) {
+        backend.copyEntities(original, copy);
+      } else {
+        dataService
+            .getRepository(originalEntityTypeId)
+            .forEachBatched(batch -> addEntityBatch(copy, state, batch), BATCH_SIZE);
+      }
     }
     return copy;
   }
 
+  /**
+   * Returns whether the entities can be copied within the backend without retrieving them. This is
+   * only possible if the original is stored in the same backend as the copy and the current user
+   * can read all entities of the original, which is not the case with row level security.
+   */
+  private boolean isCopyableInBackend(
+      EntityType original, EntityType copy, RepositoryCollection backend) {
+    return backend.getCapabilities().contains(COPYABLE)
+        && Objects.equals(original.getBackend(), copy.getBackend())
+        && userPermissionEvaluator.hasPermission(new EntityTypeIdentity(original), READ_DATA)
+        && !aclClassService.hasAclClass(EntityIdentityUtils.toType(original));
+  }
+
   private void addEntityBatch(EntityType copy, CopyState state, List<Entity> batch) {
     dataService.add(
         copy.getId(),
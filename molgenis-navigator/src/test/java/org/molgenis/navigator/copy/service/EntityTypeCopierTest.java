@@ -8,14 +8,18 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 import static org.molgenis.navigator.copy.service.CopyTestUtils.setupPredictableIdGeneratorMock;
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -26,6 +30,7 @@ import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
+import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.EntityTypeDependencyResolver;
 import org.molgenis.data.meta.model.Attribute;
@@ -33,7 +38,10 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.jobs.Progress;
+import org.molgenis.security.acl.AclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTest;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -46,6 +54,8 @@ public class EntityTypeCopierTest extends AbstractMockitoTest {
   @Mock private IdGenerator idGenerator;
   @Mock private EntityTypeDependencyResolver entityTypeDependencyResolver;
   @Mock private EntityTypeMetadataCopier entityTypeMetadataCopier;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private AclClassService aclClassService;
 
   private EntityTypeCopier copier;
 
@@ -53,7 +63,12 @@ public class EntityTypeCopierTest extends AbstractMockitoTest {
   public void beforeMethod() {
     copier =
         new EntityTypeCopier(
-            dataService, idGenerator, entityTypeDependencyResolver, entityTypeMetadataCopier);
+            dataService,
+            idGenerator,
+            entityTypeDependencyResolver,
+            entityTypeMetadataCopier,
+            userPermissionEvaluator,
+            aclClassService);
   }
 
   @Test
@@ -247,6 +262,64 @@ public class EntityTypeCopierTest extends AbstractMockitoTest {
     assertEquals(entities.get(1).getEntityType(), entityTypeCopy);
   }
 
+  @Test
+  public void copyDataInBackend() {
+    setupPredictableIdGeneratorMock(idGenerator);
+    EntityType entityType = mockEntityType("A");
+    when(entityType.getId()).thenReturn("originalId");
+    when(entityType.getBackend()).thenReturn("PostgreSQL");
+    when(dataService.getEntityType("originalId")).thenReturn(entityType);
+    EntityType entityTypeCopy = mock(EntityType.class);
+    when(entityTypeCopy.getId()).thenReturn("id1");
+    when(entityTypeCopy.isAbstract()).thenReturn(false);
+    when(entityTypeCopy.getBackend()).thenReturn("PostgreSQL");
+    RepositoryCollection backend = mock(RepositoryCollection.class);
+    when(backend.getCapabilities()).thenReturn(EnumSet.of(COPYABLE));
+    when(dataService.getMeta().getBackend(entityTypeCopy)).thenReturn(backend);
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("originalId"), READ_DATA))
+        .thenReturn(true);
+    CopyState state = CopyState.create(mock(Package.class), mock(Progress.class));
+    when(entityTypeMetadataCopier.copy(entityType, state)).thenReturn(entityTypeCopy);
+    when(entityTypeDependencyResolver.resolve(singletonList(entityTypeCopy)))
+        .thenReturn(singletonList(entityTypeCopy));
+
+    copier.copy(singletonList(entityType), state);
+
+    verify(backend).copyEntities(entityType, entityTypeCopy);
+    verify(dataService, never()).getRepository("originalId");
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void copyDataRowLevelSecured() {
+    setupPredictableIdGeneratorMock(idGenerator);
+    EntityType entityType = mockEntityType("A");
+    when(entityType.getId()).thenReturn("originalId");
+    when(entityType.getBackend()).thenReturn("PostgreSQL");
+    when(dataService.getEntityType("originalId")).thenReturn(entityType);
+    EntityType entityTypeCopy = mock(EntityType.class);
+    when(entityTypeCopy.getId()).thenReturn("id1");
+    when(entityTypeCopy.isAbstract()).thenReturn(false);
+    when(entityTypeCopy.getBackend()).thenReturn("PostgreSQL");
+    RepositoryCollection backend = mock(RepositoryCollection.class);
+    when(backend.getCapabilities()).thenReturn(EnumSet.of(COPYABLE));
+    when(dataService.getMeta().getBackend(entityTypeCopy)).thenReturn(backend);
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("originalId"), READ_DATA))
+        .thenReturn(true);
+    when(aclClassService.hasAclClass("entity-originalId")).thenReturn(true);
+    Repository<Entity> repository = mock(Repository.class);
+    when(dataService.getRepository("originalId")).thenReturn(repository);
+    CopyState state = CopyState.create(mock(Package.class), mock(Progress.class));
+    when(entityTypeMetadataCopier.copy(entityType, state)).thenReturn(entityTypeCopy);
+    when(entityTypeDependencyResolver.resolve(singletonList(entityTypeCopy)))
+        .thenReturn(singletonList(entityTypeCopy));
+
+    copier.copy(singletonList(entityType), state);
+
+    verify(repository).forEachBatched(any(), eq(1000));
+    verify(backend, never()).copyEntities(any(), any());
+  }
+
   private void setupMetadataCopierAnswers(Map<EntityType, EntityType> mocks) {
     when(entityTypeMetadataCopier.copy(any(EntityType.class), any(CopyState.class)))
         .thenAnswer(
@@ -14,16 +14,21 @@ public abstract class Result {
 
   public abstract ImmutableList<PackageResult> getPackages();
 
+  /** @return false if not all entities matching the search term were counted in time */
+  public abstract boolean isComplete();
+
   @AutoValue.Builder
   public abstract static class Builder {
     public abstract Builder setEntityTypes(List<EntityTypeResult> entityTypes);
 
     public abstract Builder setPackages(List<PackageResult> packages);
 
+    public abstract Builder setComplete(boolean complete);
+
     public abstract Result build();
   }
 
   public static Builder builder() {
-    return new AutoValue_Result.Builder();
+    return new AutoValue_Result.Builder().setComplete(true);
   }
 }
@@ -0,0 +1,155 @@
+package org.molgenis.searchall.service;
+
+import static com.google.common.base.Predicates.not;
+import static com.google.common.collect.Streams.stream;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.security.EntityTypePermission.READ_METADATA;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.molgenis.data.DataService;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Package;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.util.EntityTypeUtils;
+import org.molgenis.searchall.model.AttributeResult;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the labels and descriptions of the non-system entity types and their
+ * attributes, so that searching metadata does not require retrieving all entity types.
+ *
+ * <p>The index is created per language on first use and versioned with the metadata revision it
+ * was created in. The revision is incremented after a change to entity types, attributes or
+ * packages was committed on this or on another application node.
+ */
+@Component
+public class EntityTypeSearchIndex {
+  private static final Set<String> METADATA_ENTITY_TYPE_IDS =
+      ImmutableSet.of(ENTITY_TYPE_META_DATA, ATTRIBUTE_META_DATA, PACKAGE);
+
+  private final DataService dataService;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final ConcurrentMap<String, VersionedEntityTypes> entityTypes;
+  private final AtomicLong revision;
+
+  public EntityTypeSearchIndex(
+      DataService dataService,
+      UserPermissionEvaluator userPermissionEvaluator,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.dataService = requireNonNull(dataService);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.entityTypes = new ConcurrentHashMap<>();
+    this.revision = new AtomicLong();
+    cacheInvalidationBus.addListener(this::onCacheInvalidation);
+  }
+
+  /**
+   * Returns the non-system, non-abstract entity types of which the current user is allowed to read
+   * the metadata.
+   *
+   * @param languageCode language of the labels and descriptions
+   */
+  public List<IndexedEntityType> getEntityTypes(String languageCode) {
+    List<IndexedEntityType> indexedEntityTypes = getIndexedEntityTypes(languageCode);
+    Set<ObjectIdentity> permittedEntityTypeIdentities =
+        userPermissionEvaluator.getPermittedObjectIdentities(
+            indexedEntityTypes.stream()
+                .map(entityType -> new EntityTypeIdentity(entityType.getId()))
+                .collect(toList()),
+            READ_METADATA);
+    return indexedEntityTypes.stream()
+        .filter(
+            entityType ->
+                permittedEntityTypeIdentities.contains(new EntityTypeIdentity(entityType.getId())))
+        .collect(toList());
+  }
+
+  /** Discards the index for all languages. */
+  public void invalidate() {
+    revision.incrementAndGet();
+    entityTypes.clear();
+  }
+
+  private List<IndexedEntityType> getIndexedEntityTypes(String languageCode) {
+    long currentRevision = revision.get();
+    VersionedEntityTypes versionedEntityTypes = entityTypes.get(languageCode);
+    if (versionedEntityTypes != null && versionedEntityTypes.getRevision() == currentRevision) {
+      return versionedEntityTypes.getEntityTypes();
+    }
+
+    List<IndexedEntityType> indexedEntityTypes = runAsSystem(() -> createIndex(languageCode));
+    entityTypes.put(languageCode, new VersionedEntityTypes(indexedEntityTypes, currentRevision));
+    return indexedEntityTypes;
+  }
+
+  private List<IndexedEntityType> createIndex(String languageCode) {
+    return dataService
+        .findAll(ENTITY_TYPE_META_DATA, EntityType.class)
+        .filter(not(EntityTypeUtils::isSystemEntity))
+        .filter(not(EntityType::isAbstract))
+        .map(entityType -> toIndexedEntityType(entityType, languageCode))
+        .collect(toList());
+  }
+
+  private static IndexedEntityType toIndexedEntityType(
+      EntityType entityType, String languageCode) {
+    Package entityTypePackage = entityType.getPackage();
+    List<AttributeResult> attributes =
+        stream(entityType.getAllAttributes())
+            .map(attribute -> AttributeResult.create(attribute, languageCode))
+            .collect(toList());
+    return IndexedEntityType.create(
+        entityType.getId(),
+        entityTypePackage != null ? entityTypePackage.getId() : null,
+        entityType.getLabel(languageCode),
+        entityType.getDescription(languageCode),
+        attributes);
+  }
+
+  private void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()
+        || cacheInvalidation.getEntityTypeIds().stream().anyMatch(this::isMetadata)
+        || cacheInvalidation.getEntityKeys().stream()
+            .map(EntityKey::getEntityTypeId)
+            .anyMatch(this::isMetadata)) {
+      invalidate();
+    }
+  }
+
+  private boolean isMetadata(String entityTypeId) {
+    return METADATA_ENTITY_TYPE_IDS.contains(entityTypeId);
+  }
+
+  private static class VersionedEntityTypes {
+    private final List<IndexedEntityType> entityTypes;
+    private final long revision;
+
+    VersionedEntityTypes(List<IndexedEntityType> entityTypes, long revision) {
+      this.entityTypes = requireNonNull(entityTypes);
+      this.revision = revision;
+    }
+
+    List<IndexedEntityType> getEntityTypes() {
+      return entityTypes;
+    }
+
+    long getRevision() {
+      return revision;
+    }
+  }
+}
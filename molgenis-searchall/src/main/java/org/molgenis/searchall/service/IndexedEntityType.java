@@ -0,0 +1,33 @@
+package org.molgenis.searchall.service;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.searchall.model.AttributeResult;
+import org.molgenis.searchall.model.Described;
+
+/** Entity type in the {@link EntityTypeSearchIndex} described in one language. */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class IndexedEntityType implements Described {
+  public abstract String getId();
+
+  @Nullable
+  @CheckForNull
+  public abstract String getPackageId();
+
+  public abstract ImmutableList<AttributeResult> getAttributes();
+
+  public static IndexedEntityType create(
+      String id,
+      @Nullable String packageId,
+      String label,
+      @Nullable String description,
+      List<AttributeResult> attributes) {
+    return new AutoValue_IndexedEntityType(
+        label, description, id, packageId, ImmutableList.copyOf(attributes));
+  }
+}
@@ -1,47 +1,103 @@
 package org.molgenis.searchall.service;
 
 import static com.google.common.base.Predicates.not;
-import static com.google.common.collect.Streams.stream;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
-import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
-import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
 import static org.molgenis.util.i18n.LanguageService.getCurrentUserLanguageCode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
 import org.molgenis.data.DataService;
-import org.molgenis.data.meta.model.Attribute;
-import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.support.QueryImpl;
-import org.molgenis.data.util.EntityTypeUtils;
 import org.molgenis.data.util.PackageUtils;
 import org.molgenis.searchall.model.AttributeResult;
 import org.molgenis.searchall.model.EntityTypeResult;
 import org.molgenis.searchall.model.PackageResult;
 import org.molgenis.searchall.model.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
 import org.springframework.stereotype.Component;
 
+/**
+ * Searches the metadata and data of all non-system entity types and packages.
+ *
+ * <p>Entity type metadata is matched against the {@link EntityTypeSearchIndex}. The entities
+ * matching the search term are counted concurrently for all entity types. Counts that did not
+ * complete before the search deadline are reported as zero and the result is marked incomplete.
+ */
 @Component
 public class SearchAllService {
+  private static final Logger LOG = LoggerFactory.getLogger(SearchAllService.class);
+
   private final DataService dataService;
+  private final EntityTypeSearchIndex entityTypeSearchIndex;
+  private final long timeoutMillis;
+  private final ExecutorService executorService;
 
-  public SearchAllService(DataService dataService) {
+  public SearchAllService(
+      DataService dataService,
+      EntityTypeSearchIndex entityTypeSearchIndex,
+      @Value("${search_all_threads:8}") int searchAllThreads,
+      @Value("${search_all_timeout_millis:10000}") long timeoutMillis) {
     this.dataService = requireNonNull(dataService);
+    this.entityTypeSearchIndex = requireNonNull(entityTypeSearchIndex);
+    if (searchAllThreads <= 0) {
+      throw new IllegalArgumentException("search_all_threads must be greater than 0");
+    }
+    if (timeoutMillis <= 0) {
+      throw new IllegalArgumentException("search_all_timeout_millis must be greater than 0");
+    }
+    this.timeoutMillis = timeoutMillis;
+    this.executorService =
+        Executors.newFixedThreadPool(
+            searchAllThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-search-all-%d")
+                .setDaemon(true)
+                .build());
   }
 
   public Result searchAll(final String searchTerm) {
     final String lang = getCurrentUserLanguageCode();
+    List<IndexedEntityType> entityTypes = entityTypeSearchIndex.getEntityTypes(lang);
+    List<Future<Long>> counts = countMatchingEntities(searchTerm, entityTypes);
+
+    List<EntityTypeResult> entityTypeResults = new ArrayList<>();
+    boolean complete = true;
+    for (int i = 0; i < entityTypes.size(); i++) {
+      Long count = getCount(counts.get(i));
+      if (count == null) {
+        complete = false;
+      }
+      EntityTypeResult entityTypeResult =
+          toEntityTypeResult(searchTerm, entityTypes.get(i), count != null ? count : 0L);
+      if (entityTypeResult.isMatch()) {
+        entityTypeResults.add(entityTypeResult);
+      }
+    }
+    if (!complete) {
+      LOG.warn(
+          "Counting entities matching '{}' did not complete within {} ms",
+          searchTerm,
+          timeoutMillis);
+    }
+
     return Result.builder()
-        .setEntityTypes(
-            dataService
-                .findAll(ENTITY_TYPE_META_DATA, EntityType.class)
-                .filter(not(EntityTypeUtils::isSystemEntity))
-                .filter(not(EntityType::isAbstract))
-                .map(entityType -> toEntityTypeResult(searchTerm, entityType, lang))
-                .filter(EntityTypeResult::isMatch)
-                .collect(toList()))
+        .setEntityTypes(entityTypeResults)
         .setPackages(
             dataService
                 .findAll(PACKAGE, Package.class)
@@ -49,36 +105,73 @@ public class SearchAllService {
                 .map(PackageResult::create)
                 .filter(packageResult -> packageResult.isLabelOrDescriptionMatch(searchTerm))
                 .collect(toList()))
+        .setComplete(complete)
         .build();
   }
 
-  private EntityTypeResult toEntityTypeResult(
-      final String searchTerm, final EntityType entityType, final String lang) {
-    EntityTypeResult.Builder builder =
-        EntityTypeResult.builder()
-            .setId(entityType.getId())
-            .setLabel(entityType.getLabel(lang))
-            .setDescription(entityType.getDescription(lang));
+  @PreDestroy
+  void shutdown() {
+    executorService.shutdownNow();
+  }
 
-    Package entityTypePackage = entityType.getPackage();
-    if (entityTypePackage != null) {
-      builder.setPackageId(entityTypePackage.getId());
+  /**
+   * Counts the matching entities of all entity types concurrently and waits for the counts until
+   * the deadline, counts that did not complete are cancelled.
+   */
+  private List<Future<Long>> countMatchingEntities(
+      String searchTerm, List<IndexedEntityType> entityTypes) {
+    List<Callable<Long>> countTasks =
+        entityTypes.stream()
+            .map(
+                entityType ->
+                    new DelegatingSecurityContextCallable<>(
+                        () ->
+                            dataService.count(
+                                entityType.getId(), new QueryImpl<>().search(searchTerm))))
+            .collect(toList());
+    try {
+      return executorService.invokeAll(countTasks, timeoutMillis, MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
     }
+  }
 
-    builder
-        .setLabelMatch(containsIgnoreCase(entityType.getLabel(lang), searchTerm))
-        .setDescriptionMatch(containsIgnoreCase(entityType.getDescription(lang), searchTerm))
-        .setAttributes(matchingAttributes(searchTerm, entityType.getAllAttributes(), lang))
-        .setNrOfMatchingEntities(
-            dataService.count(entityType.getId(), new QueryImpl<>().search(searchTerm)));
+  /** Returns the count or null if the count was cancelled */
+  private static Long getCount(Future<Long> count) {
+    try {
+      return count.get();
+    } catch (CancellationException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MolgenisDataException(cause);
+    }
+  }
 
-    return builder.build();
+  private static EntityTypeResult toEntityTypeResult(
+      String searchTerm, IndexedEntityType entityType, long nrOfMatchingEntities) {
+    return EntityTypeResult.builder()
+        .setId(entityType.getId())
+        .setLabel(entityType.getLabel())
+        .setDescription(entityType.getDescription())
+        .setPackageId(entityType.getPackageId())
+        .setLabelMatch(entityType.isLabelMatch(searchTerm))
+        .setDescriptionMatch(entityType.isDescriptionMatch(searchTerm))
+        .setAttributes(matchingAttributes(searchTerm, entityType.getAttributes()))
+        .setNrOfMatchingEntities(nrOfMatchingEntities)
+        .build();
   }
 
-  private List<AttributeResult> matchingAttributes(
-      String searchterm, Iterable<Attribute> allAttributes, String lang) {
-    return stream(allAttributes)
-        .map(attribute -> AttributeResult.create(attribute, lang))
+  private static List<AttributeResult> matchingAttributes(
+      String searchterm, List<AttributeResult> attributes) {
+    return attributes.stream()
         .filter(attributeResult -> attributeResult.isLabelOrDescriptionMatch(searchterm))
         .collect(toList());
   }
@@ -1,17 +1,24 @@
 package org.molgenis.searchall.controller;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.BOOL;
+import static org.molgenis.data.security.EntityTypePermission.READ_METADATA;
 import static org.molgenis.data.system.model.RootSystemPackage.PACKAGE_SYSTEM;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
+import org.molgenis.data.cache.CacheInvalidationBus;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
@@ -22,13 +29,17 @@ import org.molgenis.searchall.model.AttributeResult;
 import org.molgenis.searchall.model.EntityTypeResult;
 import org.molgenis.searchall.model.PackageResult;
 import org.molgenis.searchall.model.Result;
+import org.molgenis.searchall.service.EntityTypeSearchIndex;
 import org.molgenis.searchall.service.SearchAllService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 public class SearchAllServiceTest {
   private DataService dataService;
+  private EntityTypeSearchIndex entityTypeSearchIndex;
   private SearchAllService searchAllService;
   private EntityType entity1;
   private EntityType entity2;
@@ -50,7 +61,13 @@ public class SearchAllServiceTest {
   @BeforeClass
   public void setUp() {
     dataService = mock(DataService.class);
-    searchAllService = new SearchAllService(dataService);
+    UserPermissionEvaluator userPermissionEvaluator = mock(UserPermissionEvaluator.class);
+    when(userPermissionEvaluator.getPermittedObjectIdentities(any(), eq(READ_METADATA)))
+        .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<?>>getArgument(0)));
+    entityTypeSearchIndex =
+        new EntityTypeSearchIndex(
+            dataService, userPermissionEvaluator, mock(CacheInvalidationBus.class));
+    searchAllService = new SearchAllService(dataService, entityTypeSearchIndex, 2, 1000);
 
     LocaleContextHolder.setLocale(Locale.ENGLISH);
 
@@ -146,8 +163,14 @@ public class SearchAllServiceTest {
     when(abstractEntity.getPackage()).thenReturn(pack1);
   }
 
+  @AfterClass
+  public void tearDownAfterClass() throws Exception {
+    LocaleContextHolder.resetLocaleContext();
+  }
+
   @Test
   public void testFindAll() throws Exception {
+    entityTypeSearchIndex.invalidate();
     when(dataService.findAll(PackageMetadata.PACKAGE, Package.class))
         .thenReturn(Stream.of(pack1, pack2, pack3, pack_sys));
     when(dataService.findAll(EntityTypeMetadata.ENTITY_TYPE_META_DATA, EntityType.class))
@@ -202,4 +225,25 @@ public class SearchAllServiceTest {
 
     assertEquals(searchAllService.searchAll("test"), result);
   }
+
+  @Test
+  public void testFindAllCountTimeout() throws Exception {
+    entityTypeSearchIndex.invalidate();
+    SearchAllService timingOutSearchAllService =
+        new SearchAllService(dataService, entityTypeSearchIndex, 1, 50);
+    when(dataService.findAll(PackageMetadata.PACKAGE, Package.class)).thenReturn(Stream.empty());
+    when(dataService.findAll(EntityTypeMetadata.ENTITY_TYPE_META_DATA, EntityType.class))
+        .thenReturn(Stream.of(entity1, entity2));
+    when(dataService.count("entity id 1", new QueryImpl<>().search("test")))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(5000);
+              return 2L;
+            });
+
+    Result result = timingOutSearchAllService.searchAll("test");
+    assertFalse(result.isComplete());
+    assertEquals(result.getEntityTypes().size(), 1);
+    assertEquals(result.getEntityTypes().get(0).getNrOfMatchingEntities(), 0L);
+  }
 }
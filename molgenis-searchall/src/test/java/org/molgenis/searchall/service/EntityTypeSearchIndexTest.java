@@ -0,0 +1,95 @@
+package org.molgenis.searchall.service;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.security.EntityTypePermission.READ_METADATA;
+import static org.testng.Assert.assertEquals;
+
+import java.util.stream.Stream;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
+import org.molgenis.data.cache.CacheInvalidationListener;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EntityTypeSearchIndexTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  @Mock private EntityType entityType0;
+  @Mock private EntityType entityType1;
+  private EntityTypeSearchIndex entityTypeSearchIndex;
+  private CacheInvalidationListener cacheInvalidationListener;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    entityTypeSearchIndex =
+        new EntityTypeSearchIndex(dataService, userPermissionEvaluator, cacheInvalidationBus);
+
+    ArgumentCaptor<CacheInvalidationListener> listenerCaptor =
+        ArgumentCaptor.forClass(CacheInvalidationListener.class);
+    verify(cacheInvalidationBus).addListener(listenerCaptor.capture());
+    cacheInvalidationListener = listenerCaptor.getValue();
+
+    when(entityType0.getId()).thenReturn("entityType0");
+    when(entityType0.getLabel("en")).thenReturn("label0");
+    when(entityType0.getDescription("en")).thenReturn("description0");
+    when(entityType0.getAllAttributes()).thenReturn(emptyList());
+    when(entityType1.getId()).thenReturn("entityType1");
+    when(entityType1.getLabel("en")).thenReturn("label1");
+    when(entityType1.getAllAttributes()).thenReturn(emptyList());
+    when(dataService.findAll(ENTITY_TYPE_META_DATA, EntityType.class))
+        .thenAnswer(invocation -> Stream.of(entityType0, entityType1));
+    when(userPermissionEvaluator.getPermittedObjectIdentities(anyCollection(), eq(READ_METADATA)))
+        .thenReturn(singleton(new EntityTypeIdentity("entityType0")));
+  }
+
+  @Test
+  public void testGetEntityTypes() {
+    assertEquals(
+        entityTypeSearchIndex.getEntityTypes("en"),
+        singletonList(
+            IndexedEntityType.create("entityType0", null, "label0", "description0", emptyList())));
+  }
+
+  @Test
+  public void testGetEntityTypesCached() {
+    entityTypeSearchIndex.getEntityTypes("en");
+    entityTypeSearchIndex.getEntityTypes("en");
+    verify(dataService, times(1)).findAll(ENTITY_TYPE_META_DATA, EntityType.class);
+  }
+
+  @Test
+  public void testGetEntityTypesMetadataChanged() {
+    entityTypeSearchIndex.getEntityTypes("en");
+    cacheInvalidationListener.onCacheInvalidation(
+        CacheInvalidation.create(singleton(ENTITY_TYPE_META_DATA), emptySet()));
+    entityTypeSearchIndex.getEntityTypes("en");
+    verify(dataService, times(2)).findAll(ENTITY_TYPE_META_DATA, EntityType.class);
+  }
+
+  @Test
+  public void testGetEntityTypesDataChanged() {
+    entityTypeSearchIndex.getEntityTypes("en");
+    cacheInvalidationListener.onCacheInvalidation(
+        CacheInvalidation.create(asList("entityType0", "entityType1"), emptySet()));
+    entityTypeSearchIndex.getEntityTypes("en");
+    verify(dataService, times(1)).findAll(ENTITY_TYPE_META_DATA, EntityType.class);
+  }
+}
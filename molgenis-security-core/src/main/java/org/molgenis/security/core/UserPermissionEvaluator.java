@@ -1,5 +1,6 @@
 package org.molgenis.security.core;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import org.springframework.security.acls.model.ObjectIdentity;
@@ -31,4 +32,15 @@ public interface UserPermissionEvaluator {
   boolean hasPermission(ObjectIdentity objectIdentity, List<Permission> permissions);
 
   Set<Permission> getPermissions(ObjectIdentity objectIdentity, Permission[] permissions);
+
+  /**
+   * Returns the domain objects on which the currently authenticated user has a given {@link
+   * Permission}. Access control lists that are not cached are retrieved in bulk.
+   *
+   * @param objectIdentities domain object identities
+   * @param permission the {@link Permission} to check.
+   * @return domain object identities for which the permission is granted
+   */
+  Set<ObjectIdentity> getPermittedObjectIdentities(
+      Collection<? extends ObjectIdentity> objectIdentities, Permission permission);
 }
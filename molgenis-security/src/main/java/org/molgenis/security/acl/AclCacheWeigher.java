@@ -0,0 +1,18 @@
+package org.molgenis.security.acl;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.security.acls.model.Acl;
+
+/**
+ * Weighs access control lists by their number of entries, so that the cache holds many small
+ * access control lists or a few large ones. Other cache values have a weight of one.
+ */
+public class AclCacheWeigher implements Weigher<Object, Object> {
+  @Override
+  public int weigh(Object key, Object value) {
+    if (value instanceof Acl) {
+      return 1 + ((Acl) value).getEntries().size();
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,41 @@
+package org.molgenis.security.acl;
+
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import org.springframework.security.acls.jdbc.LookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Sid;
+
+/**
+ * Records the duration of access control list lookups and the number of object identities per
+ * lookup. Lookups of access control lists that are not cached include the time to load them.
+ */
+public class TimedLookupStrategy implements LookupStrategy {
+  private final LookupStrategy lookupStrategy;
+  private final Timer timer;
+  private final DistributionSummary objectIdentitiesSummary;
+
+  public TimedLookupStrategy(LookupStrategy lookupStrategy, MeterRegistry meterRegistry) {
+    this.lookupStrategy = requireNonNull(lookupStrategy);
+    this.timer =
+        Timer.builder("acl.lookup")
+            .description("Time taken to look up access control lists")
+            .register(meterRegistry);
+    this.objectIdentitiesSummary =
+        DistributionSummary.builder("acl.lookup.object.identities")
+            .description("Number of object identities per access control list lookup")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+    objectIdentitiesSummary.record(objects.size());
+    return timer.record(() -> lookupStrategy.readAclsById(objects, sids));
+  }
+}
@@ -1,9 +1,15 @@
 package org.molgenis.security.permission;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.molgenis.security.core.Permission;
@@ -13,7 +19,12 @@ import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.security.core.utils.SecurityUtils;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.domain.CumulativePermission;
+import org.springframework.security.acls.jdbc.LookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
 import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -22,11 +33,18 @@ import org.springframework.stereotype.Component;
 public class UserPermissionEvaluatorImpl implements UserPermissionEvaluator {
   private final PermissionEvaluator permissionEvaluator;
   private final PermissionRegistry permissionRegistry;
+  private final LookupStrategy lookupStrategy;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
 
   UserPermissionEvaluatorImpl(
-      PermissionEvaluator permissionEvaluator, PermissionRegistry permissionRegistry) {
+      PermissionEvaluator permissionEvaluator,
+      PermissionRegistry permissionRegistry,
+      LookupStrategy lookupStrategy,
+      SidRetrievalStrategy sidRetrievalStrategy) {
     this.permissionEvaluator = requireNonNull(permissionEvaluator);
     this.permissionRegistry = requireNonNull(permissionRegistry);
+    this.lookupStrategy = requireNonNull(lookupStrategy);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
   }
 
   @Override
@@ -56,6 +74,44 @@ public class UserPermissionEvaluatorImpl implements UserPermissionEvaluator {
         .collect(Collectors.toSet());
   }
 
+  @Override
+  public Set<ObjectIdentity> getPermittedObjectIdentities(
+      Collection<? extends ObjectIdentity> objectIdentities, Permission permission) {
+    if (SecurityUtils.currentUserIsSuOrSystem()) {
+      return new HashSet<>(objectIdentities);
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || objectIdentities.isEmpty()) {
+      return emptySet();
+    }
+
+    List<Sid> sids = sidRetrievalStrategy.getSids(authentication);
+    List<org.springframework.security.acls.model.Permission> permissionsToCheck =
+        singletonList(getCumulativePermissionToCheck(permission));
+    Map<ObjectIdentity, Acl> acls =
+        lookupStrategy.readAclsById(new ArrayList<>(objectIdentities), sids);
+
+    Set<ObjectIdentity> permittedObjectIdentities = new HashSet<>();
+    for (ObjectIdentity objectIdentity : objectIdentities) {
+      Acl acl = acls.get(objectIdentity);
+      if (acl != null && isGranted(acl, permissionsToCheck, sids)) {
+        permittedObjectIdentities.add(objectIdentity);
+      }
+    }
+    return permittedObjectIdentities;
+  }
+
+  private static boolean isGranted(
+      Acl acl,
+      List<org.springframework.security.acls.model.Permission> permissions,
+      List<Sid> sids) {
+    try {
+      return acl.isGranted(permissions, sids, false);
+    } catch (NotFoundException e) {
+      return false;
+    }
+  }
+
   private CumulativePermission getCumulativePermissionToCheck(Permission permission) {
     CumulativePermission result = new CumulativePermission();
     Set<PermissionSet> permissionSets = permissionRegistry.getPermissions(permission);
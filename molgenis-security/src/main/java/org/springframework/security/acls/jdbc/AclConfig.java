@@ -3,19 +3,24 @@ package org.springframework.security.acls.jdbc;
 import static java.util.Objects.requireNonNull;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import javax.sql.DataSource;
 import org.molgenis.data.config.DataSourceConfig;
 import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.security.NoOpAuditLogger;
 import org.molgenis.security.acl.AclCacheTransactionListener;
+import org.molgenis.security.acl.AclCacheWeigher;
 import org.molgenis.security.acl.BitMaskPermissionGrantingStrategy;
 import org.molgenis.security.acl.MutableAclClassService;
 import org.molgenis.security.acl.MutableAclClassServiceImpl;
 import org.molgenis.security.acl.ObjectIdentityService;
 import org.molgenis.security.acl.ObjectIdentityServiceImpl;
+import org.molgenis.security.acl.TimedLookupStrategy;
 import org.molgenis.security.acl.TransactionalJdbcMutableAclService;
 import org.molgenis.security.core.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.context.annotation.Bean;
@@ -47,13 +52,24 @@ public class AclConfig {
   private final DataSource dataSource;
   private final TransactionManager transactionManager;
   private final RoleHierarchy roleHierarchy;
+  private final MeterRegistry meterRegistry;
+  private final long aclCacheMaxWeight;
   @Autowired JdbcTemplate jdbcTemplate;
 
   public AclConfig(
-      DataSource dataSource, TransactionManager transactionManager, RoleHierarchy roleHierarchy) {
+      DataSource dataSource,
+      TransactionManager transactionManager,
+      RoleHierarchy roleHierarchy,
+      MeterRegistry meterRegistry,
+      @Value("${acl_cache_max_weight:50000}") long aclCacheMaxWeight) {
     this.dataSource = requireNonNull(dataSource);
     this.transactionManager = requireNonNull(transactionManager);
     this.roleHierarchy = requireNonNull(roleHierarchy);
+    this.meterRegistry = requireNonNull(meterRegistry);
+    if (aclCacheMaxWeight <= 0) {
+      throw new IllegalArgumentException("acl_cache_max_weight must be greater than 0");
+    }
+    this.aclCacheMaxWeight = aclCacheMaxWeight;
   }
 
   @Bean
@@ -85,9 +101,20 @@ public class AclConfig {
     return aclAuthorizationStrategy;
   }
 
+  /**
+   * Access control lists are cached by object identity and by id, the cache is bounded by the total
+   * number of cached access control entries.
+   */
   @Bean
   public AclCache aclCache() {
-    Cache cache = new CaffeineCache("aclCache", Caffeine.newBuilder().maximumSize(10000).build());
+    com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache =
+        Caffeine.newBuilder()
+            .maximumWeight(aclCacheMaxWeight)
+            .weigher(new AclCacheWeigher())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, nativeCache, "aclCache");
+    Cache cache = new CaffeineCache("aclCache", nativeCache);
     return new SpringCacheBasedAclCache(
         cache, permissionGrantingStrategy(), aclAuthorizationStrategy());
   }
@@ -124,7 +151,7 @@ public class AclConfig {
             dataSource, aclCache(), aclAuthorizationStrategy(), permissionGrantingStrategy());
     basicLookupStrategy.setAclClassIdSupported(true);
     basicLookupStrategy.setAclClassIdUtils(aclClassIdUtils());
-    return basicLookupStrategy;
+    return new TimedLookupStrategy(basicLookupStrategy, meterRegistry);
   }
 
   @Bean
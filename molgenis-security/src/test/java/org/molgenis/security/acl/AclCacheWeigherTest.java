@@ -0,0 +1,26 @@
+package org.molgenis.security.acl;
+
+import static java.util.Arrays.asList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.testng.annotations.Test;
+
+public class AclCacheWeigherTest extends AbstractMockitoTest {
+  @Test
+  public void testWeighAcl() {
+    Acl acl = mock(Acl.class);
+    when(acl.getEntries())
+        .thenReturn(asList(mock(AccessControlEntry.class), mock(AccessControlEntry.class)));
+    assertEquals(new AclCacheWeigher().weigh("key", acl), 3);
+  }
+
+  @Test
+  public void testWeighOther() {
+    assertEquals(new AclCacheWeigher().weigh("key", "value"), 1);
+  }
+}
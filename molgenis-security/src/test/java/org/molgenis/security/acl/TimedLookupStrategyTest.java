@@ -0,0 +1,50 @@
+package org.molgenis.security.acl;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.mockito.Mock;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.jdbc.LookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Sid;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TimedLookupStrategyTest extends AbstractMockitoTest {
+  @Mock private LookupStrategy lookupStrategy;
+  private SimpleMeterRegistry meterRegistry;
+  private TimedLookupStrategy timedLookupStrategy;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    timedLookupStrategy = new TimedLookupStrategy(lookupStrategy, meterRegistry);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testTimedLookupStrategy() {
+    new TimedLookupStrategy(null, meterRegistry);
+  }
+
+  @Test
+  public void testReadAclsById() {
+    List<ObjectIdentity> objectIdentities = singletonList(new ObjectIdentityImpl("type", "id"));
+    List<Sid> sids = singletonList(new PrincipalSid("user"));
+    Map<ObjectIdentity, Acl> acls = singletonMap(objectIdentities.get(0), mock(Acl.class));
+    when(lookupStrategy.readAclsById(objectIdentities, sids)).thenReturn(acls);
+
+    assertEquals(timedLookupStrategy.readAclsById(objectIdentities, sids), acls);
+    assertEquals(meterRegistry.get("acl.lookup").timer().count(), 1L);
+    assertEquals(meterRegistry.get("acl.lookup.object.identities").summary().totalAmount(), 1.0);
+  }
+}
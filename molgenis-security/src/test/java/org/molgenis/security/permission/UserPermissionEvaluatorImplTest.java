@@ -1,15 +1,23 @@
 package org.molgenis.security.permission;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.plugin.model.PluginPermission.VIEW_PLUGIN;
 import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 import static org.molgenis.security.core.PermissionSet.READ;
 import static org.molgenis.security.core.PermissionSet.WRITE;
 import static org.molgenis.security.core.PermissionSet.WRITEMETA;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.List;
 import org.mockito.Mock;
 import org.molgenis.data.plugin.model.PluginIdentity;
 import org.molgenis.data.plugin.model.PluginPermission;
@@ -19,6 +27,14 @@ import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.domain.CumulativePermission;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.jdbc.LookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -33,13 +49,16 @@ import org.testng.annotations.Test;
 public class UserPermissionEvaluatorImplTest extends AbstractMockitoTestNGSpringContextTests {
   @Mock private PermissionEvaluator permissionEvaluator;
   @Mock private PermissionRegistry permissionRegistry;
+  @Mock private LookupStrategy lookupStrategy;
+  @Mock private SidRetrievalStrategy sidRetrievalStrategy;
 
   private UserPermissionEvaluatorImpl userPermissionEvaluator;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     userPermissionEvaluator =
-        new UserPermissionEvaluatorImpl(permissionEvaluator, permissionRegistry);
+        new UserPermissionEvaluatorImpl(
+            permissionEvaluator, permissionRegistry, lookupStrategy, sidRetrievalStrategy);
   }
 
   @WithMockUser(username = "USER")
@@ -197,5 +216,58 @@ public class UserPermissionEvaluatorImplTest extends AbstractMockitoTestNGSpring
     assertTrue(userPermissionEvaluator.hasPermission(new PluginIdentity("plugin1"), VIEW_PLUGIN));
   }
 
+  @WithMockUser(username = "USER")
+  @Test
+  public void getPermittedObjectIdentities() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    List<Sid> sids = singletonList(new PrincipalSid("USER"));
+    when(sidRetrievalStrategy.getSids(authentication)).thenReturn(sids);
+    when(permissionRegistry.getPermissions(READ_DATA)).thenReturn(ImmutableSet.of(READ));
+
+    ObjectIdentity grantedObjectIdentity = new EntityTypeIdentity("entityType0");
+    ObjectIdentity deniedObjectIdentity = new EntityTypeIdentity("entityType1");
+    ObjectIdentity notFoundObjectIdentity = new EntityTypeIdentity("entityType2");
+    ObjectIdentity noAclObjectIdentity = new EntityTypeIdentity("entityType3");
+    List<ObjectIdentity> objectIdentities =
+        asList(
+            grantedObjectIdentity,
+            deniedObjectIdentity,
+            notFoundObjectIdentity,
+            noAclObjectIdentity);
+
+    List<Permission> permissions = singletonList(new CumulativePermission().set(READ));
+    Acl grantedAcl = mock(Acl.class);
+    when(grantedAcl.isGranted(permissions, sids, false)).thenReturn(true);
+    Acl deniedAcl = mock(Acl.class);
+    when(deniedAcl.isGranted(permissions, sids, false)).thenReturn(false);
+    Acl notFoundAcl = mock(Acl.class);
+    when(notFoundAcl.isGranted(permissions, sids, false)).thenThrow(new NotFoundException(""));
+    when(lookupStrategy.readAclsById(objectIdentities, sids))
+        .thenReturn(
+            ImmutableMap.of(
+                grantedObjectIdentity,
+                grantedAcl,
+                deniedObjectIdentity,
+                deniedAcl,
+                notFoundObjectIdentity,
+                notFoundAcl));
+
+    assertEquals(
+        userPermissionEvaluator.getPermittedObjectIdentities(objectIdentities, READ_DATA),
+        singleton(grantedObjectIdentity));
+  }
+
+  @WithMockUser(
+      username = "USER",
+      authorities = {"ROLE_SU"})
+  @Test
+  public void getPermittedObjectIdentitiesSuperuser() {
+    List<ObjectIdentity> objectIdentities =
+        asList(new EntityTypeIdentity("entityType0"), new EntityTypeIdentity("entityType1"));
+    assertEquals(
+        userPermissionEvaluator.getPermittedObjectIdentities(objectIdentities, READ_DATA),
+        new HashSet<>(objectIdentities));
+  }
+
   static class Config {}
 }
@@ -2,6 +2,9 @@ package org.molgenis.semanticmapper.config;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.model.AttributeFactory;
@@ -27,6 +30,7 @@ import org.molgenis.semanticmapper.service.impl.AlgorithmTemplateServiceImpl;
 import org.molgenis.semanticmapper.service.impl.MappingServiceImpl;
 import org.molgenis.semanticmapper.service.impl.UnitResolverImpl;
 import org.molgenis.semanticsearch.service.SemanticSearchService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -44,6 +48,7 @@ public class MappingConfig {
   private final MappingProjectMetadata mappingProjectMeta;
   private final EntityManager entityManager;
   private final JsMagmaScriptEvaluator jsMagmaScriptEvaluator;
+  private final int mappingThreads;
 
   public MappingConfig(
       PermissionSystemService permissionSystemService,
@@ -55,7 +60,8 @@ public class MappingConfig {
       AttributeFactory attrMetaFactory,
       MappingProjectMetadata mappingProjectMeta,
       EntityManager entityManager,
-      JsMagmaScriptEvaluator jsMagmaScriptEvaluator) {
+      JsMagmaScriptEvaluator jsMagmaScriptEvaluator,
+      @Value("${mapping_threads:4}") int mappingThreads) {
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.dataService = requireNonNull(dataService);
     this.semanticSearchService = requireNonNull(semanticSearchService);
@@ -66,17 +72,26 @@ public class MappingConfig {
     this.mappingProjectMeta = requireNonNull(mappingProjectMeta);
     this.entityManager = requireNonNull(entityManager);
     this.jsMagmaScriptEvaluator = requireNonNull(jsMagmaScriptEvaluator);
+    this.mappingThreads = mappingThreads;
   }
 
   @Bean
   public MappingService mappingService() {
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            mappingThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-mapping-%d")
+                .setDaemon(true)
+                .build());
     return new MappingServiceImpl(
         dataService,
         algorithmServiceImpl(),
         mappingProjectRepository(),
         permissionSystemService,
         attrMetaFactory,
-        entityManager);
+        entityManager,
+        executorService);
   }
 
   @Bean
@@ -0,0 +1,136 @@
+package org.molgenis.semanticmapper.service.impl;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+
+/**
+ * Pipeline that reads, maps and writes batches of entities. Batches are mapped on a worker pool
+ * while the calling thread reads the next batches and writes the mapped batches. Reading and
+ * writing stay on the calling thread, because they take part in its transaction.
+ *
+ * <p>The number of batches in flight is bounded, which bounds the memory in use when one stage is
+ * faster than the others. Mapped batches are written in the order in which they were read.
+ */
+class MappingPipeline implements Consumer<List<Entity>>, AutoCloseable {
+  private final ExecutorService executorService;
+  private final int maxBatchesInFlight;
+  private final Function<List<Entity>, List<Entity>> mapper;
+  private final Consumer<List<Entity>> writer;
+  private final Queue<Future<List<Entity>>> batchesInFlight;
+
+  private final AtomicLong mapNanos = new AtomicLong();
+  private long readNanos;
+  private long writeNanos;
+  private long nrEntities;
+  private long readStartNanos;
+
+  /**
+   * @param executorService worker pool to map batches on
+   * @param maxBatchesInFlight maximum number of batches that are read but not yet written
+   * @param mapper maps a batch of source entities to a batch of target entities
+   * @param writer writes a batch of target entities
+   */
+  MappingPipeline(
+      ExecutorService executorService,
+      int maxBatchesInFlight,
+      Function<List<Entity>, List<Entity>> mapper,
+      Consumer<List<Entity>> writer) {
+    if (maxBatchesInFlight < 1) {
+      throw new IllegalArgumentException("maxBatchesInFlight must be greater than 0");
+    }
+    this.executorService = requireNonNull(executorService);
+    this.maxBatchesInFlight = maxBatchesInFlight;
+    this.mapper = requireNonNull(mapper);
+    this.writer = requireNonNull(writer);
+    this.batchesInFlight = new ArrayDeque<>(maxBatchesInFlight);
+    this.readStartNanos = System.nanoTime();
+  }
+
+  /** Submits a batch that was read for mapping, writes mapped batches if the pipeline is full. */
+  @Override
+  public void accept(List<Entity> entities) {
+    readNanos += System.nanoTime() - readStartNanos;
+    nrEntities += entities.size();
+
+    while (batchesInFlight.size() >= maxBatchesInFlight) {
+      writeNextBatch();
+    }
+    batchesInFlight.add(
+        executorService.submit(new DelegatingSecurityContextCallable<>(() -> map(entities))));
+    readStartNanos = System.nanoTime();
+  }
+
+  /** Writes all batches that are in flight. */
+  void finish() {
+    while (!batchesInFlight.isEmpty()) {
+      writeNextBatch();
+    }
+  }
+
+  /** Cancels the batches that are in flight, e.g. after an error in one of the stages. */
+  @Override
+  public void close() {
+    batchesInFlight.forEach(batch -> batch.cancel(true));
+    batchesInFlight.clear();
+  }
+
+  long getNrEntities() {
+    return nrEntities;
+  }
+
+  /**
+   * Returns the throughput of each stage based on the time spent in that stage. The map stage
+   * throughput is per worker thread.
+   */
+  String getThroughput() {
+    return String.format(
+        "read %d, mapped %d, written %d entities/s",
+        getThroughput(readNanos), getThroughput(mapNanos.get()), getThroughput(writeNanos));
+  }
+
+  private long getThroughput(long nanos) {
+    return nanos > 0 ? nrEntities * SECONDS.toNanos(1) / nanos : 0;
+  }
+
+  private List<Entity> map(List<Entity> entities) {
+    long startNanos = System.nanoTime();
+    List<Entity> mappedEntities = mapper.apply(entities);
+    mapNanos.addAndGet(System.nanoTime() - startNanos);
+    return mappedEntities;
+  }
+
+  private void writeNextBatch() {
+    List<Entity> mappedEntities = getMappedEntities(batchesInFlight.remove());
+    long startNanos = System.nanoTime();
+    writer.accept(mappedEntities);
+    writeNanos += System.nanoTime() - startNanos;
+  }
+
+  private static List<Entity> getMappedEntities(Future<List<Entity>> batch) {
+    try {
+      return batch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MolgenisDataException(cause);
+    }
+  }
+}
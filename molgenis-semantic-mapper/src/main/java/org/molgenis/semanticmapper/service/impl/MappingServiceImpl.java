@@ -3,8 +3,12 @@ package org.molgenis.semanticmapper.service.impl;
 import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
+import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.EntityManager.CreationMode.POPULATE;
 import static org.molgenis.data.meta.model.EntityType.AttributeCopyMode.DEEP_COPY_ATTRS;
 import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
@@ -13,9 +17,12 @@ import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.MAPPING_PROJECT;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.NAME;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
@@ -32,6 +39,7 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.util.EntityUtils;
 import org.molgenis.jobs.Progress;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
@@ -46,6 +54,7 @@ import org.springframework.transaction.annotation.Transactional;
 @PreAuthorize("hasAnyRole('ROLE_SU')")
 public class MappingServiceImpl implements MappingService {
   public static final int MAPPING_BATCH_SIZE = 1000;
+  private static final int MAX_BATCHES_IN_FLIGHT = 8;
 
   static final String SOURCE = "source";
 
@@ -55,20 +64,24 @@ public class MappingServiceImpl implements MappingService {
   private final PermissionSystemService permissionSystemService;
   private final AttributeFactory attrMetaFactory;
   private final EntityManager entityManager;
+  private final ExecutorService executorService;
 
+  /** @param executorService worker pool to apply the attribute mappings on */
   public MappingServiceImpl(
       DataService dataService,
       AlgorithmService algorithmService,
       MappingProjectRepository mappingProjectRepository,
       PermissionSystemService permissionSystemService,
       AttributeFactory attrMetaFactory,
-      EntityManager entityManager) {
+      EntityManager entityManager,
+      ExecutorService executorService) {
     this.dataService = requireNonNull(dataService);
     this.algorithmService = requireNonNull(algorithmService);
     this.mappingProjectRepository = requireNonNull(mappingProjectRepository);
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.entityManager = requireNonNull(entityManager);
+    this.executorService = requireNonNull(executorService);
   }
 
   @Override
@@ -236,7 +249,11 @@ public class MappingServiceImpl implements MappingService {
     if (hasSelfReferences(targetRepo.getEntityType())) {
       progress.status(
           "Self reference found, applying the mapping for a second time to set references");
-      applyMappingsToRepositories(mappingTarget, targetRepo, progress, depth);
+      mappingTarget
+          .getEntityMappings()
+          .forEach(
+              sourceMapping ->
+                  applySelfReferencesToRepo(sourceMapping, targetRepo, progress, depth));
     }
     progress.status(
         "Done applying mappings to repository [" + targetRepo.getEntityType().getId() + "]");
@@ -330,63 +347,197 @@ public class MappingServiceImpl implements MappingService {
         .sum();
   }
 
-  /** Package-private for testability */
+  /**
+   * Applies a mapping to the target repository. Reading the source and writing the target happen
+   * on the calling thread, the attribute mappings are applied on the worker pool. Nillable
+   * references to the target entity type are left empty, because they can refer to target entities
+   * that are not written yet. They are set by {@link #applySelfReferencesToRepo} afterwards.
+   *
+   * <p>Package-private for testability
+   */
   long applyMappingToRepo(
       EntityMapping sourceMapping, Repository<Entity> targetRepo, Progress progress, int depth) {
     progress.status(format("Mapping source [%s]...", sourceMapping.getLabel()));
-    AtomicLong counter = new AtomicLong();
 
+    EntityType targetMetaData = targetRepo.getEntityType();
+    Set<String> selfReferenceAttributeNames =
+        getDeferredSelfReferenceAttributeNames(targetMetaData);
     boolean canAdd = targetRepo.count() == 0;
-    dataService
-        .getRepository(sourceMapping.getName())
-        .forEachBatched(
+    long count;
+    try (MappingPipeline pipeline =
+        new MappingPipeline(
+            executorService,
+            MAX_BATCHES_IN_FLIGHT,
             entities ->
-                processBatch(sourceMapping, targetRepo, progress, counter, canAdd, entities, depth),
-            MAPPING_BATCH_SIZE);
+                mapEntities(
+                    sourceMapping, targetMetaData, entities, depth, selfReferenceAttributeNames),
+            mappedEntities -> writeBatch(targetRepo, progress, canAdd, mappedEntities))) {
+      dataService
+          .getRepository(sourceMapping.getName())
+          .forEachBatched(pipeline, MAPPING_BATCH_SIZE);
+      pipeline.finish();
+      count = pipeline.getNrEntities();
+      progress.status(
+          format("Throughput [%s]: %s", sourceMapping.getLabel(), pipeline.getThroughput()));
+    }
 
-    progress.status(format("Mapped %s [%s] entities.", counter, sourceMapping.getLabel()));
-    return counter.get();
+    progress.status(format("Mapped %s [%s] entities.", count, sourceMapping.getLabel()));
+    return count;
   }
 
-  private void processBatch(
-      EntityMapping sourceMapping,
-      Repository<Entity> targetRepo,
-      Progress progress,
-      AtomicLong counter,
-      boolean canAdd,
-      List<Entity> entities,
-      int depth) {
-    List<Entity> mappedEntities =
-        mapEntities(sourceMapping, targetRepo.getEntityType(), entities, depth);
+  private static void writeBatch(
+      Repository<Entity> targetRepo, Progress progress, boolean canAdd, List<Entity> entities) {
     if (canAdd) {
-      targetRepo.add(mappedEntities.stream());
+      targetRepo.add(entities.stream());
     } else {
-      targetRepo.upsertBatch(mappedEntities);
+      targetRepo.upsertBatch(entities);
     }
     progress.increment(1);
-    counter.addAndGet(entities.size());
   }
 
   private List<Entity> mapEntities(
-      EntityMapping sourceMapping, EntityType targetMetaData, List<Entity> entities, int depth) {
+      EntityMapping sourceMapping,
+      EntityType targetMetaData,
+      List<Entity> entities,
+      int depth,
+      Set<String> excludedAttributeNames) {
     return entities.stream()
         .map(
             sourceEntity ->
-                applyMappingToEntity(sourceMapping, sourceEntity, targetMetaData, depth))
+                applyMappingToEntity(
+                    sourceMapping, sourceEntity, targetMetaData, depth, excludedAttributeNames))
         .collect(toList());
   }
 
+  /**
+   * Sets the nillable references to the target entity type that were left empty by {@link
+   * #applyMappingToRepo}. Only the id and self reference attribute mappings are applied, the
+   * other attribute values of the target entities are left as they are.
+   *
+   * <p>Package-private for testability
+   */
+  void applySelfReferencesToRepo(
+      EntityMapping sourceMapping, Repository<Entity> targetRepo, Progress progress, int depth) {
+    EntityType targetMetaData = targetRepo.getEntityType();
+    String idAttributeName = targetMetaData.getIdAttribute().getName();
+    AttributeMapping idMapping = sourceMapping.getAttributeMapping(idAttributeName);
+    Set<String> selfReferenceAttributeNames =
+        getDeferredSelfReferenceAttributeNames(targetMetaData);
+    List<AttributeMapping> selfReferenceMappings =
+        selfReferenceAttributeNames.stream()
+            .map(sourceMapping::getAttributeMapping)
+            .filter(Objects::nonNull)
+            .collect(toList());
+    if (idMapping == null || selfReferenceMappings.isEmpty()) {
+      return;
+    }
+
+    progress.status(format("Setting references for source [%s]...", sourceMapping.getLabel()));
+    try (MappingPipeline pipeline =
+        new MappingPipeline(
+            executorService,
+            MAX_BATCHES_IN_FLIGHT,
+            entities ->
+                entities.stream()
+                    .map(
+                        sourceEntity ->
+                            applyMappingsToEntity(
+                                idMapping,
+                                selfReferenceMappings,
+                                sourceEntity,
+                                targetMetaData,
+                                sourceMapping.getSourceEntityType(),
+                                depth))
+                    .collect(toList()),
+            references ->
+                updateReferences(targetRepo, progress, selfReferenceAttributeNames, references))) {
+      dataService
+          .getRepository(sourceMapping.getName())
+          .forEachBatched(pipeline, MAPPING_BATCH_SIZE);
+      pipeline.finish();
+      progress.status(
+          format("Throughput [%s]: %s", sourceMapping.getLabel(), pipeline.getThroughput()));
+    }
+  }
+
+  private Entity applyMappingsToEntity(
+      AttributeMapping idMapping,
+      List<AttributeMapping> attributeMappings,
+      Entity sourceEntity,
+      EntityType targetMetaData,
+      EntityType sourceEntityType,
+      int depth) {
+    Entity references = entityManager.create(targetMetaData, NO_POPULATE);
+    applyMappingToAttribute(idMapping, sourceEntity, references, sourceEntityType, depth);
+    attributeMappings.forEach(
+        attributeMapping ->
+            applyMappingToAttribute(
+                attributeMapping, sourceEntity, references, sourceEntityType, depth));
+    return references;
+  }
+
+  private static void updateReferences(
+      Repository<Entity> targetRepo,
+      Progress progress,
+      Set<String> attributeNames,
+      List<Entity> references) {
+    Map<Object, Entity> referencesById =
+        references.stream()
+            .filter(entityReferences -> entityReferences.getIdValue() != null)
+            .collect(toMap(Entity::getIdValue, identity(), (first, second) -> second));
+    Stream<Entity> targetEntities =
+        targetRepo
+            .findAll(referencesById.keySet().stream())
+            .map(
+                targetEntity -> {
+                  Entity entityReferences = referencesById.get(targetEntity.getIdValue());
+                  attributeNames.forEach(
+                      attributeName ->
+                          targetEntity.set(attributeName, entityReferences.get(attributeName)));
+                  return targetEntity;
+                });
+    targetRepo.update(targetEntities);
+    progress.increment(1);
+  }
+
+  /**
+   * Returns the names of nillable attributes that reference the target entity type. Non-nillable
+   * self references can only be set in the first pass.
+   */
+  private static Set<String> getDeferredSelfReferenceAttributeNames(EntityType targetMetaData) {
+    Set<String> attributeNames = new LinkedHashSet<>();
+    for (Attribute attr : targetMetaData.getAtomicAttributes()) {
+      if (attr.hasRefEntity()
+          && attr.isNillable()
+          && EntityUtils.equals(attr.getRefEntity(), targetMetaData)) {
+        attributeNames.add(attr.getName());
+      }
+    }
+    return attributeNames;
+  }
+
   /** Package-private for testablility */
   Entity applyMappingToEntity(
       EntityMapping sourceMapping, Entity sourceEntity, EntityType targetMetaData, int depth) {
+    return applyMappingToEntity(sourceMapping, sourceEntity, targetMetaData, depth, emptySet());
+  }
+
+  private Entity applyMappingToEntity(
+      EntityMapping sourceMapping,
+      Entity sourceEntity,
+      EntityType targetMetaData,
+      int depth,
+      Set<String> excludedAttributeNames) {
     Entity target = entityManager.create(targetMetaData, POPULATE);
 
     if (targetMetaData.getAttribute(SOURCE) != null) {
       target.set(SOURCE, sourceMapping.getName());
     }
 
-    sourceMapping
-        .getAttributeMappings()
+    sourceMapping.getAttributeMappings().stream()
+        .filter(
+            attributeMapping ->
+                !excludedAttributeNames.contains(attributeMapping.getTargetAttribute().getName()))
         .forEach(
             attributeMapping ->
                 applyMappingToAttribute(
@@ -0,0 +1,83 @@
+package org.molgenis.semanticmapper.service.impl;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.testng.annotations.Test;
+
+public class MappingPipelineTest {
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMappingPipelineInvalidMaxBatchesInFlight() {
+    new MappingPipeline(newDirectExecutorService(), 0, Function.identity(), batch -> {});
+  }
+
+  @Test
+  public void testAcceptWritesWhenFull() {
+    List<List<Entity>> writtenBatches = new ArrayList<>();
+    List<Entity> batch0 = singletonList(mock(Entity.class));
+    List<Entity> batch1 = singletonList(mock(Entity.class));
+    List<Entity> batch2 = singletonList(mock(Entity.class));
+
+    try (MappingPipeline pipeline =
+        new MappingPipeline(
+            newDirectExecutorService(), 2, Function.identity(), writtenBatches::add)) {
+      pipeline.accept(batch0);
+      pipeline.accept(batch1);
+      assertTrue(writtenBatches.isEmpty());
+
+      pipeline.accept(batch2);
+      assertEquals(writtenBatches, singletonList(batch0));
+
+      pipeline.finish();
+      assertEquals(pipeline.getNrEntities(), 3L);
+    }
+    assertEquals(writtenBatches.size(), 3);
+  }
+
+  @Test
+  public void testFinishWritesInReadOrder() {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<List<Entity>> batches =
+          IntStream.range(0, 20)
+              .mapToObj(i -> singletonList(mock(Entity.class)))
+              .collect(toList());
+      List<List<Entity>> writtenBatches = new ArrayList<>();
+      try (MappingPipeline pipeline =
+          new MappingPipeline(executorService, 4, Function.identity(), writtenBatches::add)) {
+        batches.forEach(pipeline);
+        pipeline.finish();
+      }
+      assertEquals(writtenBatches, batches);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = MolgenisDataException.class, expectedExceptionsMessageRegExp = "err")
+  public void testFinishMapperThrowsException() {
+    try (MappingPipeline pipeline =
+        new MappingPipeline(
+            newDirectExecutorService(),
+            2,
+            batch -> {
+              throw new MolgenisDataException("err");
+            },
+            batch -> {})) {
+      pipeline.accept(singletonList(mock(Entity.class)));
+      pipeline.finish();
+    }
+  }
+}
@@ -2,11 +2,14 @@ package org.molgenis.semanticmapper.service.impl;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.DECIMAL;
@@ -30,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
@@ -396,6 +400,7 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(progress).status("Applying mappings to repository [HopEntity]");
     Mockito.verify(progress).status("Mapping source [Genes]...");
     Mockito.verify(progress).increment(1);
+    Mockito.verify(progress).status(startsWith("Throughput [Genes]: read "));
     Mockito.verify(progress).status("Mapped 4 [Genes] entities.");
     Mockito.verify(progress).status("Done applying mappings to repository [HopEntity]");
     Mockito.verifyNoMoreInteractions(progress);
@@ -464,6 +469,7 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(progress).status("Applying mappings to repository [HopEntity]");
     Mockito.verify(progress).status("Mapping source [Genes]...");
     Mockito.verify(progress).increment(1);
+    Mockito.verify(progress).status(startsWith("Throughput [Genes]: read "));
     Mockito.verify(progress).status("Mapped 4 [Genes] entities.");
     Mockito.verify(progress).status("Done applying mappings to repository [HopEntity]");
     Mockito.verifyZeroInteractions(permissionSystemService);
@@ -511,6 +517,7 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(targetRepo, Mockito.times(3)).add(ArgumentMatchers.any(Stream.class));
     Mockito.verify(progress, Mockito.times(3)).increment(1);
     Mockito.verify(progress).status("Mapping source [sourceMappingLabel]...");
+    Mockito.verify(progress).status(startsWith("Throughput [sourceMappingLabel]: read "));
     Mockito.verify(progress).status("Mapped 3 [sourceMappingLabel] entities.");
     Mockito.verifyNoMoreInteractions(progress);
   }
@@ -553,10 +560,67 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(targetRepo, Mockito.times(2)).upsertBatch(ArgumentMatchers.any(List.class));
     Mockito.verify(progress, Mockito.times(2)).increment(1);
     Mockito.verify(progress).status("Mapping source [sourceMappingLabel]...");
+    Mockito.verify(progress).status(startsWith("Throughput [sourceMappingLabel]: read "));
     Mockito.verify(progress).status("Mapped 4 [sourceMappingLabel] entities.");
     Mockito.verifyNoMoreInteractions(progress);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testApplySelfReferencesToRepo() {
+    EntityType targetMeta = entityTypeFactory.create("target").setPackage(package_);
+    Attribute idAttr = attrMetaFactory.create().setName("identifier");
+    targetMeta.addAttribute(idAttr, ROLE_ID);
+    Attribute parentAttr =
+        attrMetaFactory.create().setName("parent").setDataType(XREF).setRefEntity(targetMeta);
+    targetMeta.addAttribute(parentAttr);
+    Repository<Entity> targetRepo = mock(Repository.class);
+    when(targetRepo.getEntityType()).thenReturn(targetMeta);
+
+    AttributeMapping idMapping = mock(AttributeMapping.class);
+    when(idMapping.getTargetAttribute()).thenReturn(idAttr);
+    AttributeMapping parentMapping = mock(AttributeMapping.class);
+    when(parentMapping.getTargetAttribute()).thenReturn(parentAttr);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    when(sourceMapping.getLabel()).thenReturn("sourceMappingLabel");
+    when(sourceMapping.getSourceEntityType()).thenReturn(geneMetaData);
+    when(sourceMapping.getAttributeMapping("identifier")).thenReturn(idMapping);
+    when(sourceMapping.getAttributeMapping("parent")).thenReturn(parentMapping);
+
+    Entity sourceEntity = mock(Entity.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              Consumer<List<Entity>> consumer =
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+              consumer.accept(singletonList(sourceEntity));
+              return null;
+            })
+        .when(sourceRepo)
+        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+
+    Entity parent = new DynamicEntity(targetMeta);
+    parent.set("identifier", "parentId");
+    when(entityManager.create(targetMeta, EntityManager.CreationMode.NO_POPULATE))
+        .thenAnswer(invocation -> new DynamicEntity(targetMeta));
+    when(algorithmService.apply(idMapping, sourceEntity, geneMetaData, 3)).thenReturn("childId");
+    when(algorithmService.apply(parentMapping, sourceEntity, geneMetaData, 3)).thenReturn(parent);
+
+    Entity child = new DynamicEntity(targetMeta);
+    child.set("identifier", "childId");
+    when(targetRepo.findAll(ArgumentMatchers.any(Stream.class))).thenReturn(Stream.of(child));
+
+    mappingService.applySelfReferencesToRepo(sourceMapping, targetRepo, progress, 3);
+
+    ArgumentCaptor<Stream<Entity>> entitiesCaptor = ArgumentCaptor.forClass(Stream.class);
+    Mockito.verify(targetRepo).update(entitiesCaptor.capture());
+    assertEquals(entitiesCaptor.getValue().collect(toList()), singletonList(child));
+    assertEquals(child.getEntity("parent"), parent);
+    Mockito.verify(progress).increment(1);
+  }
+
   @Test(
       expectedExceptions = MolgenisDataException.class,
       expectedExceptionsMessageRegExp =
@@ -845,5 +909,10 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     public PermissionSystemService permissionSystemService() {
       return mock(PermissionSystemService.class);
     }
+
+    @Bean
+    public ExecutorService executorService() {
+      return newDirectExecutorService();
+    }
   }
 }
@@ -7,24 +7,47 @@ import static org.molgenis.settings.SettingsPackage.PACKAGE_SETTINGS;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.CacheInvalidationBus;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Base class for application and plugin settings entities. Settings are read/written from/to data
  * source. TODO: Bring this class up to date with 2.0, see http://www.molgenis.org/ticket/4787
+ *
+ * <p>Settings are read from an in-memory snapshot of the settings entity. The snapshot is versioned
+ * with the revision it was read in. The revision is incremented after a change to the settings
+ * entity was committed on this or on another application node, after which the snapshot is read
+ * again on first access and the {@link SettingsEntityListener}s are notified. Transactions that
+ * changed the settings entity bypass the snapshot. Without {@link TransactionInformation} or {@link
+ * CacheInvalidationBus} the settings entity is read from the data source on every access.
  */
 public abstract class DefaultSettingsEntity implements Entity {
   private final String entityId;
   private final String entityTypeId;
+  private final EntityKey entityKey;
+  private final AtomicLong revision;
+  private final List<SettingsEntityListener> listeners;
+  private volatile VersionedSnapshot snapshot;
   private DataService dataService;
+  private TransactionInformation transactionInformation;
+  private boolean cacheInvalidationBusListener;
 
   public DefaultSettingsEntity(String entityId) {
     this.entityId = requireNonNull(entityId);
     this.entityTypeId = PACKAGE_SETTINGS + PACKAGE_SEPARATOR + entityId;
+    this.entityKey = EntityKey.create(entityTypeId, entityId);
+    this.revision = new AtomicLong();
+    this.listeners = new CopyOnWriteArrayList<>();
   }
 
   @Autowired
@@ -32,6 +55,26 @@ public abstract class DefaultSettingsEntity implements Entity {
     this.dataService = requireNonNull(dataService);
   }
 
+  @Autowired(required = false)
+  public void setTransactionInformation(TransactionInformation transactionInformation) {
+    this.transactionInformation = requireNonNull(transactionInformation);
+  }
+
+  @Autowired(required = false)
+  public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+    cacheInvalidationBus.addListener(this::onCacheInvalidation);
+    cacheInvalidationBusListener = true;
+  }
+
+  /** Adds a listener that is notified after an update of the settings entity was committed. */
+  public void addListener(SettingsEntityListener listener) {
+    listeners.add(requireNonNull(listener));
+  }
+
+  public void removeListener(SettingsEntityListener listener) {
+    listeners.remove(listener);
+  }
+
   public EntityType getEntityType() {
     return runAsSystem(() -> dataService.getEntityType(entityTypeId));
   }
@@ -118,14 +161,14 @@ public abstract class DefaultSettingsEntity implements Entity {
 
   @Override
   public void set(String attributeName, Object value) {
-    Entity entity = getEntity();
+    Entity entity = findEntity();
     entity.set(attributeName, value);
     updateEntity(entity);
   }
 
   @Override
   public void set(Entity values) {
-    Entity entity = getEntity();
+    Entity entity = findEntity();
     entity.set(values);
     updateEntity(entity);
   }
@@ -147,11 +190,63 @@ public abstract class DefaultSettingsEntity implements Entity {
     return getEntity().toString();
   }
 
+  /** Returns the snapshot of the settings entity, the snapshot must not be modified. */
   private Entity getEntity() {
+    if (transactionInformation == null
+        || !cacheInvalidationBusListener
+        || transactionInformation.getDirtyRepositories().contains(entityTypeId)) {
+      return findEntity();
+    }
+
+    long currentRevision = revision.get();
+    VersionedSnapshot versionedSnapshot = snapshot;
+    if (versionedSnapshot != null && versionedSnapshot.getRevision() == currentRevision) {
+      return versionedSnapshot.getEntity();
+    }
+
+    Entity entity = findEntity();
+    if (entity != null) {
+      snapshot = new VersionedSnapshot(entity, currentRevision);
+    }
+    return entity;
+  }
+
+  private Entity findEntity() {
     return runAsSystem(() -> dataService.findOneById(entityTypeId, entityId));
   }
 
   private void updateEntity(Entity entity) {
     runAsSystem(() -> dataService.update(entityTypeId, entity));
   }
+
+  private void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isComplete()
+        || cacheInvalidation.getEntityTypeIds().contains(entityTypeId)
+        || cacheInvalidation.getEntityKeys().contains(entityKey)) {
+      revision.incrementAndGet();
+      snapshot = null;
+      if (!listeners.isEmpty()) {
+        Entity entity = getEntity();
+        listeners.forEach(listener -> listener.postUpdate(entity));
+      }
+    }
+  }
+
+  private static class VersionedSnapshot {
+    private final Entity entity;
+    private final long revision;
+
+    VersionedSnapshot(Entity entity, long revision) {
+      this.entity = requireNonNull(entity);
+      this.revision = revision;
+    }
+
+    Entity getEntity() {
+      return entity;
+    }
+
+    long getRevision() {
+      return revision;
+    }
+  }
 }
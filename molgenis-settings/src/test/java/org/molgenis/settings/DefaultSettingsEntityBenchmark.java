@@ -0,0 +1,105 @@
+package org.molgenis.settings;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.data.BenchmarkHarness;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
+import org.molgenis.data.mem.InMemoryRepository;
+import org.molgenis.data.meta.MetaDataService;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.DataServiceImpl;
+import org.molgenis.data.support.DynamicEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the latency of a {@link DefaultSettingsEntity} getter when reading from the snapshot and
+ * when bypassing the snapshot like a transaction that changed the settings does. The bypass reads
+ * the settings entity from an in-memory repository, so that the benchmark measures the minimal cost
+ * of a lookup without a database. Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultSettingsEntityBenchmark {
+  private static final String ID = "BenchmarkSettings";
+  private static final String ENTITY_TYPE_ID = "sys_set_" + ID;
+
+  @Param({"false", "true"})
+  private boolean snapshot;
+
+  private BenchmarkHarness benchmarkHarness;
+  private BenchmarkSettings benchmarkSettings;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    benchmarkHarness = new BenchmarkHarness();
+    EntityType entityType = benchmarkHarness.createEntityType(ENTITY_TYPE_ID, "title");
+
+    Repository<Entity> repository = new InMemoryRepository(entityType);
+    Entity entity = new DynamicEntity(entityType);
+    entity.set("id", ID);
+    entity.set("title", "MOLGENIS");
+    repository.add(entity);
+
+    MetaDataService metaDataService = mock(MetaDataService.class);
+    when(metaDataService.getRepository(ENTITY_TYPE_ID)).thenReturn(Optional.of(repository));
+    DataServiceImpl dataService = new DataServiceImpl();
+    dataService.setMetaDataService(metaDataService);
+
+    benchmarkSettings = new BenchmarkSettings();
+    benchmarkSettings.setDataService(dataService);
+    benchmarkSettings.setTransactionInformation(
+        BenchmarkHarness.createTransactionInformation(
+            snapshot ? emptySet() : singleton(ENTITY_TYPE_ID)));
+    benchmarkSettings.setCacheInvalidationBus(new LocalCacheInvalidationBus());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    benchmarkHarness.close();
+  }
+
+  @Benchmark
+  public String getString() {
+    return benchmarkSettings.getString("title");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(DefaultSettingsEntityBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+
+  private static class BenchmarkSettings extends DefaultSettingsEntity {
+    BenchmarkSettings() {
+      super(ID);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package org.molgenis.settings;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.cache.CacheInvalidation;
+import org.molgenis.data.cache.LocalCacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DefaultSettingsEntityTest extends AbstractMockitoTest {
+  private static final String ENTITY_TYPE_ID = "sys_set_TestSettings";
+
+  @Mock private DataService dataService;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private Entity entity;
+  private LocalCacheInvalidationBus cacheInvalidationBus;
+  private TestSettings testSettings;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    cacheInvalidationBus = new LocalCacheInvalidationBus();
+    testSettings = new TestSettings();
+    testSettings.setDataService(dataService);
+    testSettings.setTransactionInformation(transactionInformation);
+    testSettings.setCacheInvalidationBus(cacheInvalidationBus);
+  }
+
+  @Test
+  public void testGetStringReadsSnapshot() {
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+    when(entity.getString("attr")).thenReturn("value");
+
+    assertEquals(testSettings.getString("attr"), "value");
+    assertEquals(testSettings.getString("attr"), "value");
+
+    verify(dataService).findOneById(ENTITY_TYPE_ID, "TestSettings");
+  }
+
+  @Test
+  public void testGetStringAfterCommittedUpdate() {
+    Entity updatedEntity = mock(Entity.class);
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings"))
+        .thenReturn(entity)
+        .thenReturn(updatedEntity);
+    when(entity.getString("attr")).thenReturn("value");
+    when(updatedEntity.getString("attr")).thenReturn("updatedValue");
+
+    assertEquals(testSettings.getString("attr"), "value");
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(
+            emptySet(), singleton(EntityKey.create(ENTITY_TYPE_ID, "TestSettings"))));
+    assertEquals(testSettings.getString("attr"), "updatedValue");
+  }
+
+  @Test
+  public void testGetStringOtherEntityTypeInvalidated() {
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+    when(entity.getString("attr")).thenReturn("value");
+
+    assertEquals(testSettings.getString("attr"), "value");
+    cacheInvalidationBus.publish(
+        CacheInvalidation.create(singleton("sys_set_OtherSettings"), emptySet()));
+    assertEquals(testSettings.getString("attr"), "value");
+
+    verify(dataService).findOneById(ENTITY_TYPE_ID, "TestSettings");
+  }
+
+  @Test
+  public void testGetStringDirtyTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ENTITY_TYPE_ID));
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+    when(entity.getString("attr")).thenReturn("value");
+
+    assertEquals(testSettings.getString("attr"), "value");
+    assertEquals(testSettings.getString("attr"), "value");
+
+    verify(dataService, times(2)).findOneById(ENTITY_TYPE_ID, "TestSettings");
+  }
+
+  @Test
+  public void testGetStringWithoutCacheInvalidationBus() {
+    TestSettings settings = new TestSettings();
+    settings.setDataService(dataService);
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+    when(entity.getString("attr")).thenReturn("value");
+
+    assertEquals(settings.getString("attr"), "value");
+    assertEquals(settings.getString("attr"), "value");
+
+    verify(dataService, times(2)).findOneById(ENTITY_TYPE_ID, "TestSettings");
+  }
+
+  @Test
+  public void testSetUpdatesEntity() {
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+
+    testSettings.set("attr", "value");
+
+    verify(entity).set("attr", "value");
+    verify(dataService).update(ENTITY_TYPE_ID, entity);
+  }
+
+  @Test
+  public void testListenerNotifiedAfterCommittedUpdate() {
+    SettingsEntityListener listener = mock(SettingsEntityListener.class);
+    when(dataService.findOneById(ENTITY_TYPE_ID, "TestSettings")).thenReturn(entity);
+    testSettings.addListener(listener);
+
+    cacheInvalidationBus.publish(CacheInvalidation.complete());
+
+    verify(listener).postUpdate(entity);
+  }
+
+  @Test
+  public void testRemoveListener() {
+    SettingsEntityListener listener = mock(SettingsEntityListener.class);
+    testSettings.addListener(listener);
+    testSettings.removeListener(listener);
+
+    cacheInvalidationBus.publish(CacheInvalidation.complete());
+
+    verifyZeroInteractions(listener, dataService);
+  }
+
+  private static class TestSettings extends DefaultSettingsEntity {
+    TestSettings() {
+      super("TestSettings");
+    }
+  }
+}